@@ -130,11 +130,24 @@ public abstract class WebApplicationInputStream extends ServletInputStream imple
         } else {
             if (inputStream.available() > 0) {
                 read = inputStream.read();
+                index++;
+                if (index == webApplicationRequest.getContentLength() || read == -1) {
+                    finished = true;
+                }
             }
         }
         return read;
     }
 
+    /**
+     * Poll for read listener events.
+     *
+     * <p>
+     * This is the fallback used when a subclass does not override
+     * {@link #startReadListener()}. It checks for available data twice per
+     * second until all data has been read.
+     * </p>
+     */
     @Override
     public void run() {
         while (true) {
@@ -191,6 +204,30 @@ public abstract class WebApplicationInputStream extends ServletInputStream imple
             throw new IllegalStateException("Read listener cannot be set as the request is not upgraded nor the async is started");
         }
         this.readListener = readListener;
+        startReadListener();
+    }
+
+    /**
+     * Signal that data may have become available.
+     *
+     * <p>
+     * Connectors that know when request data arrives call this so the read
+     * listener is notified right away instead of on the next poll. The
+     * default implementation does nothing.
+     * </p>
+     */
+    public void signalReadReady() {
+    }
+
+    /**
+     * Start delivering events to the read listener.
+     *
+     * <p>
+     * The default implementation polls on a dedicated thread, see
+     * {@link #run()}.
+     * </p>
+     */
+    protected void startReadListener() {
         Thread thread = new Thread(this);
         thread.start();
     }
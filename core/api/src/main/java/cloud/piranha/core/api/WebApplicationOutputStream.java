@@ -105,4 +105,16 @@ public abstract class WebApplicationOutputStream extends ServletOutputStream {
      * @param response the web application response.
      */
     public abstract void setResponse(WebApplicationResponse response);
+
+    /**
+     * Signal that writing has become possible again.
+     *
+     * <p>
+     * Connectors that know when the client can accept more data call this so
+     * the write listener is notified. The default implementation does
+     * nothing.
+     * </p>
+     */
+    public void signalWritePossible() {
+    }
 }
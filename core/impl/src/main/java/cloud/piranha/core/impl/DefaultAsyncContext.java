@@ -48,8 +48,8 @@ import static java.lang.System.Logger.Level.WARNING;
 import java.util.ArrayList;
 import java.util.List;
 import static java.util.Objects.requireNonNull;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The default AsyncContext.
@@ -126,9 +126,19 @@ public class DefaultAsyncContext implements AsyncContext {
     private boolean dispatched;
 
     /**
-     * Stores the scheduled thread pool executor.
+     * Stores the async manager.
      */
-    private ScheduledThreadPoolExecutor scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1);
+    private final DefaultAsyncManager asyncManager;
+
+    /**
+     * Stores the ended flag.
+     */
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    /**
+     * Stores the scheduled timeout.
+     */
+    private ScheduledFuture<?> scheduledTimeout;
 
     /**
      * Constructor.
@@ -143,7 +153,9 @@ public class DefaultAsyncContext implements AsyncContext {
         originalRequest = unwrapFully(asyncStartRequest);
         originalResponse = unwrapFully(asyncStartResponse);
 
-        scheduledThreadPoolExecutor.schedule(this::onTimeOut, timeout, MILLISECONDS);
+        asyncManager = DefaultAsyncManager.of(originalRequest.getServletContext());
+        asyncManager.asyncStarted();
+        scheduleTimeout();
     }
 
     @Override
@@ -210,7 +222,7 @@ public class DefaultAsyncContext implements AsyncContext {
     @Override
     public void complete() {
 
-        scheduledThreadPoolExecutor.shutdownNow();
+        end(false);
 
         LOGGER.log(DEBUG, () -> "Completing async processing");
 
@@ -239,7 +251,7 @@ public class DefaultAsyncContext implements AsyncContext {
      * Process on timeout
      */
     public void onTimeOut() {
-        scheduledThreadPoolExecutor.shutdownNow();
+        end(true);
 
         if (!listeners.isEmpty()) {
             listeners.forEach(listener -> {
@@ -264,6 +276,54 @@ public class DefaultAsyncContext implements AsyncContext {
         originalResponse.closeAsyncResponse();
     }
 
+    /**
+     * End the async cycle.
+     *
+     * <p>
+     * This cancels the pending timeout, stops the read listener (if any) and
+     * records the end of the async request with the async manager, once.
+     * </p>
+     *
+     * @param timedOut true if the async cycle timed out.
+     */
+    private void end(boolean timedOut) {
+        if (ended.compareAndSet(false, true)) {
+            cancelTimeout();
+            if (originalRequest.getWebApplicationInputStream() instanceof DefaultWebApplicationInputStream inputStream) {
+                inputStream.stopReadListener();
+            }
+            asyncManager.asyncEnded(timedOut);
+        }
+    }
+
+    /**
+     * Cancel the pending timeout (if any).
+     */
+    private synchronized void cancelTimeout() {
+        if (scheduledTimeout != null) {
+            scheduledTimeout.cancel(false);
+            scheduledTimeout = null;
+        }
+    }
+
+    /**
+     * Schedule the timeout (if any) with the async manager.
+     *
+     * <p>
+     * The timer only fires, the timeout is handled on the listener executor.
+     * </p>
+     */
+    private synchronized void scheduleTimeout() {
+        cancelTimeout();
+        if (timeout > 0 && !ended.get()) {
+            scheduledTimeout = asyncManager.schedule(() -> asyncManager.executeListener(() -> {
+                if (!ended.get()) {
+                    onTimeOut();
+                }
+            }), timeout);
+        }
+    }
+
     @Override
     public ServletRequest getRequest() {
         return asyncStartRequest;
@@ -287,18 +347,18 @@ public class DefaultAsyncContext implements AsyncContext {
     @Override
     public void setTimeout(long timeout) {
         this.timeout = timeout;
+        scheduleTimeout();
     }
 
     /**
-     * Start the thread.
+     * Start the runnable using the executor of the async manager.
      *
      * @param runnable the runnable.
      */
     @Override
     public void start(Runnable runnable) {
         LOGGER.log(DEBUG, "Starting async context with: {0}", runnable);
-        Thread thread = new Thread(runnable);
-        thread.start();
+        asyncManager.execute(runnable);
     }
 
     /**
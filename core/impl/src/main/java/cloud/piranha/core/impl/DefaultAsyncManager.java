@@ -30,13 +30,337 @@ package cloud.piranha.core.impl;
 import cloud.piranha.core.api.AsyncDispatcher;
 import cloud.piranha.core.api.AsyncManager;
 import cloud.piranha.core.api.WebApplication;
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * The default AsyncManager.
+ *
+ * <p>
+ * Every web application has its own async manager, which owns a single timer
+ * thread used for the timeouts of all its async contexts, the executor used to
+ * run the tasks passed to AsyncContext.start, and a separate executor for the
+ * ReadListener and WriteListener callbacks, so long running tasks cannot
+ * starve the I/O callbacks. They are created on first use and shut down when
+ * the web application is stopped. The timer only fires, the timeouts
+ * themselves are handled on the listener executor so a slow AsyncListener
+ * cannot hold up the timeouts of other async contexts.
+ * </p>
+ *
+ * <p>
+ * By default the executor uses at most 200 platform threads and queues at
+ * most 10000 tasks. A task passed to AsyncContext.start while the queue is
+ * full is refused with a RejectedExecutionException. This can be changed
+ * using the following system properties:
+ * </p>
+ * <ul>
+ *  <li>piranha.async.maxThreads - the maximum number of threads</li>
+ *  <li>piranha.async.queueSize - the maximum number of queued tasks</li>
+ *  <li>piranha.async.virtualThreads - true to use a virtual thread per task
+ *  instead</li>
+ * </ul>
+ *
+ * <p>
+ * The ReadListener and WriteListener callbacks always run on virtual threads.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
 public class DefaultAsyncManager implements AsyncManager {
 
+    /**
+     * Stores the async manager used when a web application does not use the
+     * default async manager.
+     *
+     * <p>
+     * This is shared by all such web applications and is never shut down.
+     * Its threads are daemon threads that time out when idle, so it does not
+     * hold on to a web application once its work is done.
+     * </p>
+     */
+    private static final DefaultAsyncManager FALLBACK_ASYNC_MANAGER = new DefaultAsyncManager();
+
+    /**
+     * Stores the number of async requests in flight.
+     */
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /**
+     * Stores the number of completed async requests.
+     */
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     * Stores the executor.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Stores the listener executor.
+     */
+    private ExecutorService listenerExecutor;
+
+    /**
+     * Stores the maximum number of executor threads.
+     */
+    private final int maxThreads;
+
+    /**
+     * Stores the maximum number of queued tasks.
+     */
+    private final int queueSize;
+
+    /**
+     * Stores the number of timed out async requests.
+     */
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * Stores the timer.
+     */
+    private ScheduledThreadPoolExecutor timer;
+
+    /**
+     * Stores the virtual threads flag.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Constructor.
+     */
+    public DefaultAsyncManager() {
+        this(Integer.getInteger("piranha.async.maxThreads", 200),
+                Integer.getInteger("piranha.async.queueSize", 10000),
+                Boolean.getBoolean("piranha.async.virtualThreads"));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxThreads the maximum number of executor threads (ignored when
+     * using virtual threads).
+     * @param virtualThreads true to run every task on its own virtual thread.
+     */
+    public DefaultAsyncManager(int maxThreads, boolean virtualThreads) {
+        this(maxThreads, Integer.getInteger("piranha.async.queueSize", 10000), virtualThreads);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxThreads the maximum number of executor threads (ignored when
+     * using virtual threads).
+     * @param queueSize the maximum number of queued tasks (ignored when using
+     * virtual threads).
+     * @param virtualThreads true to run every task on its own virtual thread.
+     */
+    public DefaultAsyncManager(int maxThreads, int queueSize, boolean virtualThreads) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be positive");
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize must be positive");
+        }
+        this.maxThreads = maxThreads;
+        this.queueSize = queueSize;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Get the default async manager of the given servlet context.
+     *
+     * <p>
+     * When the servlet context is not a web application using the default
+     * async manager a shared fallback async manager is returned.
+     * </p>
+     *
+     * @param servletContext the servlet context.
+     * @return the async manager.
+     */
+    static DefaultAsyncManager of(ServletContext servletContext) {
+        if (servletContext instanceof WebApplication webApplication
+                && webApplication.getManager().getAsyncManager() instanceof DefaultAsyncManager asyncManager) {
+            return asyncManager;
+        }
+        return FALLBACK_ASYNC_MANAGER;
+    }
+
+    /**
+     * Record the end of an async request.
+     *
+     * @param timedOut true if the async request timed out.
+     */
+    void asyncEnded(boolean timedOut) {
+        activeCount.decrementAndGet();
+        if (timedOut) {
+            timeoutCount.incrementAndGet();
+        } else {
+            completedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the start of an async request.
+     */
+    void asyncStarted() {
+        activeCount.incrementAndGet();
+    }
+
+    /**
+     * Execute the given task on the executor.
+     *
+     * @param runnable the task.
+     * @throws java.util.concurrent.RejectedExecutionException when the queue
+     * of the executor is full.
+     */
+    public void execute(Runnable runnable) {
+        getExecutor().execute(runnable);
+    }
+
+    /**
+     * Execute the given ReadListener or WriteListener callback on the
+     * listener executor.
+     *
+     * @param runnable the callback.
+     */
+    public void executeListener(Runnable runnable) {
+        getListenerExecutor().execute(runnable);
+    }
+
+    /**
+     * {@return the number of async requests in flight}
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * {@return the number of completed async requests}
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
     @Override
     public AsyncDispatcher getDispatcher(WebApplication webApplication, String path, ServletRequest asyncStartRequest, ServletResponse asyncStartResponse) {
         return new DefaultAsyncDispatcher(webApplication, path, asyncStartRequest, asyncStartResponse);
     }
+
+    /**
+     * {@return the executor}
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            if (virtualThreads) {
+                executor = Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("DefaultAsyncManager-", 0).factory());
+            } else {
+                AtomicInteger threadCount = new AtomicInteger();
+                ThreadPoolExecutor threadPool = new ThreadPoolExecutor(maxThreads, maxThreads,
+                        60, SECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+                            Thread thread = new Thread(runnable, "DefaultAsyncManager-" + threadCount.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                threadPool.allowCoreThreadTimeOut(true);
+                executor = threadPool;
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * {@return the listener executor}
+     */
+    private synchronized ExecutorService getListenerExecutor() {
+        if (listenerExecutor == null) {
+            listenerExecutor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("DefaultAsyncManager-listener-", 0).factory());
+        }
+        return listenerExecutor;
+    }
+
+    /**
+     * {@return the number of timed out async requests}
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Get the timer.
+     *
+     * @return the timer.
+     */
+    private synchronized ScheduledThreadPoolExecutor getTimer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "DefaultAsyncManager-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+            timer.setKeepAliveTime(60, SECONDS);
+            timer.allowCoreThreadTimeOut(true);
+        }
+        return timer;
+    }
+
+    /**
+     * Schedule the given task on the timer.
+     *
+     * @param runnable the task.
+     * @param delay the delay (in milliseconds).
+     * @return the scheduled future.
+     */
+    public ScheduledFuture<?> schedule(Runnable runnable, long delay) {
+        return getTimer().schedule(runnable, delay, MILLISECONDS);
+    }
+
+    /**
+     * Set the executor.
+     *
+     * <p>
+     * The previous executor (if any) is not shut down.
+     * </p>
+     *
+     * @param executor the executor.
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Shut down the timer and the executors.
+     *
+     * <p>
+     * This is called when the web application is stopped. They are created
+     * again when needed.
+     * </p>
+     */
+    public synchronized void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (listenerExecutor != null) {
+            listenerExecutor.shutdown();
+            listenerExecutor = null;
+        }
+    }
 }
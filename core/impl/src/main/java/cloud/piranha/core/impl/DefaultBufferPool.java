@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.core.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * The default buffer pool.
+ *
+ * <p>
+ * A bounded pool of byte arrays of a single size. Arrays of that size are
+ * recycled, any other size is simply allocated (and dropped on release). The
+ * pool never blocks, when it is empty a new array is allocated and when it is
+ * full a released array is left to the garbage collector.
+ * </p>
+ *
+ * <p>
+ * The pool shared by the response output streams is disabled by default. To
+ * enable it set the <code>piranha.response.bufferPool</code> system property
+ * to the number of response buffers to retain.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class DefaultBufferPool {
+
+    /**
+     * Stores the shared response buffer pool (or null if disabled).
+     */
+    private static final DefaultBufferPool RESPONSE_BUFFER_POOL
+            = createResponseBufferPool(Integer.getInteger("piranha.response.bufferPool", 0));
+
+    /**
+     * Stores the pooled buffers.
+     */
+    private final ArrayBlockingQueue<byte[]> buffers;
+
+    /**
+     * Stores the buffer size.
+     */
+    private final int bufferSize;
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize the size of the pooled buffers.
+     * @param capacity the maximum number of buffers to retain.
+     */
+    public DefaultBufferPool(int bufferSize, int capacity) {
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Acquire a buffer.
+     *
+     * @param size the size of the buffer.
+     * @return the buffer.
+     */
+    public byte[] acquire(int size) {
+        if (size == bufferSize) {
+            byte[] buffer = buffers.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[size];
+    }
+
+    /**
+     * Create the shared response buffer pool.
+     *
+     * @param capacity the maximum number of buffers to retain.
+     * @return the response buffer pool, or null if the capacity is not
+     * positive.
+     */
+    private static DefaultBufferPool createResponseBufferPool(int capacity) {
+        if (capacity <= 0) {
+            return null;
+        }
+        return new DefaultBufferPool(8192, capacity);
+    }
+
+    /**
+     * {@return the size of the pooled buffers}
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * {@return the number of buffers currently retained}
+     */
+    public int getPooledCount() {
+        return buffers.size();
+    }
+
+    /**
+     * {@return the shared response buffer pool, or null if disabled}
+     */
+    public static DefaultBufferPool getResponseBufferPool() {
+        return RESPONSE_BUFFER_POOL;
+    }
+
+    /**
+     * Release a buffer back to the pool.
+     *
+     * @param buffer the buffer.
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The default HttpSession.
@@ -43,6 +44,11 @@ import java.util.UUID;
 @SuppressWarnings("deprecation")
 public class DefaultHttpSession implements HttpSession {
 
+    /**
+     * Stores the number of requests currently using the session.
+     */
+    private final AtomicInteger activeRequestCount = new AtomicInteger();
+
     /**
      * Stores the attributes.
      */
@@ -117,6 +123,22 @@ public class DefaultHttpSession implements HttpSession {
         this.valid = true;
     }
 
+    /**
+     * Decrement the number of requests currently using the session.
+     *
+     * @return the new number of requests.
+     */
+    public int decrementActiveRequestCount() {
+        return activeRequestCount.decrementAndGet();
+    }
+
+    /**
+     * {@return the number of requests currently using the session}
+     */
+    public int getActiveRequestCount() {
+        return activeRequestCount.get();
+    }
+
     @Override
     public Object getAttribute(String name) {
         verifyValid("getAttribute");
@@ -156,6 +178,15 @@ public class DefaultHttpSession implements HttpSession {
         return servletContext;
     }
 
+    /**
+     * Increment the number of requests currently using the session.
+     *
+     * @return the new number of requests.
+     */
+    public int incrementActiveRequestCount() {
+        return activeRequestCount.incrementAndGet();
+    }
+
     @Override
     public void invalidate() {
         verifyValid("invalidate");
@@ -206,6 +237,9 @@ public class DefaultHttpSession implements HttpSession {
     @Override
     public void setMaxInactiveInterval(int maxInactiveInterval) {
         this.maxInactiveInterval = maxInactiveInterval;
+        if (valid && sessionManager instanceof DefaultHttpSessionManager defaultSessionManager) {
+            defaultSessionManager.scheduleExpiry(this);
+        }
     }
 
     /**
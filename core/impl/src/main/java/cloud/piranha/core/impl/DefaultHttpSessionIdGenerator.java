@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.core.impl;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * The default HTTP session id generator.
+ *
+ * <p>
+ * A session id is a number of random bytes taken from a secure random number
+ * generator, encoded as URL-safe Base64 without padding so it can be used in a
+ * cookie or URL as is. To avoid all threads contending on a single random
+ * number generator the generator is striped over a number of independently
+ * seeded instances.
+ * </p>
+ *
+ * <p>
+ * The defaults can be changed using the following system properties:
+ * </p>
+ * <ul>
+ *  <li>piranha.session.idLength - the number of random bytes (default 16)</li>
+ *  <li>piranha.session.idAlgorithm - the secure random algorithm (default is
+ *  the platform default)</li>
+ * </ul>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class DefaultHttpSessionIdGenerator {
+
+    /**
+     * Stores the default length (in bytes).
+     */
+    private static final int DEFAULT_LENGTH = 16;
+
+    /**
+     * Stores the encoder.
+     */
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * Stores the length (in bytes).
+     */
+    private final int length;
+
+    /**
+     * Stores the secure random stripes.
+     */
+    private final SecureRandom[] randoms;
+
+    /**
+     * Constructor.
+     *
+     * <p>
+     * This uses the system properties (if set) for the length and algorithm.
+     * </p>
+     */
+    public DefaultHttpSessionIdGenerator() {
+        this(Integer.getInteger("piranha.session.idLength", DEFAULT_LENGTH),
+                System.getProperty("piranha.session.idAlgorithm"));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param length the number of random bytes in a session id.
+     * @param algorithm the secure random algorithm, or null for the platform
+     * default.
+     * @throws IllegalArgumentException when the length is not positive or the
+     * algorithm is not available.
+     */
+    public DefaultHttpSessionIdGenerator(int length, String algorithm) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Session id length must be positive");
+        }
+        this.length = length;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.randoms = new SecureRandom[stripes];
+        for (int i = 0; i < stripes; i++) {
+            randoms[i] = createSecureRandom(algorithm);
+        }
+    }
+
+    /**
+     * Create a secure random.
+     *
+     * @param algorithm the algorithm, or null for the platform default.
+     * @return the secure random.
+     */
+    private static SecureRandom createSecureRandom(String algorithm) {
+        if (algorithm == null) {
+            return new SecureRandom();
+        }
+        try {
+            return SecureRandom.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalArgumentException("Unable to create secure random for " + algorithm, nsae);
+        }
+    }
+
+    /**
+     * Generate a session id.
+     *
+     * @return the session id.
+     */
+    public String generateId() {
+        byte[] bytes = new byte[length];
+        SecureRandom random = randoms[(int) Thread.currentThread().threadId() & (randoms.length - 1)];
+        random.nextBytes(bytes);
+        return ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * {@return the number of random bytes in a session id}
+     */
+    public int getLength() {
+        return length;
+    }
+}
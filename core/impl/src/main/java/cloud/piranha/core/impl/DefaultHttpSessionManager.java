@@ -54,13 +54,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -106,6 +100,11 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
      */
     protected int maxAge;
 
+    /**
+     * Stores the session reaper (or null to use the default reaper).
+     */
+    protected DefaultHttpSessionReaper reaper;
+
     /**
      * Stores the name.
      */
@@ -122,14 +121,14 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
     protected boolean secure;
 
     /**
-     * Stores the session counters.
+     * Stores the cookie attributes.
      */
-    protected final Map<String, AtomicInteger> sessionCounters = new HashMap<>();
+    protected HashMap<String, String> sessionCookieAttributes;
 
     /**
-     * Stores the cookie attributes.
+     * Stores the session id generator.
      */
-    protected HashMap<String, String> sessionCookieAttributes;
+    protected DefaultHttpSessionIdGenerator sessionIdGenerator;
 
     /**
      * Stores the session listeners.
@@ -170,13 +169,7 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
         sessionTimeout = 10;
         maxAge = -1;
         sessions = new ConcurrentHashMap<>();
-        ThreadFactory threadFactory = (Runnable r) -> {
-            Thread thread = new Thread(r);
-            thread.setDaemon(true);
-            return thread;
-        };
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, threadFactory);
-        scheduler.scheduleWithFixedDelay(this::reapSessions, 0, 1300, MILLISECONDS);
+        sessionIdGenerator = new DefaultHttpSessionIdGenerator();
     }
 
     @Override
@@ -226,25 +219,44 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
             throw new IllegalStateException("No session active");
         }
         String oldSessionId = session.getId();
-        sessions.remove(oldSessionId);
-        String sessionId = UUID.randomUUID().toString();
+        String sessionId = sessionIdGenerator.generateId();
+        while (sessions.putIfAbsent(sessionId, session) != null) {
+            sessionId = sessionIdGenerator.generateId();
+        }
         DefaultHttpSession newSession = (DefaultHttpSession) session;
         newSession.setId(sessionId);
-        sessions.put(sessionId, session);
+        sessions.remove(oldSessionId);
         idListeners.stream().forEach(idListener -> idListener.sessionIdChanged(new HttpSessionEvent(session), oldSessionId));
         return sessionId;
     }
 
     @Override
-    @SuppressWarnings({"deprecation", "removal"})
-    public synchronized HttpSession createSession(HttpServletRequest request) {
-        String sessionId = UUID.randomUUID().toString();
+    public HttpSession createSession(HttpServletRequest request) {
+        String sessionId = sessionIdGenerator.generateId();
         DefaultHttpSession session = new DefaultHttpSession(webApplication, sessionId, true);
         session.setMaxInactiveInterval(getSessionTimeout() * 60);
         session.setSessionManager(this);
-        sessions.put(sessionId, session);
-        sessionCounters.put(session.getId(), new AtomicInteger(1));
+        session.incrementActiveRequestCount();
+        while (sessions.putIfAbsent(sessionId, session) != null) {
+            sessionId = sessionIdGenerator.generateId();
+            session.setId(sessionId);
+        }
+        scheduleExpiry(session);
         HttpServletResponse response = (HttpServletResponse) webApplication.getResponse(request);
+        response.addCookie(createSessionCookie(request, sessionId));
+        sessionListeners.stream().forEach(sessionListener -> sessionListener.sessionCreated(new HttpSessionEvent(session)));
+        return session;
+    }
+
+    /**
+     * Create the session cookie.
+     *
+     * @param request the request.
+     * @param sessionId the session id.
+     * @return the session cookie.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    protected Cookie createSessionCookie(HttpServletRequest request, String sessionId) {
         Cookie cookie = new Cookie(name, sessionId);
         if (path != null) {
             cookie.setPath(path);
@@ -258,18 +270,16 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
         cookie.setHttpOnly(httpOnly);
         cookie.setMaxAge(maxAge);
         cookie.setSecure(secure);
-        response.addCookie(cookie);
-        sessionListeners.stream().forEach(sessionListener -> sessionListener.sessionCreated(new HttpSessionEvent(session)));
-        return session;
+        return cookie;
     }
 
     @Override
-    public synchronized void destroySession(HttpSession session) {
+    public void destroySession(HttpSession session) {
         for (HttpSessionListener sessionListener : sessionListeners) {
             sessionListener.sessionDestroyed(new HttpSessionEvent(session));
         }
         sessions.remove(session.getId());
-        sessionCounters.remove(session.getId());
+        getReaper().cancel(session);
         Iterator<String> attributeNames = session.getAttributeNames().asIterator();
         while(attributeNames.hasNext()) {
             String attributeName = attributeNames.next();
@@ -358,26 +368,139 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
     }
 
     /**
-     * Reap any inactive session.
+     * Expire the session if it is due.
+     *
+     * <p>
+     * This is called by the session reaper once the deadline it was given for
+     * the session has passed. A session that is still in use by a request, or
+     * that was accessed since, is not expired and the next deadline is
+     * returned instead.
+     * </p>
+     *
+     * @param session the session.
+     * @param now the current time (in milliseconds).
+     * @return the next deadline (in milliseconds), 0 if the session was
+     * expired, or -1 if the session is no longer managed.
+     */
+    protected long expireSession(HttpSession session, long now) {
+        try {
+            HttpSession current = sessions.get(session.getId());
+            if (current == null) {
+                return -1;
+            }
+            if (current instanceof DefaultHttpSession defaultSession
+                    && defaultSession.getActiveRequestCount() > 0) {
+                return now + 1000;
+            }
+            if (current.getMaxInactiveInterval() <= 0) {
+                return -1;
+            }
+            long deadline = getExpiryDeadline(current);
+            if (deadline > now) {
+                return deadline;
+            }
+            current.invalidate();
+            return 0;
+        } catch (IllegalStateException ise) {
+            return -1;
+        }
+    }
+
+    /**
+     * Destroy the session manager.
+     *
+     * <p>
+     * This cancels the expiry of all its sessions so the reaper no longer
+     * holds on to the session manager (and its web application).
+     * </p>
      */
-    protected void reapSessions() {
-        ArrayList<String> keys = new ArrayList<>();
-        keys.addAll(sessions.keySet());
-        keys.forEach(sessionId -> {
-            HttpSession session = sessions.get(sessionId);
-            if (session != null) {
-                synchronized (session) {
-                    if (sessionCounters.getOrDefault(session.getId(), new AtomicInteger(0)).intValue() <= 0) {
-                        try {
-                            if (session.getLastAccessedTime() + (session.getMaxInactiveInterval() * 1000L) - 1300 < System.currentTimeMillis()) {
-                                session.invalidate();
-                            }
-                        } catch (IllegalStateException ise) {
-                            // nothing to do
-                        }
-                    }
-                }
+    public void destroy() {
+        if (reaper != null) {
+            reaper.cancelAll(this);
+        }
+    }
+
+    /**
+     * Get the time at which the session is due to expire.
+     *
+     * @param session the session.
+     * @return the deadline (in milliseconds).
+     */
+    private long getExpiryDeadline(HttpSession session) {
+        return session.getLastAccessedTime() + session.getMaxInactiveInterval() * 1000L;
+    }
+
+    /**
+     * Get the session reaper.
+     *
+     * <p>
+     * If no reaper was set the default reaper is used.
+     * </p>
+     *
+     * @return the session reaper.
+     */
+    public DefaultHttpSessionReaper getReaper() {
+        if (reaper == null) {
+            reaper = DefaultHttpSessionReaper.getDefault();
+        }
+        return reaper;
+    }
+
+    /**
+     * {@return the session id generator}
+     */
+    public DefaultHttpSessionIdGenerator getSessionIdGenerator() {
+        return sessionIdGenerator;
+    }
+
+    /**
+     * Reap any inactive session that is due.
+     *
+     * @return the number of sessions reaped.
+     */
+    protected int reapSessions() {
+        return getReaper().reap();
+    }
+
+    /**
+     * Schedule (or reschedule) the expiry of a session.
+     *
+     * <p>
+     * A session that never times out is not scheduled (and any earlier
+     * schedule is cancelled).
+     * </p>
+     *
+     * @param session the session.
+     */
+    protected void scheduleExpiry(HttpSession session) {
+        try {
+            if (session.getMaxInactiveInterval() <= 0) {
+                getReaper().cancel(session);
+                return;
             }
+            getReaper().schedule(this, session, getExpiryDeadline(session));
+        } catch (IllegalStateException ise) {
+            // nothing to do as the session is already invalid.
+        }
+    }
+
+    /**
+     * Set the session reaper.
+     *
+     * <p>
+     * This allows the web applications of a single Piranha instance to share
+     * their own reaper instead of the default one. Sessions that were already
+     * scheduled are moved to the new reaper.
+     * </p>
+     *
+     * @param reaper the session reaper.
+     */
+    public void setReaper(DefaultHttpSessionReaper reaper) {
+        DefaultHttpSessionReaper previous = getReaper();
+        this.reaper = reaper;
+        sessions.values().forEach(session -> {
+            previous.cancel(session);
+            scheduleExpiry(session);
         });
     }
 
@@ -437,6 +560,15 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
         this.secure = secure;
     }
 
+    /**
+     * Set the session id generator.
+     *
+     * @param sessionIdGenerator the session id generator.
+     */
+    public void setSessionIdGenerator(DefaultHttpSessionIdGenerator sessionIdGenerator) {
+        this.sessionIdGenerator = sessionIdGenerator;
+    }
+
     @Override
     public void setSessionTimeout(int sessionTimeout) {
         this.sessionTimeout = sessionTimeout;
@@ -458,14 +590,8 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
     @Override
     public void requestInitialized(ServletRequestEvent event) {
         if (event.getServletRequest() instanceof HttpServletRequest httpRequest) {
-            HttpSession session = httpRequest.getSession(false);
-            if (session != null) {
-                synchronized (session) {
-                    AtomicInteger integer = sessionCounters.get(session.getId());
-                    if (integer != null) {
-                        integer.incrementAndGet();
-                    }
-                }
+            if (httpRequest.getSession(false) instanceof DefaultHttpSession session) {
+                session.incrementActiveRequestCount();
             }
         }
     }
@@ -473,14 +599,8 @@ public class DefaultHttpSessionManager implements HttpSessionManager, SessionCoo
     @Override
     public void requestDestroyed(ServletRequestEvent event) {
         if (event.getServletRequest() instanceof HttpServletRequest httpRequest) {
-            HttpSession session = httpRequest.getSession(false);
-            if (session != null) {
-                synchronized (session) {
-                    AtomicInteger integer = sessionCounters.get(session.getId());
-                    if (integer != null) {
-                        integer.decrementAndGet();
-                    }
-                }
+            if (httpRequest.getSession(false) instanceof DefaultHttpSession session) {
+                session.decrementActiveRequestCount();
             }
         }
     }
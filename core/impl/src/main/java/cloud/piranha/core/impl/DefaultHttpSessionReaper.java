@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.core.impl;
+
+import jakarta.servlet.http.HttpSession;
+import java.lang.System.Logger;
+import static java.lang.System.Logger.Level.WARNING;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default HTTP session reaper.
+ *
+ * <p>
+ * Sessions are indexed by the time at which they are due to expire. Every
+ * tick only the sessions that are due are handed back to their session
+ * manager, which either expires them or tells the reaper when to look again
+ * (e.g. because the session was accessed in the meantime). A session that is
+ * not due is never looked at.
+ * </p>
+ *
+ * <p>
+ * A Piranha instance hosting web applications owns a reaper (and thread) and
+ * sets it on the session managers of its web applications, see
+ * {@link DefaultHttpSessionManager#setReaper(DefaultHttpSessionReaper)}. A
+ * session manager without a reaper falls back to the JVM wide default reaper,
+ * see {@link #getDefault()}. Either way a session manager cancels all of its
+ * entries when its web application is destroyed.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class DefaultHttpSessionReaper {
+
+    /**
+     * Stores the logger.
+     */
+    private static final Logger LOGGER = System.getLogger(DefaultHttpSessionReaper.class.getName());
+
+    /**
+     * Stores the default reaper.
+     */
+    private static volatile DefaultHttpSessionReaper defaultReaper;
+
+    /**
+     * Stores the scheduled entries keyed by session.
+     */
+    private final Map<HttpSession, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the scheduled entries ordered by deadline.
+     */
+    private final ConcurrentSkipListSet<Entry> deadlines = new ConcurrentSkipListSet<>();
+
+    /**
+     * Stores the number of sessions reaped during the last tick.
+     */
+    private volatile int lastReapedCount;
+
+    /**
+     * Stores the total number of sessions reaped.
+     */
+    private final AtomicLong reapedCount = new AtomicLong();
+
+    /**
+     * Stores the scheduler (or null if not started).
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Stores the sequence used to order entries with the same deadline.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Stores the tick interval (in milliseconds).
+     */
+    private final long tickInterval;
+
+    /**
+     * Constructor.
+     *
+     * @param tickInterval the tick interval (in milliseconds).
+     */
+    public DefaultHttpSessionReaper(long tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    /**
+     * Cancel the expiry of a session.
+     *
+     * @param session the session.
+     */
+    public void cancel(HttpSession session) {
+        Entry entry = entries.remove(session);
+        if (entry != null) {
+            deadlines.remove(entry);
+        }
+    }
+
+    /**
+     * Cancel the expiry of all the sessions of a session manager.
+     *
+     * @param manager the session manager.
+     */
+    public void cancelAll(DefaultHttpSessionManager manager) {
+        entries.values().removeIf(entry -> {
+            if (entry.manager == manager) {
+                deadlines.remove(entry);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Get the default reaper.
+     *
+     * <p>
+     * The default reaper ticks once per second on a daemon thread that is
+     * started on first use. It is only used by session managers that were not
+     * given a reaper by their Piranha instance.
+     * </p>
+     *
+     * @return the default reaper.
+     */
+    public static DefaultHttpSessionReaper getDefault() {
+        DefaultHttpSessionReaper reaper = defaultReaper;
+        if (reaper == null) {
+            synchronized (DefaultHttpSessionReaper.class) {
+                reaper = defaultReaper;
+                if (reaper == null) {
+                    reaper = new DefaultHttpSessionReaper(1000);
+                    reaper.start();
+                    defaultReaper = reaper;
+                }
+            }
+        }
+        return reaper;
+    }
+
+    /**
+     * {@return the number of sessions reaped during the last tick}
+     */
+    public int getLastReapedCount() {
+        return lastReapedCount;
+    }
+
+    /**
+     * {@return the total number of sessions reaped}
+     */
+    public long getReapedCount() {
+        return reapedCount.get();
+    }
+
+    /**
+     * {@return the number of sessions scheduled for expiry}
+     */
+    public int getScheduledCount() {
+        return entries.size();
+    }
+
+    /**
+     * Reap the sessions that are due.
+     *
+     * <p>
+     * When the session manager fails to expire a session the failure is
+     * logged and the session is looked at again after the tick interval, the
+     * other sessions that are due are still reaped.
+     * </p>
+     *
+     * @return the number of sessions reaped.
+     */
+    public int reap() {
+        long now = System.currentTimeMillis();
+        int reaped = 0;
+        Entry entry = deadlines.pollFirst();
+        while (entry != null) {
+            if (entry.deadline > now) {
+                deadlines.add(entry);
+                break;
+            }
+            if (entries.get(entry.session) == entry) {
+                long deadline;
+                try {
+                    deadline = entry.manager.expireSession(entry.session, now);
+                } catch (RuntimeException re) {
+                    LOGGER.log(WARNING, "Unable to expire session, retrying after the tick interval", re);
+                    deadline = now + Math.max(tickInterval, 1);
+                }
+                if (deadline <= 0) {
+                    entries.remove(entry.session, entry);
+                    if (deadline == 0) {
+                        reaped++;
+                    }
+                } else {
+                    Entry next = new Entry(entry.manager, entry.session, deadline, sequence.incrementAndGet());
+                    if (entries.replace(entry.session, entry, next)) {
+                        deadlines.add(next);
+                    }
+                }
+            }
+            entry = deadlines.pollFirst();
+        }
+        lastReapedCount = reaped;
+        reapedCount.addAndGet(reaped);
+        return reaped;
+    }
+
+    /**
+     * Schedule the expiry of a session.
+     *
+     * <p>
+     * When the session was already scheduled it is rescheduled.
+     * </p>
+     *
+     * @param manager the session manager.
+     * @param session the session.
+     * @param deadline the time (in milliseconds) at which the session is due.
+     */
+    public void schedule(DefaultHttpSessionManager manager, HttpSession session, long deadline) {
+        Entry entry = new Entry(manager, session, deadline, sequence.incrementAndGet());
+        Entry previous = entries.put(session, entry);
+        if (previous != null) {
+            deadlines.remove(previous);
+        }
+        deadlines.add(entry);
+    }
+
+    /**
+     * Start ticking on a daemon thread.
+     */
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "DefaultHttpSessionReaper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::tick, tickInterval, tickInterval, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop ticking.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Perform a tick.
+     */
+    private void tick() {
+        try {
+            reap();
+        } catch (RuntimeException re) {
+            LOGGER.log(WARNING, "An error occurred while reaping sessions", re);
+        }
+    }
+
+    /**
+     * An entry in the deadline index.
+     */
+    private static class Entry implements Comparable<Entry> {
+
+        /**
+         * Stores the deadline.
+         */
+        private final long deadline;
+
+        /**
+         * Stores the session manager.
+         */
+        private final DefaultHttpSessionManager manager;
+
+        /**
+         * Stores the sequence.
+         */
+        private final long sequence;
+
+        /**
+         * Stores the session.
+         */
+        private final HttpSession session;
+
+        /**
+         * Constructor.
+         *
+         * @param manager the session manager.
+         * @param session the session.
+         * @param deadline the deadline.
+         * @param sequence the sequence.
+         */
+        Entry(DefaultHttpSessionManager manager, HttpSession session, long deadline, long sequence) {
+            this.deadline = deadline;
+            this.manager = manager;
+            this.sequence = sequence;
+            this.session = session;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Long.compare(deadline, other.deadline);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -32,13 +32,14 @@ import static jakarta.servlet.http.MappingMatch.DEFAULT;
 import static jakarta.servlet.http.MappingMatch.EXACT;
 import static jakarta.servlet.http.MappingMatch.EXTENSION;
 import static jakarta.servlet.http.MappingMatch.PATH;
-import static java.util.Collections.reverse;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import cloud.piranha.core.api.FilterEnvironment;
 import cloud.piranha.core.api.FilterPriority;
@@ -57,12 +58,36 @@ import jakarta.servlet.ServletException;
  * Invocations returned by this finder take into account the various mappings,
  * filters, welcome files and the default servlet.
  *
+ * <p>
+ * Filter mappings are matched against the normalized path, that is without
+ * query string and path parameters and with empty, "." and ".." segments
+ * resolved. While the web application is servicing, the ordered filters
+ * found for a dispatcher type, servlet name and normalized path are cached so
+ * repeated dispatches to the same path do not match the filter mappings
+ * again. The cache keeps the most recently used entries up to a fixed size,
+ * evicting the least recently used entry, and is cleared when filters or
+ * filter mappings change.
  *
  * @author Arjan Tijms
  *
  */
 public class DefaultInvocationFinder {
 
+    /**
+     * Stores the maximum number of cached filter lists.
+     */
+    private static final int MAX_CACHED_FILTERS = 1024;
+
+    /**
+     * Stores the cached filter lists (ordered as they appear in the chain).
+     */
+    private final LinkedHashMap<String, List<FilterEnvironment>> filterCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<FilterEnvironment>> eldest) {
+            return size() > MAX_CACHED_FILTERS;
+        }
+    };
+
     /**
      * Stores the web application.
      */
@@ -144,7 +169,7 @@ public class DefaultInvocationFinder {
         }
 
         List<FilterEnvironment> filterEnvironments =
-            findFilterEnvironments(
+            findOrderedFilterEnvironments(
                 dispatcherType,
                 // Look at the servletInvocation if there is one, as a welcome file can be set
                 // that differs from the request path
@@ -166,6 +191,20 @@ public class DefaultInvocationFinder {
         return servletInvocation;
     }
 
+    /**
+     * Clear the cached filter lists.
+     *
+     * <p>
+     * This needs to be called whenever filters or filter mappings are added,
+     * removed or replaced.
+     * </p>
+     */
+    public void clearCache() {
+        synchronized (filterCache) {
+            filterCache.clear();
+        }
+    }
+
     /**
      * Find the servlet invocation by servlet name.
      *
@@ -364,27 +403,114 @@ public class DefaultInvocationFinder {
         return filterEnvironments;
     }
 
-    private FilterChain findFilterChain(List<FilterEnvironment> filterEnvironments, FilterChain initialFilterChain) {
-        List<FilterEnvironment> prioritisedFilters = filterEnvironments.stream()
+    /**
+     * Find the filter environments ordered as they appear in the filter
+     * chain.
+     *
+     * @param dispatcherType the dispatcher type.
+     * @param servletPath the servlet path to which filters should apply.
+     * @param pathInfo the path info to which filters should apply.
+     * @param servletName name of the servlet to be filtered, if any. Can be
+     * null.
+     * @return the ordered filter environments, or null if there are none.
+     */
+    private List<FilterEnvironment> findOrderedFilterEnvironments(DispatcherType dispatcherType, String servletPath, String pathInfo, String servletName) {
+        String path = normalizePath(servletPath + (pathInfo == null ? "" : pathInfo));
+        if (!webApplication.isServicing()) {
+            return orderFilterEnvironments(findFilterEnvironments(dispatcherType, path, null, servletName));
+        }
+        String key = dispatcherType.name() + ':' + servletName + ':' + path;
+        List<FilterEnvironment> filterEnvironments;
+        synchronized (filterCache) {
+            filterEnvironments = filterCache.get(key);
+        }
+        if (filterEnvironments == null) {
+            filterEnvironments = orderFilterEnvironments(findFilterEnvironments(dispatcherType, path, null, servletName));
+            synchronized (filterCache) {
+                filterCache.put(key, filterEnvironments == null ? List.of() : filterEnvironments);
+            }
+        } else if (filterEnvironments.isEmpty()) {
+            filterEnvironments = null;
+        }
+        return filterEnvironments;
+    }
+
+    /**
+     * Normalize the path for matching the filter mappings.
+     *
+     * <p>
+     * The query string and the path parameters are removed and empty, "."
+     * and ".." segments are resolved. A path that would go above the root is
+     * returned without its query string and path parameters only.
+     * </p>
+     *
+     * @param path the path.
+     * @return the normalized path.
+     */
+    static String normalizePath(String path) {
+        int queryIndex = path.indexOf('?');
+        if (queryIndex != -1) {
+            path = path.substring(0, queryIndex);
+        }
+        if (path.indexOf(';') == -1 && path.indexOf("//") == -1 && path.indexOf("/.") == -1) {
+            return path;
+        }
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            int parameterIndex = segments[i].indexOf(';');
+            if (parameterIndex != -1) {
+                segments[i] = segments[i].substring(0, parameterIndex);
+            }
+        }
+        List<String> normalized = new ArrayList<>(segments.length);
+        for (String segment : segments) {
+            if (segment.equals("..")) {
+                if (normalized.isEmpty()) {
+                    return String.join("/", segments);
+                }
+                normalized.remove(normalized.size() - 1);
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                normalized.add(segment);
+            }
+        }
+        StringBuilder result = new StringBuilder(path.length());
+        for (String segment : normalized) {
+            result.append('/').append(segment);
+        }
+        String last = segments[segments.length - 1];
+        if (result.isEmpty() || last.isEmpty() || last.equals(".") || last.equals("..")) {
+            result.append('/');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Order the filter environments as they should appear in the filter
+     * chain, the filters with a priority first (sorted on priority) followed
+     * by the other filters in mapping order.
+     *
+     * @param filterEnvironments the filter environments (may be null).
+     * @return the ordered filter environments, or null if there are none.
+     */
+    private List<FilterEnvironment> orderFilterEnvironments(List<FilterEnvironment> filterEnvironments) {
+        if (filterEnvironments == null) {
+            return null;
+        }
+        List<FilterEnvironment> orderedEnvironments = new ArrayList<>(filterEnvironments.size());
+        filterEnvironments.stream()
                 .filter(e -> e.getFilter() instanceof FilterPriority)
                 .sorted(this::sortOnPriority)
-                .toList();
-
-        List<FilterEnvironment> notPrioritisedFilters = filterEnvironments.stream()
+                .forEach(orderedEnvironments::add);
+        filterEnvironments.stream()
                 .filter(e -> !(e.getFilter() instanceof FilterPriority))
-                .toList();
-
-        List<FilterEnvironment> currentEnvironments = new ArrayList<>();
-        currentEnvironments.addAll(prioritisedFilters);
-        currentEnvironments.addAll(notPrioritisedFilters);
-
-        reverse(currentEnvironments);
+                .forEach(orderedEnvironments::add);
+        return List.copyOf(orderedEnvironments);
+    }
 
+    private FilterChain findFilterChain(List<FilterEnvironment> filterEnvironments, FilterChain initialFilterChain) {
         FilterChain downFilterChain = initialFilterChain;
-        FilterChain upFilterChain;
-        for (FilterEnvironment filterEnvironment : currentEnvironments) {
-            upFilterChain = new DefaultFilterChain(filterEnvironment.getFilter(), downFilterChain);
-            downFilterChain = upFilterChain;
+        for (int i = filterEnvironments.size() - 1; i >= 0; i--) {
+            downFilterChain = new DefaultFilterChain(filterEnvironments.get(i).getFilter(), downFilterChain);
         }
 
         return downFilterChain;
@@ -362,6 +362,7 @@ public class DefaultWebApplication implements WebApplication {
             filters.put(filterName, defaultFilterEnvironment);
         }
         defaultFilterEnvironment.setClassName(className);
+        invocationFinder.clearCache();
         return defaultFilterEnvironment;
     }
 
@@ -378,15 +379,20 @@ public class DefaultWebApplication implements WebApplication {
         }
         DefaultFilterEnvironment filterEnvironment = new DefaultFilterEnvironment(this, filterName, filter);
         filters.put(filterName, filterEnvironment);
+        invocationFinder.clearCache();
         return filterEnvironment;
     }
 
     @Override
     public Set<String> addFilterMapping(Set<DispatcherType> dispatcherTypes, String filterName, boolean isMatchAfter, String... urlPatterns) {
+        Set<String> result;
         if (isMatchAfter) {
-            return webApplicationRequestMapper.addFilterMapping(dispatcherTypes, filterName, urlPatterns);
+            result = webApplicationRequestMapper.addFilterMapping(dispatcherTypes, filterName, urlPatterns);
+        } else {
+            result = webApplicationRequestMapper.addFilterMappingBeforeExisting(dispatcherTypes, filterName, urlPatterns);
         }
-        return webApplicationRequestMapper.addFilterMappingBeforeExisting(dispatcherTypes, filterName, urlPatterns);
+        invocationFinder.clearCache();
+        return result;
     }
 
     @Override
@@ -638,6 +644,14 @@ public class DefaultWebApplication implements WebApplication {
         reverse(declaredContextListeners);
         declaredContextListeners.stream().forEach(listener -> listener.contextDestroyed(new ServletContextEvent(this)));
         declaredContextListeners.clear();
+
+        if (manager.getHttpSessionManager() instanceof DefaultHttpSessionManager sessionManager) {
+            sessionManager.destroy();
+        }
+
+        if (manager.getResourceManager() != null) {
+            manager.getResourceManager().close();
+        }
         status = SETUP;
         return this;
     }
@@ -1342,6 +1356,7 @@ public class DefaultWebApplication implements WebApplication {
     @Override
     public void setWebApplicationRequestMapper(WebApplicationRequestMapper webApplicationRequestMapper) {
         this.webApplicationRequestMapper = webApplicationRequestMapper;
+        invocationFinder.clearCache();
     }
 
     @Override
@@ -1358,6 +1373,10 @@ public class DefaultWebApplication implements WebApplication {
         LOGGER.log(DEBUG, "Stopping web application at {0}", contextPath);
         verifyState(SERVICING, "Unable to stop servicing");
         status = INITIALIZED;
+        invocationFinder.clearCache();
+        if (manager.getAsyncManager() instanceof DefaultAsyncManager asyncManager) {
+            asyncManager.shutdown();
+        }
         LOGGER.log(DEBUG, "Stopped web application at {0}", contextPath);
         return this;
     }
@@ -44,6 +44,10 @@ import java.io.File;
  */
 public class DefaultWebApplicationClassLoader extends DefaultResourceManagerClassLoader implements WebApplicationClassLoader {
 
+    static {
+        registerAsParallelCapable();
+    }
+
     /**
      * Constructor.
      */
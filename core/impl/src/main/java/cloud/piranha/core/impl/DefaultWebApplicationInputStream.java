@@ -28,11 +28,239 @@
 package cloud.piranha.core.impl;
 
 import cloud.piranha.core.api.WebApplicationInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The default WebApplicationInputStream.
+ *
+ * <p>
+ * Read listener events are delivered on the listener executor of the async
+ * manager of the web application. A connector that knows when data arrives
+ * signals it using {@link #signalReadReady()} and turns off polling using
+ * {@link #setPolling(boolean)}. For any other connector the stream is polled
+ * on the timer of the async manager, backing off from 1 ms to 100 ms while no
+ * data arrives.
+ * </p>
+ *
+ * <p>
+ * A body without a known length has no other way to tell its end apart from
+ * data that has not arrived yet, so once no data is available the listener
+ * thread (a virtual thread) waits for the next byte, or the end of the
+ * stream, and puts the byte back.
+ * </p>
+ *
+ * <p>
+ * As required by the specification onDataAvailable is only called again
+ * after isReady has returned false. Once the async cycle ends no more events
+ * are delivered.
+ * </p>
  * 
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultWebApplicationInputStream extends WebApplicationInputStream {
+
+    /**
+     * Stores the maximum poll delay (in milliseconds).
+     */
+    private static final long MAX_POLL_DELAY = 100;
+
+    /**
+     * Stores the minimum poll delay (in milliseconds).
+     */
+    private static final long MIN_POLL_DELAY = 1;
+
+    /**
+     * Stores the data available notified flag.
+     */
+    private volatile boolean dataAvailableNotified;
+
+    /**
+     * Stores the dispatching flag.
+     */
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * Stores the done flag.
+     */
+    private volatile boolean done;
+
+    /**
+     * Stores the pending poll.
+     */
+    private ScheduledFuture<?> poll;
+
+    /**
+     * Stores the poll delay (in milliseconds).
+     */
+    private long pollDelay = MIN_POLL_DELAY;
+
+    /**
+     * Stores the polling flag.
+     */
+    private volatile boolean polling = true;
+
+    /**
+     * Stores the signalled flag.
+     */
+    private final AtomicBoolean signalled = new AtomicBoolean();
+
+    /**
+     * Cancel the pending poll (if any).
+     */
+    private synchronized void cancelPoll() {
+        if (poll != null) {
+            poll.cancel(false);
+            poll = null;
+        }
+    }
+
+    /**
+     * Deliver the read listener events that are due.
+     */
+    private void dispatchReadEvents() {
+        try {
+            readListenerLock.lock();
+            if (!dataAvailableNotified && isReady()) {
+                dataAvailableNotified = true;
+                pollDelay = MIN_POLL_DELAY;
+                readListener.onDataAvailable();
+            } else {
+                pollDelay = Math.min(pollDelay * 2, MAX_POLL_DELAY);
+            }
+            if (!finished && webApplicationRequest.getContentLengthLong() == 0) {
+                finished = true;
+            }
+            if (finished) {
+                done = true;
+                readListener.onAllDataRead();
+            }
+        } catch (IOException | RuntimeException e) {
+            error(e);
+        } finally {
+            readListenerLock.unlock();
+        }
+    }
+
+    /**
+     * Deliver an error to the read listener.
+     *
+     * @param throwable the error.
+     */
+    private void error(Throwable throwable) {
+        done = true;
+        readListener.onError(throwable);
+    }
+
+    @Override
+    public boolean isReady() {
+        boolean ready = super.isReady();
+        if (!ready) {
+            dataAvailableNotified = false;
+        }
+        return ready;
+    }
+
+    /**
+     * Wait for the next byte, or the end of the stream, of a body without a
+     * known length.
+     *
+     * <p>
+     * The byte is put back so the read listener gets to read it.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void probe() throws IOException {
+        InputStream input = inputStream;
+        int read = input.read();
+        if (read == -1) {
+            finished = true;
+        } else {
+            PushbackInputStream pushback = input instanceof PushbackInputStream pushbackInput
+                    ? pushbackInput : new PushbackInputStream(input, 1);
+            pushback.unread(read);
+            inputStream = pushback;
+        }
+    }
+
+    @Override
+    public void run() {
+        do {
+            signalled.set(false);
+            dispatchReadEvents();
+            if (!done && !dataAvailableNotified && webApplicationRequest.getContentLengthLong() < 0) {
+                try {
+                    probe();
+                    signalled.set(true);
+                } catch (IOException | RuntimeException e) {
+                    error(e);
+                }
+            }
+        } while (!done && signalled.get());
+        cancelPoll();
+        if (!done) {
+            schedulePoll();
+        }
+        dispatching.set(false);
+        if (!done && signalled.get() && dispatching.compareAndSet(false, true)) {
+            DefaultAsyncManager.of(webApplicationRequest.getServletContext()).executeListener(this);
+        }
+    }
+
+    /**
+     * Schedule the next poll.
+     */
+    private synchronized void schedulePoll() {
+        if (!done && polling) {
+            poll = DefaultAsyncManager.of(webApplicationRequest.getServletContext())
+                    .schedule(this::signalReadReady, pollDelay);
+        }
+    }
+
+    /**
+     * Set the polling flag.
+     *
+     * <p>
+     * A connector that calls {@link #signalReadReady()} whenever data arrives,
+     * the body ends or the connection is lost sets it to false.
+     * </p>
+     *
+     * @param polling true to poll for read listener events, false otherwise.
+     */
+    public void setPolling(boolean polling) {
+        this.polling = polling;
+    }
+
+    @Override
+    public void signalReadReady() {
+        if (readListener == null || done) {
+            return;
+        }
+        signalled.set(true);
+        if (dispatching.compareAndSet(false, true)) {
+            DefaultAsyncManager.of(webApplicationRequest.getServletContext()).executeListener(this);
+        }
+    }
+
+    @Override
+    protected void startReadListener() {
+        signalReadReady();
+    }
+
+    /**
+     * Stop delivering read listener events.
+     *
+     * <p>
+     * This is called when the async cycle ends (completes, times out or
+     * fails).
+     * </p>
+     */
+    void stopReadListener() {
+        done = true;
+        cancelPoll();
+    }
 }
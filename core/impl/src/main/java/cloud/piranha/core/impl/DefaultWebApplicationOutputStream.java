@@ -32,28 +32,100 @@ import cloud.piranha.core.api.WebApplicationResponse;
 import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.Cookie;
 import static jakarta.servlet.http.HttpServletResponse.SC_SWITCHING_PROTOCOLS;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The default WebApplicationOutputStream.
  *
+ * <p>
+ * Bytes are buffered until the buffer would overflow (or the response is
+ * flushed) after which the response is committed and any further bytes are
+ * written straight through to the underlying output stream. Arrays and byte
+ * buffers are copied into the buffer as a whole instead of byte by byte.
+ * </p>
+ *
+ * <p>
+ * The status line and headers are encoded into a reusable byte buffer, using
+ * cached byte forms for the status lines, header names and common values, and
+ * are written out together with the buffer in a single write.
+ * </p>
+ *
+ * <p>
+ * When a buffer pool is set the buffer is acquired from it and released back
+ * to it as soon as the response is committed, see {@link DefaultBufferPool}.
+ * </p>
+ *
+ * <p>
+ * Write listener events are delivered on the executor of the async manager of
+ * the web application, once when the write listener is set and again every
+ * time a connector signals writing is possible. No thread is held while
+ * waiting.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultWebApplicationOutputStream extends WebApplicationOutputStream implements Runnable {
 
+    /**
+     * Stores the CRLF bytes.
+     */
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * Stores the cached byte forms of header names and values.
+     */
+    private static final Map<String, byte[]> CACHED_BYTES = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the maximum number of cached byte forms.
+     */
+    private static final int MAX_CACHED_BYTES = 512;
+
+    /**
+     * Stores the maximum number of bytes gathered into a single write.
+     */
+    private static final int GATHER_LIMIT = 16384;
+
+    /**
+     * Stores the cached status lines (without CRLF).
+     */
+    private static final byte[][] STATUS_LINES = new byte[600][];
+
+    static {
+        for (int status = 100; status < STATUS_LINES.length; status++) {
+            STATUS_LINES[status] = ("HTTP/1.1 " + status).getBytes(ISO_8859_1);
+        }
+    }
+
     /**
      * Stores the buffer.
      */
     protected byte[] buffer;
 
+    /**
+     * Stores the buffer pool.
+     */
+    protected DefaultBufferPool bufferPool;
+
+    /**
+     * Stores the buffer size.
+     */
+    protected int bufferSize;
+
     /**
      * Stores the closed flag.
      */
@@ -84,14 +156,124 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
      */
     protected Lock writeListenerLock = new ReentrantLock();
 
+    /**
+     * Stores the write possible dispatching flag.
+     */
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+
+    /**
+     * Stores the write possible signalled flag.
+     */
+    private final AtomicBoolean signalled = new AtomicBoolean();
+
+    /**
+     * Stores the encoded status line and headers.
+     */
+    private byte[] head;
+
+    /**
+     * Stores the number of bytes in the head buffer.
+     */
+    private int headLength;
+
     /**
      * Constructor.
      */
     public DefaultWebApplicationOutputStream() {
-        this.buffer = new byte[8192];
+        this(DefaultBufferPool.getResponseBufferPool());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param bufferPool the buffer pool (or null to not pool buffers).
+     */
+    public DefaultWebApplicationOutputStream(DefaultBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        this.bufferSize = 8192;
+        this.buffer = acquireBuffer(bufferSize);
         this.outputStream = new ByteArrayOutputStream();
     }
 
+    /**
+     * Acquire a buffer.
+     *
+     * @param size the size of the buffer.
+     * @return the buffer.
+     */
+    private byte[] acquireBuffer(int size) {
+        return bufferPool != null ? bufferPool.acquire(size) : new byte[size];
+    }
+
+    /**
+     * Append bytes to the head buffer.
+     *
+     * @param bytes the bytes.
+     */
+    private void append(byte[] bytes) {
+        ensureHeadCapacity(bytes.length);
+        System.arraycopy(bytes, 0, head, headLength, bytes.length);
+        headLength += bytes.length;
+    }
+
+    /**
+     * Append a string to the head buffer.
+     *
+     * <p>
+     * US-ASCII strings are copied char by char, any other string is encoded
+     * as UTF-8.
+     * </p>
+     *
+     * @param string the string.
+     */
+    private void append(String string) {
+        int length = string.length();
+        ensureHeadCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                append(string.getBytes(UTF_8));
+                return;
+            }
+            head[headLength + i] = (byte) c;
+        }
+        headLength += length;
+    }
+
+    /**
+     * Append the cached byte form of a string to the head buffer.
+     *
+     * <p>
+     * Use this for header names and values that are repeated across
+     * responses, like content types.
+     * </p>
+     *
+     * @param string the string.
+     */
+    private void appendCached(String string) {
+        byte[] bytes = CACHED_BYTES.get(string);
+        if (bytes == null) {
+            bytes = string.getBytes(UTF_8);
+            if (CACHED_BYTES.size() < MAX_CACHED_BYTES) {
+                CACHED_BYTES.put(string, bytes);
+            }
+        }
+        append(bytes);
+    }
+
+    /**
+     * Make sure the head buffer can hold the given number of extra bytes.
+     *
+     * @param extra the number of extra bytes.
+     */
+    private void ensureHeadCapacity(int extra) {
+        if (head == null) {
+            head = new byte[Math.max(512, extra)];
+        } else if (headLength + extra > head.length) {
+            head = Arrays.copyOf(head, Math.max(head.length * 2, headLength + extra));
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if (!response.isCommitted()) {
@@ -133,26 +315,16 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
             writeHeaders();
         }
         if (!response.isCommitted()) {
-            outputStream.write(buffer, 0, index);
-            index = buffer.length;
+            writeOut(buffer, 0, index);
+            index = bufferSize;
             response.setCommitted(true);
+            releaseBuffer();
         }
     }
 
-    /**
-     * Format the timestamp to a GMT string.
-     *
-     * @param timestamp the timestamp.
-     * @return the GMT string.
-     */
-    private String formatDateToGMT(long timestamp) {
-        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.of("GMT"))
-                .format(DateTimeFormatter.RFC_1123_DATE_TIME);
-    }
-
     @Override
     public int getBufferSize() {
-        return buffer.length;
+        return bufferSize;
     }
 
     @Override
@@ -180,41 +352,66 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
         }
     }
 
+    /**
+     * Release the buffer back to the buffer pool.
+     */
+    private void releaseBuffer() {
+        if (bufferPool != null && buffer != null) {
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
     @Override
     public void resetBuffer() {
-        this.buffer = new byte[buffer.length];
+        if (index < bufferSize) {
+            index = 0;
+        }
     }
 
     @Override
     public void run() {
-        while (true) {
+        do {
+            signalled.set(false);
             try {
+                writeListenerLock.lock();
                 if (isReady()) {
-                    try {
-                        writeListenerLock.lock();
-                        writeListener.onWritePossible();
-                    } finally {
-                        writeListenerLock.unlock();
-                    }
+                    writeListener.onWritePossible();
                 }
-                if (closed) {
-                    break;
-                }
-                try {
-                    Thread.sleep(500);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();;
-                }
-            } catch (IOException ioe) {
-                writeListener.onError(ioe);
-                break;
+            } catch (IOException | RuntimeException e) {
+                writeListener.onError(e);
+            } finally {
+                writeListenerLock.unlock();
             }
+        } while (!closed && signalled.get());
+        dispatching.set(false);
+        if (!closed && signalled.get() && dispatching.compareAndSet(false, true)) {
+            DefaultAsyncManager.of(response.getWebApplication()).executeListener(this);
         }
     }
 
     @Override
     public void setBufferSize(int bufferSize) {
-        this.buffer = new byte[bufferSize];
+        if (bufferSize == this.bufferSize || index == this.bufferSize) {
+            return;
+        }
+        if (index >= bufferSize) {
+            /*
+             * The content already written does not fit the new buffer so
+             * commit it as an overflow would.
+             */
+            try {
+                flushBuffer();
+            } catch (IOException ioe) {
+                throw new IllegalStateException("Unable to flush buffer", ioe);
+            }
+            return;
+        }
+        byte[] newBuffer = acquireBuffer(bufferSize);
+        System.arraycopy(buffer, 0, newBuffer, 0, index);
+        releaseBuffer();
+        this.buffer = newBuffer;
+        this.bufferSize = bufferSize;
     }
 
     @Override
@@ -240,8 +437,18 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
             throw new IllegalStateException("Write listener cannot be set as the request is not upgraded nor async is started");
         }
         this.writeListener = writeListener;
-        Thread thread = new Thread(this);
-        thread.start();
+        signalWritePossible();
+    }
+
+    @Override
+    public void signalWritePossible() {
+        if (writeListener == null || closed) {
+            return;
+        }
+        signalled.set(true);
+        if (dispatching.compareAndSet(false, true)) {
+            DefaultAsyncManager.of(response.getWebApplication()).executeListener(this);
+        }
     }
 
     @Override
@@ -263,10 +470,10 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
              * overflow, write out the buffer and then write the integer
              * directly to the underlying output stream.
              */
-            if (index == buffer.length - 1) {
+            if (index == bufferSize - 1) {
                 flushBuffer();
                 outputStream.write(integer);
-            } else if (index == buffer.length) {
+            } else if (index == bufferSize) {
                 /*
                  * Write the integer directly to the underlying output stream as
                  * the buffer was previously flushed.
@@ -287,38 +494,82 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
         }
     }
 
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (writeListener != null) {
+            outputStream.write(bytes, offset, length);
+            return;
+        }
+        if (response.isBufferResetting()) {
+            return;
+        }
+        if (index == bufferSize) {
+            outputStream.write(bytes, offset, length);
+            return;
+        }
+
+        /*
+         * Servlet:SPEC:192.2
+         *
+         * If the bytes would fill up the buffer, write out the buffer and
+         * then write the bytes directly to the underlying output stream.
+         */
+        if (index + length >= bufferSize) {
+            flushBuffer();
+            outputStream.write(bytes, offset, length);
+        } else {
+            System.arraycopy(bytes, offset, buffer, index, length);
+            index += length;
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer byteBuffer) throws IOException {
+        if (!isReady()) {
+            throw new IllegalStateException("Output stream is not ready");
+        }
+        if (byteBuffer.hasArray()) {
+            write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+            byteBuffer.position(byteBuffer.limit());
+            return;
+        }
+        byte[] bytes = new byte[Math.min(byteBuffer.remaining(), 8192)];
+        while (byteBuffer.hasRemaining()) {
+            int length = Math.min(byteBuffer.remaining(), bytes.length);
+            byteBuffer.get(bytes, 0, length);
+            write(bytes, 0, length);
+        }
+    }
+
     /**
      * Write out the content language.
-     *
-     * @throws IOException when an I/O error occurs.
      */
-    private void writeContentLanguage() throws IOException {
+    private void writeContentLanguage() {
         if (response.getContentLanguage() == null) {
             return;
         }
-        outputStream.write("Content-Language: ".getBytes());
-        outputStream.write(response.getContentLanguage().getBytes());
-        outputStream.write("\n".getBytes());
+        appendCached("Content-Language: ");
+        appendCached(response.getContentLanguage());
+        append(CRLF);
     }
 
     /**
      * Write out the content type.
-     *
-     * @throws IOException when an I/O error occurs.
      */
-    private void writeContentType() throws IOException {
+    private void writeContentType() {
         if (response.getContentType() != null) {
-            outputStream.write("Content-Type: ".getBytes());
-            outputStream.write(response.getContentType().getBytes());
+            appendCached("Content-Type: ");
+            appendCached(response.getContentType());
             /*
              * Add the character encoding if it is not already there.
              */
             if (response.getCharacterEncoding() != null &&
                     !response.getContentType().contains("charset")) {
-                outputStream.write(";charset=".getBytes());
-                outputStream.write(response.getCharacterEncoding().getBytes());
+                appendCached(";charset=");
+                appendCached(response.getCharacterEncoding());
             }
-            outputStream.write("\n".getBytes());
+            append(CRLF);
         }
     }
 
@@ -326,97 +577,151 @@ public class DefaultWebApplicationOutputStream extends WebApplicationOutputStrea
      * Write out a cookie.
      *
      * @param cookie the cookie.
-     * @throws IOException when an I/O error occurs.
      */
     @SuppressWarnings({"deprecation", "removal"})
-    private void writeCookie(Cookie cookie) throws IOException {
-        outputStream.write("Set-Cookie: ".getBytes());
-        outputStream.write(cookie.getName().getBytes());
-        outputStream.write("=".getBytes());
+    private void writeCookie(Cookie cookie) {
+        appendCached("Set-Cookie: ");
+        append(cookie.getName());
+        append("=");
         if (cookie.getValue() != null) {
-            outputStream.write(cookie.getValue().getBytes());
+            append(cookie.getValue());
         }
         if (cookie.getMaxAge() > -1) {
-            outputStream.write(("; Max-Age=" + cookie.getMaxAge()).getBytes());
-            String expireDate = formatDateToGMT(Instant.now().plusSeconds(cookie.getMaxAge()).toEpochMilli());
-            outputStream.write(("; Expires=" + expireDate).getBytes());
+            append("; Max-Age=");
+            append(Integer.toString(cookie.getMaxAge()));
+            append("; Expires=");
+            append(HttpDateFormatter.format(Instant.now().plusSeconds(cookie.getMaxAge()).toEpochMilli()));
         }
         if (cookie.getSecure()) {
-            outputStream.write("; Secure".getBytes());
+            append("; Secure");
         }
         if (cookie.isHttpOnly()) {
-            outputStream.write("; HttpOnly".getBytes());
+            append("; HttpOnly");
         }
         if (cookie.getPath() != null) {
-            outputStream.write(("; Path=" + cookie.getPath()).getBytes());
+            append("; Path=");
+            append(cookie.getPath());
         }
         if (cookie.getVersion() > 0) {
-            outputStream.write(("; Version=" + cookie.getVersion()).getBytes());
+            append("; Version=");
+            append(Integer.toString(cookie.getVersion()));
         }
-        outputStream.write("\n".getBytes());
+        append(CRLF);
     }
 
     /**
      * Write out the cookies.
-     *
-     * @throws IOException when an I/O error occurs.
      */
-    private void writeCookies() throws IOException {
+    private void writeCookies() {
         for (Cookie cookie : response.getCookies()) {
             writeCookie(cookie);
         }
     }
 
+    /**
+     * Write out the date (unless the application set one).
+     */
+    private void writeDate() {
+        if (!response.containsHeader("Date")) {
+            appendCached("Date: ");
+            append(HttpDateFormatter.now());
+            append(CRLF);
+        }
+    }
+
     /**
      * Write out a header.
      *
      * @param name the name of the header.
-     * @throws IOException when an I/O error occurs.
      */
-    private void writeHeader(String name) throws IOException {
+    private void writeHeader(String name) {
         Iterator<String> values = response.getHeaders(name).iterator();
-        outputStream.write(name.getBytes());
-        outputStream.write(": ".getBytes());
+        appendCached(name);
+        append(": ");
         while (values.hasNext()) {
             String value = values.next();
             if (value != null) {
-                outputStream.write(value.getBytes());
+                append(value);
                 if (values.hasNext()) {
-                    outputStream.write(",".getBytes());
+                    append(",");
                 }
             }
         }
-        outputStream.write("\n".getBytes());
+        append(CRLF);
     }
 
     /**
      * Write out the headers.
      *
+     * <p>
+     * The headers are encoded after the status line and are written out
+     * together with the buffer when it is flushed.
+     * </p>
+     *
      * @throws IOException when an I/O error occurs.
      */
     public void writeHeaders() throws IOException {
+        writeDate();
         writeContentType();
         writeContentLanguage();
         writeCookies();
         for (String name : response.getHeaderNames()) {
             writeHeader(name);
         }
-        outputStream.write("\n".getBytes());
+        append(CRLF);
+    }
+
+    /**
+     * Write out the given bytes preceded by the encoded status line and
+     * headers (if any), in a single write when both fit within the gather
+     * limit.
+     *
+     * @param bytes the bytes.
+     * @param offset the offset.
+     * @param length the length.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeOut(byte[] bytes, int offset, int length) throws IOException {
+        if (headLength == 0) {
+            outputStream.write(bytes, offset, length);
+            return;
+        }
+        int total = headLength + length;
+        headLength = 0;
+        if (total > GATHER_LIMIT) {
+            outputStream.write(head, 0, total - length);
+            outputStream.write(bytes, offset, length);
+            return;
+        }
+        if (total > head.length) {
+            head = Arrays.copyOf(head, total);
+        }
+        System.arraycopy(bytes, offset, head, total - length, length);
+        outputStream.write(head, 0, total);
     }
 
     /**
      * Write out the status line.
      *
+     * <p>
+     * The status line is encoded and is written out together with the
+     * headers and the buffer when it is flushed.
+     * </p>
+     *
      * @throws IOException when an I/O error occurs.
      */
     public void writeStatusLine() throws IOException {
-        outputStream.write("HTTP/1.1".getBytes());
-        outputStream.write(" ".getBytes());
-        outputStream.write(Integer.toString(response.getStatus()).getBytes());
+        headLength = 0;
+        int status = response.getStatus();
+        if (status >= 100 && status < STATUS_LINES.length) {
+            append(STATUS_LINES[status]);
+        } else {
+            append("HTTP/1.1 " + status);
+        }
         if (response.getStatusMessage() != null) {
-            outputStream.write(" ".getBytes());
-            outputStream.write(response.getStatusMessage().getBytes());
+            append(" ");
+            append(response.getStatusMessage());
         }
-        outputStream.write("\n".getBytes());
+        append(CRLF);
     }
 }
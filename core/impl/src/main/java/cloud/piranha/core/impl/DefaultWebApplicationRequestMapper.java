@@ -36,7 +36,6 @@ import static java.util.Arrays.stream;
 import java.util.Collection;
 import static java.util.Collections.emptySet;
 import java.util.EnumSet;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import static java.util.Objects.requireNonNull;
@@ -65,7 +64,12 @@ public class DefaultWebApplicationRequestMapper implements WebApplicationRequest
      * Stores the default servlet
      */
     protected String defaultServlet;
-    
+
+    /**
+     * Stores the compiled servlet mappings (or null if they need to be
+     * compiled).
+     */
+    private volatile ServletMappingMatcher servletMappingMatcher;
 
     @Override
     public Set<String> addFilterMapping(Set<DispatcherType> dispatcherTypes, String filterName, String... urlPatterns) {
@@ -106,13 +110,16 @@ public class DefaultWebApplicationRequestMapper implements WebApplicationRequest
                 servletMappings.put(urlPattern, servletName);
             }
         }
+        invalidateServletMappingMatcher();
 
         return emptySet();
     }
 
     @Override
     public String removeServletMapping(String urlPattern) {
-        return servletMappings.remove(urlPattern);
+        String result = servletMappings.remove(urlPattern);
+        invalidateServletMappingMatcher();
+        return result;
     }
 
     /**
@@ -193,130 +200,48 @@ public class DefaultWebApplicationRequestMapper implements WebApplicationRequest
         return result;
     }
 
-    /**
-     * Find a servlet mapping with an exact mapping.
-     *
-     * @param path the path.
-     * @return the mapping, or null if not found.
-     */
-    private DefaultWebApplicationRequestMapping findServletExactMatch(String path) {
-        DefaultWebApplicationRequestMapping result = null;
-        Enumeration<String> exacts = servletMappings.keys();
-        while (exacts.hasMoreElements()) {
-            String exact = exacts.nextElement();
-
-            if (path.equals(exact)) {
-                result = new DefaultWebApplicationRequestMapping(exact);
-                result.setExact(true);
-                result.setMatchValue(exact.substring(1));
-                break;
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Find a servlet mapping with an extension match.
-     *
-     * @param path the path.
-     * @return the mapping, or null if not found.
-     */
-    private DefaultWebApplicationRequestMapping findServletExtensionMatch(String path) {
-        DefaultWebApplicationRequestMapping result = null;
-        Enumeration<String> extensions = servletMappings.keys();
-        while (extensions.hasMoreElements()) {
-            String extension = extensions.nextElement();
-            /*
-             * Make sure it really is an extension first.
-             */
-            if (extension.startsWith("*.")) {
-                extension = extension.substring(1);
-                if (path.endsWith(extension)) {
-                    result = new DefaultWebApplicationRequestMapping("*" + extension);
-                    result.setExtension(true);
-                    // If path is /foo.bar and the initial extension is *.bar, then
-                    // the match value is foo.
-                    result.setMatchValue(path.substring(1, path.lastIndexOf(extension)));
-                    break;
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * Find a servlet mapping for the given path.
      *
+     * <p>
+     * An exact match goes first, then the longest path prefix match and
+     * finally an extension match.
+     * </p>
+     *
      * @param path the path.
      * @return the mapping, or null if not found.
      */
     @Override
     public DefaultWebApplicationRequestMapping findServletMapping(String path) {
-        if (path.contains("?")) {
-            path = path.substring(0, path.indexOf("?"));
+        int queryIndex = path.indexOf('?');
+        if (queryIndex != -1) {
+            path = path.substring(0, queryIndex);
         }
-        DefaultWebApplicationRequestMapping result = findServletExactMatch(path);
-        if (result == null) {
-            result = findServletPrefixMatch(path);
+        ServletMappingMatcher matcher = servletMappingMatcher;
+        if (matcher == null) {
+            matcher = getServletMappingMatcher();
         }
-        if (result == null) {
-            result = findServletExtensionMatch(path);
-        }
-        return result;
+        return matcher.find(path);
     }
 
     /**
-     * Find a servlet mapping with the longest prefix mapping.
+     * Get the compiled servlet mappings, compiling them if needed.
      *
-     * @param path the path.
-     * @return the mapping, or null if not found.
+     * @return the compiled servlet mappings.
      */
-    private DefaultWebApplicationRequestMapping findServletPrefixMatch(String path) {
-        DefaultWebApplicationRequestMapping result = null;
-        DefaultWebApplicationRequestMapping found;
-        for (;;) {
-            found = findServletPrefixMatch(path, result);
-            if (found != null) {
-                result = found;
-            } else {
-                break;
-            }
-        }
-        if (result != null) {
-            result.setPattern(result.getPattern() + "*");
+    private synchronized ServletMappingMatcher getServletMappingMatcher() {
+        if (servletMappingMatcher == null) {
+            servletMappingMatcher = new ServletMappingMatcher(servletMappings.keySet());
         }
-        return result;
+        return servletMappingMatcher;
     }
 
     /**
-     * Find a servlet mapping with a prefix mapping longer than the given
-     * current prefix.
-     *
-     * @param path the path.
-     * @param currentPrefix the current matched prefix.
-     * @return the mapping, or null if not found.
+     * Invalidate the compiled servlet mappings so they are compiled again on
+     * the next lookup.
      */
-    private DefaultWebApplicationRequestMapping findServletPrefixMatch(String path, DefaultWebApplicationRequestMapping currentPrefix) {
-        DefaultWebApplicationRequestMapping result = null;
-        Enumeration<String> prefixes = servletMappings.keys();
-        while (prefixes.hasMoreElements()) {
-            String prefix = prefixes.nextElement();
-            if (!prefix.startsWith("*.") && prefix.endsWith("/*")) {
-                prefix = prefix.substring(0, prefix.length() - 1);
-                if ((path + "/").startsWith(prefix)) {
-                    result = new DefaultWebApplicationRequestMapping(prefix);
-                    // If path is /foo/bar and the initial prefix is /foo/* then the
-                    // match value is bar
-                    result.setMatchValue(path.substring(1));
-                    break;
-                }
-            }
-        }
-        if (result != null && currentPrefix != null
-                && result.getPattern().length() <= currentPrefix.getPattern().length()) {
-            result = null;
-        }
-        return result;
+    private synchronized void invalidateServletMappingMatcher() {
+        servletMappingMatcher = null;
     }
 
     /**
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.core.impl;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The formatter for HTTP dates (as used by the Date header and the Expires
+ * attribute of a cookie).
+ *
+ * <p>
+ * HTTP dates have a resolution of one second so the current date is cached
+ * by {@link #now()} and reused for as long as the second does not change.
+ * Formatting any other timestamp (like a cookie expiry) never replaces it.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public final class HttpDateFormatter {
+
+    /**
+     * Stores the formatter.
+     */
+    private static final DateTimeFormatter FORMATTER
+            = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    /**
+     * Stores the current date.
+     */
+    private static volatile FormattedDate currentDate;
+
+    /**
+     * Constructor.
+     */
+    private HttpDateFormatter() {
+    }
+
+    /**
+     * Format the timestamp as an HTTP date.
+     *
+     * @param timestamp the timestamp (in milliseconds).
+     * @return the HTTP date.
+     */
+    public static String format(long timestamp) {
+        long second = Math.floorDiv(timestamp, 1000);
+        FormattedDate current = currentDate;
+        if (current != null && current.second == second) {
+            return current.value;
+        }
+        return FORMATTER.format(Instant.ofEpochSecond(second));
+    }
+
+    /**
+     * {@return the current time as an HTTP date}
+     */
+    public static String now() {
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000);
+        FormattedDate current = currentDate;
+        if (current == null || current.second != second) {
+            current = new FormattedDate(second, FORMATTER.format(Instant.ofEpochSecond(second)));
+            currentDate = current;
+        }
+        return current.value;
+    }
+
+    /**
+     * A formatted date.
+     */
+    private static final class FormattedDate {
+
+        /**
+         * Stores the epoch second.
+         */
+        private final long second;
+
+        /**
+         * Stores the formatted value.
+         */
+        private final String value;
+
+        /**
+         * Constructor.
+         *
+         * @param second the epoch second.
+         * @param value the formatted value.
+         */
+        FormattedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.core.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The compiled form of the servlet mappings used by the
+ * DefaultWebApplicationRequestMapper.
+ *
+ * <p>
+ * Exact patterns are kept in a hash map, path prefix patterns (ending with
+ * <code>/*</code>) in a trie with one level per path segment and extension
+ * patterns (starting with <code>*.</code>) in a hash map keyed by their
+ * suffix. A lookup is therefore bound by the length of the path and not by
+ * the number of mappings.
+ * </p>
+ *
+ * <p>
+ * A matcher is immutable, when the mappings change a new one is compiled.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class ServletMappingMatcher {
+
+    /**
+     * Stores the exact patterns.
+     */
+    private final Map<String, String> exacts = new HashMap<>();
+
+    /**
+     * Stores the extension patterns keyed by their suffix (e.g. '.jsp').
+     */
+    private final Map<String, String> extensions = new HashMap<>();
+
+    /**
+     * Stores the root of the prefix trie.
+     */
+    private final PrefixNode prefixes = new PrefixNode();
+
+    /**
+     * Constructor.
+     *
+     * @param urlPatterns the URL patterns.
+     */
+    ServletMappingMatcher(Iterable<String> urlPatterns) {
+        for (String urlPattern : urlPatterns) {
+            if (urlPattern.startsWith("*.")) {
+                extensions.put(urlPattern.substring(1), urlPattern);
+            } else if (urlPattern.endsWith("/*")) {
+                addPrefix(urlPattern);
+            } else {
+                exacts.put(urlPattern, urlPattern);
+            }
+        }
+    }
+
+    /**
+     * Add a prefix pattern to the trie.
+     *
+     * @param urlPattern the URL pattern (e.g. '/foo/*').
+     */
+    private void addPrefix(String urlPattern) {
+        PrefixNode node = prefixes;
+        int end = urlPattern.length() - 2;
+        int start = 1;
+        while (start <= end) {
+            int slash = urlPattern.indexOf('/', start);
+            if (slash == -1 || slash > end) {
+                slash = end;
+            }
+            node = node.children.computeIfAbsent(urlPattern.substring(start, slash), key -> new PrefixNode());
+            start = slash + 1;
+        }
+        node.pattern = urlPattern;
+    }
+
+    /**
+     * Find the mapping for the given path.
+     *
+     * @param path the path (without query string).
+     * @return the mapping, or null if not found.
+     */
+    DefaultWebApplicationRequestMapping find(String path) {
+        String exact = exacts.get(path);
+        if (exact != null) {
+            DefaultWebApplicationRequestMapping result = new DefaultWebApplicationRequestMapping(exact);
+            result.setExact(true);
+            result.setMatchValue(exact.substring(1));
+            return result;
+        }
+        String prefix = findPrefix(path);
+        if (prefix != null) {
+            DefaultWebApplicationRequestMapping result = new DefaultWebApplicationRequestMapping(prefix);
+            // If path is /foo/bar and the initial prefix is /foo/* then the
+            // match value is bar
+            result.setMatchValue(path.substring(1));
+            return result;
+        }
+        if (!extensions.isEmpty()) {
+            int lastSegment = path.lastIndexOf('/') + 1;
+            int dot = path.indexOf('.', lastSegment);
+            while (dot != -1) {
+                String extension = path.substring(dot);
+                String pattern = extensions.get(extension);
+                if (pattern != null) {
+                    DefaultWebApplicationRequestMapping result = new DefaultWebApplicationRequestMapping(pattern);
+                    result.setExtension(true);
+                    // If path is /foo.bar and the initial extension is *.bar, then
+                    // the match value is foo.
+                    result.setMatchValue(path.substring(1, dot));
+                    return result;
+                }
+                dot = path.indexOf('.', dot + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the longest prefix pattern matching the given path.
+     *
+     * @param path the path.
+     * @return the pattern, or null if not found.
+     */
+    private String findPrefix(String path) {
+        PrefixNode node = prefixes;
+        String result = node.pattern;
+        if (path.isEmpty()) {
+            return result;
+        }
+        if (path.charAt(0) != '/') {
+            return null;
+        }
+        int length = path.length();
+        int start = 1;
+        while (start <= length) {
+            int slash = path.indexOf('/', start);
+            if (slash == -1) {
+                slash = length;
+            }
+            node = node.children.get(path.substring(start, slash));
+            if (node == null) {
+                break;
+            }
+            if (node.pattern != null) {
+                result = node.pattern;
+            }
+            start = slash + 1;
+        }
+        return result;
+    }
+
+    /**
+     * A node in the prefix trie.
+     */
+    private static class PrefixNode {
+
+        /**
+         * Stores the child nodes keyed by path segment.
+         */
+        private final Map<String, PrefixNode> children = new HashMap<>(4);
+
+        /**
+         * Stores the pattern ending at this node (or null if none).
+         */
+        private String pattern;
+    }
+}
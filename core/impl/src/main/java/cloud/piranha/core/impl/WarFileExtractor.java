@@ -27,27 +27,83 @@
  */
 package cloud.piranha.core.impl;
 
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import static java.lang.System.Logger.Level.WARNING;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 /**
  * A utility class to extract WAR files onto the file system.
  *
+ * <p>
+ * The entries are located through the central directory of the WAR file and
+ * are written out in parallel by a small pool of threads that only lives for
+ * the duration of the extraction (so the common fork-join pool used by the
+ * web applications is left alone). After a successful extraction a manifest with
+ * the size and CRC of every entry is written to
+ * {@value #MANIFEST_FILE} in the web application directory. On the next
+ * extraction into the same directory:
+ * </p>
+ * <ul>
+ * <li>nothing is done if the WAR file itself is unchanged,</li>
+ * <li>entries with an unchanged size and CRC whose file is still present are
+ * skipped,</li>
+ * <li>files of entries that are no longer in the WAR file are removed.</li>
+ * </ul>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class WarFileExtractor {
 
+    /**
+     * Stores the manifest file name (relative to the web application
+     * directory).
+     */
+    public static final String MANIFEST_FILE = "WEB-INF/piranha-war.idx";
+
     /**
      * Stores the logger.
      */
     private static final System.Logger LOGGER = System.getLogger(WarFileExtractor.class.getName());
 
+    /**
+     * Stores the manifest magic number.
+     */
+    private static final int MAGIC = 0x50574152;
+
+    /**
+     * Stores the maximum number of extraction threads.
+     */
+    private static final int MAX_THREADS = 4;
+
+    /**
+     * Stores the manifest version.
+     */
+    private static final int VERSION = 1;
+
     /**
      * Extract the WAR file to the given directory.
      *
@@ -58,39 +114,241 @@ public class WarFileExtractor {
         if (!directory.exists()) {
             directory.mkdirs();
         }
-        try (ZipInputStream zipInput = new ZipInputStream(new FileInputStream(warFile))) {
-            ZipEntry entry = zipInput.getNextEntry();
-            while (entry != null) {
-                String filePath = directory + File.separator + entry.getName();
-                if (!entry.isDirectory()) {
-                    File file = new File(filePath);
-                    if (!file.getParentFile().exists()) {
-                        file.getParentFile().mkdirs();
-                    }
-                    extractZipInputStream(zipInput, filePath);
+        Path root = directory.toPath().toAbsolutePath().normalize();
+        Path manifestPath = root.resolve(MANIFEST_FILE);
+        Manifest previous = readManifest(manifestPath);
+        if (previous != null
+                && previous.warLength == warFile.length()
+                && previous.warLastModified == warFile.lastModified()) {
+            LOGGER.log(DEBUG, "WAR file {0} is unchanged, skipping extraction", warFile);
+            return;
+        }
+        try (ZipFile zipFile = new ZipFile(warFile)) {
+            Manifest current = new Manifest(warFile.length(), warFile.lastModified());
+            List<? extends ZipEntry> entries = zipFile.stream()
+                    .filter(entry -> !entry.isDirectory())
+                    .toList();
+            for (ZipEntry entry : entries) {
+                current.entries.put(entry.getName(), new long[]{entry.getSize(), entry.getCrc()});
+            }
+            AtomicInteger extracted = new AtomicInteger();
+            extractEntries(zipFile, entries, root, previous, extracted);
+            if (previous != null) {
+                removeStaleFiles(root, previous, current);
+            }
+            writeManifest(manifestPath, current);
+            LOGGER.log(DEBUG, "Extracted {0} of {1} entries of WAR file {2}",
+                    extracted.get(), entries.size(), warFile);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.log(WARNING, "I/O error occurred while extracting WAR file", e);
+        }
+    }
+
+    /**
+     * Extract the given entries that changed since the previous extraction.
+     *
+     * @param zipFile the zip file.
+     * @param entries the entries.
+     * @param root the web application directory.
+     * @param previous the previous manifest (may be null).
+     * @param extracted the counter of extracted entries.
+     * @throws UncheckedIOException when an I/O error occurs.
+     */
+    private static void extractEntries(ZipFile zipFile, List<? extends ZipEntry> entries,
+            Path root, Manifest previous, AtomicInteger extracted) {
+        int threads = Math.clamp(entries.size(), 1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        List<Future<?>> futures;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "piranha-war-extractor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        })) {
+            futures = entries.stream()
+                    .<Future<?>>map(entry -> executor.submit(() -> {
+                        Path path = resolve(root, entry.getName());
+                        if (!isUnchanged(previous, entry, path)) {
+                            extractEntry(zipFile, entry, path);
+                            extracted.incrementAndGet();
+                        }
+                    }))
+                    .toList();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ee) {
+                if (ee.getCause() instanceof UncheckedIOException uioe) {
+                    throw uioe;
                 }
-                zipInput.closeEntry();
-                entry = zipInput.getNextEntry();
+                throw new UncheckedIOException(new IOException(ee.getCause()));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException(ie));
+            }
+        }
+    }
+
+    /**
+     * Extract the given entry.
+     *
+     * @param zipFile the zip file.
+     * @param entry the entry.
+     * @param path the target path.
+     * @throws UncheckedIOException when an I/O error occurs.
+     */
+    private static void extractEntry(ZipFile zipFile, ZipEntry entry, Path path) {
+        try {
+            Files.createDirectories(path.getParent());
+            try (InputStream input = zipFile.getInputStream(entry);
+                    OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+                input.transferTo(output);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Check if the file of the given entry is unchanged since the previous
+     * extraction.
+     *
+     * @param previous the previous manifest (may be null).
+     * @param entry the entry.
+     * @param path the path of the file.
+     * @return true if it is, false otherwise.
+     */
+    private static boolean isUnchanged(Manifest previous, ZipEntry entry, Path path) {
+        if (previous == null || entry.getSize() < 0 || entry.getCrc() < 0) {
+            return false;
+        }
+        long[] sizeAndCrc = previous.entries.get(entry.getName());
+        if (sizeAndCrc == null || sizeAndCrc[0] != entry.getSize() || sizeAndCrc[1] != entry.getCrc()) {
+            return false;
+        }
+        File file = path.toFile();
+        return file.isFile() && file.length() == entry.getSize();
+    }
+
+    /**
+     * Read the manifest.
+     *
+     * @param path the path of the manifest.
+     * @return the manifest, or null if there is no (valid) manifest.
+     */
+    private static Manifest readManifest(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+            Manifest manifest = new Manifest(input.readLong(), input.readLong());
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = input.readUTF();
+                manifest.entries.put(name, new long[]{input.readLong(), input.readLong()});
             }
+            return manifest;
         } catch (IOException ioe) {
-            LOGGER.log(WARNING, "I/O error occurred while extracting WAR file", ioe);
+            LOGGER.log(DEBUG, "Unable to read WAR manifest, extracting all entries", ioe);
+            return null;
         }
     }
 
     /**
-     * Extract the zip input stream.
+     * Remove the files of entries that were extracted previously, but that
+     * are no longer part of the WAR file.
      *
-     * @param zipInput the zip input stream.
-     * @param filePath the file path.
+     * @param root the web application directory.
+     * @param previous the previous manifest.
+     * @param current the current manifest.
      * @throws IOException when an I/O error occurs.
      */
-    private static void extractZipInputStream(ZipInputStream zipInput, String filePath) throws IOException {
-        try (BufferedOutputStream bufferOutput = new BufferedOutputStream(new FileOutputStream(filePath))) {
-            byte[] bytesIn = new byte[8192];
-            int read;
-            while ((read = zipInput.read(bytesIn)) != -1) {
-                bufferOutput.write(bytesIn, 0, read);
+    private static void removeStaleFiles(Path root, Manifest previous, Manifest current) throws IOException {
+        for (String name : previous.entries.keySet()) {
+            if (!current.entries.containsKey(name)) {
+                Files.deleteIfExists(resolve(root, name));
             }
         }
     }
+
+    /**
+     * Resolve the path of an entry.
+     *
+     * @param root the web application directory.
+     * @param name the entry name.
+     * @return the path.
+     * @throws UncheckedIOException when the entry would end up outside of the
+     * web application directory.
+     */
+    private static Path resolve(Path root, String name) {
+        Path path = root.resolve(name).normalize();
+        if (!path.startsWith(root)) {
+            throw new UncheckedIOException(new IOException("Entry is outside of the target directory: " + name));
+        }
+        return path;
+    }
+
+    /**
+     * Write the manifest.
+     *
+     * @param path the path of the manifest.
+     * @param manifest the manifest.
+     * @throws IOException when an I/O error occurs.
+     */
+    private static void writeManifest(Path path, Manifest manifest) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(manifest.warLength);
+            output.writeLong(manifest.warLastModified);
+            output.writeInt(manifest.entries.size());
+            for (Map.Entry<String, long[]> entry : manifest.entries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue()[0]);
+                output.writeLong(entry.getValue()[1]);
+            }
+        }
+        try {
+            Files.move(tempPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(tempPath, path, REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The manifest of an extracted WAR file.
+     */
+    private static class Manifest {
+
+        /**
+         * Stores the size and CRC of every entry.
+         */
+        private final Map<String, long[]> entries = new HashMap<>();
+
+        /**
+         * Stores the length of the WAR file.
+         */
+        private final long warLength;
+
+        /**
+         * Stores the last modified time of the WAR file.
+         */
+        private final long warLastModified;
+
+        /**
+         * Constructor.
+         *
+         * @param warLength the length of the WAR file.
+         * @param warLastModified the last modified time of the WAR file.
+         */
+        Manifest(long warLength, long warLastModified) {
+            this.warLength = warLength;
+            this.warLastModified = warLastModified;
+        }
+    }
 }
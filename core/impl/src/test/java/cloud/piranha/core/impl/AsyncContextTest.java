@@ -40,8 +40,12 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -117,6 +121,132 @@ class AsyncContextTest {
         assertTrue(response.isCommitted());
     }
 
+    /**
+     * Test the metrics of the async manager.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testAsyncManagerMetrics() throws Exception {
+        WebApplication webApplication = createWebApplication();
+        DefaultAsyncManager asyncManager = (DefaultAsyncManager) webApplication.getManager().getAsyncManager();
+        WebApplicationRequest request = createWebApplicationRequest();
+        request.setWebApplication(webApplication);
+        request.setAsyncSupported(true);
+        WebApplicationResponse response = createWebApplicationResponse();
+        response.setWebApplication(webApplication);
+        webApplication.linkRequestAndResponse(request, response);
+        AsyncContext context = request.startAsync();
+        assertEquals(1, asyncManager.getActiveCount());
+        context.setTimeout(50);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (asyncManager.getTimeoutCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, asyncManager.getTimeoutCount());
+        assertEquals(0, asyncManager.getActiveCount());
+        context.complete();
+        assertEquals(0, asyncManager.getCompletedCount());
+    }
+
+    /**
+     * Test a slow AsyncListener does not hold up the timeout of another async
+     * context.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testSlowTimeoutListener() throws Exception {
+        WebApplication webApplication = createWebApplication();
+        DefaultAsyncManager asyncManager = (DefaultAsyncManager) webApplication.getManager().getAsyncManager();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            AsyncContext slow = startAsync(webApplication);
+            slow.addListener(new TestCreateListenerListener() {
+                @Override
+                public void onTimeout(AsyncEvent event) throws IOException {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            slow.setTimeout(10);
+            Thread.sleep(100);
+            AsyncContext other = startAsync(webApplication);
+            other.setTimeout(10);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (asyncManager.getTimeoutCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, asyncManager.getTimeoutCount());
+        } finally {
+            release.countDown();
+            asyncManager.shutdown();
+        }
+    }
+
+    /**
+     * Test the executor refuses tasks once its queue is full.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExecutorQueueBounded() throws Exception {
+        DefaultAsyncManager asyncManager = new DefaultAsyncManager(1, 1, false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            asyncManager.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            started.await();
+            asyncManager.execute(() -> { });
+            assertThrows(RejectedExecutionException.class, () -> asyncManager.execute(() -> { }));
+        } finally {
+            release.countDown();
+            asyncManager.shutdown();
+        }
+    }
+
+    /**
+     * Start an async context on a new request.
+     *
+     * @param webApplication the web application.
+     * @return the async context.
+     */
+    private AsyncContext startAsync(WebApplication webApplication) {
+        WebApplicationRequest request = createWebApplicationRequest();
+        request.setWebApplication(webApplication);
+        request.setAsyncSupported(true);
+        WebApplicationResponse response = createWebApplicationResponse();
+        response.setWebApplication(webApplication);
+        webApplication.linkRequestAndResponse(request, response);
+        return request.startAsync();
+    }
+
+    /**
+     * Test stopping the web application shuts down its async manager.
+     */
+    @Test
+    void testAsyncManagerShutdownOnStop() {
+        WebApplication webApplication = createWebApplication();
+        DefaultAsyncManager asyncManager = (DefaultAsyncManager) webApplication.getManager().getAsyncManager();
+        webApplication.initialize();
+        webApplication.start();
+        ExecutorService executor = asyncManager.getExecutor();
+        webApplication.stop();
+        assertTrue(executor.isShutdown());
+        assertNotSame(executor, asyncManager.getExecutor());
+        asyncManager.shutdown();
+    }
+
     /**
      * Test createListener method.
      *
@@ -30,7 +30,12 @@ package cloud.piranha.core.impl;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.WriteListener;
 import static jakarta.servlet.http.HttpServletResponse.SC_SWITCHING_PROTOCOLS;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -79,4 +84,93 @@ class DefaultWebApplicationOutputStreamTest {
         });
         assertNotNull(response.getWebApplicationOutputStream().getWriteListener());
     }
+
+    /**
+     * Test write(byte[], int, int) method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testWriteBytes() throws Exception {
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponse();
+        response.setBodyOnly(true);
+        response.setBufferSize(12);
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+        response.getWebApplicationOutputStream().setOutputStream(byteOutput);
+        ServletOutputStream outputStream = response.getOutputStream();
+        outputStream.write("0123456789".getBytes(), 2, 5);
+        assertFalse(response.isCommitted());
+        assertEquals(0, byteOutput.size());
+        outputStream.write("0123456789".getBytes());
+        assertTrue(response.isCommitted());
+        assertEquals("234560123456789", byteOutput.toString());
+        outputStream.write(ByteBuffer.allocateDirect(3).put("abc".getBytes()).flip());
+        assertEquals("234560123456789abc", byteOutput.toString());
+    }
+
+    /**
+     * Test resetBuffer method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testResetBuffer() throws Exception {
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponse();
+        response.setBodyOnly(true);
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+        response.getWebApplicationOutputStream().setOutputStream(byteOutput);
+        ServletOutputStream outputStream = response.getOutputStream();
+        outputStream.write("discarded".getBytes());
+        response.resetBuffer();
+        outputStream.write("kept".getBytes());
+        response.flushBuffer();
+        assertEquals("kept", byteOutput.toString());
+    }
+
+    /**
+     * Test buffer pooling.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testBufferPool() throws Exception {
+        DefaultBufferPool bufferPool = new DefaultBufferPool(8192, 1);
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponse();
+        DefaultWebApplicationOutputStream outputStream = new DefaultWebApplicationOutputStream(bufferPool);
+        outputStream.setResponse(response);
+        response.setWebApplicationOutputStream(outputStream);
+        response.setBodyOnly(true);
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+        response.getWebApplicationOutputStream().setOutputStream(byteOutput);
+        outputStream.write("pooled".getBytes());
+        assertEquals(0, bufferPool.getPooledCount());
+        response.flushBuffer();
+        assertEquals(1, bufferPool.getPooledCount());
+        outputStream.write("!".getBytes());
+        assertArrayEquals("pooled!".getBytes(), byteOutput.toByteArray());
+    }
+
+    /**
+     * Test writing the status line and headers.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testWriteStatusLineAndHeaders() throws Exception {
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponse();
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+        response.getWebApplicationOutputStream().setOutputStream(byteOutput);
+        response.setStatus(200);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("X-Test", "value");
+        response.getOutputStream().write("body".getBytes());
+        response.flushBuffer();
+        String result = byteOutput.toString();
+        assertTrue(result.startsWith("HTTP/1.1 200\r\n"));
+        assertTrue(result.contains("\r\nContent-Type: text/plain;charset=UTF-8\r\n"));
+        assertTrue(result.contains("\r\nX-Test: value\r\n"));
+        assertTrue(result.contains("\r\nDate: "));
+        assertTrue(result.endsWith("\r\n\r\nbody"));
+    }
 }
@@ -31,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.Collection;
@@ -403,4 +404,61 @@ class DefaultWebApplicationRequestMapperTest {
         DefaultWebApplicationRequestMapping mapping = requestMapper.findServletMapping("/index.html?q=keyword");
         assertNotNull(mapping);
     }
+
+    /**
+     * Test findServletMapping method.
+     *
+     * <p>
+     *  Validate the longest path prefix wins and a prefix only matches whole
+     *  path segments.
+     * </p>
+     */
+    @Test
+    void testFindServletMappingLongestPrefix() {
+        DefaultWebApplicationRequestMapper mapper = new DefaultWebApplicationRequestMapper();
+        mapper.addServletMapping("all", "/*");
+        mapper.addServletMapping("api", "/api/*");
+        mapper.addServletMapping("v1", "/api/v1/*");
+        assertEquals("/api/v1/*", mapper.findServletMapping("/api/v1/users").getPattern());
+        assertEquals("/api/v1/*", mapper.findServletMapping("/api/v1").getPattern());
+        assertEquals("/api/*", mapper.findServletMapping("/api/v10").getPattern());
+        assertEquals("/*", mapper.findServletMapping("/apis").getPattern());
+    }
+
+    /**
+     * Test findServletMapping method.
+     *
+     * <p>
+     *  Validate an exact match goes before a prefix match, and a prefix match
+     *  goes before an extension match.
+     * </p>
+     */
+    @Test
+    void testFindServletMappingPrecedence() {
+        DefaultWebApplicationRequestMapper mapper = new DefaultWebApplicationRequestMapper();
+        mapper.addServletMapping("exact", "/faces/index.xhtml");
+        mapper.addServletMapping("prefix", "/faces/*");
+        mapper.addServletMapping("extension", "*.xhtml");
+        assertTrue(mapper.findServletMapping("/faces/index.xhtml").isExact());
+        assertEquals("/faces/*", mapper.findServletMapping("/faces/other.xhtml").getPattern());
+        DefaultWebApplicationRequestMapping mapping = mapper.findServletMapping("/pages/other.xhtml");
+        assertTrue(mapping.isExtension());
+        assertEquals("pages/other", mapping.getMatchValue());
+    }
+
+    /**
+     * Test removeServletMapping method.
+     *
+     * <p>
+     *  Validate the mappings are updated after a removal.
+     * </p>
+     */
+    @Test
+    void testRemoveServletMapping() {
+        DefaultWebApplicationRequestMapper mapper = new DefaultWebApplicationRequestMapper();
+        mapper.addServletMapping("api", "/api/*");
+        assertNotNull(mapper.findServletMapping("/api/users"));
+        assertEquals("api", mapper.removeServletMapping("/api/*"));
+        assertNull(mapper.findServletMapping("/api/users"));
+    }
 }
@@ -91,6 +91,67 @@ class FilterTest {
         assertEquals(200, response.getStatus());
     }
 
+    /**
+     * Test the filter mappings are matched against the normalized path.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testFilterMappingNormalizedPath() throws Exception {
+        int[] count = new int[1];
+        webApp.addFilter("Counting Filter", (Filter) (request, response, chain) -> {
+            count[0]++;
+            chain.doFilter(request, response);
+        });
+        webApp.addFilterMapping("Counting Filter", "/secure/*");
+        webApp.addServlet("End Servlet", new TestEndServlet());
+        webApp.addServletMapping("End Servlet", "/*");
+        webApp.initialize();
+        webApp.start();
+        String[] paths = {"/secure/page", "/public/../secure/page", "//secure/page", "/secure;jsessionid=x/page", "/public/page"};
+        for (String path : paths) {
+            TestWebApplicationRequest request = new TestWebApplicationRequest();
+            request.setWebApplication(webApp);
+            request.setServletPath(path);
+            TestWebApplicationResponse response = new TestWebApplicationResponse();
+            response.setWebApplication(webApp);
+            webApp.service(request, response);
+        }
+        assertEquals(4, count[0]);
+    }
+
+    /**
+     * Test the filters are looked up again after a filter mapping was added
+     * while servicing.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testAddFilterMappingWhileServicing() throws Exception {
+        int[] count = new int[1];
+        webApp.addFilter("Counting Filter", (Filter) (request, response, chain) -> {
+            count[0]++;
+            chain.doFilter(request, response);
+        });
+        webApp.addServlet("End Servlet", new TestEndServlet());
+        webApp.addServletMapping("End Servlet", "/count");
+        webApp.initialize();
+        webApp.start();
+        for (int i = 0; i < 2; i++) {
+            TestWebApplicationRequest request = new TestWebApplicationRequest();
+            request.setWebApplication(webApp);
+            request.setServletPath("/count");
+            TestWebApplicationResponse response = new TestWebApplicationResponse();
+            response.setWebApplication(webApp);
+            webApp.service(request, response);
+            if (i == 0) {
+                assertEquals(0, count[0]);
+                webApp.addFilterMapping("Counting Filter", "/*");
+            }
+        }
+        assertEquals(1, count[0]);
+    }
+
     @Test
     void testAddFilterGetClassName() throws Exception{
         Filter filter = new TestMultiple1Filter();
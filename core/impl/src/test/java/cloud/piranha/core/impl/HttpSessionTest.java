@@ -771,6 +771,116 @@ public class HttpSessionTest {
         assertNotNull(sessionManager.getSession(request, session.getId()));
     }
 
+    /**
+     * Test reapSessions method.
+     */
+    @Test
+    void testReapSessions() {
+        DefaultWebApplication webApplication = new DefaultWebApplication();
+        DefaultHttpSessionManager sessionManager = new DefaultHttpSessionManager();
+        sessionManager.setWebApplication(webApplication);
+        sessionManager.setReaper(new DefaultHttpSessionReaper(1000));
+        DefaultWebApplicationRequest request = new DefaultWebApplicationRequest();
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponse();
+        webApplication.linkRequestAndResponse(request, response);
+        DefaultHttpSession expired = (DefaultHttpSession) sessionManager.createSession(request);
+        DefaultHttpSession active = (DefaultHttpSession) sessionManager.createSession(request);
+        expired.decrementActiveRequestCount();
+        active.decrementActiveRequestCount();
+        expired.setLastAccessedTime(System.currentTimeMillis() - 2000);
+        expired.setMaxInactiveInterval(1);
+        assertEquals(2, sessionManager.getReaper().getScheduledCount());
+        assertEquals(1, sessionManager.reapSessions());
+        assertFalse(sessionManager.hasSession(expired.getId()));
+        assertTrue(sessionManager.hasSession(active.getId()));
+        assertEquals(1, sessionManager.getReaper().getLastReapedCount());
+        assertEquals(1, sessionManager.getReaper().getScheduledCount());
+        assertEquals(0, sessionManager.reapSessions());
+    }
+
+    /**
+     * Test a session manager failing to expire a session does not stop the
+     * other sessions from expiring, and the failing session is retried.
+     */
+    @Test
+    void testReapSessionsWithFailingManager() {
+        DefaultHttpSessionReaper reaper = new DefaultHttpSessionReaper(1000);
+        DefaultWebApplication failingApplication = new DefaultWebApplication();
+        DefaultHttpSessionManager failingManager = new DefaultHttpSessionManager() {
+            @Override
+            protected long expireSession(HttpSession session, long now) {
+                throw new IllegalArgumentException("failing on purpose");
+            }
+        };
+        failingManager.setWebApplication(failingApplication);
+        failingManager.setReaper(reaper);
+        DefaultWebApplication webApplication = new DefaultWebApplication();
+        DefaultHttpSessionManager sessionManager = new DefaultHttpSessionManager();
+        sessionManager.setWebApplication(webApplication);
+        sessionManager.setReaper(reaper);
+        DefaultWebApplicationRequest failingRequest = new DefaultWebApplicationRequest();
+        failingApplication.linkRequestAndResponse(failingRequest, new DefaultWebApplicationResponse());
+        DefaultWebApplicationRequest request = new DefaultWebApplicationRequest();
+        webApplication.linkRequestAndResponse(request, new DefaultWebApplicationResponse());
+        HttpSession failing = failingManager.createSession(failingRequest);
+        DefaultHttpSession expired = (DefaultHttpSession) sessionManager.createSession(request);
+        expired.decrementActiveRequestCount();
+        long now = System.currentTimeMillis();
+        expired.setLastAccessedTime(now - 2000);
+        expired.setMaxInactiveInterval(1);
+        reaper.schedule(failingManager, failing, now - 2000);
+        reaper.schedule(sessionManager, expired, now - 1000);
+        assertEquals(1, reaper.reap());
+        assertFalse(sessionManager.hasSession(expired.getId()));
+        assertEquals(1, reaper.getScheduledCount());
+    }
+
+    /**
+     * Test a session that never times out is not scheduled for expiry.
+     */
+    @Test
+    void testNeverExpiringSessionNotScheduled() {
+        DefaultWebApplication webApplication = new DefaultWebApplication();
+        DefaultHttpSessionManager sessionManager = new DefaultHttpSessionManager();
+        sessionManager.setWebApplication(webApplication);
+        sessionManager.setReaper(new DefaultHttpSessionReaper(1000));
+        DefaultWebApplicationRequest request = new DefaultWebApplicationRequest();
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponse();
+        webApplication.linkRequestAndResponse(request, response);
+        HttpSession session = sessionManager.createSession(request);
+        assertEquals(1, sessionManager.getReaper().getScheduledCount());
+        session.setMaxInactiveInterval(0);
+        assertEquals(0, sessionManager.getReaper().getScheduledCount());
+        session.setMaxInactiveInterval(60);
+        assertEquals(1, sessionManager.getReaper().getScheduledCount());
+    }
+
+    /**
+     * Test destroy method cancels the expiry of all sessions.
+     */
+    @Test
+    void testDestroyCancelsExpiry() {
+        DefaultHttpSessionReaper reaper = new DefaultHttpSessionReaper(1000);
+        DefaultWebApplication webApplication = new DefaultWebApplication();
+        DefaultHttpSessionManager sessionManager = new DefaultHttpSessionManager();
+        sessionManager.setWebApplication(webApplication);
+        sessionManager.setReaper(reaper);
+        DefaultWebApplication otherApplication = new DefaultWebApplication();
+        DefaultHttpSessionManager otherManager = new DefaultHttpSessionManager();
+        otherManager.setWebApplication(otherApplication);
+        otherManager.setReaper(reaper);
+        DefaultWebApplicationRequest request = new DefaultWebApplicationRequest();
+        webApplication.linkRequestAndResponse(request, new DefaultWebApplicationResponse());
+        DefaultWebApplicationRequest otherRequest = new DefaultWebApplicationRequest();
+        otherApplication.linkRequestAndResponse(otherRequest, new DefaultWebApplicationResponse());
+        sessionManager.createSession(request);
+        sessionManager.createSession(request);
+        otherManager.createSession(otherRequest);
+        assertEquals(3, reaper.getScheduledCount());
+        sessionManager.destroy();
+        assertEquals(1, reaper.getScheduledCount());
+    }
+
     /**
      * Test getSessionCookieConfig method.
      */
@@ -34,7 +34,11 @@ import jakarta.servlet.ReadListener;
 import jakarta.servlet.ServletInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -105,6 +109,96 @@ public class ReadListenerTest {
         assertNotNull(webApplication.getAttribute("onDataAvailable"));
     }
 
+    /**
+     * Test onDataAvailable method when data arrives after the read listener
+     * was set.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testOnDataAvailable2() throws Exception {
+        WebApplication webApplication = createWebApplication();
+        WebApplicationRequest request = createWebApplicationRequest();
+        request.setAsyncSupported(true);
+        request.setWebApplication(webApplication);
+        WebApplicationResponse response = createWebApplicationResponse();
+        response.setWebApplication(webApplication);
+        webApplication.linkRequestAndResponse(request, response);
+        request.startAsync();
+        PipedOutputStream outputStream = new PipedOutputStream();
+        request.getWebApplicationInputStream().setInputStream(new PipedInputStream(outputStream));
+        ServletInputStream inputStream = request.getInputStream();
+        inputStream.setReadListener(new TestOnDataAvailableReadListener(webApplication));
+        Thread.sleep(200);
+        assertNull(webApplication.getAttribute("onDataAvailable"));
+        outputStream.write('a');
+        outputStream.flush();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (webApplication.getAttribute("onDataAvailable") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(webApplication.getAttribute("onDataAvailable"));
+    }
+
+    /**
+     * Test onAllDataRead method for an empty body.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testOnAllDataReadEmptyBody() throws Exception {
+        WebApplication webApplication = createWebApplication();
+        DefaultWebApplicationRequest request = new DefaultWebApplicationRequest();
+        request.setAsyncSupported(true);
+        request.setWebApplication(webApplication);
+        request.setContentLength(0);
+        WebApplicationResponse response = createWebApplicationResponse();
+        response.setWebApplication(webApplication);
+        webApplication.linkRequestAndResponse(request, response);
+        request.startAsync();
+        request.getWebApplicationInputStream().setInputStream(new PipedInputStream(new PipedOutputStream()));
+        ServletInputStream inputStream = request.getInputStream();
+        inputStream.setReadListener(new TestOnAllDataReadReadListener(webApplication));
+        long deadline = System.currentTimeMillis() + 2000;
+        while (webApplication.getAttribute("onAllDataRead") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(webApplication.getAttribute("onAllDataRead"));
+    }
+
+    /**
+     * Test onAllDataRead method for a body without a known length (for
+     * example a chunked body).
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testOnAllDataReadChunkedBody() throws Exception {
+        WebApplication webApplication = createWebApplication();
+        WebApplicationRequest request = createWebApplicationRequest();
+        request.setAsyncSupported(true);
+        request.setWebApplication(webApplication);
+        WebApplicationResponse response = createWebApplicationResponse();
+        response.setWebApplication(webApplication);
+        webApplication.linkRequestAndResponse(request, response);
+        request.startAsync();
+        PipedOutputStream outputStream = new PipedOutputStream();
+        request.getWebApplicationInputStream().setInputStream(new PipedInputStream(outputStream));
+        ServletInputStream inputStream = request.getInputStream();
+        inputStream.setReadListener(new TestReadAllReadListener(webApplication, inputStream));
+        outputStream.write("read ".getBytes());
+        outputStream.flush();
+        Thread.sleep(200);
+        outputStream.write("this".getBytes());
+        outputStream.close();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (webApplication.getAttribute("onAllDataRead") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(webApplication.getAttribute("onAllDataRead"));
+        assertEquals("read this", webApplication.getAttribute("body"));
+    }
+
     /**
      * A test ReadListener for onAllDataRead.
      */
@@ -170,4 +264,57 @@ public class ReadListenerTest {
         public void onError(Throwable t) {
         }
     }
+
+    /**
+     * A test ReadListener that reads all the data.
+     */
+    public static class TestReadAllReadListener implements ReadListener {
+
+        /**
+         * Stores the body.
+         */
+        private final StringBuilder body = new StringBuilder();
+
+        /**
+         * Stores the input stream.
+         */
+        private final ServletInputStream inputStream;
+
+        /**
+         * Stores the web application.
+         */
+        private final WebApplication webApplication;
+
+        /**
+         * Constructor.
+         *
+         * @param webApplication the web application.
+         * @param inputStream the input stream.
+         */
+        public TestReadAllReadListener(WebApplication webApplication, ServletInputStream inputStream) {
+            this.webApplication = webApplication;
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public void onAllDataRead() throws IOException {
+            webApplication.setAttribute("body", body.toString());
+            webApplication.setAttribute("onAllDataRead", true);
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            while (inputStream.isReady()) {
+                int character = inputStream.read();
+                if (character == -1) {
+                    break;
+                }
+                body.append((char) character);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+    }
 }
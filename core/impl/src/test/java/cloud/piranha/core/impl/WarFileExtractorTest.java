@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.core.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the WarFileExtractor class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class WarFileExtractorTest {
+
+    /**
+     * Create a WAR file.
+     *
+     * @param warFile the WAR file.
+     * @param entries the entries (name to content).
+     * @throws IOException when an I/O error occurs.
+     */
+    private static void createWarFile(File warFile, Map<String, String> entries) throws IOException {
+        warFile.getParentFile().mkdirs();
+        try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(warFile))) {
+            output.putNextEntry(new ZipEntry("WEB-INF/"));
+            output.closeEntry();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                output.putNextEntry(new ZipEntry(entry.getKey()));
+                output.write(entry.getValue().getBytes(UTF_8));
+                output.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Delete a directory.
+     *
+     * @param directory the directory.
+     * @throws IOException when an I/O error occurs.
+     */
+    private static void deleteDirectory(File directory) throws IOException {
+        if (directory.exists()) {
+            try (var paths = Files.walk(directory.toPath())) {
+                paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Test extractWarFile method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExtractWarFile() throws Exception {
+        File warFile = new File("target/war-file-extractor/test.war");
+        File directory = new File("target/war-file-extractor/test");
+        deleteDirectory(directory);
+        createWarFile(warFile, Map.of(
+                "index.html", "index",
+                "WEB-INF/web.xml", "<web-app/>",
+                "WEB-INF/classes/test.properties", "key=value"));
+        WarFileExtractor.extractWarFile(warFile, directory);
+        assertEquals("index", Files.readString(new File(directory, "index.html").toPath()));
+        assertEquals("<web-app/>", Files.readString(new File(directory, "WEB-INF/web.xml").toPath()));
+        assertEquals("key=value", Files.readString(new File(directory, "WEB-INF/classes/test.properties").toPath()));
+        assertTrue(new File(directory, WarFileExtractor.MANIFEST_FILE).exists());
+    }
+
+    /**
+     * Test extractWarFile method with an unchanged and a changed WAR file.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExtractWarFile2() throws Exception {
+        File warFile = new File("target/war-file-extractor/test2.war");
+        File directory = new File("target/war-file-extractor/test2");
+        deleteDirectory(directory);
+        createWarFile(warFile, Map.of(
+                "index.html", "index",
+                "stale.html", "stale",
+                "unchanged.html", "unchanged"));
+        WarFileExtractor.extractWarFile(warFile, directory);
+
+        /*
+         * An unchanged WAR file is not extracted again.
+         */
+        File unchanged = new File(directory, "unchanged.html");
+        Files.writeString(unchanged.toPath(), "local");
+        WarFileExtractor.extractWarFile(warFile, directory);
+        assertEquals("local", Files.readString(unchanged.toPath()));
+
+        /*
+         * A changed WAR file only extracts the changed entries and removes
+         * the entries that are gone.
+         */
+        Files.writeString(unchanged.toPath(), "unchanged");
+        long lastModified = unchanged.lastModified();
+        createWarFile(warFile, Map.of(
+                "index.html", "new index",
+                "unchanged.html", "unchanged"));
+        warFile.setLastModified(warFile.lastModified() + 2000);
+        WarFileExtractor.extractWarFile(warFile, directory);
+        assertEquals("new index", Files.readString(new File(directory, "index.html").toPath()));
+        assertEquals(lastModified, unchanged.lastModified());
+        assertFalse(new File(directory, "stale.html").exists());
+    }
+
+    /**
+     * Test extractWarFile method with an entry outside of the directory.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testExtractWarFile3() throws Exception {
+        File warFile = new File("target/war-file-extractor/test3.war");
+        File directory = new File("target/war-file-extractor/test3");
+        deleteDirectory(directory);
+        createWarFile(warFile, Map.of("../escaped.html", "escaped"));
+        WarFileExtractor.extractWarFile(warFile, directory);
+        assertFalse(new File("target/war-file-extractor/escaped.html").exists());
+        assertFalse(new File(directory, WarFileExtractor.MANIFEST_FILE).exists());
+    }
+}
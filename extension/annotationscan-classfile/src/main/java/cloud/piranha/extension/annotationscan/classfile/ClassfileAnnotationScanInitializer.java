@@ -31,6 +31,7 @@ import cloud.piranha.core.api.AnnotationManager;
 import cloud.piranha.core.api.WebApplication;
 import cloud.piranha.extension.annotationscan.classfile.internal.InternalAnnotationScanAnnotationManager;
 import cloud.piranha.extension.annotationscan.classfile.internal.InternalAnnotationScanAnnotationInfo;
+import cloud.piranha.extension.annotationscan.classfile.internal.InternalAnnotationScanIndex;
 import cloud.piranha.resource.api.ResourceManager;
 import cloud.piranha.resource.api.ResourceManagerClassLoader;
 import jakarta.servlet.ServletContainerInitializer;
@@ -38,6 +39,7 @@ import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import sun.reflect.ReflectionFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
@@ -53,6 +55,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.ERROR;
 import static java.lang.System.Logger.Level.WARNING;
 import static java.lang.invoke.MethodType.methodType;
@@ -62,12 +65,30 @@ import static java.util.Arrays.stream;
  * This ServletContainerInitializer deep scans for annotations and adds them to
  * the StandardAnnotationScanAnnotationManager.
  *
+ * <p>
+ * The locations of the annotated classes are kept in a persistent index,
+ * stored in WEB-INF of an exploded web application (or in the file named by
+ * the {@value #INDEX_FILE} init parameter, an empty value disables it). When
+ * the checksum of the class loader resources has not changed since the index
+ * was written the class files are not read again.
+ * </p>
+ *
  * @author Arjan Tijms
  * @author Manfred Riem (mriem@manorrock.com)
  * @author Thiago Henrique Hupner
  */
 public class ClassfileAnnotationScanInitializer implements ServletContainerInitializer {
 
+    /**
+     * Stores the init parameter name for the index file.
+     */
+    public static final String INDEX_FILE = "cloud.piranha.extension.annotationscan.classfile.IndexFile";
+
+    /**
+     * Stores the default name of the index file.
+     */
+    private static final String DEFAULT_INDEX_FILE_NAME = "piranha-annotations.idx";
+
     /**
      * Stores the logger.
      */
@@ -102,16 +123,49 @@ public class ClassfileAnnotationScanInitializer implements ServletContainerIniti
             return;
         }
         ResourceManager resourceManager = resourceManagerClassLoader.getResourceManager();
-        resourceManager
-                .getAllLocations()
-                .filter(e -> e.endsWith(".class") && !e.endsWith("module-info.class") && !e.startsWith("/META-INF/versions"))
-                .filter(resource -> classFileHasJakartaAnnotations(readResource(resource, resourceManager)))
+        File indexFile = getIndexFile(servletContext);
+        long checksum = indexFile != null ? InternalAnnotationScanIndex.computeChecksum(resourceManager) : 0;
+        InternalAnnotationScanIndex index = checksum != 0 ? InternalAnnotationScanIndex.read(indexFile) : null;
+
+        List<String> locations;
+        if (index != null && index.getChecksum() == checksum) {
+            LOGGER.log(DEBUG, "Using annotation index {0}", indexFile);
+            locations = index.getLocations();
+        } else {
+            locations = resourceManager
+                    .getAllLocations()
+                    .filter(e -> e.endsWith(".class") && !e.endsWith("module-info.class") && !e.startsWith("/META-INF/versions"))
+                    .filter(resource -> classFileHasJakartaAnnotations(readResource(resource, resourceManager)))
+                    .toList();
+            if (checksum != 0) {
+                try {
+                    new InternalAnnotationScanIndex(checksum, locations).write(indexFile);
+                } catch (IOException ioe) {
+                    LOGGER.log(WARNING, "Unable to write annotation index " + indexFile, ioe);
+                }
+            }
+        }
+
+        locations.stream()
                 .map(e -> loadClass(classLoader, e))
                 .flatMap(this::getJakartaAnnotations)
                 .map(annotationInstance -> new InternalAnnotationScanAnnotationInfo<>(annotationInstance, annotationInstance.annotationType()))
                 .forEach(annotationManager::addAnnotation);
+    }
 
-
+    /**
+     * Get the index file.
+     *
+     * @param servletContext the servlet context.
+     * @return the index file, or null if there is none.
+     */
+    private File getIndexFile(ServletContext servletContext) {
+        String indexFile = servletContext.getInitParameter(INDEX_FILE);
+        if (indexFile != null) {
+            return indexFile.isBlank() ? null : new File(indexFile);
+        }
+        String webInfDirectory = servletContext.getRealPath("/WEB-INF");
+        return webInfDirectory != null ? new File(webInfDirectory, DEFAULT_INDEX_FILE_NAME) : null;
     }
 
     /**
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.extension.annotationscan.classfile.internal;
+
+import cloud.piranha.resource.api.Resource;
+import cloud.piranha.resource.api.ResourceManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The persistent annotation scan index.
+ *
+ * <p>
+ * The index records the locations of the class files that carry Jakarta
+ * annotations, keyed by the checksum of the resources they were found in. As
+ * long as the checksum is unchanged a redeploy can load just those classes
+ * instead of reading and parsing every class file again.
+ * </p>
+ *
+ * <p>
+ * The index is stored in a compact binary format: a magic number, a format
+ * version, the checksum, the number of locations and the locations
+ * themselves.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class InternalAnnotationScanIndex {
+
+    /**
+     * Stores the magic number.
+     */
+    private static final int MAGIC = 0x50415349;
+
+    /**
+     * Stores the format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Stores the checksum.
+     */
+    private final long checksum;
+
+    /**
+     * Stores the locations.
+     */
+    private final List<String> locations;
+
+    /**
+     * Constructor.
+     *
+     * @param checksum the checksum.
+     * @param locations the locations.
+     */
+    public InternalAnnotationScanIndex(long checksum, List<String> locations) {
+        this.checksum = checksum;
+        this.locations = List.copyOf(locations);
+    }
+
+    /**
+     * Compute the checksum of the resources of the given resource manager.
+     *
+     * @param resourceManager the resource manager.
+     * @return the checksum, or 0 if any of the resources cannot compute one.
+     */
+    public static long computeChecksum(ResourceManager resourceManager) {
+        long result = VERSION;
+        for (Resource resource : resourceManager.getResourceList()) {
+            long resourceChecksum = resource.getChecksum();
+            if (resourceChecksum == 0) {
+                return 0;
+            }
+            result = 31 * result + resourceChecksum;
+        }
+        return result == 0 ? 1 : result;
+    }
+
+    /**
+     * {@return the checksum}
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * {@return the locations}
+     */
+    public List<String> getLocations() {
+        return locations;
+    }
+
+    /**
+     * Read the index from the given file.
+     *
+     * @param file the file.
+     * @return the index, or null if the file does not exist or is not a valid
+     * index.
+     */
+    public static InternalAnnotationScanIndex read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream inputStream = Files.newInputStream(file.toPath());
+                DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+            long checksum = input.readLong();
+            int count = input.readInt();
+            List<String> locations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                locations.add(input.readUTF());
+            }
+            return new InternalAnnotationScanIndex(checksum, locations);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the index to the given file.
+     *
+     * <p>
+     * The index is written to a temporary file first and then moved in place,
+     * so a concurrent reader never sees a partially written index.
+     * </p>
+     *
+     * @param file the file.
+     * @throws IOException when an I/O error occurs.
+     */
+    public void write(File file) throws IOException {
+        Path target = file.toPath();
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporary);
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(checksum);
+            output.writeInt(locations.size());
+            for (String location : locations) {
+                output.writeUTF(location);
+            }
+        }
+        try {
+            Files.move(temporary, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            Files.move(temporary, target, REPLACE_EXISTING);
+        }
+    }
+}
@@ -30,16 +30,21 @@ package cloud.piranha.extension.annotationscan.classfile;
 import cloud.piranha.core.api.AnnotationManager;
 import cloud.piranha.core.api.WebApplication;
 import cloud.piranha.core.impl.DefaultWebApplication;
+import cloud.piranha.extension.annotationscan.classfile.internal.InternalAnnotationScanIndex;
 import cloud.piranha.resource.impl.DefaultResourceManager;
 import cloud.piranha.resource.impl.DefaultResourceManagerClassLoader;
 import cloud.piranha.resource.impl.DirectoryResource;
 import jakarta.servlet.annotation.WebServlet;
+import java.io.File;
+import java.nio.file.Files;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.EnabledOnJre;
 import org.junit.jupiter.api.condition.JRE;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * The JUnit tests for the AnnotationScanExtension class.
@@ -85,4 +90,36 @@ class AnnotationScanExtensionTest {
         AnnotationManager annotationManager = webApplication.getManager().getAnnotationManager();
         assertFalse(annotationManager.getAnnotations(WebServlet.class).isEmpty());
     }
+
+    /**
+     * Test configure method with an annotation index.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    @EnabledOnJre(value = JRE.JAVA_21, disabledReason = "Only JDK 21 includes the Classfile API")
+    void testConfigure3() throws Exception {
+        File indexFile = new File("target/annotation-scan-extension-test.idx");
+        Files.deleteIfExists(indexFile.toPath());
+        for (int i = 0; i < 2; i++) {
+            DefaultResourceManager resourceManager = new DefaultResourceManager();
+            resourceManager.addResource(new DirectoryResource("target/test-classes"));
+
+            DefaultResourceManagerClassLoader classLoader = new DefaultResourceManagerClassLoader(getClass().getClassLoader(), resourceManager);
+            WebApplication webApplication = new DefaultWebApplication();
+            webApplication.setClassLoader(classLoader);
+            webApplication.setInitParameter(ClassfileAnnotationScanInitializer.INDEX_FILE, indexFile.getPath());
+
+            ClassfileAnnotationScanExtension extension = new ClassfileAnnotationScanExtension();
+            extension.configure(webApplication);
+            webApplication.initialize();
+
+            AnnotationManager annotationManager = webApplication.getManager().getAnnotationManager();
+            assertFalse(annotationManager.getAnnotations(WebServlet.class).isEmpty());
+            assertTrue(indexFile.isFile());
+        }
+        InternalAnnotationScanIndex index = InternalAnnotationScanIndex.read(indexFile);
+        assertNotNull(index);
+        assertTrue(index.getLocations().contains("/cloud/piranha/extension/annotationscan/classfile/TestServlet.class"));
+    }
 }
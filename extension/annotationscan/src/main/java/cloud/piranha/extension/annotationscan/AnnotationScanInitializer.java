@@ -29,23 +29,34 @@ package cloud.piranha.extension.annotationscan;
 
 import cloud.piranha.extension.annotationscan.internal.InternalAnnotationScanAnnotationManager;
 import cloud.piranha.extension.annotationscan.internal.InternalAnnotationScanAnnotationInfo;
+import cloud.piranha.extension.annotationscan.internal.InternalClassFileInfo;
+import cloud.piranha.resource.api.Resource;
+import cloud.piranha.resource.api.ResourceManager;
 import cloud.piranha.resource.api.ResourceManagerClassLoader;
 import cloud.piranha.core.api.AnnotationManager;
 import cloud.piranha.core.api.WebApplication;
 import jakarta.servlet.ServletContainerInitializer;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.HandlesTypes;
 import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.ServletSecurity;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.annotation.WebInitParam;
 import jakarta.servlet.annotation.WebListener;
 import jakarta.servlet.annotation.WebServlet;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.System.Logger;
 import static java.lang.System.Logger.Level.TRACE;
 import static java.lang.System.Logger.Level.WARNING;
 import java.lang.annotation.Annotation;
 import static java.util.Arrays.stream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -53,16 +64,41 @@ import java.util.stream.Stream;
  * This ServletContainerInitializer deep scans for annotations and adds them to
  * the StandardAnnotationScanAnnotationManager.
  *
+ * <p>
+ * By default the class files are scanned at the bytecode level: the class
+ * files of every resource are parsed in parallel and only the classes that
+ * carry a web annotation, or that are of interest to the
+ * {@link HandlesTypes} of a registered ServletContainerInitializer, are
+ * loaded. Setting the {@value #BYTECODE_SCAN} init parameter to false loads
+ * and inspects every class instead.
+ * </p>
+ *
  * @author Arjan Tijms
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class AnnotationScanInitializer implements ServletContainerInitializer {
 
+    /**
+     * Stores the init parameter name for the bytecode scan flag.
+     */
+    public static final String BYTECODE_SCAN = "cloud.piranha.extension.annotationscan.BytecodeScan";
+
     /**
      * Stores the logger.
      */
     private static final Logger LOGGER = System.getLogger(AnnotationScanInitializer.class.getName());
 
+    /**
+     * Stores the names of the web annotations.
+     */
+    private static final Set<String> WEB_ANNOTATION_NAMES = Set.of(
+            "jakarta.servlet.annotation.MultipartConfig",
+            "jakarta.servlet.annotation.ServletSecurity",
+            "jakarta.servlet.annotation.WebFilter",
+            "jakarta.servlet.annotation.WebInitParam",
+            "jakarta.servlet.annotation.WebListener",
+            "jakarta.servlet.annotation.WebServlet");
+
     /**
      * On startup.
      *
@@ -106,7 +142,7 @@ public class AnnotationScanInitializer implements ServletContainerInitializer {
                     }
                 }
             }
-        } else {
+        } else if ("false".equalsIgnoreCase(servletContext.getInitParameter(BYTECODE_SCAN))) {
             resourceManagerClassLoader
                     .getResourceManager()
                     .getAllLocations()
@@ -116,21 +152,171 @@ public class AnnotationScanInitializer implements ServletContainerInitializer {
                     .forEach(targetClazz -> getWebAnnotations(targetClazz)
                     .forEach(annotationInstance
                             -> annotationMgr.addAnnotation(new InternalAnnotationScanAnnotationInfo<>(annotationInstance, targetClazz))));
+        } else {
+            Map<String, InternalClassFileInfo> classFiles = parseClassFiles(resourceManagerClassLoader.getResourceManager());
+            classFiles.values().stream()
+                    .filter(classFile -> classFile.getAnnotationNames().stream().anyMatch(this::isWebAnnotation))
+                    .map(classFile -> loadClass(classLoader, classFile.getClassName()))
+                    .forEach(targetClazz -> getWebAnnotations(targetClazz)
+                    .forEach(annotationInstance
+                            -> annotationMgr.addAnnotation(new InternalAnnotationScanAnnotationInfo<>(annotationInstance, targetClazz))));
+            addHandlesTypes(webApp, classFiles, classLoader, annotationMgr);
         }
     }
 
     /**
-     * Load the class using the given class loader.
+     * Parse the class files of all the resources.
+     *
+     * <p>
+     * The class files of each resource are parsed in parallel. When a class
+     * is present in multiple resources the first one wins, just like it does
+     * for the class loader.
+     * </p>
+     *
+     * @param resourceManager the resource manager.
+     * @return the class file infos by class name.
+     */
+    private Map<String, InternalClassFileInfo> parseClassFiles(ResourceManager resourceManager) {
+        Map<String, InternalClassFileInfo> classFiles = new LinkedHashMap<>();
+        for (Resource resource : resourceManager.getResourceList()) {
+            resource.getAllLocations()
+                    .filter(e -> e.endsWith(".class") && !e.endsWith("module-info.class") && !e.startsWith("/META-INF/versions"))
+                    .toList()
+                    .parallelStream()
+                    .map(location -> parseClassFile(resource.getResourceAsStream(location), location))
+                    .filter(Objects::nonNull)
+                    .toList()
+                    .forEach(classFile -> classFiles.putIfAbsent(classFile.getClassName(), classFile));
+        }
+        return classFiles;
+    }
+
+    /**
+     * Parse a class file.
      *
+     * @param inputStream the input stream.
+     * @param location the location (for logging).
+     * @return the class file info, or null if it could not be parsed.
+     */
+    private InternalClassFileInfo parseClassFile(InputStream inputStream, String location) {
+        if (inputStream == null) {
+            return null;
+        }
+        try (inputStream) {
+            return InternalClassFileInfo.parse(inputStream.readAllBytes());
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(TRACE, "Unable to parse class file {0}, because of {1}",
+                    location, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Add the classes the registered initializers are interested in.
+     *
+     * <p>
+     * For every type named by a {@link HandlesTypes} annotation the classes
+     * that extend or implement it are added as instances, and the classes
+     * annotated with it are added as annotations, so the initializers can be
+     * fed without inspecting every class by reflection.
+     * </p>
+     *
+     * @param webApp the web application.
+     * @param classFiles the class file infos by class name.
      * @param classLoader the class loader.
+     * @param annotationManager the annotation manager.
+     */
+    @SuppressWarnings("unchecked")
+    private void addHandlesTypes(WebApplication webApp, Map<String, InternalClassFileInfo> classFiles,
+            ClassLoader classLoader, AnnotationManager annotationManager) {
+        Set<Class<?>> types = new HashSet<>();
+        for (ServletContainerInitializer initializer : webApp.getInitializers()) {
+            HandlesTypes handlesTypes = initializer.getClass().getAnnotation(HandlesTypes.class);
+            if (handlesTypes != null) {
+                types.addAll(stream(handlesTypes.value()).toList());
+            }
+        }
+        Map<String, Set<String>> supertypes = new HashMap<>();
+        for (Class<?> type : types) {
+            String typeName = type.getName();
+            if (type.isAnnotation()) {
+                if (isWebAnnotation(typeName)) {
+                    continue;
+                }
+                classFiles.values().stream()
+                        .filter(classFile -> classFile.getAnnotationNames().contains(typeName))
+                        .map(classFile -> loadClass(classLoader, classFile.getClassName()))
+                        .forEach(targetClazz -> {
+                            Annotation annotationInstance = targetClazz.getAnnotation((Class<? extends Annotation>) type);
+                            if (annotationInstance != null) {
+                                annotationManager.addAnnotation(new InternalAnnotationScanAnnotationInfo<>(annotationInstance, targetClazz));
+                            }
+                        });
+            } else {
+                classFiles.values().stream()
+                        .filter(classFile -> getSupertypes(classFile.getClassName(), classFiles, classLoader, supertypes).contains(typeName))
+                        .map(classFile -> loadClass(classLoader, classFile.getClassName()))
+                        .filter(type::isAssignableFrom)
+                        .forEach(targetClazz -> annotationManager.addInstance(type, targetClazz));
+            }
+        }
+    }
+
+    /**
+     * Get the names of all the supertypes of the given class.
+     *
+     * <p>
+     * Supertypes outside of the scanned resources are resolved by parsing
+     * their class file as found by the class loader, so they are not loaded
+     * either.
+     * </p>
+     *
      * @param className the class name.
+     * @param classFiles the class file infos by class name.
+     * @param classLoader the class loader.
+     * @param supertypes the supertypes resolved so far.
+     * @return the names of the supertypes.
+     */
+    private Set<String> getSupertypes(String className, Map<String, InternalClassFileInfo> classFiles,
+            ClassLoader classLoader, Map<String, Set<String>> supertypes) {
+        Set<String> result = supertypes.get(className);
+        if (result == null) {
+            result = new HashSet<>();
+            supertypes.put(className, result);
+            InternalClassFileInfo classFile = classFiles.get(className);
+            if (classFile == null && !"java.lang.Object".equals(className)) {
+                classFile = parseClassFile(classLoader.getResourceAsStream(
+                        className.replace('.', '/') + ".class"), className);
+            }
+            if (classFile != null) {
+                if (classFile.getSuperClassName() != null) {
+                    result.add(classFile.getSuperClassName());
+                    result.addAll(getSupertypes(classFile.getSuperClassName(), classFiles, classLoader, supertypes));
+                }
+                for (String interfaceName : classFile.getInterfaceNames()) {
+                    result.add(interfaceName);
+                    result.addAll(getSupertypes(interfaceName, classFiles, classLoader, supertypes));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load the class using the given class loader.
+     *
+     * @param classLoader the class loader.
+     * @param className the class name, or the location of the class file.
      * @return the class.
      */
     public Class<?> loadClass(ClassLoader classLoader, String className) {
         try {
-            return classLoader.loadClass(
-                    className.replace("/", ".")
-                            .substring(1, className.length() - ".class".length()));
+            if (className.endsWith(".class")) {
+                return classLoader.loadClass(
+                        className.replace("/", ".")
+                                .substring(1, className.length() - ".class".length()));
+            }
+            return classLoader.loadClass(className);
         } catch (ClassNotFoundException | NoClassDefFoundError e) {
             LOGGER.log(TRACE,"Unable to load class {0}, because of {1}", 
                     className, e.getMessage());
@@ -174,7 +360,18 @@ public class AnnotationScanInitializer implements ServletContainerInitializer {
                 || annotation instanceof WebFilter
                 || annotation instanceof ServletSecurity
                 || annotation instanceof MultipartConfig
-                || (annotation != null && annotation.toString().contains("jakarta.ws.rs.")
-                || (annotation != null && annotation.toString().contains("jakarta.websocket.")));
+                || (annotation != null && isWebAnnotation(annotation.annotationType().getName()));
+    }
+
+    /**
+     * Is this the name of a web annotation.
+     *
+     * @param annotationName the name of the annotation type.
+     * @return true if it is, false otherwise.
+     */
+    private boolean isWebAnnotation(String annotationName) {
+        return WEB_ANNOTATION_NAMES.contains(annotationName)
+                || annotationName.startsWith("jakarta.ws.rs.")
+                || annotationName.startsWith("jakarta.websocket.");
     }
 }
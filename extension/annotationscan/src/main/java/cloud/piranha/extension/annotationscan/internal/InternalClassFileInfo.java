@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.extension.annotationscan.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The information the annotation scan needs from a class file.
+ *
+ * <p>
+ * The class file is parsed straight from its bytes: the constant pool, the
+ * super class, the interfaces and the types of the runtime visible class
+ * annotations. Fields and methods are skipped. The class is never loaded, so
+ * no static initializer runs and no metaspace is used for it.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class InternalClassFileInfo {
+
+    /**
+     * Stores the class file magic number.
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /**
+     * Stores the RuntimeVisibleAnnotations attribute name.
+     */
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    /**
+     * Stores the names of the annotation types.
+     */
+    private final List<String> annotationNames = new ArrayList<>();
+
+    /**
+     * Stores the class file bytes.
+     */
+    private final byte[] bytes;
+
+    /**
+     * Stores the class name.
+     */
+    private String className;
+
+    /**
+     * Stores the offsets of the constant pool entries.
+     */
+    private int[] constants;
+
+    /**
+     * Stores the names of the interfaces.
+     */
+    private final List<String> interfaceNames = new ArrayList<>();
+
+    /**
+     * Stores the current position.
+     */
+    private int position;
+
+    /**
+     * Stores the super class name (or null for java.lang.Object).
+     */
+    private String superClassName;
+
+    /**
+     * Constructor.
+     *
+     * @param bytes the class file bytes.
+     */
+    private InternalClassFileInfo(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Parse the given class file bytes.
+     *
+     * @param bytes the class file bytes.
+     * @return the class file info.
+     * @throws IllegalArgumentException when the bytes are not a valid class
+     * file.
+     */
+    public static InternalClassFileInfo parse(byte[] bytes) {
+        InternalClassFileInfo info = new InternalClassFileInfo(bytes);
+        try {
+            info.parseClassFile();
+        } catch (IndexOutOfBoundsException | UncheckedIOException e) {
+            throw new IllegalArgumentException("Invalid class file", e);
+        }
+        return info;
+    }
+
+    /**
+     * {@return the names of the runtime visible class annotation types}
+     */
+    public List<String> getAnnotationNames() {
+        return annotationNames;
+    }
+
+    /**
+     * {@return the class name}
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * {@return the names of the directly implemented interfaces}
+     */
+    public List<String> getInterfaceNames() {
+        return interfaceNames;
+    }
+
+    /**
+     * {@return the super class name, or null for java.lang.Object}
+     */
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    /**
+     * Parse the class file.
+     */
+    private void parseClassFile() {
+        if (readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        position += 4;
+        parseConstantPool();
+        position += 2;
+        className = getClassConstant(readUnsignedShort());
+        int superClass = readUnsignedShort();
+        superClassName = superClass != 0 ? getClassConstant(superClass) : null;
+        int interfaceCount = readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaceNames.add(getClassConstant(readUnsignedShort()));
+        }
+        skipMembers();
+        skipMembers();
+        int attributeCount = readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = getUtf8Constant(readUnsignedShort());
+            int length = readInt();
+            int end = position + length;
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+                int annotationCount = readUnsignedShort();
+                for (int j = 0; j < annotationCount; j++) {
+                    annotationNames.add(parseAnnotation());
+                }
+            }
+            position = end;
+        }
+    }
+
+    /**
+     * Parse an annotation.
+     *
+     * @return the name of the annotation type.
+     */
+    private String parseAnnotation() {
+        String name = toClassName(getUtf8Constant(readUnsignedShort()));
+        int pairCount = readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            position += 2;
+            skipElementValue();
+        }
+        return name;
+    }
+
+    /**
+     * Parse the constant pool and record the offset of every entry.
+     */
+    private void parseConstantPool() {
+        int count = readUnsignedShort();
+        constants = new int[count];
+        for (int i = 1; i < count; i++) {
+            constants[i] = position;
+            int tag = bytes[position++];
+            switch (tag) {
+                case 1 -> position += 2 + readUnsignedShort(position);
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> position += 4;
+                case 5, 6 -> {
+                    position += 8;
+                    i++;
+                }
+                case 7, 8, 16, 19, 20 -> position += 2;
+                case 15 -> position += 3;
+                default -> throw new IllegalArgumentException("Unknown constant pool tag: " + tag);
+            }
+        }
+    }
+
+    /**
+     * Get the class name for the given class constant.
+     *
+     * @param index the constant pool index.
+     * @return the class name.
+     */
+    private String getClassConstant(int index) {
+        return getUtf8Constant(readUnsignedShort(constants[index] + 1)).replace('/', '.');
+    }
+
+    /**
+     * Get the string for the given UTF-8 constant.
+     *
+     * @param index the constant pool index.
+     * @return the string.
+     */
+    private String getUtf8Constant(int index) {
+        int offset = constants[index] + 1;
+        int length = readUnsignedShort(offset);
+        try {
+            return new DataInputStream(new ByteArrayInputStream(bytes, offset, length + 2)).readUTF();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Read an int at the current position.
+     *
+     * @return the int.
+     */
+    private int readInt() {
+        int result = ((bytes[position] & 0xff) << 24) | ((bytes[position + 1] & 0xff) << 16)
+                | ((bytes[position + 2] & 0xff) << 8) | (bytes[position + 3] & 0xff);
+        position += 4;
+        return result;
+    }
+
+    /**
+     * Read an unsigned short at the current position.
+     *
+     * @return the unsigned short.
+     */
+    private int readUnsignedShort() {
+        int result = readUnsignedShort(position);
+        position += 2;
+        return result;
+    }
+
+    /**
+     * Read an unsigned short at the given offset.
+     *
+     * @param offset the offset.
+     * @return the unsigned short.
+     */
+    private int readUnsignedShort(int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    /**
+     * Skip an annotation element value.
+     */
+    private void skipElementValue() {
+        int tag = bytes[position++];
+        switch (tag) {
+            case 'e' -> position += 4;
+            case '@' -> parseAnnotation();
+            case '[' -> {
+                int count = readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue();
+                }
+            }
+            default -> position += 2;
+        }
+    }
+
+    /**
+     * Skip the fields or the methods.
+     */
+    private void skipMembers() {
+        int count = readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            position += 6;
+            int attributeCount = readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                position += 2;
+                int length = readInt();
+                position += length;
+            }
+        }
+    }
+
+    /**
+     * Convert a field descriptor to a class name.
+     *
+     * @param descriptor the descriptor (e.g. Ljakarta/ws/rs/Path;).
+     * @return the class name (e.g. jakarta.ws.rs.Path).
+     */
+    private static String toClassName(String descriptor) {
+        if (descriptor.length() > 2 && descriptor.charAt(0) == 'L' && descriptor.endsWith(";")) {
+            return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+        }
+        return descriptor.replace('/', '.');
+    }
+}
@@ -33,9 +33,13 @@ import cloud.piranha.core.impl.DefaultWebApplication;
 import cloud.piranha.extension.annotationscan.AnnotationScanExtension;
 import cloud.piranha.resource.impl.DefaultResourceManager;
 import cloud.piranha.resource.impl.DefaultResourceManagerClassLoader;
+import cloud.piranha.resource.impl.DirectoryResource;
 import jakarta.servlet.annotation.WebServlet;
+import java.util.HashSet;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -83,4 +87,35 @@ class AnnotationScanExtensionTest {
         AnnotationManager annotationManager = webApplication.getManager().getAnnotationManager();
         assertFalse(annotationManager.getAnnotations(WebServlet.class).isEmpty());
     }
+
+    /**
+     * Test configure method with the bytecode scan.
+     */
+    @Test
+    void testConfigure3() {
+        DefaultResourceManager resourceManager = new DefaultResourceManager();
+        resourceManager.addResource(new DirectoryResource("target/test-classes"));
+        DefaultResourceManagerClassLoader classLoader
+                = new DefaultResourceManagerClassLoader(getClass().getClassLoader(), resourceManager);
+        WebApplication webApplication = new DefaultWebApplication();
+        webApplication.setClassLoader(classLoader);
+        AnnotationScanExtension extension = new AnnotationScanExtension();
+        extension.configure(webApplication);
+        webApplication.addInitializer(TestWithHandlesTypesInitializer.class.getName());
+        webApplication.initialize();
+        AnnotationManager annotationManager = webApplication.getManager().getAnnotationManager();
+        assertFalse(annotationManager.getAnnotations(WebServlet.class).isEmpty());
+        assertTrue(annotationManager.getInstances(Set.class).contains(TestSet.class));
+        assertEquals(Boolean.TRUE, webApplication.getAttribute("object_class"));
+        assertEquals(Boolean.TRUE, webApplication.getAttribute("someannotation_class"));
+    }
+
+    /**
+     * A set annotated with the test annotation.
+     */
+    @TestAnnotation
+    public static class TestSet extends HashSet<Object> {
+
+        private static final long serialVersionUID = 1L;
+    }
 }
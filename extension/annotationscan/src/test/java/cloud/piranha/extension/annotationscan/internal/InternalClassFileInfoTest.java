@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.extension.annotationscan.internal;
+
+import cloud.piranha.extension.annotationscan.TestServlet;
+import java.io.InputStream;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The JUnit tests for the InternalClassFileInfo class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class InternalClassFileInfoTest {
+
+    /**
+     * Test parse method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParse() throws Exception {
+        byte[] bytes;
+        try (InputStream inputStream = TestServlet.class.getResourceAsStream("TestServlet.class")) {
+            bytes = inputStream.readAllBytes();
+        }
+        InternalClassFileInfo info = InternalClassFileInfo.parse(bytes);
+        assertEquals(TestServlet.class.getName(), info.getClassName());
+        assertEquals(TestServlet.class.getSuperclass().getName(), info.getSuperClassName());
+        assertTrue(info.getAnnotationNames().contains("jakarta.servlet.annotation.WebServlet"));
+    }
+
+    /**
+     * Test parse method with invalid bytes.
+     */
+    @Test
+    void testParse2() {
+        assertThrows(IllegalArgumentException.class, () -> InternalClassFileInfo.parse(new byte[] {1, 2, 3, 4}));
+        assertThrows(IllegalArgumentException.class, () -> InternalClassFileInfo.parse(new byte[] {(byte) 0xCA, (byte) 0xFE}));
+    }
+}
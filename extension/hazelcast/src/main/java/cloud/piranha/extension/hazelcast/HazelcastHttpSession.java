@@ -28,16 +28,29 @@
 package cloud.piranha.extension.hazelcast;
 
 import cloud.piranha.core.api.HttpSessionManager;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpSession;
 
 /**
  * The Hazelcast HttpSession.
  *
+ * <p>
+ * The names of the attributes that were set or removed are tracked so only
+ * those (and not the whole session) need to be written back to the cluster,
+ * see {@link #takeDelta(long)}.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class HazelcastHttpSession implements HttpSession, Serializable {
@@ -45,13 +58,23 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
     /**
      * Stores the attributes.
      */
-    private HashMap<String, Serializable> attributes = new HashMap<>();
+    private ConcurrentHashMap<String, Serializable> attributes = new ConcurrentHashMap<>();
 
     /**
      * Stores the creation time.
      */
     private long creationTime;
 
+    /**
+     * Stores the names of the attributes changed since the last delta.
+     */
+    private transient Set<String> dirtyAttributes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Stores the last accessed time as of the last delta.
+     */
+    private transient long flushedAccessedTime;
+
     /**
      * Stores the session id.
      */
@@ -67,6 +90,11 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
      */
     private int maxInactiveInterval;
 
+    /**
+     * Stores if the max inactive interval changed since the last delta.
+     */
+    private transient boolean maxInactiveIntervalChanged;
+
     /**
      * Stores if the session is new.
      */
@@ -101,7 +129,8 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
     public HazelcastHttpSession(ServletContext servletContext) {
         this.servletContext = servletContext;
         this.creationTime = System.currentTimeMillis();
-        this.lastAccessedTime = System.currentTimeMillis();
+        this.lastAccessedTime = creationTime;
+        this.flushedAccessedTime = creationTime;
         this.valid = true;
     }
 
@@ -117,10 +146,46 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
         this.id = id;
         this.newFlag = newFlag;
         this.creationTime = System.currentTimeMillis();
-        this.lastAccessedTime = System.currentTimeMillis();
+        this.lastAccessedTime = creationTime;
+        this.flushedAccessedTime = creationTime;
         this.valid = true;
     }
 
+    /**
+     * Apply a delta to the session.
+     *
+     * <p>
+     * This is used on the member owning the session entry and does not call
+     * any listeners as those were already called where the change was made.
+     * </p>
+     *
+     * @param changed the changed attributes.
+     * @param removed the names of the removed attributes.
+     * @param lastAccessedTime the last accessed time.
+     * @param maxInactiveInterval the max inactive interval.
+     */
+    void applyDelta(Map<String, Serializable> changed, Set<String> removed,
+            long lastAccessedTime, int maxInactiveInterval) {
+        attributes.putAll(changed);
+        removed.forEach(attributes::remove);
+        this.lastAccessedTime = Math.max(this.lastAccessedTime, lastAccessedTime);
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.newFlag = false;
+    }
+
+    /**
+     * Clear the changes made since the last delta.
+     *
+     * <p>
+     * This is used when the session as a whole is about to be written.
+     * </p>
+     */
+    synchronized void clearDelta() {
+        dirtyAttributes.clear();
+        maxInactiveIntervalChanged = false;
+        flushedAccessedTime = lastAccessedTime;
+    }
+
     /**
      * {@return the attribute value}
      * @param name the attribute name.
@@ -197,6 +262,7 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
     @Override
     public void invalidate() {
         verifyValid("invalidate");
+        sessionManager.destroySession(this);
         this.valid = false;
     }
 
@@ -221,7 +287,24 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
     @Override
     public void removeAttribute(String name) {
         verifyValid("removeAttribute");
-        sessionManager.attributeRemoved(this, name, this.attributes.remove(name));
+        Object value = attributes.remove(name);
+        if (value != null) {
+            dirtyAttributes.add(name);
+        }
+        sessionManager.attributeRemoved(this, name, value);
+    }
+
+    /**
+     * Restore the session from its serialized form.
+     *
+     * @param input the object input stream.
+     * @throws IOException when an I/O error occurs.
+     * @throws ClassNotFoundException when a class cannot be found.
+     */
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        dirtyAttributes = ConcurrentHashMap.newKeySet();
+        flushedAccessedTime = lastAccessedTime;
     }
 
     /**
@@ -235,12 +318,9 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
     public void setAttribute(String name, Object value) {
         verifyValid("setAttribute");
         if (value != null) {
-            boolean added = true;
-            if (attributes.containsKey(name)) {
-                added = false;
-            }
             Object oldValue = attributes.put(name, (Serializable) value);
-            if (added) {
+            dirtyAttributes.add(name);
+            if (oldValue == null) {
                 sessionManager.attributeAdded(this, name, value);
             } else {
                 sessionManager.attributeReplaced(this, name, oldValue, value);
@@ -259,6 +339,15 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
         this.id = id;
     }
 
+    /**
+     * Set the last accessed time.
+     *
+     * @param lastAccessedTime the last accessed time.
+     */
+    public void setLastAccessedTime(long lastAccessedTime) {
+        this.lastAccessedTime = lastAccessedTime;
+    }
+
     /**
      * Set the maximum inactive interval.
      * 
@@ -268,6 +357,7 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
     @Override
     public void setMaxInactiveInterval(int maxInactiveInterval) {
         this.maxInactiveInterval = maxInactiveInterval;
+        this.maxInactiveIntervalChanged = true;
     }
 
     /**
@@ -298,6 +388,42 @@ public class HazelcastHttpSession implements HttpSession, Serializable {
         this.sessionManager = sessionManager;
     }
 
+    /**
+     * Take the changes made since the last delta.
+     *
+     * <p>
+     * A change of only the last accessed time is not reported until it is
+     * at least the given interval newer than the one last written. Any other
+     * change carries the last accessed time along.
+     * </p>
+     *
+     * @param accessedTimeInterval the interval (in milliseconds).
+     * @return the delta, or null if there is nothing to write.
+     */
+    synchronized HazelcastHttpSessionDelta takeDelta(long accessedTimeInterval) {
+        HashMap<String, Serializable> changed = new HashMap<>();
+        HashSet<String> removed = new HashSet<>();
+        Iterator<String> names = dirtyAttributes.iterator();
+        while (names.hasNext()) {
+            String name = names.next();
+            names.remove();
+            Serializable value = attributes.get(name);
+            if (value != null) {
+                changed.put(name, value);
+            } else {
+                removed.add(name);
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty() && !newFlag && !maxInactiveIntervalChanged
+                && lastAccessedTime - flushedAccessedTime < accessedTimeInterval) {
+            return null;
+        }
+        newFlag = false;
+        maxInactiveIntervalChanged = false;
+        flushedAccessedTime = lastAccessedTime;
+        return new HazelcastHttpSessionDelta(changed, removed, lastAccessedTime, maxInactiveInterval);
+    }
+
     /**
      * Verify if the session is valid.
      * 
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.extension.hazelcast;
+
+import com.hazelcast.map.EntryProcessor;
+import jakarta.servlet.http.HttpSession;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * The changes made to a Hazelcast HttpSession during one or more requests.
+ *
+ * <p>
+ * The delta is sent to the member owning the session entry (and its backups)
+ * and applied there, so only the changed attributes travel over the network
+ * instead of the whole session.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class HazelcastHttpSessionDelta implements EntryProcessor<String, HttpSession, Boolean> {
+
+    /**
+     * Stores the changed attributes.
+     */
+    private final HashMap<String, Serializable> changed;
+
+    /**
+     * Stores the last accessed time.
+     */
+    private final long lastAccessedTime;
+
+    /**
+     * Stores the max inactive interval.
+     */
+    private final int maxInactiveInterval;
+
+    /**
+     * Stores the names of the removed attributes.
+     */
+    private final HashSet<String> removed;
+
+    /**
+     * Constructor.
+     *
+     * @param changed the changed attributes.
+     * @param removed the names of the removed attributes.
+     * @param lastAccessedTime the last accessed time.
+     * @param maxInactiveInterval the max inactive interval.
+     */
+    public HazelcastHttpSessionDelta(HashMap<String, Serializable> changed, HashSet<String> removed,
+            long lastAccessedTime, int maxInactiveInterval) {
+        this.changed = changed;
+        this.removed = removed;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+    }
+
+    /**
+     * Apply the delta to the session entry.
+     *
+     * @param entry the session entry.
+     * @return true if applied, false if the session no longer exists.
+     */
+    @Override
+    public Boolean process(Map.Entry<String, HttpSession> entry) {
+        if (entry.getValue() instanceof HazelcastHttpSession session) {
+            session.applyDelta(changed, removed, lastAccessedTime, maxInactiveInterval);
+            entry.setValue(session);
+            return true;
+        }
+        return false;
+    }
+}
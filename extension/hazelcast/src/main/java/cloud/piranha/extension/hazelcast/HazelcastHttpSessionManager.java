@@ -27,28 +27,75 @@
  */
 package cloud.piranha.extension.hazelcast;
 
+import com.hazelcast.cluster.Member;
 import com.hazelcast.config.Config;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import cloud.piranha.core.api.WebApplication;
 import cloud.piranha.core.impl.DefaultHttpSessionManager;
-import java.util.UUID;
-import jakarta.servlet.http.Cookie;
+import jakarta.servlet.ServletRequestEvent;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.servlet.http.HttpSessionEvent;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Hazelcast HTTP session manager.
  *
+ * <p>
+ * Sessions are stored in a Hazelcast map shared by all members of the
+ * cluster. Every member keeps the sessions it uses in a near-cache, so a
+ * request for a hot session does not go to the cluster. At the end of a
+ * request only the changed attributes are written back, as a delta that is
+ * applied by the member owning the session entry. A change of only the last
+ * accessed time is written at most once per access write interval, and
+ * otherwise rides along with the next delta.
+ * </p>
+ *
+ * <p>
+ * Whenever a member writes a session it publishes the session id on a topic,
+ * and the other members drop their near-cached copy of that session.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class HazelcastHttpSessionManager extends DefaultHttpSessionManager {
 
+    /**
+     * Stores the minimum time (in milliseconds) between two writes of only
+     * the last accessed time.
+     */
+    private long accessWriteInterval;
+
     /**
      * Stores the hazelcast instance.
      */
-    private HazelcastInstance hazelcast;
+    private final HazelcastInstance hazelcast;
+
+    /**
+     * Stores the topic used to invalidate near-cached sessions.
+     */
+    private final ITopic<String> invalidations;
+
+    /**
+     * Stores the registration id of the invalidation listener.
+     */
+    private final UUID invalidationsRegistration;
+
+    /**
+     * Stores the near-cache.
+     */
+    private final ConcurrentHashMap<String, HazelcastHttpSession> nearCache;
+
+    /**
+     * Stores the hazelcast session map.
+     */
+    private final IMap<String, HttpSession> sessionMap;
 
     /**
      * Constructor.
@@ -60,14 +107,27 @@ public class HazelcastHttpSessionManager extends DefaultHttpSessionManager {
     /**
      * Constructor.
      *
-     * @param name the name used for the hazelcast session map.
+     * @param name the name used for the hazelcast instance and session map.
      */
     public HazelcastHttpSessionManager(String name) {
+        this(Hazelcast.getOrCreateHazelcastInstance(new Config().setInstanceName(name)), name);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param hazelcast the hazelcast instance.
+     * @param name the name used for the hazelcast session map.
+     */
+    public HazelcastHttpSessionManager(HazelcastInstance hazelcast, String name) {
         super();
-        Config config = new Config();
-        config.setInstanceName(name);
-        hazelcast = Hazelcast.newHazelcastInstance();
-        sessions = hazelcast.getMap(name);
+        this.accessWriteInterval = 10000;
+        this.hazelcast = hazelcast;
+        this.nearCache = new ConcurrentHashMap<>();
+        this.sessionMap = hazelcast.getMap(name);
+        this.invalidations = hazelcast.getTopic(name);
+        this.invalidationsRegistration = invalidations.addMessageListener(this::invalidated);
+        sessions = sessionMap;
     }
 
     /**
@@ -79,47 +139,228 @@ public class HazelcastHttpSessionManager extends DefaultHttpSessionManager {
     @Override
     public String changeSessionId(HttpServletRequest request) {
         HttpSession session = request.getSession(false);
-        String key = null;
-        if (session != null) {
-            String oldSessionId = session.getId();
-            sessions.remove(oldSessionId);
-            key = UUID.randomUUID().toString();
-            HazelcastHttpSession newSession = (HazelcastHttpSession) session;
-            newSession.setId(key);
-            sessions.put(key, newSession);
-            idListeners.stream().forEach(idListener -> idListener.sessionIdChanged(new HttpSessionEvent(newSession), oldSessionId));
-        } else {
+        if (session == null) {
             throw new IllegalStateException("No session active");
         }
-        return key;
+        HazelcastHttpSession hazelcastSession = (HazelcastHttpSession) session;
+        String oldSessionId = session.getId();
+        String sessionId = sessionIdGenerator.generateId();
+        hazelcastSession.setId(sessionId);
+        hazelcastSession.clearDelta();
+        while (sessionMap.putIfAbsent(sessionId, session) != null) {
+            sessionId = sessionIdGenerator.generateId();
+            hazelcastSession.setId(sessionId);
+        }
+        nearCache.put(sessionId, hazelcastSession);
+        nearCache.remove(oldSessionId);
+        sessionMap.delete(oldSessionId);
+        invalidations.publish(oldSessionId);
+        HttpServletResponse response = (HttpServletResponse) webApplication.getResponse(request);
+        response.addCookie(createSessionCookie(request, sessionId));
+        idListeners.stream().forEach(idListener -> idListener.sessionIdChanged(new HttpSessionEvent(session), oldSessionId));
+        return sessionId;
     }
 
     @Override
-    public synchronized HttpSession createSession(HttpServletRequest request) {
-        String key = UUID.randomUUID().toString();
-        while(sessions.containsKey(key)) {
-            key = UUID.randomUUID().toString();
+    public HttpSession createSession(HttpServletRequest request) {
+        String sessionId = sessionIdGenerator.generateId();
+        HazelcastHttpSession session = new HazelcastHttpSession(webApplication, sessionId, true);
+        session.setMaxInactiveInterval(getSessionTimeout() * 60);
+        session.setSessionManager(this);
+        session.clearDelta();
+        while (sessionMap.putIfAbsent(sessionId, session) != null) {
+            sessionId = sessionIdGenerator.generateId();
+            session.setId(sessionId);
         }
-        HazelcastHttpSession result = new HazelcastHttpSession(webApplication, key, true);
-        result.setSessionManager(this);
-        sessions.put(key, result);
+        nearCache.put(sessionId, session);
+        scheduleExpiry(session);
         HttpServletResponse response = (HttpServletResponse) webApplication.getResponse(request);
-        Cookie cookie = new Cookie(name, key);
-        response.addCookie(cookie);
-        sessionListeners.stream().forEach(sessionListener -> sessionListener.sessionCreated(new HttpSessionEvent(result)));
-        return result;
+        response.addCookie(createSessionCookie(request, sessionId));
+        sessionListeners.stream().forEach(sessionListener -> sessionListener.sessionCreated(new HttpSessionEvent(session)));
+        return session;
+    }
+
+    /**
+     * Destroy the session manager.
+     *
+     * <p>
+     * Besides cancelling the expiry of its sessions this removes the
+     * invalidation listener from the topic and clears the near-cache, so the
+     * hazelcast instance no longer holds on to the session manager.
+     * </p>
+     */
+    @Override
+    public void destroy() {
+        super.destroy();
+        invalidations.removeMessageListener(invalidationsRegistration);
+        nearCache.clear();
+    }
+
+    @Override
+    public void destroySession(HttpSession session) {
+        super.destroySession(session);
+        nearCache.remove(session.getId());
+        invalidations.publish(session.getId());
+    }
+
+    /**
+     * Expire the session if it is due.
+     *
+     * <p>
+     * The near-cached session is checked first. Only once that is due the
+     * session map is consulted, as the session may have been accessed more
+     * recently on another member.
+     * </p>
+     *
+     * @param session the session.
+     * @param now the current time (in milliseconds).
+     * @return the next deadline (in milliseconds), 0 if the session was
+     * expired, or -1 if the session never expires or is no longer managed by
+     * this member.
+     */
+    @Override
+    protected long expireSession(HttpSession session, long now) {
+        try {
+            HazelcastHttpSession current = nearCache.get(session.getId());
+            if (current == null || current.getMaxInactiveInterval() <= 0) {
+                return -1;
+            }
+            long deadline = getExpiryDeadline(current);
+            if (deadline > now) {
+                return deadline;
+            }
+            HttpSession stored = sessionMap.get(current.getId());
+            if (stored == null) {
+                nearCache.remove(current.getId(), current);
+                return -1;
+            }
+            if (stored.getLastAccessedTime() > current.getLastAccessedTime()) {
+                current.setLastAccessedTime(stored.getLastAccessedTime());
+                deadline = getExpiryDeadline(current);
+                if (deadline > now) {
+                    return deadline;
+                }
+            }
+            current.invalidate();
+            return 0;
+        } catch (IllegalStateException ise) {
+            return -1;
+        }
+    }
+
+    /**
+     * {@return the minimum time (in milliseconds) between two writes of only the last accessed time}
+     */
+    public long getAccessWriteInterval() {
+        return accessWriteInterval;
+    }
+
+    /**
+     * Get the time at which the session is due to expire.
+     *
+     * @param session the session.
+     * @return the deadline (in milliseconds).
+     */
+    private long getExpiryDeadline(HttpSession session) {
+        return session.getLastAccessedTime() + session.getMaxInactiveInterval() * 1000L;
+    }
+
+    /**
+     * {@return the hazelcast instance}
+     */
+    public HazelcastInstance getHazelcastInstance() {
+        return hazelcast;
     }
 
     @Override
     public HttpSession getSession(HttpServletRequest request, String currentSessionId) {
-        HazelcastHttpSession result;
-        HttpServletResponse response = (HttpServletResponse) webApplication.getResponse(request);
-        result = (HazelcastHttpSession) sessions.get(currentSessionId);
-        result.setSessionManager(this);
-        result.setServletContext(webApplication);
-        Cookie cookie = new Cookie(name, currentSessionId);
-        response.addCookie(cookie);
-        result.setNew(false);
+        HazelcastHttpSession result = nearCache.get(currentSessionId);
+        if (result == null) {
+            result = (HazelcastHttpSession) sessionMap.get(currentSessionId);
+            if (result == null) {
+                return null;
+            }
+            result.setSessionManager(this);
+            result.setServletContext(webApplication);
+            result.setNew(false);
+            HazelcastHttpSession cached = nearCache.putIfAbsent(currentSessionId, result);
+            if (cached != null) {
+                return cached;
+            }
+            scheduleExpiry(result);
+        }
         return result;
     }
+
+    @Override
+    public boolean hasSession(String sessionId) {
+        return sessionId != null
+                && (nearCache.containsKey(sessionId) || sessionMap.containsKey(sessionId));
+    }
+
+    /**
+     * Drop the near-cached copy of a session written by another member.
+     *
+     * @param message the message holding the session id.
+     */
+    private void invalidated(Message<String> message) {
+        Member member = message.getPublishingMember();
+        if (member == null || !member.localMember()) {
+            nearCache.remove(message.getMessageObject());
+        }
+    }
+
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+        // nothing to do here as the session is looked up when it is used.
+    }
+
+    /**
+     * Write the changes made to the session of the request.
+     *
+     * @param event the servlet request event.
+     */
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        if (event.getServletRequest() instanceof HttpServletRequest request
+                && request.getSession(false) instanceof HazelcastHttpSession session) {
+            session.setLastAccessedTime(System.currentTimeMillis());
+            HazelcastHttpSessionDelta delta = session.takeDelta(accessWriteInterval);
+            if (delta != null) {
+                if (Boolean.TRUE.equals(sessionMap.executeOnKey(session.getId(), delta))) {
+                    invalidations.publish(session.getId());
+                } else {
+                    nearCache.remove(session.getId(), session);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the minimum time (in milliseconds) between two writes of only the
+     * last accessed time.
+     *
+     * @param accessWriteInterval the access write interval.
+     */
+    public void setAccessWriteInterval(long accessWriteInterval) {
+        this.accessWriteInterval = accessWriteInterval;
+    }
+
+    /**
+     * Set the web application.
+     *
+     * <p>
+     * This also registers the session manager as a servlet request listener
+     * so the changes made during a request are written at its end.
+     * </p>
+     *
+     * @param webApplication the web application.
+     */
+    @Override
+    public void setWebApplication(WebApplication webApplication) {
+        if (webApplication != null && webApplication != this.webApplication) {
+            webApplication.getManager().getServletRequestManager().addListener(this);
+        }
+        super.setWebApplication(webApplication);
+    }
 }
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.extension.hazelcast;
+
+import cloud.piranha.core.api.WebApplication;
+import cloud.piranha.core.impl.DefaultWebApplicationBuilder;
+import cloud.piranha.core.impl.DefaultWebApplicationRequest;
+import cloud.piranha.core.impl.DefaultWebApplicationRequestBuilder;
+import cloud.piranha.core.impl.DefaultWebApplicationResponse;
+import cloud.piranha.core.impl.DefaultWebApplicationResponseBuilder;
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the HazelcastHttpSessionManager class.
+ *
+ * <p>
+ * These run against an embedded two member Hazelcast cluster.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class HazelcastHttpSessionManagerTest {
+
+    /**
+     * Stores the first member.
+     */
+    private static HazelcastInstance member1;
+
+    /**
+     * Stores the second member.
+     */
+    private static HazelcastInstance member2;
+
+    /**
+     * Start the cluster.
+     */
+    @BeforeAll
+    static void beforeAll() {
+        String clusterName = UUID.randomUUID().toString();
+        member1 = Hazelcast.newHazelcastInstance(createConfig(clusterName));
+        member2 = Hazelcast.newHazelcastInstance(createConfig(clusterName));
+        assertEquals(2, member1.getCluster().getMembers().size());
+    }
+
+    /**
+     * Stop the cluster.
+     */
+    @AfterAll
+    static void afterAll() {
+        member2.shutdown();
+        member1.shutdown();
+    }
+
+    /**
+     * Wait for the session attribute seen on a member to get the expected
+     * value.
+     *
+     * <p>
+     * The near-cache of the other member is invalidated asynchronously so
+     * the change may take a moment to become visible.
+     * </p>
+     *
+     * @param webApplication the web application.
+     * @param sessionId the session id.
+     * @param expected the expected value.
+     * @return the last value seen.
+     * @throws Exception when a serious error occurs.
+     */
+    private Object awaitAttribute(WebApplication webApplication, String sessionId, Object expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        Object value = service(webApplication, sessionId, null).getAttribute("name");
+        while (!Objects.equals(expected, value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            value = service(webApplication, sessionId, null).getAttribute("name");
+        }
+        return value;
+    }
+
+    /**
+     * Create the configuration of a member.
+     *
+     * @param clusterName the cluster name.
+     * @return the configuration.
+     */
+    private static Config createConfig(String clusterName) {
+        Config config = new Config();
+        config.setClusterName(clusterName);
+        config.setInstanceName(clusterName + "-" + UUID.randomUUID());
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getAutoDetectionConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).addMember("127.0.0.1");
+        return config;
+    }
+
+    /**
+     * Create a web application using a session manager on the given member.
+     *
+     * <p>
+     * The servlet sets the attribute "name" to the value of the "set" request
+     * parameter, removes it if the "remove" request parameter is present, and
+     * exposes the session and the attribute as request attributes.
+     * </p>
+     *
+     * @param member the member.
+     * @param mapName the session map name.
+     * @return the web application.
+     */
+    private WebApplication createWebApplication(HazelcastInstance member, String mapName) {
+        WebApplication webApplication = new DefaultWebApplicationBuilder()
+                .servlet("SessionServlet", new HttpServlet() {
+                    @Override
+                    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+                        HttpSession session = request.getSession();
+                        if (request.getParameter("set") != null) {
+                            session.setAttribute("name", request.getParameter("set"));
+                        }
+                        if (request.getParameter("remove") != null) {
+                            session.removeAttribute("name");
+                        }
+                        request.setAttribute("session", session);
+                        request.setAttribute("name", session.getAttribute("name"));
+                    }
+                })
+                .servletMapping("SessionServlet", "/session")
+                .build();
+        HazelcastHttpSessionManager sessionManager = new HazelcastHttpSessionManager(member, mapName);
+        webApplication.getManager().setHttpSessionManager(sessionManager);
+        sessionManager.setWebApplication(webApplication);
+        webApplication.initialize();
+        webApplication.start();
+        return webApplication;
+    }
+
+    /**
+     * Service a request.
+     *
+     * @param webApplication the web application.
+     * @param sessionId the requested session id (may be null).
+     * @param queryString the query string (may be null).
+     * @return the request.
+     * @throws Exception when a serious error occurs.
+     */
+    private DefaultWebApplicationRequest service(WebApplication webApplication,
+            String sessionId, String queryString) throws Exception {
+        DefaultWebApplicationRequest request = new DefaultWebApplicationRequestBuilder()
+                .servletPath("/session")
+                .queryString(queryString)
+                .webApplication(webApplication)
+                .build();
+        request.setRequestedSessionId(sessionId);
+        DefaultWebApplicationResponse response = new DefaultWebApplicationResponseBuilder()
+                .webApplication(webApplication)
+                .build();
+        webApplication.service(request, response);
+        request.setAttribute("cookies", response.getCookies().size());
+        return request;
+    }
+
+    /**
+     * Test a session created on one member is used on the other member.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testReplication() throws Exception {
+        String mapName = UUID.randomUUID().toString();
+        WebApplication webApplication1 = createWebApplication(member1, mapName);
+        WebApplication webApplication2 = createWebApplication(member2, mapName);
+
+        DefaultWebApplicationRequest request = service(webApplication1, null, "set=value1");
+        String sessionId = ((HttpSession) request.getAttribute("session")).getId();
+        assertEquals(1, request.getAttribute("cookies"));
+
+        request = service(webApplication2, sessionId, null);
+        assertEquals("value1", request.getAttribute("name"));
+        assertEquals(0, request.getAttribute("cookies"));
+
+        service(webApplication2, sessionId, "set=value2");
+        assertEquals("value2", awaitAttribute(webApplication1, sessionId, "value2"));
+
+        service(webApplication1, sessionId, "remove=true");
+        assertNull(awaitAttribute(webApplication2, sessionId, null));
+    }
+
+    /**
+     * Test the near-cache keeps using the same session on a member.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testNearCache() throws Exception {
+        String mapName = UUID.randomUUID().toString();
+        WebApplication webApplication1 = createWebApplication(member1, mapName);
+        WebApplication webApplication2 = createWebApplication(member2, mapName);
+
+        DefaultWebApplicationRequest request = service(webApplication1, null, "set=value");
+        HttpSession session = (HttpSession) request.getAttribute("session");
+        request = service(webApplication1, session.getId(), null);
+        assertSame(session, request.getAttribute("session"));
+        assertFalse(session.isNew());
+        assertEquals(0, request.getAttribute("cookies"));
+
+        request = service(webApplication2, session.getId(), null);
+        assertNotSame(session, request.getAttribute("session"));
+        assertEquals("value", request.getAttribute("name"));
+    }
+
+    /**
+     * Test invalidating a session on one member removes it from the other.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testInvalidate() throws Exception {
+        String mapName = UUID.randomUUID().toString();
+        WebApplication webApplication1 = createWebApplication(member1, mapName);
+        WebApplication webApplication2 = createWebApplication(member2, mapName);
+        HazelcastHttpSessionManager sessionManager2 = (HazelcastHttpSessionManager)
+                webApplication2.getManager().getHttpSessionManager();
+
+        DefaultWebApplicationRequest request = service(webApplication1, null, "set=value");
+        HttpSession session = (HttpSession) request.getAttribute("session");
+        service(webApplication2, session.getId(), null);
+        assertTrue(sessionManager2.hasSession(session.getId()));
+
+        session.invalidate();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sessionManager2.hasSession(session.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(sessionManager2.hasSession(session.getId()));
+    }
+
+    /**
+     * Test destroying the web application removes the invalidation listener
+     * of its session manager.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testDestroy() throws Exception {
+        String mapName = UUID.randomUUID().toString();
+        WebApplication webApplication = createWebApplication(member1, mapName);
+        ITopic<String> topic = member1.getTopic(mapName);
+
+        topic.publish("unknown");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (topic.getLocalTopicStats().getReceiveOperationCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        long received = topic.getLocalTopicStats().getReceiveOperationCount();
+        assertEquals(1, received);
+
+        webApplication.stop();
+        webApplication.destroy();
+        topic.publish("unknown");
+        Thread.sleep(500);
+        assertEquals(received, topic.getLocalTopicStats().getReceiveOperationCount());
+    }
+}
@@ -38,6 +38,7 @@ import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.System.Logger;
 import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.WARNING;
@@ -46,14 +47,28 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The web.xml initializer.
  *
+ * <p>
+ * When there is more than one web-fragment.xml they are parsed in parallel.
+ * Setting the {@value #PARALLEL_FRAGMENT_PARSING} init parameter to false
+ * parses them one after another instead. Either way the fragments are kept
+ * in the order they were found in.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class WebXmlInitializer implements ServletContainerInitializer {
 
+    /**
+     * Stores the init parameter name for the parallel fragment parsing flag.
+     */
+    public static final String PARALLEL_FRAGMENT_PARSING = "cloud.piranha.extension.webxml.ParallelFragmentParsing";
+
     /**
      * Stores the logger.
      */
@@ -76,22 +91,17 @@ public class WebXmlInitializer implements ServletContainerInitializer {
             webApplication.getManager().setWebXmlManager(manager);
 
             InternalWebXmlParser parser = new InternalWebXmlParser();
-            InputStream inputStream = servletContext.getResourceAsStream("WEB-INF/web.xml");
-            if (inputStream != null) {
-                WebXml webXml = parser.parse(servletContext.getResourceAsStream("WEB-INF/web.xml"));
-                manager.setWebXml(webXml);
-                manager.setInitialWebXml(webXml);
+            try (InputStream inputStream = servletContext.getResourceAsStream("WEB-INF/web.xml")) {
+                if (inputStream != null) {
+                    WebXml webXml = parser.parse(inputStream);
+                    manager.setWebXml(webXml);
+                    manager.setInitialWebXml(webXml);
+                }
             }
 
-            ArrayList<WebXml> webFragments = new ArrayList<>();
             List<URL> webFragmentUrls = Collections.list(servletContext.getClassLoader().getResources("META-INF/web-fragment.xml"));
-            for (URL url : webFragmentUrls) {
-                try (InputStream stream = url.openStream()) {
-                    WebXml webFragment = parser.parse(stream);
-                    webFragment.setFragment(true);
-                    webFragments.add(webFragment);
-                }
-            }
+            List<WebXml> webFragments = parseWebFragments(parser, webFragmentUrls,
+                    !"false".equalsIgnoreCase(servletContext.getInitParameter(PARALLEL_FRAGMENT_PARSING)));
             if (!webFragments.isEmpty()) {
                 manager.setWebFragments(webFragments);
             }
@@ -116,13 +126,35 @@ public class WebXmlInitializer implements ServletContainerInitializer {
             } else {
                 LOGGER.log(DEBUG, "No web.xml found!");
             }
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             LOGGER.log(WARNING, "Unable to parse web.xml", e);
         }
 
         LOGGER.log(DEBUG, () -> "Exiting WebXmlInitializer.onStartup");
     }
 
+    /**
+     * Parse the web fragments.
+     *
+     * @param parser the parser.
+     * @param urls the URLs of the web-fragment.xml files.
+     * @param parallel true to parse them in parallel, false otherwise.
+     * @return the web fragments, in the order of the URLs.
+     * @throws UncheckedIOException when an I/O error occurs.
+     */
+    private List<WebXml> parseWebFragments(InternalWebXmlParser parser, List<URL> urls, boolean parallel) {
+        Stream<URL> stream = parallel && urls.size() > 1 ? urls.parallelStream() : urls.stream();
+        return stream.map(url -> {
+            try (InputStream inputStream = url.openStream()) {
+                WebXml webFragment = parser.parse(inputStream);
+                webFragment.setFragment(true);
+                return webFragment;
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }).collect(Collectors.toCollection(ArrayList::new));
+    }
+
     /**
      * Remove any servlet mappings in the web fragments that are already mapped
      * by the regular web.xml.
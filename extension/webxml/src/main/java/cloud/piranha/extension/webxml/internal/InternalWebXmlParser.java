@@ -31,29 +31,21 @@ import static cloud.piranha.core.api.WebXml.OTHERS_TAG;
 import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.WARNING;
 import static java.util.regex.Pattern.quote;
-import static javax.xml.xpath.XPathConstants.NODE;
-import static javax.xml.xpath.XPathConstants.NODESET;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
 
 import java.io.InputStream;
 import java.lang.System.Logger;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.stream.StreamSupport;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathException;
-import javax.xml.xpath.XPathFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import cloud.piranha.core.api.WebXml;
 import cloud.piranha.core.api.WebXmlContextParam;
@@ -77,39 +69,79 @@ import cloud.piranha.core.api.WebXmlSessionConfig;
 /**
  * The web.xml / web-fragment.xml parser.
  *
+ * <p>
+ * The descriptor is parsed in a single pass with a streaming (StAX) reader,
+ * so no DOM is built and no XPath expression is evaluated. Elements are
+ * matched on their local name and unknown elements are skipped. Text values
+ * are trimmed, and a value that is absent is the empty string.
+ * </p>
+ *
+ * <p>
+ * The parser holds no state, so a single instance can be used to parse
+ * multiple descriptors concurrently.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class InternalWebXmlParser {
 
     /**
-     * Stores the 'location/text()' selector.
+     * Stores the logger.
      */
-    private static final String LOCATION_TEXT_SELECTOR = "location/text()";
+    private static final Logger LOGGER = System.getLogger(InternalWebXmlParser.class.getName());
 
     /**
-     * Stores the logger.
+     * Stores the XML input factory.
      */
-    private static final Logger LOGGER = System.getLogger(InternalWebXmlParser.class.getName());
-    
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    /**
+     * Stores the 'location' element name.
+     */
+    private static final String LOCATION = "location";
+
+    /**
+     * Stores the 'param-name' element name.
+     */
+    private static final String PARAM_NAME = "param-name";
+
     /**
-     * Stores the 'param-name/text()' selector.
+     * Stores the 'param-value' element name.
      */
-    private static final String PARAM_NAME_TEXT_SELECTOR = "param-name/text()";
+    private static final String PARAM_VALUE = "param-value";
 
     /**
-     * Stores the 'servlet-name/text()' selector.
+     * Stores the 'role-name' element name.
      */
-    private static final String SERVLET_NAME_TEXT_SELECTOR = "servlet-name/text()";
+    private static final String ROLE_NAME = "role-name";
 
     /**
-     * Stores the 'text()' selector constant.
+     * Stores the 'servlet-name' element name.
      */
-    private static final String TEXT_SELECTOR = "text()";
+    private static final String SERVLET_NAME = "servlet-name";
 
     /**
-     * Stores the 'url-pattern/text()' selector.
+     * Stores the 'url-pattern' element name.
      */
-    private static final String URL_PATTERN_TEXT_SELECTOR = "url-pattern/text()";
+    private static final String URL_PATTERN = "url-pattern";
+
+    /**
+     * Create the XML input factory.
+     *
+     * <p>
+     * DTDs and external entities are not processed, so a DOCTYPE (as used by
+     * old descriptors) never leads to a network lookup.
+     * </p>
+     *
+     * @return the XML input factory.
+     */
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
 
     /**
      * Parse the input stream.
@@ -119,802 +151,802 @@ public class InternalWebXmlParser {
      */
     public WebXml parse(InputStream inputStream) {
         WebXml webXml = new WebXml();
+        XMLStreamReader reader = null;
         try {
-            DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            Document document = documentBuilder.parse(inputStream);
-            XPath xPath = XPathFactory.newInstance().newXPath();
-            parseAbsoluteOrdering(webXml, xPath, document);
-            parseOrdering(webXml, xPath, document);
-            parseContextParameters(webXml, xPath, document);
-            parseDefaultContextPath(webXml, xPath, document);
-            parseDenyUncoveredHttpMethods(webXml, xPath, document);
-            parseDisplayName(webXml, xPath, document);
-            parseFragmentName(webXml, xPath, document);
-            parseDistributable(webXml, xPath, document);
-            parseErrorPages(webXml, xPath, document);
-            parseFilters(webXml, xPath, document);
-            parseFilterMappings(webXml, xPath, document);
-            parseListeners(webXml, xPath, document);
-            parseLoginConfig(webXml, xPath, document);
-            parseMimeMappings(webXml, xPath, document);
-            parseRequestCharacterEncoding(webXml, xPath, document);
-            parseResponseCharacterEncoding(webXml, xPath, document);
-            parseLocaleEncodingMapping(webXml, xPath, document);
-            parseSecurityConstraints(webXml, xPath, document);
-            parseSecurityRoles(webXml, xPath, document);
-            parseServletMappings(webXml, xPath, document);
-            parseServlets(webXml, xPath, document);
-            parseSessionConfig(webXml, xPath, document);
-            parseWebApp(webXml, xPath, document);
-            parseWelcomeFiles(webXml, xPath, document);
-            parseDataSources(webXml, xPath, document);
-            parseJspConfig(webXml, xPath, document);
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            while (reader.hasNext()) {
+                if (reader.next() == START_ELEMENT) {
+                    parseRoot(webXml, reader);
+                    break;
+                }
+            }
         } catch (Exception e) {
             LOGGER.log(WARNING, "Unable to parse web.xml", e);
-        }
-        return webXml;
-    }
-
-    private void parseAbsoluteOrdering(WebXml webXml, XPath xPath, Node rootNode) {
-        try {
-            Node absoluteOrderingNode = (Node) xPath.evaluate("//absolute-ordering", rootNode, NODE);
-            if (absoluteOrderingNode == null) {
-                return;
-            }
-            // It is possible to have only the <absolute-ordering/> to disable fragments
-            List<String> fragmentNames = new ArrayList<>();
-            NodeList childNodes = absoluteOrderingNode.getChildNodes();
-            for (int i = 0; i < childNodes.getLength(); i++) {
-                Node item = childNodes.item(i);
-                if ("others".equalsIgnoreCase(item.getNodeName())) {
-                    fragmentNames.add(OTHERS_TAG);
-                    continue;
-                }
-                String s = parseString(xPath, TEXT_SELECTOR, item);
-                if (s != null && !s.trim().isEmpty()) {
-                    fragmentNames.add(s);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException xse) {
+                    LOGGER.log(DEBUG, "Unable to close XML stream reader", xse);
                 }
             }
-            webXml.setAbsoluteOrdering(fragmentNames);
-        } catch (XPathException xpe) {
-            LOGGER.log(WARNING, "Unable to parse <absolute-ordering> section", xpe);
         }
+        return webXml;
     }
 
     /**
-     * Parse a boolean.
+     * Move to the next child element.
      *
-     * @param xPath the XPath to use.
-     * @param node the node to use.
-     * @param expression the expression to use.
-     * @return the boolean.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private static Boolean parseBoolean(XPath xPath, String expression,
-            Node node) throws XPathException {
-
-        return Boolean.parseBoolean((String) xPath
-                .evaluate(expression, node, XPathConstants.STRING));
+     * @param reader the reader positioned at the start of the parent element
+     * or at the end of the previous child element.
+     * @return true if positioned at the start of the next child element, false
+     * if positioned at the end of the parent element.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                return true;
+            }
+            if (event == END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
     }
 
     /**
-     * Parse the context-param sections.
+     * Parse the absolute-ordering section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the node to use.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseContextParameters(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        NodeList nodeList = (NodeList) xPath.evaluate("//context-param", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlContextParam> contextParams = webXml.getContextParams();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String name = parseString(xPath, PARAM_NAME_TEXT_SELECTOR, nodeList.item(i));
-                String value = parseString(xPath, "param-value/text()", nodeList.item(i));
-                contextParams.add(new WebXmlContextParam(name, value));
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseAbsoluteOrdering(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        // It is possible to have only the <absolute-ordering/> to disable fragments
+        List<String> fragmentNames = new ArrayList<>();
+        while (nextChild(reader)) {
+            if ("others".equalsIgnoreCase(reader.getLocalName())) {
+                fragmentNames.add(OTHERS_TAG);
+                skipElement(reader);
+                continue;
+            }
+            String fragmentName = readText(reader);
+            if (!fragmentName.isEmpty()) {
+                fragmentNames.add(fragmentName);
             }
         }
+        if (webXml.getAbsoluteOrdering() == null) {
+            webXml.setAbsoluteOrdering(fragmentNames);
+        }
     }
 
     /**
-     * Parse the data-source elements.
+     * Parse a context-param section.
      *
-     * @param webXml the webXml.
-     * @param xPath the XPath.
-     * @param node the DOM node.
-     */
-    private void parseDataSources(WebXml webXml, XPath xPath, Document node)
-            throws XPathException {
-
-        List<WebXmlDataSource> dataSources = webXml.getDataSources();
-        for (Node dataSourceNode : parseNodes(xPath, "//data-source", node)) {
-            WebXmlDataSource dataSource = new WebXmlDataSource();
-            dataSource.setClassName(parseString(xPath, "class-name/text()", dataSourceNode));
-            dataSource.setName(parseString(xPath, "name/text()", dataSourceNode));
-            dataSource.setPassword(parseString(xPath, "password/text()", dataSourceNode));
-            dataSource.setUrl(parseString(xPath, "url/text()", dataSourceNode));
-            dataSource.setUser(parseString(xPath, "user/text()", dataSourceNode));
-
-            for (Node propertyNode : parseNodes(xPath, "property", dataSourceNode)) {
-                dataSource.getProperties()
-                          .put(
-                              parseString(xPath, "name/text()", propertyNode),
-                              parseString(xPath, "value/text()", propertyNode));
+     * @param webXml the web.xml to add to.
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseContextParameter(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        String name = "";
+        String value = "";
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case PARAM_NAME -> name = readText(reader);
+                case PARAM_VALUE -> value = readText(reader);
+                default -> skipElement(reader);
             }
-
-            dataSources.add(dataSource);
         }
+        webXml.getContextParams().add(new WebXmlContextParam(name, value));
     }
 
     /**
-     * Parse the default-context-path section.
+     * Parse a data-source section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseDefaultContextPath(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        Node contextPathNode = (Node) xPath.evaluate("//default-context-path", node, NODE);
-        if (contextPathNode != null) {
-            String defaultContextPath = parseString(xPath, "//default-context-path/text()", node);
-            if (defaultContextPath != null) {
-                webXml.setDefaultContextPath(defaultContextPath);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseDataSource(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        WebXmlDataSource dataSource = new WebXmlDataSource();
+        dataSource.setClassName("");
+        dataSource.setName("");
+        dataSource.setPassword("");
+        dataSource.setUrl("");
+        dataSource.setUser("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "class-name" -> dataSource.setClassName(readText(reader));
+                case "name" -> dataSource.setName(readText(reader));
+                case "password" -> dataSource.setPassword(readText(reader));
+                case "url" -> dataSource.setUrl(readText(reader));
+                case "user" -> dataSource.setUser(readText(reader));
+                case "property" -> {
+                    String name = "";
+                    String value = "";
+                    while (nextChild(reader)) {
+                        switch (reader.getLocalName()) {
+                            case "name" -> name = readText(reader);
+                            case "value" -> value = readText(reader);
+                            default -> skipElement(reader);
+                        }
+                    }
+                    dataSource.getProperties().put(name, value);
+                }
+                default -> skipElement(reader);
             }
         }
+        webXml.getDataSources().add(dataSource);
     }
 
     /**
-     * Parse the deny-uncovered-http-methods section.
+     * Parse an error-page section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseDenyUncoveredHttpMethods(WebXml webXml, XPath xPath,
-            Node node) throws XPathException {
-
-        Node denyNode = (Node) xPath.evaluate("//deny-uncovered-http-methods", node, NODE);
-        if (denyNode != null) {
-            webXml.setDenyUncoveredHttpMethods(true);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseErrorPage(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        String errorCode = "";
+        String exceptionType = "";
+        String location = "";
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "error-code" -> errorCode = readText(reader);
+                case "exception-type" -> exceptionType = readText(reader);
+                case LOCATION -> location = readText(reader);
+                default -> skipElement(reader);
+            }
         }
+        webXml.getErrorPages().add(new WebXmlErrorPage(errorCode, exceptionType, location));
     }
 
     /**
-     * Parse the display-name section.
+     * Parse a filter section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XXPathException when an XPath error occurs.
-     */
-    private void parseDisplayName(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        String displayName = parseString(xPath, "//display-name/text()", node);
-        if (displayName != null) {
-            webXml.setDisplayName(displayName);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseFilter(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        WebXmlFilter filter = new WebXmlFilter();
+        filter.setFilterName("");
+        filter.setClassName("");
+        filter.setServletName("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "filter-name" -> filter.setFilterName(readText(reader));
+                case "filter-class" -> filter.setClassName(readText(reader));
+                case SERVLET_NAME -> filter.setServletName(readText(reader));
+                case "async-supported" -> filter.setAsyncSupported(Boolean.parseBoolean(readText(reader)));
+                case "init-param" -> {
+                    String name = "";
+                    String value = "";
+                    while (nextChild(reader)) {
+                        switch (reader.getLocalName()) {
+                            case PARAM_NAME -> name = readText(reader);
+                            case PARAM_VALUE -> value = readText(reader);
+                            default -> skipElement(reader);
+                        }
+                    }
+                    filter.addInitParam(new WebXmlFilterInitParam(name, value));
+                }
+                default -> skipElement(reader);
+            }
         }
+        webXml.getFilters().add(filter);
     }
 
     /**
-     * Parse the distributable section.
+     * Parse a filter-mapping section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseDistributable(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        Node denyNode = (Node) xPath.evaluate("//distributable", node, NODE);
-        if (denyNode != null) {
-            webXml.setDistributable(true);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseFilterMapping(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        WebXmlFilterMapping filterMapping = new WebXmlFilterMapping();
+        filterMapping.setFilterName("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "filter-name" -> filterMapping.setFilterName(readText(reader));
+                case URL_PATTERN -> addIfNotEmpty(filterMapping.getUrlPatterns(), readText(reader));
+                case SERVLET_NAME -> addIfNotEmpty(filterMapping.getServletNames(), readText(reader));
+                case "dispatcher" -> addIfNotEmpty(filterMapping.getDispatchers(), readText(reader));
+                default -> skipElement(reader);
+            }
         }
+        webXml.getFilterMappings().add(filterMapping);
     }
 
     /**
-     * Parse the error-page sections.
+     * Parse the jsp-config section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseErrorPages(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        NodeList nodeList = (NodeList) xPath.evaluate("//error-page", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlErrorPage> errorPages = webXml.getErrorPages();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String errorCode = parseString(xPath, "error-code/text()", nodeList.item(i));
-                String exceptionType = parseString(xPath, "exception-type/text()", nodeList.item(i));
-                String location = parseString(xPath, LOCATION_TEXT_SELECTOR, nodeList.item(i));
-                errorPages.add(new WebXmlErrorPage(errorCode, exceptionType, location));
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseJspConfig(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        while (nextChild(reader)) {
+            if ("taglib".equals(reader.getLocalName())) {
+                String location = "";
+                String uri = "";
+                while (nextChild(reader)) {
+                    switch (reader.getLocalName()) {
+                        case "taglib-location" -> location = readText(reader);
+                        case "taglib-uri" -> uri = readText(reader);
+                        default -> skipElement(reader);
+                    }
+                }
+                webXml.getJspConfig().getTaglibs().add(new WebXmlJspConfigTaglib(location, uri));
+            } else {
+                skipElement(reader);
             }
         }
     }
 
     /**
-     * Parse the filter-mapping sections.
+     * Parse a listener section.
      *
-     * @param webXml the web.xml to use.
-     * @param xPath the XPath to use.
-     * @param rootNode the node to use.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseFilterMappings(WebXml webXml, XPath xPath, Node rootNode)
-            throws XPathException {
-
-        for (Node node : parseNodes(xPath, "//filter-mapping", rootNode)) {
-            String filterName = parseString(xPath, "filter-name/text()", node);
-            WebXmlFilterMapping webXmlFilterMapping = new WebXmlFilterMapping();
-            webXmlFilterMapping.setFilterName(filterName);
-            for (String urlPattern : parseStrings(xPath, URL_PATTERN_TEXT_SELECTOR, node)) {
-                webXmlFilterMapping.getUrlPatterns().add(urlPattern);
-            }
-            for (String servletName : parseStrings(xPath, SERVLET_NAME_TEXT_SELECTOR, node)) {
-                webXmlFilterMapping.getServletNames().add(servletName);
-            }
-            for (String dispatcher : parseStrings(xPath, "dispatcher/text()", node)) {
-                webXmlFilterMapping.getDispatchers().add(dispatcher);
+     * @param webXml the web.xml to add to.
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseListener(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        String className = "";
+        while (nextChild(reader)) {
+            if ("listener-class".equals(reader.getLocalName())) {
+                className = readText(reader);
+            } else {
+                skipElement(reader);
             }
-            webXml.getFilterMappings().add(webXmlFilterMapping);
         }
+        webXml.getListeners().add(new WebXmlListener(className));
     }
 
     /**
-     * Parse the filter sections.
+     * Parse the locale-encoding-mapping-list section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseFilters(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        NodeList nodeList = (NodeList) xPath.evaluate("//filter", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlFilter> filters = webXml.getFilters();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                WebXmlFilter filter = new WebXmlFilter();
-                String filterName = parseString(xPath, "filter-name/text()", nodeList.item(i));
-                filter.setFilterName(filterName);
-                String className = parseString(xPath, "filter-class/text()", nodeList.item(i));
-                filter.setClassName(className);
-                String servletName = parseString(xPath, SERVLET_NAME_TEXT_SELECTOR, nodeList.item(i));
-                filter.setServletName(servletName);
-                Boolean asyncSupported = parseBoolean(xPath, "async-supported/text()", nodeList.item(i));
-                if (asyncSupported != null) {
-                    filter.setAsyncSupported(asyncSupported);
-                }
-                filters.add(filter);
-                NodeList paramNodeList = (NodeList) xPath.evaluate("init-param", nodeList.item(i), NODESET);
-                for (int j = 0; j < paramNodeList.getLength(); j++) {
-                    String name = parseString(xPath, PARAM_NAME_TEXT_SELECTOR, paramNodeList.item(j));
-                    String value = parseString(xPath, "param-value/text()", paramNodeList.item(j));
-                    filter.addInitParam(new WebXmlFilterInitParam(name, value));
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseLocaleEncodingMappingList(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        while (nextChild(reader)) {
+            if ("locale-encoding-mapping".equals(reader.getLocalName())) {
+                String locale = "";
+                String encoding = "";
+                while (nextChild(reader)) {
+                    switch (reader.getLocalName()) {
+                        case "locale" -> locale = readText(reader);
+                        case "encoding" -> encoding = readText(reader);
+                        default -> skipElement(reader);
+                    }
                 }
+                webXml.getLocaleEncodingMapping().put(locale, encoding);
+            } else {
+                skipElement(reader);
             }
         }
     }
 
     /**
-     * Parse the name section of a fragment.
+     * Parse the login-config section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseFragmentName(WebXml webXml, XPath xPath, Node node) throws XPathException {
-        String fragmentName = parseString(xPath, "//name/text()", node);
-        if (fragmentName != null) {
-            webXml.setFragmentName(fragmentName);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseLoginConfig(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        String authMethod = "";
+        String realmName = "";
+        String formLoginPage = "";
+        String formErrorPage = "";
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "auth-method" -> authMethod = readText(reader);
+                case "realm-name" -> realmName = readText(reader);
+                case "form-login-config" -> {
+                    while (nextChild(reader)) {
+                        switch (reader.getLocalName()) {
+                            case "form-login-page" -> formLoginPage = readText(reader);
+                            case "form-error-page" -> formErrorPage = readText(reader);
+                            default -> skipElement(reader);
+                        }
+                    }
+                }
+                default -> skipElement(reader);
+            }
+        }
+        if (webXml.getLoginConfig() == null) {
+            webXml.setLoginConfig(new WebXmlLoginConfig(authMethod, realmName, formLoginPage, formErrorPage));
         }
     }
 
     /**
-     * Parse an integer.
-     *
-     * @param xPath the XPath to use.
-     * @param expression the expression.
-     * @param node the node.
-     * @return the string.
-     * @throws XPathException when the expression was invalid.
-     */
-    private int parseInteger(XPath xPath, String expression, Node node)
-            throws XPathException {
-
-        Double doubleValue = (Double) xPath.evaluate(expression, node, XPathConstants.NUMBER);
-        return doubleValue.intValue();
-    }
-
-    /**
-     * Parse the jsp-config element.
-     *
-     * @param webXml the webXml.
-     * @param xPath the XPath.
-     * @param node the DOM node.
-     */
-    private void parseJspConfig(WebXml webXml, XPath xPath, Document node)
-            throws XPathException {
-        parseJspConfigTaglibs(webXml, xPath, node);
-    }
-
-    /**
-     * Parse the jsp-config / taglib elements.
+     * Parse a mime-mapping section.
      *
-     * @param webXml the webXml.
-     * @param xPath the XPath.
-     * @param node the DOM node.
-     */
-    private void parseJspConfigTaglibs(WebXml webXml, XPath xPath, Document node)
-            throws XPathException {
-        NodeList nodeList = (NodeList) xPath.evaluate("//jsp-config", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlJspConfigTaglib> taglibs = webXml.getJspConfig().getTaglibs();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String location = parseString(xPath, "taglib/taglib-location/text()", nodeList.item(i));
-                String uri = parseString(xPath, "taglib/taglib-uri/text()", nodeList.item(i));
-                taglibs.add(new WebXmlJspConfigTaglib(location, uri));
+     * @param webXml the web.xml to add to.
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseMimeMapping(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        String extension = "";
+        String mimeType = "";
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "extension" -> extension = readText(reader);
+                case "mime-type" -> mimeType = readText(reader);
+                default -> skipElement(reader);
             }
         }
+        webXml.getMimeMappings().add(new WebXmlMimeMapping(extension, mimeType));
     }
 
     /**
-     * Parse the listener sections.
+     * Parse the ordering section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when XPath error occurs.
-     */
-    private void parseListeners(WebXml webXml, XPath xPath, Node node) throws XPathException {
-        NodeList nodeList = (NodeList) xPath.evaluate("//listener", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlListener> listeners = webXml.getListeners();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String className = parseString(xPath, "listener-class/text()", nodeList.item(i));
-                listeners.add(new WebXmlListener(className));
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseOrdering(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        List<String> beforeValues = null;
+        List<String> afterValues = null;
+        boolean valid = true;
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "before" -> {
+                    if (beforeValues != null) {
+                        LOGGER.log(WARNING, "Unable to parse <ordering> section",
+                                new IllegalStateException("Cannot have multiple <before> tags in <ordering>"));
+                        valid = false;
+                    }
+                    beforeValues = parseOrderingChildren(reader);
+                }
+                case "after" -> {
+                    if (afterValues != null) {
+                        LOGGER.log(WARNING, "Unable to parse <ordering> section",
+                                new IllegalStateException("Cannot have multiple <after> tags in <ordering>"));
+                        valid = false;
+                    }
+                    afterValues = parseOrderingChildren(reader);
+                }
+                default -> skipElement(reader);
             }
         }
+        if (valid && (beforeValues != null && !beforeValues.isEmpty() || afterValues != null && !afterValues.isEmpty())) {
+            webXml.setRelativeOrdering(new WebXml.RelativeOrder(beforeValues, afterValues));
+        }
     }
 
     /**
-     * Parse the locale-encoding-mapping-list section.
+     * Parse the children of the before or after section of an ordering.
      *
-     * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseLocaleEncodingMapping(WebXml webXml, XPath xPath,
-            Node node) throws XPathException {
-
-        NodeList nodeList = (NodeList) xPath.evaluate("//locale-encoding-mapping-list/locale-encoding-mapping", node, NODESET);
-        if (nodeList != null) {
-            Map<String, String> localeEncodingMapping = webXml.getLocaleEncodingMapping();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String locale = parseString(xPath, ".//locale/text()", nodeList.item(i));
-                String encoding = parseString(xPath, ".//encoding/text()", nodeList.item(i));
-                localeEncodingMapping.put(locale, encoding);
+     * @param reader the reader.
+     * @return the fragment names.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private List<String> parseOrderingChildren(XMLStreamReader reader) throws XMLStreamException {
+        List<String> values = new ArrayList<>();
+        while (nextChild(reader)) {
+            boolean others = "others".equalsIgnoreCase(reader.getLocalName());
+            String fragmentName = readText(reader);
+            if (!fragmentName.isEmpty()) {
+                values.add(fragmentName);
+            } else if (others) {
+                values.add(OTHERS_TAG);
             }
         }
+        return values;
     }
 
     /**
-     * Parse the login-config section.
+     * Parse the root element.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseLoginConfig(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        Node configNode = (Node) xPath.evaluate("//login-config", node, NODE);
-        if (configNode != null) {
-            String authMethod = parseString(xPath,
-                    "//auth-method/text()", configNode);
-            String realmName = parseString(xPath,
-                    "//realm-name/text()", configNode);
-            String formLoginPage = parseString(xPath,
-                    "//form-login-config/form-login-page/text()", configNode);
-            String formErrorPage = parseString(xPath,
-                    "//form-login-config/form-error-page/text()", configNode);
-            WebXmlLoginConfig config = new WebXmlLoginConfig(
-                    authMethod, realmName, formLoginPage, formErrorPage);
-            webXml.setLoginConfig(config);
+     * @param reader the reader positioned at the root element.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseRoot(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        if ("web-app".equals(reader.getLocalName())) {
+            parseWebAppAttributes(webXml, reader);
+        }
+        webXml.setDisplayName("");
+        webXml.setFragmentName("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "absolute-ordering" -> parseAbsoluteOrdering(webXml, reader);
+                case "context-param" -> parseContextParameter(webXml, reader);
+                case "data-source" -> parseDataSource(webXml, reader);
+                case "default-context-path" -> webXml.setDefaultContextPath(readText(reader));
+                case "deny-uncovered-http-methods" -> {
+                    webXml.setDenyUncoveredHttpMethods(true);
+                    skipElement(reader);
+                }
+                case "display-name" -> webXml.setDisplayName(readText(reader));
+                case "distributable" -> {
+                    webXml.setDistributable(true);
+                    skipElement(reader);
+                }
+                case "error-page" -> parseErrorPage(webXml, reader);
+                case "filter" -> parseFilter(webXml, reader);
+                case "filter-mapping" -> parseFilterMapping(webXml, reader);
+                case "jsp-config" -> parseJspConfig(webXml, reader);
+                case "listener" -> parseListener(webXml, reader);
+                case "locale-encoding-mapping-list" -> parseLocaleEncodingMappingList(webXml, reader);
+                case "login-config" -> parseLoginConfig(webXml, reader);
+                case "mime-mapping" -> parseMimeMapping(webXml, reader);
+                case "name" -> webXml.setFragmentName(readText(reader));
+                case "ordering" -> parseOrdering(webXml, reader);
+                case "request-character-encoding" -> webXml.setRequestCharacterEncoding(readText(reader));
+                case "response-character-encoding" -> webXml.setResponseCharacterEncoding(readText(reader));
+                case "security-constraint" -> parseSecurityConstraint(webXml, reader);
+                case "security-role" -> parseSecurityRole(webXml, reader);
+                case "servlet" -> parseServlet(webXml, reader);
+                case "servlet-mapping" -> parseServletMapping(webXml, reader);
+                case "session-config" -> parseSessionConfig(webXml, reader);
+                case "welcome-file-list" -> parseWelcomeFileList(webXml, reader);
+                default -> skipElement(reader);
+            }
         }
     }
 
     /**
-     * Parse a long.
+     * Parse a security-constraint section.
      *
-     * @param xPath the XPath to use.
-     * @param node the node to use.
-     * @param expression the expression to use.
-     * @return the long.
+     * @param webXml the web.xml to add to.
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
      */
-    private static Long parseLong(XPath xPath, String expression, Node node)
-            throws XPathException {
-
-        return Long.parseLong((String) xPath.evaluate(expression, node,
-                XPathConstants.STRING));
+    private void parseSecurityConstraint(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        WebXmlSecurityConstraint securityConstraint = new WebXmlSecurityConstraint();
+        securityConstraint.setTransportGuarantee("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "web-resource-collection" -> {
+                    WebXmlSecurityConstraint.WebResourceCollection webResourceCollection = new WebXmlSecurityConstraint.WebResourceCollection();
+                    while (nextChild(reader)) {
+                        switch (reader.getLocalName()) {
+                            case URL_PATTERN -> addIfNotEmpty(webResourceCollection.getUrlPatterns(), readText(reader));
+                            case "http-method" -> addIfNotEmpty(webResourceCollection.getHttpMethods(), readText(reader));
+                            case "http-method-omission" -> addIfNotEmpty(webResourceCollection.getHttpMethodOmissions(), readText(reader));
+                            default -> skipElement(reader);
+                        }
+                    }
+                    securityConstraint.getWebResourceCollections().add(webResourceCollection);
+                }
+                case "auth-constraint" -> {
+                    while (nextChild(reader)) {
+                        if (ROLE_NAME.equals(reader.getLocalName())) {
+                            addIfNotEmpty(securityConstraint.getRoleNames(), readText(reader));
+                        } else {
+                            skipElement(reader);
+                        }
+                    }
+                }
+                case "user-data-constraint" -> {
+                    while (nextChild(reader)) {
+                        if ("transport-guarantee".equals(reader.getLocalName())) {
+                            securityConstraint.setTransportGuarantee(readText(reader));
+                        } else {
+                            skipElement(reader);
+                        }
+                    }
+                }
+                default -> skipElement(reader);
+            }
+        }
+        webXml.getSecurityConstraints().add(securityConstraint);
     }
 
     /**
-     * Parse the mime-mapping sections.
+     * Parse a security-role section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the node to use.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseMimeMappings(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        NodeList nodeList = (NodeList) xPath.evaluate("//mime-mapping", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlMimeMapping> mimeMappings = webXml.getMimeMappings();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String extension = parseString(xPath, "//extension/text()", nodeList.item(i));
-                String mimeType = parseString(xPath, "//mime-type/text()", nodeList.item(i));
-                mimeMappings.add(new WebXmlMimeMapping(extension, mimeType));
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseSecurityRole(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        while (nextChild(reader)) {
+            if (ROLE_NAME.equals(reader.getLocalName())) {
+                String roleName = readText(reader);
+                if (!roleName.isEmpty()) {
+                    webXml.getRoleNames().add(roleName);
+                }
+            } else {
+                skipElement(reader);
             }
         }
     }
 
     /**
-     * Parse nodes.
+     * Parse a servlet section.
      *
-     * @param xPath the XPath to use.
-     * @param expression the expression.
-     * @param node the node to use.
-     * @throws XPathException when an XPath error occurs.
-     * @return iterable nodes.
-     */
-    private Iterable<Node> parseNodes(XPath xPath, String expression, Node node) throws XPathException {
-        return StreamSupport
-                .stream(toIterable((NodeList) xPath.evaluate(expression, node, NODESET)).spliterator(), false)::iterator;
-    }
-
-    private void parseOrdering(WebXml webXml, XPath xPath, Node node) {
-        try {
-            NodeList before = (NodeList) xPath.evaluate("//ordering/before", node, NODESET);
-            if (before.getLength() > 1) {
-                throw new IllegalStateException("Cannot have multiple <before> tags in <ordering>");
-            }
-
-            NodeList after = (NodeList) xPath.evaluate("//ordering/after", node, NODESET);
-            if (after.getLength() > 1) {
-                throw new IllegalStateException("Cannot have multiple <after> tags in <ordering>");
-            }
-
-            List<String> beforeValues = parseOrderingChildren(xPath, before);
-
-            List<String> afterValues = parseOrderingChildren(xPath, after);
-
-            if (!beforeValues.isEmpty() || !afterValues.isEmpty()) {
-                webXml.setRelativeOrdering(new WebXml.RelativeOrder(beforeValues, afterValues));
-            }
-        } catch (Exception xpe) {
-            LOGGER.log(WARNING, "Unable to parse <ordering> section", xpe);
-        }
-
-    }
-
-    private List<String> parseOrderingChildren(XPath xPath, NodeList orderingChild)
-            throws XPathException {
-
-        List<String> values = new ArrayList<>();
-        if (orderingChild.getLength() == 1) {
-            Node beforeTag = orderingChild.item(0);
-            for (Node orderingNode : parseNodes(xPath, "*", beforeTag)) {
-                String fragmentName = parseString(xPath, TEXT_SELECTOR, orderingNode);
-                if (fragmentName != null && !fragmentName.trim().isEmpty()) {
-                    values.add(fragmentName);
-                    continue;
+     * @param webXml the web.xml to add to.
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseServlet(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        WebXmlServlet servlet = new WebXmlServlet();
+        servlet.setServletName("");
+        servlet.setClassName("");
+        servlet.setJspFile("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case SERVLET_NAME -> servlet.setServletName(readText(reader));
+                case "servlet-class" -> servlet.setClassName(readText(reader));
+                case "jsp-file" -> servlet.setJspFile(readText(reader));
+                case "async-supported" -> servlet.setAsyncSupported(Boolean.parseBoolean(readText(reader)));
+                case "init-param" -> {
+                    String name = "";
+                    String value = "";
+                    while (nextChild(reader)) {
+                        switch (reader.getLocalName()) {
+                            case PARAM_NAME -> name = readText(reader);
+                            case PARAM_VALUE -> value = readText(reader);
+                            default -> skipElement(reader);
+                        }
+                    }
+                    servlet.getInitParams().add(new WebXmlServletInitParam(name, value));
+                }
+                case "security-role-ref" -> {
+                    String roleName = "";
+                    String roleLink = "";
+                    while (nextChild(reader)) {
+                        switch (reader.getLocalName()) {
+                            case ROLE_NAME -> roleName = readText(reader);
+                            case "role-link" -> roleLink = readText(reader);
+                            default -> skipElement(reader);
+                        }
+                    }
+                    servlet.getSecurityRoleRefs().add(new WebXmlServletSecurityRoleRef(roleName, roleLink));
                 }
-                if ("others".equalsIgnoreCase(orderingNode.getNodeName())) {
-                    values.add(OTHERS_TAG);
+                case "multipart-config" -> {
+                    if (servlet.getMultipartConfig() != null) {
+                        LOGGER.log(WARNING, "Duplicate <multipart-config> sections in web.xml where only 1 allowed.");
+                        skipElement(reader);
+                    } else {
+                        servlet.setMultipartConfig(parseServletMultipartConfig(reader));
+                    }
                 }
+                default -> skipElement(reader);
             }
         }
-        return values;
+        webXml.getServlets().add(servlet);
+        LOGGER.log(DEBUG, "Configured servlet: {0}", servlet);
     }
 
     /**
-     * Parse the request-character-encoding section.
+     * Parse a servlet-mapping section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseRequestCharacterEncoding(WebXml webXml, XPath xPath,
-            Node node) throws XPathException {
-
-        Node rceNode = (Node) xPath.evaluate("//request-character-encoding", node, NODE);
-        if (rceNode != null) {
-            String requestCharacterEncoding = parseString(
-                    xPath, "//request-character-encoding/text()", node);
-            webXml.setRequestCharacterEncoding(requestCharacterEncoding);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseServletMapping(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        String servletName = "";
+        List<String> urlPatterns = new ArrayList<>();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case SERVLET_NAME -> servletName = readText(reader);
+                case URL_PATTERN -> addIfNotEmpty(urlPatterns, readText(reader));
+                default -> skipElement(reader);
+            }
+        }
+        for (String urlPattern : urlPatterns) {
+            webXml.getServletMappings().add(new WebXmlServletMapping(servletName, urlPattern));
         }
     }
 
     /**
-     * Parse the response-character-encoding section.
+     * Parse a multipart-config section.
      *
-     * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseResponseCharacterEncoding(WebXml webXml, XPath xPath, Node node) throws XPathException {
-        Node rceNode = (Node) xPath.evaluate("//response-character-encoding", node, NODE);
-        if (rceNode != null) {
-            String responseCharacterEncoding = parseString(
-                    xPath, "//response-character-encoding/text()", node);
-            webXml.setResponseCharacterEncoding(responseCharacterEncoding);
-        }
-    }
-
-    private void parseSecurityConstraint(WebXml webXml, XPath xPath,
-            Node rootNode) throws XPathException {
-
-        WebXmlSecurityConstraint securityConstraint = new WebXmlSecurityConstraint();
-
-        for (Node node : parseNodes(xPath, "web-resource-collection", rootNode)) {
-            WebXmlSecurityConstraint.WebResourceCollection webResourceCollection = new WebXmlSecurityConstraint.WebResourceCollection();
-            for (String urlPattern : parseStrings(xPath, URL_PATTERN_TEXT_SELECTOR, node)) {
-                webResourceCollection.getUrlPatterns().add(urlPattern);
-            }
-            for (String httpMethod : parseStrings(xPath, "http-method/text()", node)) {
-                webResourceCollection.getHttpMethods().add(httpMethod);
-            }
-            for (String httpMethodOmission : parseStrings(xPath, "http-method-omission/text()", node)) {
-                webResourceCollection.getHttpMethodOmissions().add(httpMethodOmission);
-            }
-            securityConstraint.getWebResourceCollections().add(webResourceCollection);
-        }
-        for (Node node : parseNodes(xPath, "auth-constraint", rootNode)) {
-            for (String roleName : parseStrings(xPath, "role-name/text()", node)) {
-                securityConstraint.getRoleNames().add(roleName);
+     * @param reader the reader.
+     * @return the multipart config.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private WebXmlServletMultipartConfig parseServletMultipartConfig(XMLStreamReader reader) throws XMLStreamException {
+        WebXmlServletMultipartConfig multipartConfig = new WebXmlServletMultipartConfig();
+        multipartConfig.setLocation("");
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case LOCATION -> multipartConfig.setLocation(readText(reader));
+                case "max-file-size" -> multipartConfig.setMaxFileSize(
+                        parseLong("max-file-size", readText(reader), multipartConfig.getMaxFileSize()));
+                case "max-request-size" -> multipartConfig.setMaxRequestSize(
+                        parseLong("max-request-size", readText(reader), multipartConfig.getMaxRequestSize()));
+                case "file-size-threshold" -> multipartConfig.setFileSizeThreshold(
+                        parseInt("file-size-threshold", readText(reader), multipartConfig.getFileSizeThreshold()));
+                default -> skipElement(reader);
             }
         }
-        securityConstraint.setTransportGuarantee(parseString(xPath, "user-data-constraint/transport-guarantee/text()", rootNode));
-        webXml.getSecurityConstraints().add(securityConstraint);
+        return multipartConfig;
     }
 
     /**
-     * Parse the security constraints.
+     * Parse the int value of an element.
      *
-     * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
+     * <p>
+     * An invalid value is logged and the default value is used instead.
+     * </p>
+     *
+     * @param name the element name.
+     * @param value the value.
+     * @param defaultValue the default value.
+     * @return the parsed value, or the default value if it is invalid.
      */
-    private void parseSecurityConstraints(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        for (Node item : parseNodes(xPath, "//security-constraint", node)) {
-            parseSecurityConstraint(webXml, xPath, item);
+    private int parseInt(String name, String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            LOGGER.log(WARNING, "Invalid value for <{0}>: {1}, using the default", name, value);
+            return defaultValue;
         }
     }
 
-    private void parseSecurityRoles(WebXml webXml, XPath xPath, Node rootNode)
-            throws XPathException {
-
-        for (String roleName : parseStrings(xPath, "//security-role/role-name/text()", rootNode)) {
-            webXml.getRoleNames().add(roleName);
+    /**
+     * Parse the long value of an element.
+     *
+     * <p>
+     * An invalid value is logged and the default value is used instead.
+     * </p>
+     *
+     * @param name the element name.
+     * @param value the value.
+     * @param defaultValue the default value.
+     * @return the parsed value, or the default value if it is invalid.
+     */
+    private long parseLong(String name, String value, long defaultValue) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException nfe) {
+            LOGGER.log(WARNING, "Invalid value for <{0}>: {1}, using the default", name, value);
+            return defaultValue;
         }
     }
 
     /**
-     * Parse the servlet-mapping sections.
+     * Parse the session-config section.
      *
-     * @param webXml the web.xml to use.
-     * @param xPath the XPath to use.
-     * @param node the node to use.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseServletMappings(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        NodeList nodeList = (NodeList) xPath.evaluate("//servlet-mapping", node, NODESET);
-        if (nodeList != null) {
-            List<WebXmlServletMapping> servletMappings = webXml.getServletMappings();
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String servletName = parseString(xPath, SERVLET_NAME_TEXT_SELECTOR, nodeList.item(i));
-                for (String urlPattern : parseStrings(xPath, URL_PATTERN_TEXT_SELECTOR, nodeList.item(i))) {
-                    servletMappings.add(new WebXmlServletMapping(servletName, urlPattern));
+     * @param webXml the web.xml to add to.
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseSessionConfig(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        int sessionTimeout = 0;
+        while (nextChild(reader)) {
+            if ("session-timeout".equals(reader.getLocalName())) {
+                try {
+                    sessionTimeout = Integer.parseInt(readText(reader));
+                } catch (NumberFormatException nfe) {
+                    LOGGER.log(WARNING, "Unable to parse <session-timeout>", nfe);
                 }
+            } else {
+                skipElement(reader);
             }
         }
+        if (webXml.getSessionConfig() == null) {
+            WebXmlSessionConfig sessionConfig = new WebXmlSessionConfig();
+            sessionConfig.setSessionTimeout(sessionTimeout);
+            webXml.setSessionConfig(sessionConfig);
+        }
     }
 
     /**
-     * Parse the servlet sections.
+     * Parse the attributes of the web-app element.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param rootNode the DOM node.
-     * @throws XPathException when a XPath error occurs.
-     */
-    private void parseServlets(WebXml webXml, XPath xPath, Node rootNode) throws XPathException {
-        List<WebXmlServlet> servlets = webXml.getServlets();
-        for (Node servletNode : parseNodes(xPath, "//servlet", rootNode)) {
-            WebXmlServlet servlet = new WebXmlServlet();
-            servlet.setServletName(parseString(xPath, SERVLET_NAME_TEXT_SELECTOR, servletNode));
-            servlet.setClassName(parseString(xPath, "servlet-class/text()", servletNode));
-            servlet.setJspFile(parseString(xPath, "jsp-file/text()", servletNode));
-            Boolean asyncSupported = parseBoolean(xPath, "async-supported/text()", servletNode);
-            if (asyncSupported != null) {
-                servlet.setAsyncSupported(asyncSupported);
-            }
-            for (Node initParamNode : parseNodes(xPath, "init-param", servletNode)) {
-                String name = parseString(xPath, PARAM_NAME_TEXT_SELECTOR, initParamNode);
-                String value = parseString(xPath, "param-value/text()", initParamNode);
-                servlet.getInitParams().add(new WebXmlServletInitParam(name, value));
+     * @param reader the reader.
+     */
+    private void parseWebAppAttributes(WebXml webXml, XMLStreamReader reader) {
+        String version = reader.getAttributeValue(null, "version");
+        if (version != null) {
+            String[] versionComponents = version.split(quote("."));
+            if (versionComponents.length > 0) {
+                webXml.setMajorVersion(Integer.parseInt(versionComponents[0]));
             }
-            for (Node securityRoleRefNode : parseNodes(xPath, "security-role-ref", servletNode)) {
-                String roleName = parseString(xPath, "role-name/text()", securityRoleRefNode);
-                String roleLink = parseString(xPath, "role-link/text()", securityRoleRefNode);
-                servlet.getSecurityRoleRefs().add(new WebXmlServletSecurityRoleRef(roleName, roleLink));
+            if (versionComponents.length > 1) {
+                webXml.setMinorVersion(Integer.parseInt(versionComponents[1]));
             }
-            for (Node multipartConfigNode : parseNodes(xPath, "multipart-config", servletNode)) {
-                if (servlet.getMultipartConfig() != null) {
-                    LOGGER.log(WARNING, "Duplicate <multipart-config> sections in web.xml where only 1 allowed.");
-                    break;
-                }
-                WebXmlServletMultipartConfig multipartConfig = new WebXmlServletMultipartConfig();
-                multipartConfig.setLocation(parseString(xPath, LOCATION_TEXT_SELECTOR, multipartConfigNode));
-                multipartConfig.setMaxFileSize(parseLong(xPath, LOCATION_TEXT_SELECTOR, multipartConfigNode));
-                multipartConfig.setMaxRequestSize(parseLong(xPath, LOCATION_TEXT_SELECTOR, multipartConfigNode));
-                multipartConfig.setFileSizeThreshold(parseInteger(xPath, LOCATION_TEXT_SELECTOR, multipartConfigNode));
-                servlet.setMultipartConfig(multipartConfig);
-            }
-            servlets.add(servlet);
-            LOGGER.log(DEBUG, "Configured servlet: {0}", servlet);
+        }
+        String metadataComplete = reader.getAttributeValue(null, "metadata-complete");
+        if (metadataComplete != null) {
+            webXml.setMetadataComplete(Boolean.parseBoolean(metadataComplete));
         }
     }
 
     /**
-     * Parse the session-config section.
+     * Parse the welcome-file-list section.
      *
      * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseSessionConfig(WebXml webXml, XPath xPath, Node node)
-            throws XPathException {
-
-        Node scNode = (Node) xPath.evaluate("//session-config", node, NODE);
-        if (scNode != null) {
-            int sessionTimeout = parseInteger(xPath, "session-timeout/text()", scNode);
-            WebXmlSessionConfig sessionConfig = new WebXmlSessionConfig();
-            sessionConfig.setSessionTimeout(sessionTimeout);
-            webXml.setSessionConfig(sessionConfig);
+     * @param reader the reader.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private void parseWelcomeFileList(WebXml webXml, XMLStreamReader reader) throws XMLStreamException {
+        while (nextChild(reader)) {
+            if ("welcome-file".equals(reader.getLocalName())) {
+                String welcomeFile = readText(reader);
+                webXml.getWelcomeFiles().add(welcomeFile);
+                LOGGER.log(DEBUG, "Parsed welcome-file: {0}", welcomeFile);
+            } else {
+                skipElement(reader);
+            }
         }
     }
 
     /**
-     * Parse a string.
+     * Read the text of the current element.
      *
-     * @param xPath the XPath to use.
-     * @param expression the expression.
-     * @param node the node.
-     * @return the string.
-     * @throws XPathException when the expression was invalid.
-     */
-    private String parseString(XPath xPath, String expression, Node node)
-            throws XPathException {
-
-        return (String) xPath.evaluate(expression, node, XPathConstants.STRING);
-    }
-
-    private Iterable<String> parseStrings(XPath xPath, String expression,
-            Node node) throws XPathException {
-
-        return StreamSupport
-                .stream(toIterable((NodeList) xPath.evaluate(expression, node, NODESET)).spliterator(), false)
-                .map(Node::getNodeValue)::iterator;
-    }
-
-    /**
-     * Parse the web-app section.
+     * <p>
+     * Text in nested elements is ignored. On return the reader is positioned
+     * at the end of the current element.
+     * </p>
      *
-     * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
-     * @throws XPathException when an XPath error occurs.
-     */
-    private void parseWebApp(WebXml webXml, XPath xPath, Node node) throws XPathException {
-        Node webAppNode = (Node) xPath.evaluate("//web-app", node, NODE);
-        if (webAppNode != null) {
-            NamedNodeMap attributes = webAppNode.getAttributes();
-            if (attributes != null) {
-                Node versionNode = attributes.getNamedItem("version");
-                if (versionNode != null) {
-                    String version = versionNode.getTextContent();
-                    if (version != null) {
-                        String[] versionComponents = version.split(quote("."));
-                        if (versionComponents.length > 0) {
-                            webXml.setMajorVersion(Integer.valueOf(versionComponents[0]));
-                        }
-                        if (versionComponents.length > 1) {
-                            webXml.setMinorVersion(Integer.valueOf(versionComponents[1]));
+     * @param reader the reader positioned at the start of the element.
+     * @return the trimmed text.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder builder = null;
+        String text = null;
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            switch (event) {
+                case START_ELEMENT -> depth++;
+                case END_ELEMENT -> depth--;
+                case CHARACTERS, CDATA, SPACE -> {
+                    if (depth == 1) {
+                        if (text == null) {
+                            text = reader.getText();
+                        } else {
+                            if (builder == null) {
+                                builder = new StringBuilder(text);
+                            }
+                            builder.append(reader.getText());
                         }
                     }
                 }
-                Node metadataCompleteNode = attributes.getNamedItem("metadata-complete");
-                if (metadataCompleteNode != null) {
-                    webXml.setMetadataComplete(Boolean.parseBoolean(metadataCompleteNode.getTextContent()));
+                default -> {
                 }
             }
         }
+        if (builder != null) {
+            text = builder.toString();
+        }
+        return text != null ? text.trim() : "";
     }
 
     /**
-     * Convert nodes list to iterable nodes.
+     * Skip the current element.
      *
-     * @param nodeList the node list.
-     * @return the iterable nodes.
-     */
-    public static Iterable<Node> toIterable(NodeList nodeList) {
-        return () -> new Iterator<Node>() {
-
-            private int position;
-
-            @Override
-            public boolean hasNext() {
-                return position < nodeList.getLength();
+     * @param reader the reader positioned at the start of the element.
+     * @throws XMLStreamException when an XML error occurs.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == START_ELEMENT) {
+                depth++;
+            } else if (event == END_ELEMENT) {
+                depth--;
             }
-
-            @Override
-            public Node next() {
-                if (hasNext()) {
-                    return nodeList.item(position++);
-                }
-
-                throw new NoSuchElementException();
-            }
-        };
+        }
     }
 
     /**
-     * Parse the welcome file section.
+     * Add the value to the collection unless it is empty.
      *
-     * @param webXml the web.xml to add to.
-     * @param xPath the XPath to use.
-     * @param node the DOM node.
+     * @param collection the collection.
+     * @param value the value.
      */
-    private void parseWelcomeFiles(WebXml webXml, XPath xPath, Node node) {
-        try {
-            NodeList nodeList = (NodeList) xPath.evaluate("//welcome-file-list/welcome-file", node, NODESET);
-            if (nodeList != null) {
-                List<String> welcomeFiles = webXml.getWelcomeFiles();
-                for (int i = 0; i < nodeList.getLength(); i++) {
-                    String welcomeFile = parseString(xPath, TEXT_SELECTOR, nodeList.item(i));
-                    welcomeFiles.add(welcomeFile);
-                    LOGGER.log(DEBUG, "Parsed welcome-file: {0}", welcomeFile);
-                }
-            }
-        } catch (XPathException xpe) {
-            LOGGER.log(WARNING, "Unable to parse <welcome-file-list> sections", xpe);
+    private static void addIfNotEmpty(Collection<String> collection, String value) {
+        if (!value.isEmpty()) {
+            collection.add(value);
         }
     }
 }
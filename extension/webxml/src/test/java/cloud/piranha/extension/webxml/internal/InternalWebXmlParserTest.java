@@ -30,6 +30,7 @@ package cloud.piranha.extension.webxml.internal;
 import cloud.piranha.core.impl.DefaultWebApplication;
 import cloud.piranha.core.api.WebXml;
 import cloud.piranha.core.api.WebXmlServletMapping;
+import cloud.piranha.core.api.WebXmlServletMultipartConfig;
 import cloud.piranha.resource.impl.DirectoryResource;
 import java.io.File;
 import java.io.InputStream;
@@ -129,4 +130,48 @@ class InternalWebXmlParserTest {
         assertEquals(servletName, servletMappings.get(1).servletName());
         assertEquals("/bar", servletMappings.get(1).urlPattern());
     }
+
+    /**
+     * Test parse method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParseWebXml5() throws Exception {
+        DefaultWebApplication webApplication = new DefaultWebApplication();
+        webApplication.addResource(new DirectoryResource(new File("src/test/webxml/parse5")));
+        InputStream inputStream = webApplication.getResourceAsStream("WEB-INF/web.xml");
+        InternalWebXmlParser parser = new InternalWebXmlParser();
+        WebXml webXml = parser.parse(inputStream);
+        assertEquals(6, webXml.getMajorVersion());
+        WebXmlServletMultipartConfig multipartConfig = webXml.getServlets().get(0).getMultipartConfig();
+        assertEquals("/tmp", multipartConfig.getLocation());
+        assertEquals(1024, multipartConfig.getMaxFileSize());
+        assertEquals(2048, multipartConfig.getMaxRequestSize());
+        assertEquals(512, multipartConfig.getFileSizeThreshold());
+        assertEquals(2, webXml.getMimeMappings().size());
+        assertEquals("def", webXml.getMimeMappings().get(1).extension());
+        assertEquals("application/def", webXml.getMimeMappings().get(1).mimeType());
+        assertEquals("jdbc/upload", webXml.getDataSources().get(0).getName());
+        assertEquals("", webXml.getFragmentName());
+    }
+
+    /**
+     * Test parse method with invalid multipart-config sizes.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParseWebXml6() throws Exception {
+        DefaultWebApplication webApplication = new DefaultWebApplication();
+        webApplication.addResource(new DirectoryResource(new File("src/test/webxml/parse6")));
+        InputStream inputStream = webApplication.getResourceAsStream("WEB-INF/web.xml");
+        InternalWebXmlParser parser = new InternalWebXmlParser();
+        WebXml webXml = parser.parse(inputStream);
+        WebXmlServletMultipartConfig multipartConfig = webXml.getServlets().get(0).getMultipartConfig();
+        assertEquals("/tmp", multipartConfig.getLocation());
+        assertEquals(-1, multipartConfig.getMaxFileSize());
+        assertEquals(-1, multipartConfig.getMaxRequestSize());
+        assertEquals(0, multipartConfig.getFileSizeThreshold());
+    }
 }
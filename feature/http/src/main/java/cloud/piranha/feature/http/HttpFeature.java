@@ -33,6 +33,7 @@ import cloud.piranha.http.impl.DefaultHttpServer;
 import java.lang.System.Logger;
 import static java.lang.System.Logger.Level.ERROR;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
 
 /**
  * The HTTP feature that exposes an HTTP endpoint.
@@ -46,6 +47,16 @@ public class HttpFeature extends DefaultFeature {
      */
     private static final Logger LOGGER = System.getLogger(HttpFeature.class.getName());
 
+    /**
+     * Stores the connection backlog.
+     */
+    private int backlog;
+
+    /**
+     * Stores the executor.
+     */
+    private Executor executor;
+
     /**
      * Stores the HTTP server.
      */
@@ -60,12 +71,35 @@ public class HttpFeature extends DefaultFeature {
      * Stores the port.
      */
     private int port = 8080;
-    
+
+    /**
+     * Stores the number of worker threads.
+     */
+    private int workerThreads;
+
     @Override
     public void destroy() {
         httpServer = null;
     }
 
+    /**
+     * Get the connection backlog.
+     *
+     * @return the connection backlog, or 0 for the default.
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Get the executor.
+     *
+     * @return the executor, or null for the default.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
     /**
      * Get the HTTP server.
      * 
@@ -93,6 +127,15 @@ public class HttpFeature extends DefaultFeature {
         return port;
     }
 
+    /**
+     * Get the number of worker threads.
+     *
+     * @return the number of worker threads, or 0 for the default.
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
     @Override
     public void init() {
         if (port > 0) {
@@ -107,10 +150,37 @@ public class HttpFeature extends DefaultFeature {
             }
             if (httpServer != null) {
                 httpServer.setServerPort(port);
+                if (backlog > 0) {
+                    httpServer.setBacklog(backlog);
+                }
+                if (executor != null) {
+                    httpServer.setExecutor(executor);
+                }
+                if (workerThreads > 0) {
+                    httpServer.setWorkerThreads(workerThreads);
+                }
             }
         }
     }
 
+    /**
+     * Set the connection backlog.
+     *
+     * @param backlog the connection backlog, or 0 for the default.
+     */
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    /**
+     * Set the executor used to process requests.
+     *
+     * @param executor the executor, or null for the default.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
     /**
      * Set the HTTP server.
      * 
@@ -142,6 +212,16 @@ public class HttpFeature extends DefaultFeature {
         this.port = port;
     }
 
+    /**
+     * Set the number of worker threads.
+     *
+     * @param workerThreads the number of worker threads, or 0 for the
+     * default.
+     */
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
     @Override
     public void start() {
         if (httpServer != null) {
@@ -28,6 +28,7 @@
 package cloud.piranha.feature.http;
 
 import cloud.piranha.http.api.HttpServer;
+import cloud.piranha.http.impl.DefaultHttpServer;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -85,6 +86,20 @@ class HttpFeatureTest {
         assertNotNull(feature.getHttpServerClass());
     }
 
+    /**
+     * Test init method applies the worker threads.
+     */
+    @Test
+    void testInitWorkerThreads() {
+        HttpFeature feature = new HttpFeature();
+        feature.setBacklog(128);
+        feature.setWorkerThreads(16);
+        assertEquals(128, feature.getBacklog());
+        assertNull(feature.getExecutor());
+        feature.init();
+        assertEquals(16, ((DefaultHttpServer) feature.getHttpServer()).getWorkerThreads());
+    }
+
     /**
      * Test getPort method.
      */
@@ -28,6 +28,8 @@
 package cloud.piranha.feature.webapp;
 
 import cloud.piranha.core.api.WebApplicationExtension;
+import cloud.piranha.core.impl.DefaultHttpSessionManager;
+import cloud.piranha.core.impl.DefaultHttpSessionReaper;
 import cloud.piranha.core.impl.DefaultModuleFinder;
 import cloud.piranha.core.impl.DefaultModuleLayerProcessor;
 import cloud.piranha.core.impl.DefaultWebApplication;
@@ -55,6 +57,13 @@ import java.util.ServiceLoader;
  * application.
  * </p>
  *
+ * <p>
+ * The web application is configured and initialized with its own class loader
+ * as the context class loader, so multiple instances can be initialized
+ * concurrently. It is added to the HTTP web application server, and thus
+ * mapped, once it has been initialized.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class WebAppFeature extends DefaultFeature {
@@ -79,6 +88,11 @@ public class WebAppFeature extends DefaultFeature {
      */
     private boolean jpmsEnabled;
 
+    /**
+     * Stores the session reaper (or null to use the default reaper).
+     */
+    private DefaultHttpSessionReaper sessionReaper;
+
     /**
      * Stores the war file.
      */
@@ -175,34 +189,49 @@ public class WebAppFeature extends DefaultFeature {
             DefaultWebApplicationClassLoader classLoader = new DefaultWebApplicationClassLoader(webAppDir);
             webApplication.setClassLoader(classLoader);
 
-            if (jpmsEnabled) {
-                setupLayers(classLoader);
-            }
-
-            if (classLoader.getResource("/META-INF/services/" + WebApplicationExtension.class.getName()) == null) {
-                DefaultWebApplicationExtensionContext extensionContext = new DefaultWebApplicationExtensionContext();
-                extensionContext.add((extensionClass));
-                extensionContext.configure(webApplication);
-            } else {
-                DefaultWebApplicationExtensionContext extensionContext = new DefaultWebApplicationExtensionContext();
-                ServiceLoader<WebApplicationExtension> serviceLoader = ServiceLoader.load(WebApplicationExtension.class, classLoader);
-                extensionContext.add(serviceLoader.iterator().next());
-                extensionContext.configure(webApplication);
-            }
-
             if (contextPath.equalsIgnoreCase("ROOT")) {
                 contextPath = "";
             } else if (!contextPath.startsWith("/")) {
                 contextPath = "/" + contextPath;
             }
             webApplication.setContextPath(contextPath);
-            httpWebApplicationServer.addWebApplication(webApplication);
 
+            ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
             try {
-                webApplication.initialize();
-            } catch (Exception e) {
-                LOGGER.log(ERROR, "Failed to initialize web application");
+                Thread.currentThread().setContextClassLoader(classLoader);
+
+                if (jpmsEnabled) {
+                    setupLayers(classLoader);
+                }
+
+                if (classLoader.getResource("/META-INF/services/" + WebApplicationExtension.class.getName()) == null) {
+                    DefaultWebApplicationExtensionContext extensionContext = new DefaultWebApplicationExtensionContext();
+                    extensionContext.add((extensionClass));
+                    extensionContext.configure(webApplication);
+                } else {
+                    DefaultWebApplicationExtensionContext extensionContext = new DefaultWebApplicationExtensionContext();
+                    ServiceLoader<WebApplicationExtension> serviceLoader = ServiceLoader.load(WebApplicationExtension.class, classLoader);
+                    extensionContext.add(serviceLoader.iterator().next());
+                    extensionContext.configure(webApplication);
+                }
+
+                try {
+                    webApplication.initialize();
+                    if (sessionReaper != null
+                            && webApplication.getManager().getHttpSessionManager() instanceof DefaultHttpSessionManager sessionManager) {
+                        sessionManager.setReaper(sessionReaper);
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(ERROR, "Failed to initialize web application at " + contextPath, e);
+                }
+            } finally {
+                Thread.currentThread().setContextClassLoader(oldClassLoader);
             }
+
+            /*
+             * Only map the web application once it is ready.
+             */
+            httpWebApplicationServer.addWebApplication(webApplication);
         }
 
         if (webAppDir == null && warFile == null) {
@@ -255,6 +284,20 @@ public class WebAppFeature extends DefaultFeature {
         this.jpmsEnabled = jpmsEnabled;
     }
 
+    /**
+     * Set the session reaper.
+     *
+     * <p>
+     * This allows the Piranha instance to share its own reaper between its
+     * web applications instead of using the default reaper.
+     * </p>
+     *
+     * @param sessionReaper the session reaper.
+     */
+    public void setSessionReaper(DefaultHttpSessionReaper sessionReaper) {
+        this.sessionReaper = sessionReaper;
+    }
+
     /**
      * Set the WAR file.
      *
@@ -28,13 +28,20 @@
 package cloud.piranha.feature.webapps;
 
 import cloud.piranha.core.api.WebApplicationExtension;
-import static cloud.piranha.core.impl.WarFileExtractor.extractWarFile;
+import cloud.piranha.core.impl.DefaultHttpSessionReaper;
 import cloud.piranha.feature.impl.DefaultFeature;
 import cloud.piranha.feature.webapp.WebAppFeature;
 import cloud.piranha.http.api.HttpServerProcessor;
 import cloud.piranha.http.webapp.HttpWebApplicationServer;
 import java.io.File;
+import static java.lang.System.Logger.Level.ERROR;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The WebApps feature.
@@ -44,6 +51,12 @@ import java.util.ArrayList;
  * applications.
  * </p>
  *
+ * <p>
+ * The web applications are deployed one after another, unless the
+ * parallelism is set to more than 1, see {@link #setParallelism(int)}. They
+ * share a single session reaper that is owned by this feature.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class WebAppsFeature extends DefaultFeature {
@@ -63,6 +76,16 @@ public class WebAppsFeature extends DefaultFeature {
      */
     private boolean jpmsEnabled;
 
+    /**
+     * Stores the parallelism.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Stores the session reaper.
+     */
+    private final DefaultHttpSessionReaper sessionReaper = new DefaultHttpSessionReaper(1000);
+
     /**
      * Stores the list of WebAppFeatures.
      */
@@ -105,11 +128,21 @@ public class WebAppsFeature extends DefaultFeature {
         return webApplicationServer;
     }
 
+    /**
+     * Get the parallelism.
+     *
+     * @return the parallelism.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     @Override
     public void init() {
         if (webApplicationServer == null) {
             webApplicationServer = new HttpWebApplicationServer();
         }
+        webApplicationServer.setParallelism(parallelism);
 
         File[] webapps = webAppsDir.listFiles();
         if (webapps != null) {
@@ -117,17 +150,14 @@ public class WebAppsFeature extends DefaultFeature {
                 String contextPath = null;
                 File webAppDir = null;
 
-                /*
-                 * Extract into webAppDir.
-                 */
                 if (warFile.getName().toLowerCase().endsWith(".war")) {
                     contextPath = warFile.getName().substring(0, warFile.getName().length() - 4);
                     webAppDir = new File(webAppsDir, contextPath);
-                    extractWarFile(warFile, webAppDir);
                 }
 
                 /*
-                 * Construct, init and start the WebAppFeature for the web application.
+                 * Construct the WebAppFeature for the web application, the
+                 * WebAppFeature takes care of extracting the WAR file.
                  */
                 WebAppFeature webAppFeature = new WebAppFeature();
                 webAppFeatures.add(webAppFeature);
@@ -135,10 +165,48 @@ public class WebAppsFeature extends DefaultFeature {
                 webAppFeature.setExtensionClass(extensionClass);
                 webAppFeature.setHttpWebApplicationServer(webApplicationServer);
                 webAppFeature.setJpmsEnabled(jpmsEnabled);
+                webAppFeature.setSessionReaper(sessionReaper);
                 webAppFeature.setWarFile(warFile);
                 webAppFeature.setWebAppDir(webAppDir);
-                webAppFeature.init();
             }
+            deploy();
+        }
+    }
+
+    /**
+     * Deploy the web applications.
+     *
+     * <p>
+     * Each web application is extracted, scanned and initialized in its own
+     * task, with up to 'parallelism' tasks running concurrently. A web
+     * application is mapped as soon as its own task completes.
+     * </p>
+     */
+    private void deploy() {
+        if (parallelism <= 1 || webAppFeatures.size() <= 1) {
+            webAppFeatures.forEach(WebAppFeature::init);
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, webAppFeatures.size()),
+                runnable -> new Thread(runnable, "piranha-deployer-" + threadCount.incrementAndGet()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (WebAppFeature webAppFeature : webAppFeatures) {
+                futures.add(executor.submit(webAppFeature::init));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException ee) {
+                    LOGGER.log(ERROR, "Unable to deploy " + webAppFeatures.get(i).getWarFile(), ee.getCause());
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
     }
 
@@ -169,6 +237,29 @@ public class WebAppsFeature extends DefaultFeature {
         this.jpmsEnabled = jpmsEnabled;
     }
 
+    /**
+     * Set the HttpWebApplicationServer.
+     *
+     * @param webApplicationServer the HttpWebApplicationServer.
+     */
+    public void setHttpWebApplicationServer(HttpWebApplicationServer webApplicationServer) {
+        this.webApplicationServer = webApplicationServer;
+    }
+
+    /**
+     * Set the parallelism.
+     *
+     * <p>
+     * This is the maximum number of web applications that are deployed
+     * concurrently. It defaults to 1, which deploys them one after another.
+     * </p>
+     *
+     * @param parallelism the parallelism.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     /**
      * Set the web applications directory.
      * 
@@ -180,6 +271,7 @@ public class WebAppsFeature extends DefaultFeature {
 
     @Override
     public void start() {
+        sessionReaper.start();
         webAppFeatures.forEach(f -> f.start());
         webApplicationServer.start();
     }
@@ -188,5 +280,6 @@ public class WebAppsFeature extends DefaultFeature {
     public void stop() {
         webApplicationServer.stop();
         webAppFeatures.forEach(f -> f.stop());
+        sessionReaper.stop();
     }
 }
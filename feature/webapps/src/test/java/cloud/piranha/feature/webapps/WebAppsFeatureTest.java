@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.feature.webapps;
+
+import cloud.piranha.core.api.WebApplication;
+import cloud.piranha.core.api.WebApplicationExtension;
+import cloud.piranha.http.webapp.HttpWebApplicationServer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The JUnit tests for the WebAppsFeature class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class WebAppsFeatureTest {
+
+    /**
+     * Test getParallelism method.
+     */
+    @Test
+    void testGetParallelism() {
+        WebAppsFeature feature = new WebAppsFeature();
+        assertEquals(1, feature.getParallelism());
+        feature.setParallelism(4);
+        assertEquals(4, feature.getParallelism());
+    }
+
+    /**
+     * Test deploying several WAR files in parallel while the server starts.
+     *
+     * <p>
+     * Starting a web application twice fails, so every web application being
+     * mapped and servicing means each was started exactly once.
+     * </p>
+     *
+     * @param webAppsDir the web applications directory.
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParallelDeployment(@TempDir Path webAppsDir) throws Exception {
+        int count = 8;
+        for (int i = 0; i < count; i++) {
+            createWarFile(webAppsDir.resolve("app" + i + ".war").toFile());
+        }
+        HttpWebApplicationServer server = new HttpWebApplicationServer();
+        WebAppsFeature feature = new WebAppsFeature();
+        feature.setExtensionClass(TestExtension.class);
+        feature.setHttpWebApplicationServer(server);
+        feature.setParallelism(4);
+        feature.setWebAppsDir(webAppsDir.toFile());
+        CompletableFuture<Void> starting = CompletableFuture.runAsync(server::start);
+        feature.init();
+        starting.get();
+        feature.start();
+        try {
+            for (int i = 0; i < count; i++) {
+                WebApplication webApplication = server.getRequestMapper().findMapping("/app" + i + "/index.html");
+                assertNotNull(webApplication);
+                assertEquals("/app" + i, webApplication.getContextPath());
+                assertTrue(webApplication.isServicing());
+            }
+        } finally {
+            feature.stop();
+        }
+    }
+
+    /**
+     * Create a WAR file.
+     *
+     * @param warFile the WAR file.
+     * @throws IOException when an I/O error occurs.
+     */
+    private static void createWarFile(File warFile) throws IOException {
+        try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(warFile))) {
+            output.putNextEntry(new ZipEntry("index.html"));
+            output.write("Hello".getBytes(StandardCharsets.UTF_8));
+            output.closeEntry();
+            output.putNextEntry(new ZipEntry("WEB-INF/"));
+            output.closeEntry();
+        }
+    }
+
+    /**
+     * The extension that configures nothing.
+     */
+    public static class TestExtension implements WebApplicationExtension {
+    }
+}
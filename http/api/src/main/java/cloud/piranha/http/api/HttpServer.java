@@ -27,6 +27,8 @@
  */
 package cloud.piranha.http.api;
 
+import java.util.concurrent.Executor;
+
 /**
  * The HTTP Server API.
  *
@@ -41,6 +43,10 @@ package cloud.piranha.http.api;
  *  <li>Set/get the port of the server.</li>
  *  <li>Set/get the SSL flag.</li>
  *  <li>Set/get the HttpServerProcessor.</li>
+ *  <li>Set/get the connection backlog, the executor and the number of worker
+ *  threads (for implementations that support them).</li>
+ *  <li>Get the connection and request counters (for implementations that
+ *  support them).</li>
  * </ol>
  *
  * @author Manfred Riem (mriem@manorrock.com)
@@ -98,4 +104,96 @@ public interface HttpServer {
      * @param httpServerProcessor the http server processor
      */
     void setHttpServerProcessor(HttpServerProcessor httpServerProcessor);
+
+    /**
+     * {@return the connection backlog, or 0 for the system default}
+     */
+    default int getBacklog() {
+        return 0;
+    }
+
+    /**
+     * Set the connection backlog.
+     *
+     * <p>
+     * Implementations that do not support it ignore it.
+     * </p>
+     *
+     * @param backlog the connection backlog, or 0 for the system default.
+     */
+    default void setBacklog(int backlog) {
+    }
+
+    /**
+     * {@return the executor used to process requests, or null if the
+     * implementation chooses}
+     */
+    default Executor getExecutor() {
+        return null;
+    }
+
+    /**
+     * Set the executor used to process requests.
+     *
+     * <p>
+     * Implementations that do not support it ignore it.
+     * </p>
+     *
+     * @param executor the executor, or null to let the implementation choose.
+     */
+    default void setExecutor(Executor executor) {
+    }
+
+    /**
+     * {@return the number of worker threads, or 0 if the implementation
+     * chooses}
+     */
+    default int getWorkerThreads() {
+        return 0;
+    }
+
+    /**
+     * Set the number of worker threads.
+     *
+     * <p>
+     * Implementations that do not support it ignore it.
+     * </p>
+     *
+     * @param workerThreads the number of worker threads, or 0 to let the
+     * implementation choose.
+     */
+    default void setWorkerThreads(int workerThreads) {
+    }
+
+    /**
+     * {@return the number of connections accepted since the server was
+     * created, or 0 if not supported}
+     */
+    default long getAcceptedConnections() {
+        return 0;
+    }
+
+    /**
+     * {@return the number of connections that are currently open, or 0 if
+     * not supported}
+     */
+    default int getActiveConnections() {
+        return 0;
+    }
+
+    /**
+     * {@return the number of requests processed since the server was
+     * created, or 0 if not supported}
+     */
+    default long getCompletedRequests() {
+        return 0;
+    }
+
+    /**
+     * {@return the number of requests (or connections) rejected instead of
+     * processed since the server was created, or 0 if not supported}
+     */
+    default long getRejectedRequests() {
+        return 0;
+    }
 }
@@ -157,4 +157,22 @@ public interface HttpServerRequest {
      * {@return if we are secure}
      */
     boolean isSecure();
+
+    /**
+     * Set the listener that is notified when request body data may have
+     * become available.
+     *
+     * <p>
+     * A connector that knows when request body data arrives calls the
+     * listener whenever it does, once the whole body has arrived and when the
+     * connection is lost. The listener must not block. The default
+     * implementation does not notify anything.
+     * </p>
+     *
+     * @param listener the listener.
+     * @return true if the listener will be notified, false otherwise.
+     */
+    default boolean setReadReadyListener(Runnable listener) {
+        return false;
+    }
 }
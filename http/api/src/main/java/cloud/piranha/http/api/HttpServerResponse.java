@@ -74,6 +74,19 @@ public interface HttpServerResponse {
      */
     OutputStream getOutputStream();
 
+    /**
+     * Check if the connection can take more data without blocking.
+     *
+     * <p>
+     * The default implementation always returns true.
+     * </p>
+     *
+     * @return true if it can, false otherwise.
+     */
+    default boolean isWritable() {
+        return true;
+    }
+
     /**
      * Set the specified header.
      *
@@ -88,6 +101,21 @@ public interface HttpServerResponse {
      * @param status the status.
      */
     void setStatus(int status);
+
+    /**
+     * Set the listener that is notified when the connection can take more
+     * data again.
+     *
+     * <p>
+     * A connector that reports {@link #isWritable()} as false calls the
+     * listener once the connection becomes writable again. The listener must
+     * not block. The default implementation does not notify anything.
+     * </p>
+     *
+     * @param listener the listener.
+     */
+    default void setWritePossibleListener(Runnable listener) {
+    }
     
     /**
      * Write the headers.
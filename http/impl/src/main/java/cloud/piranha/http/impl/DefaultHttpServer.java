@@ -29,23 +29,39 @@ package cloud.piranha.http.impl;
 
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
+import cloud.piranha.http.api.HttpServerProcessorEndState;
+import cloud.piranha.http.api.HttpServerRequest;
+import cloud.piranha.http.api.HttpServerResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.System.Logger;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.ASYNCED;
 import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.WARNING;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSocket;
 
 /**
  * The default implementation of a HTTP Server.
@@ -56,7 +72,22 @@ import javax.net.ssl.SSLServerSocketFactory;
  *  <code>start()</code>. You can determine which port was assigned by calling
  *  <code>getServerPort()</code>.
  * </p>
- * 
+ *
+ * <p>
+ *  By default every connection is handled by its own processing thread and
+ *  closed after a single request. When non-blocking mode is enabled the server
+ *  uses a selector to accept connections and to park idle HTTP/1.1 keep-alive
+ *  connections, and only hands connections that have a request available to a
+ *  bounded pool of processing threads.
+ * </p>
+ *
+ * <p>
+ *  Stopping the server drains it. It stops accepting connections, closes the
+ *  idle keep-alive connections right away and gives the requests that are
+ *  being processed (including asynced ones) until the drain timeout to
+ *  complete, after which their connections are closed.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultHttpServer implements HttpServer {
@@ -66,16 +97,81 @@ public class DefaultHttpServer implements HttpServer {
      */
     private static final Logger LOGGER = System.getLogger(DefaultHttpServer.class.getName());
 
+    /**
+     * Stores the response sent when a connection is rejected.
+     */
+    private static final byte[] SERVICE_UNAVAILABLE = ("HTTP/1.1 503 Service Unavailable\r\n"
+            + "Connection: close\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Stores the number of accepted connections.
+     */
+    protected final AtomicLong acceptedConnections = new AtomicLong();
+
+    /**
+     * Stores the number of requests being processed (an asynced request counts
+     * until its response is closed).
+     */
+    protected final AtomicInteger activeRequests = new AtomicInteger();
+
+    /**
+     * Stores the number of completed requests.
+     */
+    protected final AtomicLong completedRequests = new AtomicLong();
+
+    /**
+     * Stores the connections that have been accepted (closed ones are pruned
+     * lazily).
+     */
+    protected final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Stores the lock of the drained condition.
+     */
+    protected final ReentrantLock drainLock = new ReentrantLock();
+
+    /**
+     * Stores the condition signalled when the last active request ends.
+     */
+    protected final Condition drained = drainLock.newCondition();
+
+    /**
+     * Stores the drain timeout (in milliseconds).
+     */
+    protected int drainTimeout = 30000;
+
     /**
      * Stores the executor service.
      */
     protected ExecutorService executorService;
 
+    /**
+     * Stores the keep-alive timeout (in milliseconds).
+     */
+    protected int keepAliveTimeout = 20000;
+
+    /**
+     * Stores the linger thread (when in blocking mode).
+     */
+    protected DefaultHttpServerLingerThread lingerThread;
+
+    /**
+     * Stores the non-blocking flag.
+     */
+    protected boolean nonBlocking;
+
     /**
      * Stores the processor.
      */
     protected HttpServerProcessor processor;
 
+    /**
+     * Stores the number of rejected requests (a request is rejected, with a
+     * 503 response, when its connection cannot be handed to a processing
+     * thread).
+     */
+    protected final AtomicLong rejectedRequests = new AtomicLong();
+
     /**
      * Stores the port we are listening on.
      */
@@ -86,6 +182,11 @@ public class DefaultHttpServer implements HttpServer {
      */
     protected Thread serverAcceptorThread;
 
+    /**
+     * Stores the selector thread (when in non-blocking mode).
+     */
+    protected DefaultHttpServerSelectorThread selectorThread;
+
     /**
      * Stores the server socket.
      */
@@ -94,7 +195,7 @@ public class DefaultHttpServer implements HttpServer {
     /**
      * Stores the server stop request.
      */
-    protected boolean serverStopRequest;
+    protected volatile boolean serverStopRequest;
 
     /**
      * Stores the SO_TIMEOUT.
@@ -111,6 +212,11 @@ public class DefaultHttpServer implements HttpServer {
      */
     protected ThreadFactory threadFactory;
 
+    /**
+     * Stores the number of processing threads (when in non-blocking mode).
+     */
+    protected int workerThreads = 200;
+
     /**
      * Constructor
      */
@@ -160,11 +266,41 @@ public class DefaultHttpServer implements HttpServer {
         this.soTimeout = soTimeout;
     }
 
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        connections.removeIf(Socket::isClosed);
+        return connections.size();
+    }
+
+    @Override
+    public long getCompletedRequests() {
+        return completedRequests.get();
+    }
+
+    /**
+     * {@return the drain timeout (in milliseconds)}
+     */
+    public int getDrainTimeout() {
+        return drainTimeout;
+    }
+
     @Override
     public HttpServerProcessor getHttpServerProcessor() {
         return processor;
     }
 
+    /**
+     * {@return the keep-alive timeout (in milliseconds)}
+     */
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
     @Override
     public int getServerPort() {
         return serverPort;
@@ -182,6 +318,31 @@ public class DefaultHttpServer implements HttpServer {
         return ssl;
     }
 
+    /**
+     * {@return the number of processing threads used in non-blocking mode}
+     *
+     * <p>
+     * This is the value configured through the worker threads setting of the
+     * HttpFeature.
+     * </p>
+     */
+    @Override
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    @Override
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+    /**
+     * {@return the non-blocking flag}
+     */
+    public boolean isNonBlocking() {
+        return nonBlocking;
+    }
+
     @Override
     public boolean isRunning() {
         boolean result = false;
@@ -191,11 +352,48 @@ public class DefaultHttpServer implements HttpServer {
         return result;
     }
 
+    /**
+     * Set the drain timeout.
+     *
+     * <p>
+     * This is how long stopping the server waits for the requests that are
+     * being processed to complete before their connections are closed.
+     * </p>
+     *
+     * @param drainTimeout the drain timeout (in milliseconds).
+     */
+    public void setDrainTimeout(int drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
     @Override
     public void setHttpServerProcessor(HttpServerProcessor httpServerProcessor) {
         processor = httpServerProcessor;
     }
 
+    /**
+     * Set the keep-alive timeout.
+     *
+     * @param keepAliveTimeout the keep-alive timeout (in milliseconds).
+     */
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Set the non-blocking flag.
+     *
+     * <p>
+     *  Note non-blocking mode is not available for SSL, in which case the
+     *  server falls back to its default mode.
+     * </p>
+     *
+     * @param nonBlocking the non-blocking flag.
+     */
+    public void setNonBlocking(boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
     @Override
     public void setServerPort(int serverPort) {
         this.serverPort = serverPort;
@@ -206,13 +404,33 @@ public class DefaultHttpServer implements HttpServer {
         this.ssl = ssl;
     }
 
+    /**
+     * Set the number of processing threads used in non-blocking mode.
+     *
+     * <p>
+     * This implements the worker threads setting of the HttpFeature.
+     * </p>
+     *
+     * @param workerThreads the number of processing threads.
+     */
+    @Override
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
     @Override
     public void start() {
         LOGGER.log(DEBUG, () -> "Starting HTTP server on port " + serverPort);
         try {
             determineServerPort();
-            executorService = Executors.newCachedThreadPool(threadFactory);
             serverStopRequest = false;
+            if (nonBlocking && !ssl) {
+                startNonBlocking();
+                return;
+            }
+            executorService = Executors.newCachedThreadPool(threadFactory);
+            lingerThread = new DefaultHttpServerLingerThread();
+            new Thread(lingerThread, "DefaultHttpServer-LingerThread").start();
             if (ssl) {
                 SSLContext context = SSLContext.getDefault();
                 SSLEngine engine = context.createSSLEngine();
@@ -241,10 +459,30 @@ public class DefaultHttpServer implements HttpServer {
         }
     }
 
+    /**
+     * Start the server in non-blocking mode.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void startNonBlocking() throws IOException {
+        executorService = Executors.newFixedThreadPool(workerThreads, threadFactory);
+        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        serverSocket = serverSocketChannel.socket();
+        serverSocket.setReuseAddress(true);
+        serverSocketChannel.bind(new InetSocketAddress(serverPort));
+        selectorThread = new DefaultHttpServerSelectorThread(this, serverSocketChannel);
+        serverAcceptorThread = new Thread(selectorThread, "DefaultHttpServer-SelectorThread");
+        serverAcceptorThread.start();
+        LOGGER.log(DEBUG, () -> "Started non-blocking HTTP server on port " + serverPort);
+    }
+
     @Override
     public void stop() {
         LOGGER.log(DEBUG, () -> "Stopping HTTP server on port " + serverPort);
         serverStopRequest = true;
+        if (selectorThread != null) {
+            selectorThread.stop();
+        }
         if (serverSocket != null) {
             try {
                 serverSocket.close();
@@ -253,15 +491,167 @@ public class DefaultHttpServer implements HttpServer {
             }
         }
         if (executorService != null) {
-            executorService.shutdown();
+            drain();
+        }
+        LOGGER.log(DEBUG, () -> "Stopped HTTP server on port " + serverPort);
+    }
+
+    /**
+     * Drain the server.
+     *
+     * <p>
+     * This waits until the drain timeout for the processing threads to finish
+     * and the active requests to end (asynced requests keep their connection
+     * open until their response is closed), and then closes any connection
+     * that is left.
+     * </p>
+     */
+    private void drain() {
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(drainTimeout, TimeUnit.MILLISECONDS);
+            if (serverAcceptorThread != null) {
+                serverAcceptorThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            }
+            drainLock.lock();
             try {
-                executorService.awaitTermination(120, TimeUnit.SECONDS);
-            } catch (InterruptedException exception) {
-                LOGGER.log(WARNING, "Termination of the executor service was interrupted", exception);
-                Thread.currentThread().interrupt();
+                long remaining = deadline - System.currentTimeMillis();
+                while (activeRequests.get() > 0 && remaining > 0) {
+                    drained.await(remaining, TimeUnit.MILLISECONDS);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } finally {
+                drainLock.unlock();
+            }
+        } catch (InterruptedException exception) {
+            LOGGER.log(WARNING, "Draining of the HTTP server was interrupted", exception);
+            Thread.currentThread().interrupt();
+        }
+        if (lingerThread != null) {
+            lingerThread.stop();
+            lingerThread = null;
+        }
+        int remaining = getActiveConnections();
+        if (remaining > 0) {
+            LOGGER.log(WARNING, () -> "Closing " + remaining
+                    + " connection(s) that did not drain within " + drainTimeout + " ms");
+            for (Socket socket : connections) {
+                try {
+                    socket.close();
+                } catch (IOException ioe) {
+                    // nothing to do here as the connection is going away anyway.
+                }
+            }
+            connections.clear();
+        }
+        executorService.shutdownNow();
+    }
+
+    /**
+     * End an active request.
+     *
+     * <p>
+     * When the server is stopping and this was the last active request the
+     * drain is signalled.
+     * </p>
+     */
+    private void endRequest() {
+        if (activeRequests.decrementAndGet() == 0 && serverStopRequest) {
+            drainLock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Close the connection gracefully.
+     *
+     * <p>
+     * The socket is handed to the linger thread (if any) so the processing
+     * thread is not held while the connection lingers.
+     * </p>
+     *
+     * @param socket the socket.
+     */
+    void linger(Socket socket) {
+        DefaultHttpServerLingerThread thread = lingerThread;
+        if (thread != null) {
+            thread.linger(socket);
+        } else {
+            try {
+                socket.close();
+            } catch (IOException ioe) {
+                // nothing to do here as the client probably just hung up.
             }
         }
-        LOGGER.log(DEBUG, () -> "Stopped HTTP server on port " + serverPort);
+    }
+
+    /**
+     * Process a request.
+     *
+     * <p>
+     * The request is active until the processor returns, or when it was
+     * asynced until its response is closed.
+     * </p>
+     *
+     * @param request the request.
+     * @param response the response.
+     * @return the end state.
+     */
+    HttpServerProcessorEndState processRequest(HttpServerRequest request, HttpServerResponse response) {
+        activeRequests.incrementAndGet();
+        AtomicBoolean ended = new AtomicBoolean();
+        Runnable end = () -> {
+            if (ended.compareAndSet(false, true)) {
+                endRequest();
+            }
+        };
+        HttpServerProcessorEndState state = null;
+        try {
+            state = processor.process(request, new TrackedResponse(response, end));
+            return state;
+        } finally {
+            completedRequests.incrementAndGet();
+            if (state != ASYNCED) {
+                end.run();
+            }
+        }
+    }
+
+    /**
+     * Register an accepted connection.
+     *
+     * @param socket the socket.
+     */
+    void register(Socket socket) {
+        if ((acceptedConnections.incrementAndGet() & 1023) == 0) {
+            connections.removeIf(Socket::isClosed);
+        }
+        connections.add(socket);
+    }
+
+    /**
+     * Reject a connection because it cannot be processed.
+     *
+     * <p>
+     * A plain connection gets a 503 response before it is closed.
+     * </p>
+     *
+     * @param socket the socket.
+     */
+    void reject(Socket socket) {
+        rejectedRequests.incrementAndGet();
+        try (socket) {
+            if (!(socket instanceof SSLSocket)) {
+                socket.getOutputStream().write(SERVICE_UNAVAILABLE);
+            }
+        } catch (IOException ioe) {
+            // nothing to do here as the client probably just hung up.
+        }
     }
 
     private void determineServerPort() {
@@ -278,4 +668,75 @@ public class DefaultHttpServer implements HttpServer {
             }
         }
     }
+
+    /**
+     * A response that ends the request it belongs to once it is closed.
+     */
+    private static class TrackedResponse implements HttpServerResponse {
+
+        /**
+         * Stores the callback that ends the request.
+         */
+        private final Runnable end;
+
+        /**
+         * Stores the wrapped response.
+         */
+        private final HttpServerResponse wrapped;
+
+        /**
+         * Constructor.
+         *
+         * @param wrapped the wrapped response.
+         * @param end the callback that ends the request.
+         */
+        TrackedResponse(HttpServerResponse wrapped, Runnable end) {
+            this.wrapped = wrapped;
+            this.end = end;
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            wrapped.addHeader(name, value);
+        }
+
+        @Override
+        public void closeResponse() throws IOException {
+            try {
+                wrapped.closeResponse();
+            } finally {
+                end.run();
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return wrapped.getHeader(name);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return wrapped.getOutputStream();
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            wrapped.setHeader(name, value);
+        }
+
+        @Override
+        public void setStatus(int status) {
+            wrapped.setStatus(status);
+        }
+
+        @Override
+        public void writeHeaders() throws IOException {
+            wrapped.writeHeaders();
+        }
+
+        @Override
+        public void writeStatusLine() throws IOException {
+            wrapped.writeStatusLine();
+        }
+    }
 }
@@ -31,6 +31,7 @@ import static java.lang.System.Logger.Level.WARNING;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.RejectedExecutionException;
 import java.lang.System.Logger;
 
 /**
@@ -71,10 +72,14 @@ class DefaultHttpServerAcceptorThread implements Runnable {
     @Override
     public void run() {
         while (!server.serverStopRequest) {
+            Socket socket = null;
             try {
-                Socket socket = server.serverSocket.accept();
-                socket.setSoTimeout(60000);
+                socket = server.serverSocket.accept();
+                socket.setSoTimeout(server.keepAliveTimeout);
+                server.register(socket);
                 server.executorService.execute(new DefaultHttpServerProcessingThread(server, socket));
+            } catch (RejectedExecutionException ree) {
+                server.reject(socket);
             } catch (IOException exception) {
                 // not interesting to do anything with this here as the client probably just hung up.
             } catch (Throwable throwable) {
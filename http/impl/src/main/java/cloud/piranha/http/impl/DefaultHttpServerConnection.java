@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import cloud.piranha.http.api.HttpServerProcessor;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A keep-alive connection used by the non-blocking mode of the default
+ * implementation of HTTP server.
+ *
+ * <p>
+ * While the connection is idle it is parked with the selector thread and does
+ * not hold on to a processing thread. Once a request arrives it is handed to a
+ * processing thread and when that request completes it is parked again.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerConnection {
+
+    /**
+     * Stores the channel.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Stores the time (in milliseconds) of the last activity.
+     */
+    private volatile long lastActivity;
+
+    /**
+     * Stores the connection handler.
+     */
+    private final DefaultHttpServerConnectionHandler handler;
+
+    /**
+     * Constructor.
+     *
+     * @param channel the socket channel.
+     * @param processor the HTTP server processor.
+     */
+    DefaultHttpServerConnection(SocketChannel channel, HttpServerProcessor processor) {
+        this.channel = channel;
+        this.handler = new DefaultHttpServerConnectionHandler(channel.socket(), processor);
+        this.lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Close the connection.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            // nothing to do here as the client probably just hung up.
+        }
+    }
+
+    /**
+     * {@return the socket channel}
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * {@return the time (in milliseconds) of the last activity}
+     */
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * {@return the connection handler}
+     */
+    DefaultHttpServerConnectionHandler getHandler() {
+        return handler;
+    }
+
+    /**
+     * {@return the socket}
+     */
+    Socket getSocket() {
+        return channel.socket();
+    }
+
+    /**
+     * Mark the connection as active.
+     */
+    void touch() {
+        lastActivity = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
+
+import cloud.piranha.http.api.HttpServerProcessor;
+import cloud.piranha.http.api.HttpServerProcessorEndState;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * The handler for a persistent (keep-alive) HTTP/1.1 connection.
+ *
+ * <p>
+ * The handler owns the request parser of the connection, so bytes that were
+ * read ahead belong to the next request. Requests that were pipelined by the
+ * client, and thus are already received, are processed one after another and
+ * their responses are written in the same order.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+public class DefaultHttpServerConnectionHandler {
+
+    /**
+     * Stores the detached flag.
+     */
+    private boolean detached;
+
+    /**
+     * Stores the request parser.
+     */
+    private DefaultHttpServerRequestParser parser;
+
+    /**
+     * Stores the HTTP server processor.
+     */
+    private final HttpServerProcessor processor;
+
+    /**
+     * Stores the socket.
+     */
+    private final Socket socket;
+
+    /**
+     * Constructor.
+     *
+     * @param socket the socket.
+     * @param processor the HTTP server processor.
+     */
+    public DefaultHttpServerConnectionHandler(Socket socket, HttpServerProcessor processor) {
+        this.processor = processor;
+        this.socket = socket;
+    }
+
+    /**
+     * Check if the connection was detached.
+     *
+     * <p>
+     * A connection is detached when a request was asynced or upgraded. From
+     * then on the connection is owned by that request and should not be
+     * closed nor used for further requests.
+     * </p>
+     *
+     * @return true if it was, false otherwise.
+     */
+    public boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * Process the next request and any pipelined requests following it.
+     *
+     * @return true if the connection can be kept alive for another request,
+     * false if it should be closed (or was detached).
+     * @throws IOException when an I/O error occurs.
+     */
+    public boolean process() throws IOException {
+        if (parser == null) {
+            parser = new DefaultHttpServerRequestParser(socket.getInputStream());
+        }
+        boolean keepAlive;
+        do {
+            DefaultHttpServerRequest request = new DefaultHttpServerRequest(socket, parser);
+            if (request.getMethod() == null) {
+                return false;
+            }
+            DefaultHttpServerResponse response = new DefaultHttpServerResponse(
+                    socket, request.isKeepAlive(), "HEAD".equals(request.getMethod()));
+            HttpServerProcessorEndState state = processor.process(request, response);
+            if (state != COMPLETED) {
+                detached = true;
+                return false;
+            }
+            response.finishResponse();
+            keepAlive = response.isKeepAlive() && request.drainInputStream();
+        } while (keepAlive && parser.hasBufferedBytes());
+        return keepAlive;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The request body input stream used by the default implementation of HTTP
+ * Server Request.
+ *
+ * <p>
+ * This input stream makes sure a request never reads past its own body, so
+ * the connection can be reused for the next request. Closing it does not
+ * close the underlying socket as that is owned by the HTTP server.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerInputStream extends InputStream {
+
+    /**
+     * Stores the maximum number of unread body bytes skipped to keep the
+     * connection alive.
+     */
+    private static final long MAX_DRAIN = 2 * 1024 * 1024;
+
+    /**
+     * Stores the wrapped input stream.
+     */
+    private final InputStream inputStream;
+
+    /**
+     * Stores the remaining number of bytes (or -1 if unbounded).
+     */
+    private long remaining;
+
+    /**
+     * Constructor.
+     *
+     * @param inputStream the wrapped input stream.
+     * @param length the length of the body (or -1 if unbounded).
+     */
+    DefaultHttpServerInputStream(InputStream inputStream, long length) {
+        this.inputStream = inputStream;
+        this.remaining = length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (remaining < 0) {
+            return inputStream.available();
+        }
+        return (int) Math.min(inputStream.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the socket is owned by the HTTP server.
+    }
+
+    /**
+     * Skip over the unread part of the body.
+     *
+     * <p>
+     * A body with more than {@value #MAX_DRAIN} bytes left is not skipped, as
+     * the connection is cheaper to close than to read through it.
+     * </p>
+     *
+     * @return true if the body has been fully consumed, false otherwise.
+     * @throws IOException when an I/O error occurs.
+     */
+    boolean drain() throws IOException {
+        if (remaining < 0 || remaining > MAX_DRAIN) {
+            return false;
+        }
+        byte[] skipBuffer = new byte[remaining > 8192 ? 8192 : (int) remaining];
+        while (remaining > 0) {
+            if (read(skipBuffer, 0, skipBuffer.length) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        int read = inputStream.read();
+        if (read != -1 && remaining > 0) {
+            remaining--;
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (remaining == 0) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        int toRead = remaining < 0 ? length : (int) Math.min(length, remaining);
+        int read = inputStream.read(bytes, offset, toRead);
+        if (read > 0 && remaining > 0) {
+            remaining -= read;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * The linger thread used by the blocking mode of the default implementation
+ * of HTTP server.
+ *
+ * <p>
+ * Closing a socket that still has unread request bytes makes the TCP stack
+ * send a reset, which may make the client lose the response. So the output of
+ * such a socket is shut down first, which signals the end of the response to
+ * the client, and the socket is handed to this thread. It periodically
+ * discards the input that has arrived and closes the socket once a sweep finds
+ * no new input, or the linger timeout or limit is reached. This way no
+ * processing thread is held while a connection lingers.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerLingerThread implements Runnable {
+
+    /**
+     * Stores the maximum number of bytes discarded while lingering.
+     */
+    private static final int LINGER_LIMIT = 65536;
+
+    /**
+     * Stores the linger timeout (in milliseconds).
+     */
+    private static final int LINGER_TIMEOUT = 2000;
+
+    /**
+     * Stores the sweep interval (in milliseconds).
+     */
+    private static final int SWEEP_INTERVAL = 50;
+
+    /**
+     * Stores the buffer used to discard input.
+     */
+    private final byte[] buffer = new byte[8192];
+
+    /**
+     * Stores the lingering sockets with their deadline and the number of
+     * bytes discarded so far.
+     */
+    private final Map<Socket, long[]> lingering = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the stopped flag.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Close a socket, ignoring any error.
+     *
+     * @param socket the socket.
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ioe) {
+            // nothing to do here as the client already went away.
+        }
+    }
+
+    /**
+     * Close the connection gracefully.
+     *
+     * <p>
+     * A socket without unread input is closed right away, any other socket
+     * lingers until the next sweeps.
+     * </p>
+     *
+     * @param socket the socket.
+     */
+    void linger(Socket socket) {
+        try {
+            if (stopped || socket.isClosed() || socket instanceof SSLSocket) {
+                closeQuietly(socket);
+                return;
+            }
+            socket.shutdownOutput();
+            if (socket.getInputStream().available() == 0) {
+                closeQuietly(socket);
+                return;
+            }
+            lingering.put(socket, new long[]{System.currentTimeMillis() + LINGER_TIMEOUT, 0});
+            if (stopped && lingering.remove(socket) != null) {
+                closeQuietly(socket);
+            }
+        } catch (IOException ioe) {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Stop the linger thread.
+     *
+     * <p>
+     * The sockets that are still lingering are closed.
+     * </p>
+     */
+    void stop() {
+        stopped = true;
+        Iterator<Socket> sockets = lingering.keySet().iterator();
+        while (sockets.hasNext()) {
+            Socket socket = sockets.next();
+            sockets.remove();
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Discard the input that has arrived on the lingering sockets and close
+     * the ones that are done.
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Socket, long[]>> entries = lingering.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Socket, long[]> entry = entries.next();
+            Socket socket = entry.getKey();
+            long[] state = entry.getValue();
+            boolean done;
+            try {
+                InputStream inputStream = socket.getInputStream();
+                int available = inputStream.available();
+                done = available == 0;
+                while (available > 0 && state[1] < LINGER_LIMIT) {
+                    int read = inputStream.read(buffer, 0, Math.min(available, buffer.length));
+                    if (read == -1) {
+                        break;
+                    }
+                    state[1] += read;
+                    available -= read;
+                }
+                done = done || state[1] >= LINGER_LIMIT || now >= state[0];
+            } catch (IOException ioe) {
+                done = true;
+            }
+            if (done) {
+                entries.remove();
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * @see Runnable#run()
+     */
+    @Override
+    public void run() {
+        while (!stopped) {
+            sweep();
+            try {
+                Thread.sleep(SWEEP_INTERVAL);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        stop();
+    }
+}
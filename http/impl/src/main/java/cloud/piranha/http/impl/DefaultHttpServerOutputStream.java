@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * The response body output stream used by the default implementation of HTTP
+ * Server Response.
+ *
+ * <p>
+ * By default all bytes are passed through as is. Once the headers have been
+ * written the response can switch the stream to chunked mode, in which case
+ * the body is buffered and written out as chunks, or to discard mode (for a
+ * response to a HEAD request), in which case the body is dropped.
+ * </p>
+ *
+ * <p>
+ * The encoded status line and headers are held back until the first bytes of
+ * the body (or a flush) so they reach the socket in a single write together
+ * with the start of the body. Chunks are framed in place so every chunk is
+ * also a single write.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerOutputStream extends OutputStream {
+
+    /**
+     * Stores the room reserved in front of a chunk for its size line.
+     */
+    private static final int CHUNK_HEADER_SIZE = 10;
+
+    /**
+     * Stores the maximum chunk size.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Stores the room reserved after a chunk for its CRLF and the last chunk.
+     */
+    private static final int CHUNK_TRAILER_SIZE = 7;
+
+    /**
+     * Stores the CRLF bytes.
+     */
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * Stores the maximum number of bytes gathered into a single write.
+     */
+    private static final int GATHER_LIMIT = 16384;
+
+    /**
+     * Stores the hexadecimal digits.
+     */
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(ISO_8859_1);
+
+    /**
+     * Stores the last chunk bytes.
+     */
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(ISO_8859_1);
+
+    /**
+     * Stores the chunk buffer.
+     */
+    private byte[] buffer;
+
+    /**
+     * Stores the chunked flag.
+     */
+    private boolean chunked;
+
+    /**
+     * Stores the number of bytes in the chunk buffer.
+     */
+    private int count;
+
+    /**
+     * Stores the discard flag.
+     */
+    private boolean discard;
+
+    /**
+     * Stores the finished flag.
+     */
+    private boolean finished;
+
+    /**
+     * Stores the pending status line and headers.
+     */
+    private byte[] head;
+
+    /**
+     * Stores the number of pending status line and header bytes.
+     */
+    private int headLength;
+
+    /**
+     * Stores the wrapped output stream.
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * Constructor.
+     *
+     * @param outputStream the socket output stream.
+     */
+    DefaultHttpServerOutputStream(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        outputStream.close();
+    }
+
+    /**
+     * Finish the response body.
+     *
+     * <p>
+     * In chunked mode this writes out the remaining buffered bytes followed
+     * by the last chunk.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    void finish() throws IOException {
+        if (chunked && !finished) {
+            if (count > 0) {
+                int start = frameChunk();
+                int end = CHUNK_HEADER_SIZE + count + CRLF.length;
+                System.arraycopy(LAST_CHUNK, 0, buffer, end, LAST_CHUNK.length);
+                count = 0;
+                writeOut(buffer, start, end + LAST_CHUNK.length - start);
+            } else {
+                writeOut(LAST_CHUNK, 0, LAST_CHUNK.length);
+            }
+        } else {
+            writeHead();
+        }
+        finished = true;
+        outputStream.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (chunked) {
+            writeChunk();
+        }
+        writeHead();
+        outputStream.flush();
+    }
+
+    /**
+     * Frame the buffered bytes as a chunk.
+     *
+     * <p>
+     * This puts the chunk size line in front of the buffered bytes and the
+     * CRLF after them.
+     * </p>
+     *
+     * @return the index of the start of the chunk in the buffer.
+     */
+    private int frameChunk() {
+        int start = CHUNK_HEADER_SIZE - CRLF.length;
+        buffer[start] = '\r';
+        buffer[start + 1] = '\n';
+        int size = count;
+        do {
+            buffer[--start] = HEX_DIGITS[size & 0xf];
+            size >>>= 4;
+        } while (size != 0);
+        int end = CHUNK_HEADER_SIZE + count;
+        buffer[end] = '\r';
+        buffer[end + 1] = '\n';
+        return start;
+    }
+
+    /**
+     * Set the chunked flag.
+     *
+     * @param chunked the chunked flag.
+     */
+    void setChunked(boolean chunked) {
+        if (chunked && buffer == null) {
+            buffer = new byte[CHUNK_HEADER_SIZE + CHUNK_SIZE + CHUNK_TRAILER_SIZE];
+        }
+        this.chunked = chunked;
+    }
+
+    /**
+     * Set the discard flag.
+     *
+     * @param discard the discard flag.
+     */
+    void setDiscard(boolean discard) {
+        this.discard = discard;
+    }
+
+    /**
+     * Set the encoded status line and headers.
+     *
+     * <p>
+     * They are written out together with the first bytes of the body, or when
+     * the stream is flushed or finished, whichever comes first.
+     * </p>
+     *
+     * @param head the buffer holding the status line and headers.
+     * @param length the number of bytes in the buffer.
+     */
+    void setHead(byte[] head, int length) {
+        this.head = head;
+        this.headLength = length;
+    }
+
+    /**
+     * Verify the body is still accepting bytes.
+     *
+     * @throws IOException when the body has been finished.
+     */
+    private void verifyNotFinished() throws IOException {
+        if (finished && (chunked || discard)) {
+            throw new IOException("The response body has already been finished");
+        }
+    }
+
+    @Override
+    public void write(int integer) throws IOException {
+        verifyNotFinished();
+        if (discard) {
+            writeHead();
+            return;
+        }
+        if (!chunked) {
+            if (headLength > 0) {
+                writeOut(new byte[] {(byte) integer}, 0, 1);
+            } else {
+                outputStream.write(integer);
+            }
+            return;
+        }
+        if (count == CHUNK_SIZE) {
+            writeChunk();
+        }
+        buffer[CHUNK_HEADER_SIZE + count++] = (byte) integer;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        verifyNotFinished();
+        if (discard) {
+            writeHead();
+            return;
+        }
+        if (!chunked) {
+            writeOut(bytes, offset, length);
+            return;
+        }
+        if (length >= CHUNK_SIZE) {
+            writeChunk();
+            byte[] sizeLine = (Integer.toHexString(length) + "\r\n").getBytes(ISO_8859_1);
+            writeOut(sizeLine, 0, sizeLine.length);
+            outputStream.write(bytes, offset, length);
+            outputStream.write(CRLF);
+            return;
+        }
+        if (count + length > CHUNK_SIZE) {
+            writeChunk();
+        }
+        System.arraycopy(bytes, offset, buffer, CHUNK_HEADER_SIZE + count, length);
+        count += length;
+    }
+
+    /**
+     * Write out the buffered bytes as a chunk.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeChunk() throws IOException {
+        if (count > 0) {
+            int start = frameChunk();
+            int end = CHUNK_HEADER_SIZE + count + CRLF.length;
+            count = 0;
+            writeOut(buffer, start, end - start);
+        }
+    }
+
+    /**
+     * Write out the pending status line and headers (if any).
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeHead() throws IOException {
+        if (headLength > 0) {
+            outputStream.write(head, 0, headLength);
+            headLength = 0;
+        }
+    }
+
+    /**
+     * Write out the given bytes preceded by the pending status line and
+     * headers (if any).
+     *
+     * <p>
+     * When both fit within the gather limit they are written out in a single
+     * write.
+     * </p>
+     *
+     * @param bytes the bytes.
+     * @param offset the offset.
+     * @param length the length.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void writeOut(byte[] bytes, int offset, int length) throws IOException {
+        if (headLength == 0) {
+            outputStream.write(bytes, offset, length);
+            return;
+        }
+        int total = headLength + length;
+        if (total > GATHER_LIMIT) {
+            writeHead();
+            outputStream.write(bytes, offset, length);
+            return;
+        }
+        if (total > head.length) {
+            head = Arrays.copyOf(head, total);
+        }
+        System.arraycopy(bytes, offset, head, headLength, length);
+        headLength = 0;
+        outputStream.write(head, 0, total);
+    }
+}
@@ -53,6 +53,11 @@ class DefaultHttpServerProcessingThread implements Runnable {
     private static final Logger LOGGER = System.getLogger(
             DefaultHttpServerProcessingThread.class.getName());
 
+    /**
+     * Stores the keep-alive connection (if any).
+     */
+    private final DefaultHttpServerConnection connection;
+
     /**
      * Stores the server.
      */
@@ -70,46 +75,76 @@ class DefaultHttpServerProcessingThread implements Runnable {
      * @param socket the socket we are dealing with.
      */
     public DefaultHttpServerProcessingThread(DefaultHttpServer server, Socket socket) {
+        this.connection = null;
         this.server = server;
         this.socket = socket;
     }
 
+    /**
+     * Constructor.
+     *
+     * @param server the server we are working for.
+     * @param connection the keep-alive connection we are dealing with.
+     */
+    DefaultHttpServerProcessingThread(DefaultHttpServer server, DefaultHttpServerConnection connection) {
+        this.connection = connection;
+        this.server = server;
+        this.socket = connection.getSocket();
+    }
+
     /**
      * @see Runnable#run()
      */
     @Override
     public void run() {
+        if (connection != null) {
+            processConnection();
+            return;
+        }
         HttpServerProcessorEndState state = COMPLETED;
         DefaultHttpServerResponse response = null;
         try {
             DefaultHttpServerRequest request = new DefaultHttpServerRequest(socket);
-            response = new DefaultHttpServerResponse(socket);
-            state = server.processor.process(request, response);
+            if (request.getMethod() != null) {
+                response = new DefaultHttpServerResponse(socket);
+                state = server.processRequest(request, response);
+            }
         } finally {
             if (state == COMPLETED) {
                 try {
-                    socket.shutdownInput();
-
-                    // Give the client a chance to start reading the stream.
-                    // If we disconnect right away the client may get an
-                    // Unexpected Exception: java.net.SocketException: Connection reset
-                    //
-                    // If we don't disconnect the client may hang.
-                    try {
-                        Thread.sleep(5);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-
                     if (response != null) {
-                        response.closeResponse();
-                    } else {
-                        socket.close();
+                        response.finishResponse();
                     }
                 } catch (IOException exception) {
                     LOGGER.log(WARNING, "An I/O error occurred during processing of the request", exception);
+                } finally {
+                    server.linger(socket);
                 }
             }
         }
     }
+
+    /**
+     * Process the requests on a keep-alive connection.
+     *
+     * <p>
+     * When the requests and the responses allow it the connection is parked
+     * again with the selector thread instead of being closed.
+     * </p>
+     */
+    private void processConnection() {
+        DefaultHttpServerConnectionHandler handler = connection.getHandler();
+        boolean keepAlive = false;
+        try {
+            keepAlive = handler.process() && !server.serverStopRequest;
+        } catch (IOException ioe) {
+            keepAlive = false;
+        } finally {
+            if (keepAlive) {
+                server.selectorThread.park(connection);
+            } else if (!handler.isDetached()) {
+                connection.close();
+            }
+        }
+    }
 }
@@ -31,10 +31,14 @@ import cloud.piranha.http.api.HttpServerRequest;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import static java.lang.System.Logger.Level.WARNING;
 import java.lang.System.Logger;
@@ -49,6 +53,11 @@ import javax.net.ssl.SSLSocket;
 /**
  * The default implementation of HttpServerRequest.
  *
+ * <p>
+ * Header values added by the parser are kept as a range of the bytes of the
+ * parser buffer and only decoded into a string when they are asked for.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultHttpServerRequest implements HttpServerRequest {
@@ -62,13 +71,18 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
     /**
      * Stores the headers.
      */
-    private final Map<String, List<String>> headers;
+    private final Map<String, List<HeaderValue>> headers;
 
     /**
      * Stores the input stream.
      */
     private InputStream inputStream;
 
+    /**
+     * Stores the parser.
+     */
+    private DefaultHttpServerRequestParser parser;
+
     /**
      * Stores the method.
      */
@@ -115,8 +129,19 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
      * @param socket the socket.
      */
     public DefaultHttpServerRequest(Socket socket) {
-        this.headers = new HashMap<>(1);
+        this(socket, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param socket the socket.
+     * @param parser the parser of the connection (or null to create one).
+     */
+    DefaultHttpServerRequest(Socket socket, DefaultHttpServerRequestParser parser) {
+        this.headers = new HashMap<>();
         this.socket = socket;
+        this.parser = parser;
         protocol = "HTTP/1.1";
         parse();
     }
@@ -128,22 +153,78 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
      * @param value the value.
      */
     public void addHeader(String name, String value) {
-        if (!headers.containsKey(name.toUpperCase())) {
-            ArrayList<String> values = new ArrayList<>();
-            values.add(value);
-            headers.put(name.toUpperCase(), values);
-        } else {
-            headers.get(name.toUpperCase()).add(value);
+        addCanonicalHeader(name.toUpperCase(Locale.ROOT), value);
+    }
+
+    /**
+     * Add the header using its already upper-cased name.
+     *
+     * @param name the upper-cased name.
+     * @param value the value.
+     */
+    void addCanonicalHeader(String name, String value) {
+        addHeaderValue(name, new HeaderValue(value));
+    }
+
+    /**
+     * Add a header value.
+     *
+     * @param name the upper-cased name.
+     * @param value the value.
+     */
+    private void addHeaderValue(String name, HeaderValue value) {
+        List<HeaderValue> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<>(1);
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * Add the header using its already upper-cased name and the raw bytes of
+     * its value.
+     *
+     * <p>
+     * The value is decoded when it is first asked for, the bytes must not
+     * change until then or until {@link #detachHeaders(byte[], int)} is
+     * called.
+     * </p>
+     *
+     * @param name the upper-cased name.
+     * @param bytes the bytes.
+     * @param offset the offset of the value.
+     * @param length the length of the value.
+     */
+    void addRawHeader(String name, byte[] bytes, int offset, int length) {
+        addHeaderValue(name, new HeaderValue(bytes, offset, length));
+    }
+
+    /**
+     * Detach the header values that are not decoded yet from the given
+     * buffer, as it is about to be reused.
+     *
+     * @param buffer the buffer.
+     * @param length the number of bytes of the buffer in use.
+     */
+    void detachHeaders(byte[] buffer, int length) {
+        byte[] copy = null;
+        for (List<HeaderValue> values : headers.values()) {
+            for (HeaderValue value : values) {
+                if (value.bytes == buffer) {
+                    if (copy == null) {
+                        copy = Arrays.copyOf(buffer, length);
+                    }
+                    value.bytes = copy;
+                }
+            }
         }
     }
 
     @Override
     public String getHeader(String name) {
-        String header = null;
-        if (headers.get(name.toUpperCase()) != null) {
-            header = headers.get(name.toUpperCase()).isEmpty() ? null : headers.get(name.toUpperCase()).get(0);
-        }
-        return header;
+        List<HeaderValue> values = headers.get(name.toUpperCase(Locale.ROOT));
+        return values == null || values.isEmpty() ? null : values.get(0).get();
     }
 
     @Override
@@ -153,9 +234,38 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
 
     @Override
     public Iterator<String> getHeaders(String name) {
-        return headers.get(name.toUpperCase()) == null
-                ? new ArrayList<String>().iterator()
-                : headers.get(name.toUpperCase()).iterator();
+        List<HeaderValue> values = headers.get(name.toUpperCase(Locale.ROOT));
+        return values == null ? Collections.emptyIterator() : values.stream().map(HeaderValue::get).iterator();
+    }
+
+    /**
+     * Skip over the unread part of the request body.
+     *
+     * @return true if the request body has been fully consumed, false otherwise.
+     * @throws IOException when an I/O error occurs.
+     */
+    boolean drainInputStream() throws IOException {
+        InputStream bodyStream = getInputStream();
+        return bodyStream instanceof DefaultHttpServerInputStream defaultInputStream
+                && defaultInputStream.drain();
+    }
+
+    /**
+     * {@return the length of the request body, or -1 if it cannot be determined up front}
+     */
+    private long getBodyLength() {
+        if (getHeader("Transfer-Encoding") != null || getHeader("Upgrade") != null) {
+            return -1;
+        }
+        String contentLength = getHeader("Content-Length");
+        if (contentLength == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
     }
 
     @Override
@@ -163,7 +273,8 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
         InputStream result = inputStream;
         if (inputStream == null) {
             try {
-                inputStream = socket.getInputStream();
+                InputStream socketInputStream = parser != null ? parser : socket.getInputStream();
+                inputStream = new DefaultHttpServerInputStream(socketInputStream, getBodyLength());
                 result = inputStream;
             } catch (IOException exception) {
                 LOGGER.log(WARNING, "An I/O error occurred while acquiring input stream", exception);
@@ -237,6 +348,15 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
         return sslPrincipal;
     }
 
+    /**
+     * Check if the client wants the connection to be kept alive.
+     *
+     * @return true if it does, false otherwise.
+     */
+    boolean isKeepAlive() {
+        return "HTTP/1.1".equals(protocol) && !"close".equalsIgnoreCase(getHeader("Connection"));
+    }
+
     @Override
     public boolean isSecure() {
         return socket instanceof SSLSocket;
@@ -249,31 +369,12 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
     private void parse() {
         if (socket != null) {
             try {
-                InputStream parseStream = socket.getInputStream();
-                StringBuilder line = new StringBuilder();
-                int read = parseStream.read();
-                boolean requestLineParsed = false;
-                if (read != -1) {
-                    while (read != -1 && parseStream.available() > 0) {
-                        if ('\r' != (char) read) {
-                            line.append((char) read);
-                        }
-                        read = parseStream.read();
-                        if ('\n' == (char) read) {
-                            if (line.length() > 0) {
-                                if (!requestLineParsed) {
-                                    parseRequestLine(line.toString());
-                                    requestLineParsed = true;
-                                } else {
-                                    parseHeader(line.toString());
-                                }
-                                line = new StringBuilder();
-                                read = parseStream.read();
-                            } else {
-                                read = -1;
-                            }
-                        }
-                    }
+                if (parser == null) {
+                    parser = new DefaultHttpServerRequestParser(socket.getInputStream());
+                }
+                if (!parser.parse(this)) {
+                    method = null;
+                    return;
                 }
                 if (isSecure()) {
                     SSLSocket sslSocket = (SSLSocket) socket;
@@ -301,46 +402,28 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
                     }
                 }
             } catch (Exception exception) {
+                method = null;
                 LOGGER.log(WARNING, "An exception occurred while parsing the request", exception);
             }
         }
     }
 
     /**
-     * Parse the header.
-     *
-     * @param line the header line.
-     */
-    private void parseHeader(String line) {
-        String name = line.substring(0, line.indexOf(':')).trim();
-        String value = line.substring(line.indexOf(':') + 1).trim();
-        addHeader(name, value);
-    }
-
-    /**
-     * Parse the request line.
+     * Set the method.
      *
-     * @param line the request line.
+     * @param method the method.
      */
-    private void parseRequestLine(String line) {
-        int index = line.indexOf(' ');
-        setMethod(line.substring(0, index));
-        line = line.substring(index + 1);
-        index = line.indexOf(' ');
-        requestTarget = line.substring(0, index);
-        String protocolRequestLine = line.substring(index + 1);
-        if (!protocol.isEmpty()) {
-            protocol = protocolRequestLine;
-        }
+    public void setMethod(String method) {
+        this.method = method;
     }
 
     /**
-     * Set the method.
+     * Set the protocol.
      *
-     * @param method the method.
+     * @param protocol the protocol.
      */
-    public void setMethod(String method) {
-        this.method = method;
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
     }
 
     /**
@@ -387,4 +470,63 @@ public class DefaultHttpServerRequest implements HttpServerRequest {
     public void setSslPrincipal(Principal sslPrincipal) {
         this.sslPrincipal = sslPrincipal;
     }
+
+    /**
+     * A header value that is decoded when it is first asked for.
+     */
+    private static final class HeaderValue {
+
+        /**
+         * Stores the bytes (or null once decoded).
+         */
+        private byte[] bytes;
+
+        /**
+         * Stores the length.
+         */
+        private int length;
+
+        /**
+         * Stores the offset.
+         */
+        private int offset;
+
+        /**
+         * Stores the value (or null until decoded).
+         */
+        private String value;
+
+        /**
+         * Constructor.
+         *
+         * @param value the value.
+         */
+        HeaderValue(String value) {
+            this.value = value;
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param bytes the bytes.
+         * @param offset the offset.
+         * @param length the length.
+         */
+        HeaderValue(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * {@return the value}
+         */
+        String get() {
+            if (value == null) {
+                value = new String(bytes, offset, length, ISO_8859_1);
+                bytes = null;
+            }
+            return value;
+        }
+    }
 }
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * The request parser used by the default implementation of HTTP server.
+ *
+ * <p>
+ * The parser reads from the socket in bulk into a buffer that is reused for
+ * every request on the same connection, and scans the request line and the
+ * headers in place. Lines may be split across any number of reads. Well-known
+ * methods, protocols and header names are matched against their byte form so
+ * no strings are created for them.
+ * </p>
+ *
+ * <p>
+ * Header values are not decoded here, the request keeps them as byte ranges
+ * of the buffer and decodes them when they are asked for. Before the buffer
+ * is reused for the next request the values of the previous request that were
+ * never asked for are detached from it.
+ * </p>
+ *
+ * <p>
+ * Any bytes read past the end of the headers are the start of the request
+ * body (or of the next request) and are returned first when reading from the
+ * parser as an input stream.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerRequestParser extends InputStream {
+
+    /**
+     * Stores the initial buffer size.
+     */
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    /**
+     * Stores the maximum size of the request line and headers.
+     */
+    private static final int MAX_HEADER_SIZE = 65536;
+
+    /**
+     * Stores the well-known header names (upper-cased).
+     */
+    private static final String[] KNOWN_HEADER_NAMES = {
+        "ACCEPT", "ACCEPT-CHARSET", "ACCEPT-ENCODING", "ACCEPT-LANGUAGE",
+        "AUTHORIZATION", "CACHE-CONTROL", "CONNECTION", "CONTENT-ENCODING",
+        "CONTENT-LENGTH", "CONTENT-TYPE", "COOKIE", "EXPECT", "FORWARDED",
+        "HOST", "IF-MATCH", "IF-MODIFIED-SINCE", "IF-NONE-MATCH", "ORIGIN",
+        "PRAGMA", "RANGE", "REFERER", "TE", "TRANSFER-ENCODING", "UPGRADE",
+        "USER-AGENT", "X-FORWARDED-FOR", "X-FORWARDED-HOST",
+        "X-FORWARDED-PROTO", "X-REQUESTED-WITH",
+    };
+
+    /**
+     * Stores the well-known methods.
+     */
+    private static final String[] KNOWN_METHODS = {
+        "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "TRACE", "CONNECT",
+    };
+
+    /**
+     * Stores the well-known protocols.
+     */
+    private static final String[] KNOWN_PROTOCOLS = {
+        "HTTP/1.1", "HTTP/1.0",
+    };
+
+    /**
+     * Stores the buffer.
+     */
+    private byte[] buffer;
+
+    /**
+     * Stores the wrapped input stream.
+     */
+    private final InputStream inputStream;
+
+    /**
+     * Stores the last parsed request (or null).
+     */
+    private DefaultHttpServerRequest lastRequest;
+
+    /**
+     * Stores the end of the valid bytes in the buffer.
+     */
+    private int limit;
+
+    /**
+     * Stores the position of the next unread byte in the buffer.
+     */
+    private int position;
+
+    /**
+     * Constructor.
+     *
+     * @param inputStream the socket input stream.
+     */
+    DefaultHttpServerRequestParser(InputStream inputStream) {
+        this.buffer = new byte[INITIAL_BUFFER_SIZE];
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - position + inputStream.available();
+    }
+
+    /**
+     * Find the given bytes in a table of well-known values.
+     *
+     * @param table the table of well-known values.
+     * @param start the start index (inclusive).
+     * @param end the end index (exclusive).
+     * @param ignoreCase true if the case should be ignored.
+     * @return the well-known value, or null if not found.
+     */
+    private String findKnown(String[] table, int start, int end, boolean ignoreCase) {
+        int length = end - start;
+        for (String known : table) {
+            if (known.length() != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length) {
+                int value = buffer[start + i];
+                if (ignoreCase && value >= 'a' && value <= 'z') {
+                    value -= 32;
+                }
+                if (value != known.charAt(i)) {
+                    break;
+                }
+                i++;
+            }
+            if (i == length) {
+                return known;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fill the buffer with more bytes from the socket.
+     *
+     * @return true if bytes were read, false on end of stream.
+     * @throws IOException when an I/O error occurs.
+     */
+    private boolean fill() throws IOException {
+        if (limit == buffer.length) {
+            if (buffer.length >= MAX_HEADER_SIZE) {
+                throw new IOException("Request line and headers exceed " + MAX_HEADER_SIZE + " bytes");
+            }
+            byte[] newBuffer = new byte[Math.min(buffer.length * 2, MAX_HEADER_SIZE)];
+            System.arraycopy(buffer, 0, newBuffer, 0, limit);
+            buffer = newBuffer;
+        }
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * Check if there are bytes in the buffer that have not been read yet.
+     *
+     * @return true if there are, false otherwise.
+     */
+    boolean hasBufferedBytes() {
+        return position < limit;
+    }
+
+    /**
+     * Parse the request line and the headers.
+     *
+     * @param request the request to populate.
+     * @return true if the request line and headers were parsed, false if the
+     * stream ended before a request arrived.
+     * @throws IOException when an I/O error occurs, or when the stream ended
+     * before the end of the headers.
+     */
+    boolean parse(DefaultHttpServerRequest request) throws IOException {
+        if (lastRequest != null) {
+            lastRequest.detachHeaders(buffer, limit);
+            lastRequest = null;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        boolean requestLineParsed = false;
+        int lineStart = 0;
+        int scan = 0;
+        while (true) {
+            while (scan < limit && buffer[scan] != '\n') {
+                scan++;
+            }
+            if (scan == limit) {
+                if (!fill()) {
+                    if (requestLineParsed || lineStart < limit) {
+                        throw new IOException("Connection closed before the end of the request headers");
+                    }
+                    position = limit;
+                    return false;
+                }
+                continue;
+            }
+            int lineEnd = scan;
+            if (lineEnd > lineStart && buffer[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            scan++;
+            if (lineEnd == lineStart) {
+                if (requestLineParsed) {
+                    position = scan;
+                    lastRequest = request;
+                    return true;
+                }
+            } else if (!requestLineParsed) {
+                parseRequestLine(request, lineStart, lineEnd);
+                requestLineParsed = true;
+            } else {
+                parseHeader(request, lineStart, lineEnd);
+            }
+            lineStart = scan;
+        }
+    }
+
+    /**
+     * Parse a header line.
+     *
+     * @param request the request.
+     * @param start the start index (inclusive).
+     * @param end the end index (exclusive).
+     */
+    private void parseHeader(DefaultHttpServerRequest request, int start, int end) {
+        int colon = start;
+        while (colon < end && buffer[colon] != ':') {
+            colon++;
+        }
+        if (colon == end) {
+            return;
+        }
+        int nameEnd = trimEnd(start, colon);
+        String name = findKnown(KNOWN_HEADER_NAMES, start, nameEnd, true);
+        if (name == null) {
+            name = new String(buffer, start, nameEnd - start, ISO_8859_1).toUpperCase(Locale.ROOT);
+        }
+        int valueStart = trimStart(colon + 1, end);
+        int valueEnd = trimEnd(valueStart, end);
+        request.addRawHeader(name, buffer, valueStart, valueEnd - valueStart);
+    }
+
+    /**
+     * Parse the request line.
+     *
+     * @param request the request.
+     * @param start the start index (inclusive).
+     * @param end the end index (exclusive).
+     */
+    private void parseRequestLine(DefaultHttpServerRequest request, int start, int end) {
+        int methodEnd = start;
+        while (methodEnd < end && buffer[methodEnd] != ' ') {
+            methodEnd++;
+        }
+        String method = findKnown(KNOWN_METHODS, start, methodEnd, false);
+        request.setMethod(method != null ? method : new String(buffer, start, methodEnd - start, ISO_8859_1));
+
+        int targetStart = trimStart(methodEnd, end);
+        int targetEnd = targetStart;
+        while (targetEnd < end && buffer[targetEnd] != ' ') {
+            targetEnd++;
+        }
+        request.setRequestTarget(new String(buffer, targetStart, targetEnd - targetStart, ISO_8859_1));
+
+        int protocolStart = trimStart(targetEnd, end);
+        if (protocolStart < end) {
+            String protocol = findKnown(KNOWN_PROTOCOLS, protocolStart, end, false);
+            request.setProtocol(protocol != null ? protocol : new String(buffer, protocolStart, end - protocolStart, ISO_8859_1));
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position < limit) {
+            return buffer[position++] & 0xff;
+        }
+        return inputStream.read();
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position < limit) {
+            int count = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+        return inputStream.read(bytes, offset, length);
+    }
+
+    /**
+     * Skip over the trailing whitespace.
+     *
+     * @param start the start index (inclusive).
+     * @param end the end index (exclusive).
+     * @return the new end index.
+     */
+    private int trimEnd(int start, int end) {
+        while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Skip over the leading whitespace.
+     *
+     * @param start the start index (inclusive).
+     * @param end the end index (exclusive).
+     * @return the new start index.
+     */
+    private int trimStart(int start, int end) {
+        while (start < end && (buffer[start] == ' ' || buffer[start] == '\t')) {
+            start++;
+        }
+        return start;
+    }
+}
@@ -28,6 +28,8 @@
 package cloud.piranha.http.impl;
 
 import static java.lang.System.Logger.Level.WARNING;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -38,12 +40,20 @@ import java.lang.System.Logger;
 
 import cloud.piranha.http.api.HttpServerResponse;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The default implementation of HTTP Server Response.
  *
+ * <p>
+ * The status line and headers are encoded into a single byte buffer, using
+ * cached byte forms for the status lines and header names, and handed to the
+ * output stream which writes them out together with the start of the body.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultHttpServerResponse implements HttpServerResponse {
@@ -54,15 +64,77 @@ public class DefaultHttpServerResponse implements HttpServerResponse {
     private static final Logger LOGGER = System.getLogger(
             DefaultHttpServerResponse.class.getName());
 
+    /**
+     * Stores the chunked Transfer-Encoding header value.
+     */
+    private static final List<String> CHUNKED = List.of("chunked");
+
+    /**
+     * Stores the close Connection header value.
+     */
+    private static final List<String> CLOSE = List.of("close");
+
+    /**
+     * Stores the CRLF bytes.
+     */
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * Stores the cached header names (including the ': ' separator).
+     */
+    private static final Map<String, byte[]> HEADER_NAMES = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the maximum number of cached header names.
+     */
+    private static final int MAX_CACHED_HEADER_NAMES = 256;
+
+    /**
+     * Stores the cached status lines.
+     */
+    private static final byte[][] STATUS_LINES = new byte[600][];
+
+    static {
+        for (int status = 100; status < STATUS_LINES.length; status++) {
+            STATUS_LINES[status] = ("HTTP/1.1 " + status + " " + getReasonPhrase(status) + "\r\n")
+                    .getBytes(ISO_8859_1);
+        }
+    }
+
+    /**
+     * Stores the encoded status line and headers.
+     */
+    private byte[] head;
+
+    /**
+     * Stores the number of bytes in the head buffer.
+     */
+    private int headLength;
+
+    /**
+     * Stores the head request flag.
+     */
+    private final boolean headRequest;
+
     /**
      * Stores the headers.
      */
     private final Map<String, List<String>> headers;
 
+    /**
+     * Stores the headers written flag.
+     */
+    private boolean headersWritten;
+
+    /**
+     * Stores the keep-alive flag.
+     */
+    private final boolean keepAlive;
+
     /**
      * Stores the output stream.
      */
-    private OutputStream outputStream;
+    private DefaultHttpServerOutputStream outputStream;
 
     /**
      * Stores the socket.
@@ -80,10 +152,63 @@ public class DefaultHttpServerResponse implements HttpServerResponse {
      * @param socket the socket.
      */
     public DefaultHttpServerResponse(Socket socket) {
+        this(socket, false, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * <p>
+     * When the connection may be kept alive and the response does not set a
+     * Content-Length the body is written using chunked transfer encoding.
+     * </p>
+     *
+     * @param socket the socket.
+     * @param keepAlive true if the connection may be kept alive.
+     * @param headRequest true if the response is for a HEAD request.
+     */
+    DefaultHttpServerResponse(Socket socket, boolean keepAlive, boolean headRequest) {
         this.headers = new HashMap<>(1);
+        this.headRequest = headRequest;
+        this.keepAlive = keepAlive;
         this.socket = socket;
     }
 
+    /**
+     * Append bytes to the head buffer.
+     *
+     * @param bytes the bytes.
+     */
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, head, headLength, bytes.length);
+        headLength += bytes.length;
+    }
+
+    /**
+     * Append a string to the head buffer.
+     *
+     * <p>
+     * US-ASCII strings are copied char by char, any other string is encoded
+     * as UTF-8.
+     * </p>
+     *
+     * @param string the string.
+     */
+    private void append(String string) {
+        int length = string.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                append(string.getBytes(UTF_8));
+                return;
+            }
+            head[headLength + i] = (byte) c;
+        }
+        headLength += length;
+    }
+
     @Override
     public void addHeader(String name, String value) {
         List<String> values = headers.get(name);
@@ -96,22 +221,83 @@ public class DefaultHttpServerResponse implements HttpServerResponse {
         values.add(value != null ? value : "");
     }
 
+    /**
+     * Make sure the head buffer can hold the given number of extra bytes.
+     *
+     * @param extra the number of extra bytes.
+     */
+    private void ensureCapacity(int extra) {
+        if (head == null) {
+            head = new byte[Math.max(512, extra)];
+        } else if (headLength + extra > head.length) {
+            head = Arrays.copyOf(head, Math.max(head.length * 2, headLength + extra));
+        }
+    }
+
     @Override
     public void closeResponse() throws IOException {
         HttpServerResponse.super.closeResponse();
         socket.close();
     }
 
+    /**
+     * Finish the response.
+     *
+     * <p>
+     * This writes out the end of the body (if chunked) without closing the
+     * connection.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    void finishResponse() throws IOException {
+        if (outputStream != null) {
+            outputStream.finish();
+        }
+    }
+
     @Override
     public String getHeader(String name) {
         return headers.get(name) == null ? null : headers.get(name).get(0);
     }
 
+    /**
+     * Find the values of a header ignoring the case of its name.
+     *
+     * @param name the header name.
+     * @return the values, or null if not found.
+     */
+    private List<String> findHeaderValues(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the cached byte form of a header name.
+     *
+     * @param name the header name.
+     * @return the header name followed by ': '.
+     */
+    private static byte[] getHeaderNameBytes(String name) {
+        byte[] bytes = HEADER_NAMES.get(name);
+        if (bytes == null) {
+            bytes = (name + ": ").getBytes(UTF_8);
+            if (HEADER_NAMES.size() < MAX_CACHED_HEADER_NAMES) {
+                HEADER_NAMES.put(name, bytes);
+            }
+        }
+        return bytes;
+    }
+
     @Override
     public OutputStream getOutputStream() {
         if (outputStream == null) {
             try {
-                outputStream = socket.getOutputStream();
+                outputStream = new DefaultHttpServerOutputStream(socket.getOutputStream());
             } catch (IOException exception) {
                 LOGGER.log(WARNING, () -> "An I/O error occurred while acquiring the output stream", exception);
             }
@@ -120,6 +306,90 @@ public class DefaultHttpServerResponse implements HttpServerResponse {
         return outputStream;
     }
 
+    /**
+     * {@return the status}
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the reason phrase of a status code.
+     *
+     * @param status the status code.
+     * @return the reason phrase, or an empty string if not well-known.
+     */
+    private static String getReasonPhrase(int status) {
+        return switch (status) {
+            case 100 -> "Continue";
+            case 101 -> "Switching Protocols";
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 303 -> "See Other";
+            case 304 -> "Not Modified";
+            case 307 -> "Temporary Redirect";
+            case 308 -> "Permanent Redirect";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 406 -> "Not Acceptable";
+            case 408 -> "Request Timeout";
+            case 409 -> "Conflict";
+            case 410 -> "Gone";
+            case 411 -> "Length Required";
+            case 412 -> "Precondition Failed";
+            case 413 -> "Content Too Large";
+            case 415 -> "Unsupported Media Type";
+            case 416 -> "Range Not Satisfiable";
+            case 417 -> "Expectation Failed";
+            case 429 -> "Too Many Requests";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            default -> "";
+        };
+    }
+
+    /**
+     * Check if the connection can be kept alive after this response.
+     *
+     * <p>
+     * This is only the case when the client can tell where the response ends
+     * without the connection being closed.
+     * </p>
+     *
+     * @return true if it can, false otherwise.
+     */
+    boolean isKeepAlive() {
+        if (!keepAlive || !headersWritten) {
+            return false;
+        }
+        List<String> connection = findHeaderValues("Connection");
+        if (connection != null && connection.contains("close")) {
+            return false;
+        }
+        return isBodyless() || findHeaderValues("Content-Length") != null
+                || findHeaderValues("Transfer-Encoding") == CHUNKED;
+    }
+
+    /**
+     * Check if the response cannot have a body.
+     *
+     * @return true if it cannot, false otherwise.
+     */
+    private boolean isBodyless() {
+        return headRequest || status < 200 || status == 204 || status == 304;
+    }
+
     @Override
     public void setHeader(String name, String value) {
         ArrayList<String> values = new ArrayList<>();
@@ -135,38 +405,62 @@ public class DefaultHttpServerResponse implements HttpServerResponse {
     /**
      * Write the header.
      *
+     * <p>
+     * Multiple values are folded into a single line, except for Set-Cookie
+     * which cannot be folded and gets a line per value.
+     * </p>
+     *
      * @param name the header name.
-     * @throws IOException when an I/O error occurs.
      */
-    private void writeHeader(String name) throws IOException {
-        OutputStream output = getOutputStream();
-        output.write(name.getBytes());
-        output.write(": ".getBytes());
+    private void writeHeader(String name) {
+        byte[] nameBytes = getHeaderNameBytes(name);
+        boolean fold = !"Set-Cookie".equalsIgnoreCase(name);
+        append(nameBytes);
         Iterator<String> values = headers.get(name).iterator();
         while (values.hasNext()) {
-            output.write(values.next().getBytes());
+            append(values.next());
             if (values.hasNext()) {
-                output.write(", ".getBytes());
+                if (fold) {
+                    append(", ");
+                } else {
+                    append(CRLF);
+                    append(nameBytes);
+                }
             }
         }
-        output.write("\n".getBytes());
+        append(CRLF);
     }
 
     @Override
     public void writeHeaders() throws IOException {
+        boolean chunked = keepAlive && !isBodyless()
+                && findHeaderValues("Content-Length") == null
+                && findHeaderValues("Transfer-Encoding") == null;
+        if (chunked) {
+            headers.put("Transfer-Encoding", CHUNKED);
+        }
+        if (!keepAlive && findHeaderValues("Connection") == null) {
+            headers.put("Connection", CLOSE);
+        }
         for (String name : headers.keySet()) {
             writeHeader(name);
         }
-        OutputStream output = getOutputStream();
-        output.write("\n".getBytes());
+        append(CRLF);
+        getOutputStream();
+        outputStream.setHead(head, headLength);
+        headLength = 0;
+        headersWritten = true;
+        outputStream.setChunked(chunked);
+        outputStream.setDiscard(headRequest);
     }
 
     @Override
     public void writeStatusLine() throws IOException {
-        OutputStream output = getOutputStream();
-        output.write("HTTP/1.1".getBytes());
-        output.write(" ".getBytes());
-        output.write(Integer.toString(status).getBytes());
-        output.write("\n".getBytes());
+        if (status >= 100 && status < STATUS_LINES.length) {
+            append(STATUS_LINES[status]);
+        } else {
+            append("HTTP/1.1 " + status + " ");
+            append(CRLF);
+        }
     }
 }
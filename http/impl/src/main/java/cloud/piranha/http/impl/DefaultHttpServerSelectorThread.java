@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import static java.lang.System.Logger.Level.WARNING;
+import static java.nio.channels.SelectionKey.OP_ACCEPT;
+import static java.nio.channels.SelectionKey.OP_READ;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The selector thread used by the non-blocking mode of the default
+ * implementation of HTTP server.
+ *
+ * <p>
+ * This thread accepts new socket connections and parks idle keep-alive
+ * connections. Once a connection has a request available it is handed off to
+ * a processing thread. Connections that stay idle longer than the keep-alive
+ * timeout are closed.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerSelectorThread implements Runnable {
+
+    /**
+     * Stores the logger.
+     */
+    private static final Logger LOGGER = System.getLogger(
+            DefaultHttpServerSelectorThread.class.getName());
+
+    /**
+     * Stores the connections waiting to be parked.
+     */
+    private final Queue<DefaultHttpServerConnection> parkedConnections;
+
+    /**
+     * Stores the selector.
+     */
+    private final Selector selector;
+
+    /**
+     * Stores the HTTP server.
+     */
+    private final DefaultHttpServer server;
+
+    /**
+     * Stores the server socket channel.
+     */
+    private final ServerSocketChannel serverSocketChannel;
+
+    /**
+     * Stores the time (in milliseconds) of the last idle check.
+     */
+    private long lastIdleCheck;
+
+    /**
+     * Constructor.
+     *
+     * @param server the server we are working for.
+     * @param serverSocketChannel the server socket channel.
+     * @throws IOException when an I/O error occurs.
+     */
+    DefaultHttpServerSelectorThread(DefaultHttpServer server, ServerSocketChannel serverSocketChannel) throws IOException {
+        this.parkedConnections = new ConcurrentLinkedQueue<>();
+        this.server = server;
+        this.serverSocketChannel = serverSocketChannel;
+        this.selector = Selector.open();
+        serverSocketChannel.configureBlocking(false);
+        serverSocketChannel.register(selector, OP_ACCEPT);
+    }
+
+    /**
+     * Accept a new connection.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverSocketChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setSoTimeout(server.soTimeout);
+        channel.socket().setTcpNoDelay(true);
+        server.register(channel.socket());
+        channel.register(selector, OP_READ, new DefaultHttpServerConnection(channel, server::processRequest));
+    }
+
+    /**
+     * Close the connections that have been idle for too long.
+     */
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < 1000) {
+            return;
+        }
+        lastIdleCheck = now;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof DefaultHttpServerConnection connection
+                    && now - connection.getLastActivity() > server.keepAliveTimeout) {
+                key.cancel();
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Hand off the connections that have a request available.
+     *
+     * <p>
+     * The selection keys of the given connections have been cancelled, but the
+     * channels are only deregistered during the next selection operation. Only
+     * then can they be switched to blocking mode for processing.
+     * </p>
+     *
+     * @param connections the connections.
+     * @throws IOException when an I/O error occurs.
+     */
+    private void dispatch(List<DefaultHttpServerConnection> connections) throws IOException {
+        if (connections.isEmpty()) {
+            return;
+        }
+        selector.selectNow();
+        for (DefaultHttpServerConnection connection : connections) {
+            try {
+                connection.getChannel().configureBlocking(true);
+                connection.touch();
+                server.executorService.execute(new DefaultHttpServerProcessingThread(server, connection));
+            } catch (IOException ioe) {
+                connection.close();
+            } catch (RejectedExecutionException ree) {
+                server.reject(connection.getSocket());
+            } catch (RuntimeException re) {
+                LOGGER.log(WARNING, "Unable to dispatch connection for processing", re);
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Park a connection so it waits for its next request.
+     *
+     * @param connection the connection.
+     */
+    void park(DefaultHttpServerConnection connection) {
+        if (!selector.isOpen()) {
+            connection.close();
+            return;
+        }
+        try {
+            connection.getChannel().configureBlocking(false);
+            connection.touch();
+            parkedConnections.add(connection);
+            selector.wakeup();
+        } catch (IOException | ClosedSelectorException exception) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Register the connections that are waiting to be parked.
+     */
+    private void registerParkedConnections() {
+        DefaultHttpServerConnection connection = parkedConnections.poll();
+        while (connection != null) {
+            try {
+                connection.getChannel().register(selector, OP_READ, connection);
+            } catch (ClosedChannelException cce) {
+                connection.close();
+            }
+            connection = parkedConnections.poll();
+        }
+    }
+
+    /**
+     * Select the keys that are ready.
+     *
+     * @return the connections that have a request available.
+     * @throws IOException when an I/O error occurs.
+     */
+    private List<DefaultHttpServerConnection> select() throws IOException {
+        List<DefaultHttpServerConnection> connections = new ArrayList<>();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+            } else if (key.isReadable()) {
+                key.cancel();
+                connections.add((DefaultHttpServerConnection) key.attachment());
+            }
+        }
+        return connections;
+    }
+
+    /**
+     * Stop the selector thread.
+     */
+    void stop() {
+        selector.wakeup();
+    }
+
+    /**
+     * @see Runnable#run()
+     */
+    @Override
+    public void run() {
+        try {
+            while (!server.serverStopRequest) {
+                try {
+                    if (selector.selectedKeys().isEmpty()) {
+                        selector.select(1000);
+                    }
+                    registerParkedConnections();
+                    dispatch(select());
+                    closeIdleConnections();
+                } catch (ClosedSelectorException cse) {
+                    break;
+                } catch (IOException ioe) {
+                    // not interesting to do anything with this here as the client probably just hung up.
+                } catch (Throwable throwable) {
+                    LOGGER.log(WARNING, "An error occurred while selecting socket connections", throwable);
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Close the selector and all the connections parked with it.
+     */
+    private void close() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof DefaultHttpServerConnection connection) {
+                    connection.close();
+                }
+            }
+            DefaultHttpServerConnection connection = parkedConnections.poll();
+            while (connection != null) {
+                connection.close();
+                connection = parkedConnections.poll();
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException exception) {
+            LOGGER.log(WARNING, "An I/O error occurred while closing the selector", exception);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import cloud.piranha.http.api.HttpServer;
+import cloud.piranha.http.api.HttpServerProcessor;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
+import cloud.piranha.http.api.HttpServerRequest;
+import cloud.piranha.http.api.HttpServerResponse;
+import cloud.piranha.http.tests.HttpServerTest;
+import cloud.piranha.http.tests.TestHttpServerProcessor;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import me.alexpanov.net.FreePortFinder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultHttpServer class in non-blocking mode.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerNonBlockingTest extends HttpServerTest {
+
+    /**
+     * Create the server.
+     *
+     * @param portNumber the port number.
+     * @return the HTTP server.
+     */
+    @Override
+    protected HttpServer createServer(int portNumber) {
+        return createServer(portNumber, new TestHttpServerProcessor());
+    }
+
+    /**
+     * Create the server.
+     *
+     * @param portNumber the port number.
+     * @param processor the HTTP server processor.
+     * @return the HTTP server.
+     */
+    @Override
+    protected HttpServer createServer(int portNumber, HttpServerProcessor processor) {
+        DefaultHttpServer server = new DefaultHttpServer(portNumber, processor, false);
+        server.setNonBlocking(true);
+        server.setKeepAliveTimeout(1000);
+        return server;
+    }
+
+    /**
+     * Test that a connection is kept alive across requests.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testKeepAlive() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        HttpServer server = createServer(port,
+                (HttpServerRequest request, HttpServerResponse response) -> {
+                    try {
+                        byte[] body = Integer.toString(request.getRemotePort()).getBytes(StandardCharsets.UTF_8);
+                        response.setStatus(200);
+                        response.setHeader("Content-Type", "text/plain");
+                        response.setHeader("Content-Length", Integer.toString(body.length));
+                        response.writeStatusLine();
+                        response.writeHeaders();
+                        OutputStream outputStream = response.getOutputStream();
+                        outputStream.write(body);
+                        outputStream.flush();
+                    } catch (IOException ioe) {
+                        // nothing to do here.
+                    }
+                    return COMPLETED;
+                });
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/")).build();
+            HttpResponse<String> response1 = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response2 = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response1.statusCode());
+            assertEquals(200, response2.statusCode());
+            assertEquals(response1.body(), response2.body());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test that pipelined requests are answered in order.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testPipelining() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        HttpServer server = createServer(port,
+                (HttpServerRequest request, HttpServerResponse response) -> {
+                    try {
+                        response.setStatus(200);
+                        response.setHeader("Content-Type", "text/plain");
+                        response.writeStatusLine();
+                        response.writeHeaders();
+                        OutputStream outputStream = response.getOutputStream();
+                        outputStream.write(("[" + request.getRequestTarget() + "]").getBytes(StandardCharsets.UTF_8));
+                        outputStream.flush();
+                    } catch (IOException ioe) {
+                        // nothing to do here.
+                    }
+                    return COMPLETED;
+                });
+        server.start();
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(("GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /second HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    + "GET /third HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+            InputStream inputStream = socket.getInputStream();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            inputStream.transferTo(bytes);
+            String responses = bytes.toString(StandardCharsets.UTF_8);
+            int first = responses.indexOf("[/first]");
+            int second = responses.indexOf("[/second]");
+            int third = responses.indexOf("[/third]");
+            assertTrue(first > 0);
+            assertTrue(second > first);
+            assertTrue(third > second);
+            assertTrue(responses.contains("Transfer-Encoding: chunked"));
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultHttpServerRequestParser class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerRequestParserTest {
+
+    /**
+     * Test parse method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParse() throws Exception {
+        DefaultHttpServerRequestParser parser = new DefaultHttpServerRequestParser(
+                new ByteArrayInputStream(("GET /index.html?a=b HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "X-Custom:  spaced value \t\r\n"
+                        + "Accept: text/html\r\n"
+                        + "accept: text/plain\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+        DefaultHttpServerRequest request = new DefaultHttpServerRequest(null);
+        assertTrue(parser.parse(request));
+        assertEquals("GET", request.getMethod());
+        assertEquals("/index.html?a=b", request.getRequestTarget());
+        assertEquals("HTTP/1.1", request.getProtocol());
+        assertEquals("localhost", request.getHeader("host"));
+        assertEquals("spaced value", request.getHeader("X-CUSTOM"));
+        assertEquals("text/html", request.getHeader("Accept"));
+        assertEquals(2, countHeaders(request, "ACCEPT"));
+        assertFalse(parser.hasBufferedBytes());
+    }
+
+    /**
+     * Test parse method with a request that arrives one byte at a time.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParseSplitAcrossReads() throws Exception {
+        byte[] bytes = ("POST /upload HTTP/1.0\nContent-Length: 5\n\nhello")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] buffer, int offset, int length) {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        DefaultHttpServerRequestParser parser = new DefaultHttpServerRequestParser(trickle);
+        DefaultHttpServerRequest request = new DefaultHttpServerRequest(null);
+        assertTrue(parser.parse(request));
+        assertEquals("POST", request.getMethod());
+        assertEquals("/upload", request.getRequestTarget());
+        assertEquals("HTTP/1.0", request.getProtocol());
+        assertEquals("5", request.getHeader("Content-Length"));
+        assertEquals("hello", new String(parser.readAllBytes(), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Test parse method on an empty stream.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParseEndOfStream() throws Exception {
+        DefaultHttpServerRequestParser parser = new DefaultHttpServerRequestParser(
+                new ByteArrayInputStream(new byte[0]));
+        assertFalse(parser.parse(new DefaultHttpServerRequest(null)));
+    }
+
+    /**
+     * Test parse method on a stream that ends before the end of the headers.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParseTruncatedHeaders() throws Exception {
+        DefaultHttpServerRequestParser parser = new DefaultHttpServerRequestParser(
+                new ByteArrayInputStream("GET / HTTP/1.1\r\nHost: localhost\r\n"
+                        .getBytes(StandardCharsets.ISO_8859_1)));
+        assertThrows(IOException.class, () -> parser.parse(new DefaultHttpServerRequest(null)));
+    }
+
+    /**
+     * Test parse method on a stream that ends within the request line.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParseTruncatedRequestLine() throws Exception {
+        DefaultHttpServerRequestParser parser = new DefaultHttpServerRequestParser(
+                new ByteArrayInputStream("GET / HT".getBytes(StandardCharsets.ISO_8859_1)));
+        assertThrows(IOException.class, () -> parser.parse(new DefaultHttpServerRequest(null)));
+    }
+
+    /**
+     * Test the header values of a request that were not asked for survive
+     * parsing the next request.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testParsePipelinedHeaders() throws Exception {
+        DefaultHttpServerRequestParser parser = new DefaultHttpServerRequestParser(
+                new ByteArrayInputStream(("GET /first HTTP/1.1\r\nX-First: first value\r\n\r\n"
+                        + "GET /second HTTP/1.1\r\nX-Second: second\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1)));
+        DefaultHttpServerRequest first = new DefaultHttpServerRequest(null);
+        assertTrue(parser.parse(first));
+        DefaultHttpServerRequest second = new DefaultHttpServerRequest(null);
+        assertTrue(parser.parse(second));
+        assertEquals("first value", first.getHeader("X-First"));
+        assertEquals("second", second.getHeader("X-Second"));
+    }
+
+    /**
+     * Count the values of a header.
+     *
+     * @param request the request.
+     * @param name the header name.
+     * @return the number of values.
+     */
+    private static int countHeaders(DefaultHttpServerRequest request, String name) {
+        int count = 0;
+        var values = request.getHeaders(name);
+        while (values.hasNext()) {
+            values.next();
+            count++;
+        }
+        return count;
+    }
+}
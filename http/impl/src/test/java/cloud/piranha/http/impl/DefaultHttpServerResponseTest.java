@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the DefaultHttpServerResponse class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultHttpServerResponseTest {
+
+    /**
+     * Stores the number of writes to the socket.
+     */
+    private int writes;
+
+    /**
+     * Create a socket that writes into the given output stream.
+     *
+     * @param output the output stream.
+     * @return the socket.
+     */
+    private Socket createSocket(ByteArrayOutputStream output) {
+        return new Socket() {
+            @Override
+            public OutputStream getOutputStream() {
+                return new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                        writes++;
+                        output.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] bytes, int offset, int length) {
+                        writes++;
+                        output.write(bytes, offset, length);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Test writing the status line, headers and body.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testWriteResponse() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DefaultHttpServerResponse response = new DefaultHttpServerResponse(createSocket(output));
+        response.setStatus(200);
+        response.setHeader("Content-Length", "5");
+        response.addHeader("Set-Cookie", "a=1");
+        response.addHeader("Set-Cookie", "b=2");
+        response.writeStatusLine();
+        response.writeHeaders();
+        response.getOutputStream().write("hello".getBytes(StandardCharsets.ISO_8859_1));
+        response.finishResponse();
+        String result = output.toString(StandardCharsets.ISO_8859_1);
+        assertEquals(1, writes);
+        assertEquals("HTTP/1.1 200 OK\r\n", result.substring(0, result.indexOf('\n') + 1));
+        assertTrue(result.contains("\r\nSet-Cookie: a=1\r\nSet-Cookie: b=2\r\n"));
+        assertTrue(result.contains("\r\nContent-Length: 5\r\n"));
+        assertTrue(result.endsWith("\r\n\r\nhello"));
+    }
+
+    /**
+     * Test writing a chunked body.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testWriteChunked() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DefaultHttpServerResponse response = new DefaultHttpServerResponse(createSocket(output), true, false);
+        response.setStatus(404);
+        response.writeStatusLine();
+        response.writeHeaders();
+        OutputStream outputStream = response.getOutputStream();
+        outputStream.write("Not found, sorry".getBytes(StandardCharsets.ISO_8859_1));
+        response.finishResponse();
+        assertEquals(1, writes);
+        assertEquals("HTTP/1.1 404 Not Found\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "10\r\nNot found, sorry\r\n0\r\n\r\n", output.toString(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -29,18 +29,30 @@ package cloud.piranha.http.impl;
 
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
+import cloud.piranha.http.api.HttpServerResponse;
 import cloud.piranha.http.tests.HttpServerTest;
 import cloud.piranha.http.tests.TestHttpServerProcessor;
 import org.junit.jupiter.api.Test;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.ASYNCED;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.Socket;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import me.alexpanov.net.FreePortFinder;
 
 /**
  * The JUnit tests for the DefaultHttpServer class.
@@ -102,4 +114,150 @@ class DefaultHttpServerTest extends HttpServerTest {
             server.stop();
         }
     }
+
+    /**
+     * Send a GET request.
+     *
+     * @param port the port.
+     * @return the status code.
+     */
+    private static int get(int port) {
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/")).build();
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ie);
+        }
+    }
+
+    /**
+     * Test the connection and request counters.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testCounters() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        DefaultHttpServer server = new DefaultHttpServer(port, new TestHttpServerProcessor(), false);
+        server.start();
+        try {
+            assertEquals(200, get(port));
+            assertEquals(200, get(port));
+            assertEquals(2, server.getAcceptedConnections());
+            assertEquals(2, server.getCompletedRequests());
+            assertEquals(0, server.getRejectedRequests());
+        } finally {
+            server.stop();
+        }
+        assertEquals(0, server.getActiveConnections());
+    }
+
+    /**
+     * Test that stopping the server closes the server socket and lets the
+     * request that is being processed complete.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testStopDrains() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DefaultHttpServer server = new DefaultHttpServer(port, (request, response) -> {
+            entered.countDown();
+            try {
+                release.await();
+                response.setStatus(200);
+                response.setHeader("Content-Length", "0");
+                response.writeStatusLine();
+                response.writeHeaders();
+            } catch (IOException | InterruptedException e) {
+                // the test will fail on the status code.
+            }
+            return COMPLETED;
+        }, false);
+        server.setDrainTimeout(10000);
+        server.start();
+        CompletableFuture<Integer> inFlight = CompletableFuture.supplyAsync(() -> get(port));
+        entered.await();
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(server::stop);
+        while (!server.serverSocket.isClosed()) {
+            Thread.sleep(10);
+        }
+        assertThrows(ConnectException.class, () -> new Socket("localhost", port).close());
+        assertFalse(stopped.isDone());
+        release.countDown();
+        assertEquals(200, inFlight.get());
+        stopped.get();
+        assertEquals(1, server.getCompletedRequests());
+        assertEquals(0, server.getActiveConnections());
+    }
+
+    /**
+     * Test that stopping the server waits for an asynced request until its
+     * response is closed.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testStopDrainsAsync() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        CompletableFuture<HttpServerResponse> asynced = new CompletableFuture<>();
+        DefaultHttpServer server = new DefaultHttpServer(port, (request, response) -> {
+            asynced.complete(response);
+            return ASYNCED;
+        }, false);
+        server.setDrainTimeout(10000);
+        server.start();
+        CompletableFuture<Integer> inFlight = CompletableFuture.supplyAsync(() -> get(port));
+        HttpServerResponse response = asynced.get();
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(server::stop);
+        Thread.sleep(200);
+        assertFalse(stopped.isDone());
+        response.setStatus(200);
+        response.setHeader("Content-Length", "0");
+        response.writeStatusLine();
+        response.writeHeaders();
+        response.closeResponse();
+        assertEquals(200, inFlight.get());
+        stopped.get(5, TimeUnit.SECONDS);
+        assertEquals(0, server.getActiveConnections());
+    }
+
+    /**
+     * Test that the response reaches the client when the request body was
+     * not read.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testUnreadBody() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        DefaultHttpServer server = new DefaultHttpServer(port, (request, response) -> {
+            try {
+                response.setStatus(200);
+                response.setHeader("Content-Length", "0");
+                response.writeStatusLine();
+                response.writeHeaders();
+            } catch (IOException ioe) {
+                // the test will fail on the status code.
+            }
+            return COMPLETED;
+        }, false);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/"))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(new byte[32768]))
+                    .build();
+            assertEquals(200, client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } finally {
+            server.stop();
+        }
+        assertEquals(0, server.getActiveConnections());
+    }
 }
@@ -27,14 +27,23 @@
  */
 package cloud.piranha.http.jdk;
 
+import static cloud.piranha.http.api.HttpServerProcessorEndState.ASYNCED;
+
 import cloud.piranha.http.api.HttpServerProcessor;
+import cloud.piranha.http.api.HttpServerProcessorEndState;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 
 /**
  * The HttpHandler used by the JDK HttpServer implementation of HttpServer.
- * 
+ *
+ * <p>
+ * The request body is streamed from the exchange as it is read. The exchange
+ * is closed once the request has been processed, unless it was asynced in
+ * which case closing the response closes it.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class JdkHttpHandler implements HttpHandler {
@@ -55,10 +64,16 @@ public class JdkHttpHandler implements HttpHandler {
     
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        try (exchange) {
-            httpServerProcessor.process(
-                    new JdkHttpRequest(exchange),
-                    new JdkHttpResponse(exchange));
+        JdkHttpResponse response = new JdkHttpResponse(exchange);
+        HttpServerProcessorEndState state;
+        try {
+            state = httpServerProcessor.process(new JdkHttpRequest(exchange), response);
+        } catch (RuntimeException re) {
+            exchange.close();
+            throw re;
+        }
+        if (state != ASYNCED) {
+            response.closeResponse();
         }
     }
 }
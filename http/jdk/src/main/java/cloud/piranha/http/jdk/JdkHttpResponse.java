@@ -29,11 +29,19 @@ package cloud.piranha.http.jdk;
 
 import cloud.piranha.http.api.HttpServerResponse;
 import com.sun.net.httpserver.HttpExchange;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
 /**
  * The JDK HttpServer variant of a HttpServerResponse.
+ *
+ * <p>
+ * The HTTP exchange fails any write to the body of a response that is sent
+ * without a body (a response to a HEAD request, a 1xx, 204 or 304 response
+ * or a response with a Content-Length of 0), so such writes are discarded
+ * instead, as the other connectors do.
+ * </p>
  * 
  * @author Manfred Riem (mriem@manorrock.com)
  */
@@ -42,12 +50,27 @@ public class JdkHttpResponse implements HttpServerResponse {
     /**
      * Stores the HTTP exchange.
      */
-    private HttpExchange exchange;
-    
+    private final HttpExchange exchange;
+
+    /**
+     * Stores the bodyless flag.
+     */
+    private volatile boolean bodyless;
+
+    /**
+     * Stores the headers written flag.
+     */
+    private boolean headersWritten;
+
+    /**
+     * Stores the output stream.
+     */
+    private OutputStream outputStream;
+
     /**
      * Stores the status.
      */
-    private int status;
+    private int status = 200;
 
     /**
      * Constructor.
@@ -63,14 +86,37 @@ public class JdkHttpResponse implements HttpServerResponse {
         exchange.getResponseHeaders().add(name, value);
     }
 
+    @Override
+    public void closeResponse() throws IOException {
+        writeHeaders();
+        exchange.close();
+    }
+
     @Override
     public String getHeader(String name) {
         return exchange.getResponseHeaders().getFirst(name);
     }
 
     @Override
-    public OutputStream getOutputStream() {
-        return exchange.getResponseBody();
+    public synchronized OutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new FilterOutputStream(exchange.getResponseBody()) {
+                @Override
+                public void write(int b) throws IOException {
+                    if (!bodyless) {
+                        out.write(b);
+                    }
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    if (!bodyless) {
+                        out.write(bytes, offset, length);
+                    }
+                }
+            };
+        }
+        return outputStream;
     }
 
     @Override
@@ -83,9 +129,45 @@ public class JdkHttpResponse implements HttpServerResponse {
         this.status = status;
     }
 
+    /**
+     * Determine the response length to pass to the HTTP exchange.
+     *
+     * <p>
+     * A response that cannot have a body, or has a Content-Length of 0, is
+     * sent without a body (-1). A response with a Content-Length is sent with
+     * that fixed length and any other response is sent chunked (0).
+     * </p>
+     *
+     * @return the response length.
+     */
+    private long getResponseLength() {
+        if (status < 200 || status == 204 || status == 304
+                || "HEAD".equals(exchange.getRequestMethod())) {
+            return -1;
+        }
+        String contentLength = exchange.getResponseHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                long length = Long.parseLong(contentLength.trim());
+                if (length >= 0) {
+                    return length == 0 ? -1 : length;
+                }
+            } catch (NumberFormatException nfe) {
+                // fall through to a chunked response.
+            }
+            exchange.getResponseHeaders().remove("Content-Length");
+        }
+        return 0;
+    }
+
     @Override
     public void writeHeaders() throws IOException {
-        exchange.sendResponseHeaders(status, 0);
+        if (!headersWritten) {
+            headersWritten = true;
+            long responseLength = getResponseLength();
+            bodyless = responseLength == -1;
+            exchange.sendResponseHeaders(status, responseLength);
+        }
     }
 
     @Override
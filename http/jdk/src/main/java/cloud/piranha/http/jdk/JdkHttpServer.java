@@ -31,14 +31,38 @@ import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The JDK implementation of HTTP Server.
  *
+ * <p>
+ * Exchanges are processed on the executor that was set. If none was set they
+ * are processed on a fixed pool of worker threads when a number of worker
+ * threads was set, and on a virtual thread per exchange otherwise.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class JdkHttpServer implements HttpServer {
 
+    /**
+     * Stores the connection backlog.
+     */
+    private int backlog;
+
+    /**
+     * Stores the executor (or null).
+     */
+    private Executor executor;
+
+    /**
+     * Stores the executor service created by this server (or null).
+     */
+    private ExecutorService executorService;
+
     /**
      * Stores the server port number.
      */
@@ -59,6 +83,11 @@ public class JdkHttpServer implements HttpServer {
      */
     private com.sun.net.httpserver.HttpServer server;
 
+    /**
+     * Stores the number of worker threads.
+     */
+    private int workerThreads;
+
     /**
      * Constructor
      */
@@ -92,20 +121,74 @@ public class JdkHttpServer implements HttpServer {
             } else {
                 server = com.sun.net.httpserver.HttpsServer.create();
             }
-            server.bind(new InetSocketAddress(serverPort), 0);
+            server.bind(new InetSocketAddress(serverPort), backlog);
             server.createContext("/", new JdkHttpHandler(httpServerProcessor));
+            server.setExecutor(createExecutor());
             server.start();
         } catch (IOException ioe) {
             server = null;
         }
     }
 
+    /**
+     * Create the executor the exchanges are processed on.
+     *
+     * @return the executor.
+     */
+    private Executor createExecutor() {
+        if (executor != null) {
+            return executor;
+        }
+        if (workerThreads > 0) {
+            executorService = Executors.newFixedThreadPool(workerThreads,
+                    Thread.ofPlatform().name("JdkHttpServer-Worker-", 0).factory());
+        } else {
+            executorService = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("JdkHttpServer-Worker-", 0).factory());
+        }
+        return executorService;
+    }
+
     @Override
     public void stop() {
         if (server != null) {
             server.stop(0);
             server = null;
         }
+        if (executorService != null) {
+            executorService.shutdown();
+            executorService = null;
+        }
+    }
+
+    @Override
+    public int getBacklog() {
+        return backlog;
+    }
+
+    @Override
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    @Override
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
     }
 
     @Override
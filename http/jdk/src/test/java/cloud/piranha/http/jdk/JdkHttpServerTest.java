@@ -27,10 +27,25 @@
  */
 package cloud.piranha.http.jdk;
 
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
 import cloud.piranha.http.tests.HttpServerTest;
 import cloud.piranha.http.tests.TestHttpServerProcessor;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import me.alexpanov.net.FreePortFinder;
+import org.junit.jupiter.api.Test;
 
 /**
  * The JUnit tests for the DefaultHttpServer class.
@@ -61,4 +76,75 @@ public class JdkHttpServerTest extends HttpServerTest {
     protected HttpServer createServer(int portNumber, HttpServerProcessor processor) {
         return new JdkHttpServer(portNumber, processor, false);
     }
+
+    /**
+     * Test that exchanges are processed on the executor that was set.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testExecutor() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        AtomicInteger executed = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        JdkHttpServer server = new JdkHttpServer(port, new TestHttpServerProcessor(), false);
+        server.setBacklog(50);
+        server.setExecutor(command -> {
+            executed.incrementAndGet();
+            executorService.execute(command);
+        });
+        server.start();
+        try {
+            HttpURLConnection connection = (HttpURLConnection)
+                    URI.create("http://localhost:" + port).toURL().openConnection();
+            assertEquals(200, connection.getResponseCode());
+            connection.disconnect();
+            assertTrue(executed.get() > 0);
+            assertEquals(50, server.getBacklog());
+        } finally {
+            server.stop();
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Test that body writes to a response without a body are discarded.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testBodylessResponses() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        JdkHttpServer server = new JdkHttpServer(port, (request, response) -> {
+            try {
+                switch (request.getRequestTarget()) {
+                    case "/204" -> response.setStatus(204);
+                    case "/empty" -> response.setHeader("Content-Length", "0");
+                    default -> response.setStatus(200);
+                }
+                response.writeStatusLine();
+                response.writeHeaders();
+                response.getOutputStream().write("body".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ioe) {
+                failure.set(ioe);
+            }
+            return COMPLETED;
+        }, false);
+        server.start();
+        try {
+            String[][] requests = {{"HEAD", "/head", "200"}, {"GET", "/204", "204"}, {"GET", "/empty", "200"}};
+            for (String[] request : requests) {
+                HttpURLConnection connection = (HttpURLConnection)
+                        URI.create("http://localhost:" + port + request[1]).toURL().openConnection();
+                connection.setRequestMethod(request[0]);
+                assertEquals(Integer.parseInt(request[2]), connection.getResponseCode());
+                assertEquals(0, connection.getInputStream().readAllBytes().length);
+                connection.disconnect();
+            }
+            assertNull(failure.get());
+        } finally {
+            server.stop();
+        }
+    }
 }
@@ -27,30 +27,71 @@
  */
 package cloud.piranha.http.netty;
 
+import static java.lang.System.Logger.Level.DEBUG;
+
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import java.lang.System.Logger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The Netty implementation of HTTP Server.
  *
+ * <p>
+ * The event loops only do the network I/O, the HTTP server processor is run
+ * on the executor, which by default starts a virtual thread per request.
+ * Connections are kept alive between requests and closed once they have been
+ * idle for longer than the keep-alive timeout. When the native epoll
+ * transport of Netty is on the class path (and native transport has not been
+ * disabled) it is used instead of the NIO transport.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class NettyHttpServer implements HttpServer {
 
+    /**
+     * Stores the logger.
+     */
+    private static final Logger LOGGER = System.getLogger(NettyHttpServer.class.getName());
+
     /**
      * Stores the boss event loop group.
      */
     private EventLoopGroup bossGroup;
 
+    /**
+     * Stores the executor (or null to use a virtual thread per request).
+     */
+    private Executor executor;
+
+    /**
+     * Stores the executor service created by this server (or null).
+     */
+    private ExecutorService executorService;
+
     /**
      * Stores the HTTP server processor.
      */
     private HttpServerProcessor httpServerProcessor;
 
+    /**
+     * Stores the keep-alive timeout (in milliseconds).
+     */
+    private int keepAliveTimeout = 20000;
+
+    /**
+     * Stores the native transport flag.
+     */
+    private boolean nativeTransport = true;
+
     /**
      * Stores the server port.
      */
@@ -107,15 +148,62 @@ public class NettyHttpServer implements HttpServer {
      */
     @Override
     public void start() {
-        bossGroup = new NioEventLoopGroup(1);
-        workerGroup = new NioEventLoopGroup();
+        Class<? extends ServerChannel> channelClass = null;
+        if (nativeTransport) {
+            channelClass = startEpoll();
+        }
+        if (channelClass == null) {
+            bossGroup = new NioEventLoopGroup(1);
+            workerGroup = new NioEventLoopGroup();
+            channelClass = NioServerSocketChannel.class;
+        }
+        Executor requestExecutor = executor;
+        if (requestExecutor == null) {
+            executorService = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("piranha-netty-", 0).factory());
+            requestExecutor = executorService;
+        }
         ServerBootstrap bootstrap = new ServerBootstrap();
         bootstrap.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .childHandler(new NettyHttpServerInitializer(httpServerProcessor, ssl))
+                .channel(channelClass)
+                .childHandler(new NettyHttpServerInitializer(
+                        httpServerProcessor, ssl, requestExecutor, keepAliveTimeout))
                 .bind(serverPort).awaitUninterruptibly();
     }
 
+    /**
+     * Start the event loop groups of the native epoll transport.
+     *
+     * <p>
+     * The epoll transport is an optional dependency, so it is looked up
+     * reflectively.
+     * </p>
+     *
+     * @return the server channel class, or null if epoll is not available.
+     */
+    @SuppressWarnings("unchecked")
+    private Class<? extends ServerChannel> startEpoll() {
+        try {
+            ClassLoader classLoader = NettyHttpServer.class.getClassLoader();
+            Class<?> epoll = Class.forName("io.netty.channel.epoll.Epoll", true, classLoader);
+            if (!(Boolean) epoll.getMethod("isAvailable").invoke(null)) {
+                return null;
+            }
+            Class<?> groupClass = Class.forName("io.netty.channel.epoll.EpollEventLoopGroup", true, classLoader);
+            bossGroup = (EventLoopGroup) groupClass.getConstructor(int.class).newInstance(1);
+            workerGroup = (EventLoopGroup) groupClass.getConstructor().newInstance();
+            return (Class<? extends ServerChannel>) Class.forName(
+                    "io.netty.channel.epoll.EpollServerSocketChannel", true, classLoader);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.log(DEBUG, "Native epoll transport is not available, using NIO", e);
+            if (bossGroup != null) {
+                bossGroup.shutdownGracefully();
+                bossGroup = null;
+            }
+            return null;
+        }
+    }
+
     /**
      * @see HttpServer#stop()
      */
@@ -125,6 +213,72 @@ public class NettyHttpServer implements HttpServer {
         bossGroup.shutdownGracefully().awaitUninterruptibly();
         bossGroup = null;
         workerGroup = null;
+        if (executorService != null) {
+            executorService.shutdown();
+            executorService = null;
+        }
+    }
+
+    /**
+     * {@return the executor, or null if a virtual thread per request is used}
+     *
+     * <p>
+     * This is the value configured through the executor setting of the
+     * HttpFeature.
+     * </p>
+     */
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * {@return the keep-alive timeout (in milliseconds)}
+     */
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * {@return the native transport flag}
+     */
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * Set the executor used to process requests.
+     *
+     * <p>
+     * This implements the executor setting of the HttpFeature.
+     * </p>
+     *
+     * @param executor the executor, or null to use a virtual thread per
+     * request.
+     */
+    @Override
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Set the keep-alive timeout.
+     *
+     * @param keepAliveTimeout the keep-alive timeout (in milliseconds), or 0
+     * to keep idle connections open.
+     */
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Set the native transport flag.
+     *
+     * @param nativeTransport true to use the native epoll transport when it
+     * is available, false to always use NIO.
+     */
+    public void setNativeTransport(boolean nativeTransport) {
+        this.nativeTransport = nativeTransport;
     }
 
     @Override
@@ -27,54 +27,146 @@
  */
 package cloud.piranha.http.netty;
 
-import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.EXPECT;
+import static io.netty.handler.codec.http.HttpHeaderValues.CLOSE;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import java.lang.System.Logger.Level;
 import java.lang.System.Logger;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import cloud.piranha.http.api.HttpServerProcessor;
-import io.netty.channel.ChannelFuture;
+import cloud.piranha.http.api.HttpServerProcessorEndState;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
-import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * The Netty Handler used by the Netty implementation of HTTP Server.
  *
+ * <p>
+ * The handler never runs the HTTP server processor on the event loop. Every
+ * request is handed to the executor as soon as its headers have arrived and
+ * its body is streamed to the processing thread while it arrives. Once the
+ * response is finished the connection is kept alive for the next request,
+ * requests that were pipelined by the client are held back until then so the
+ * responses are written in order.
+ * </p>
+ *
+ * <p>
+ * The response of the request in flight is notified when the channel becomes
+ * writable again, so a write listener does not have to poll.
+ * </p>
+ *
+ * <p>
+ * All the state of the handler is only accessed on the event loop of the
+ * channel.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
-public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+public class NettyHttpServerHandler extends SimpleChannelInboundHandler<HttpObject> {
 
     /**
      * Stores the logger.
      */
     private static final Logger LOGGER = System.getLogger(NettyHttpServerHandler.class.getName());
 
+    /**
+     * Stores the executor.
+     */
+    private final Executor executor;
+
     /**
      * Stores the HTTP server processor.
      */
     private final HttpServerProcessor httpServerProcessor;
-    
+
+    /**
+     * Stores the in-flight flag.
+     */
+    private boolean inFlight;
+
+    /**
+     * Stores the response of the request in flight (or null).
+     */
+    private NettyHttpServerResponse inFlightResponse;
+
+    /**
+     * Stores the messages held back while a request is in flight.
+     */
+    private final ArrayDeque<HttpObject> pending = new ArrayDeque<>();
+
     /**
      * Stores the secure flag.
      */
     private final boolean secure;
 
+    /**
+     * Stores the body input stream of the current request (or null).
+     */
+    private NettyHttpServerInputStream stream;
+
     /**
      * Constructor.
      *
+     * <p>
+     * Requests are processed on a virtual thread per request.
+     * </p>
+     *
      * @param httpServerProcessor the HTTP server processor.
      * @param secure the secure flag.
      */
     public NettyHttpServerHandler(HttpServerProcessor httpServerProcessor, boolean secure) {
+        this(httpServerProcessor, secure, Thread::startVirtualThread);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpServerProcessor the HTTP server processor.
+     * @param secure the secure flag.
+     * @param executor the executor used to process requests.
+     */
+    public NettyHttpServerHandler(HttpServerProcessor httpServerProcessor, boolean secure, Executor executor) {
+        super(false);
+        this.executor = executor;
         this.httpServerProcessor = httpServerProcessor;
         this.secure = secure;
     }
 
+    /**
+     * Handle the channel becoming inactive.
+     *
+     * @param context the context.
+     * @throws Exception when an error occurs.
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext context) throws Exception {
+        if (stream != null) {
+            stream.abort();
+        }
+        releasePending();
+        super.channelInactive(context);
+    }
+
     /**
      * Complete the channel read.
      *
@@ -85,6 +177,20 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
         context.flush();
     }
 
+    /**
+     * Handle the writability of the channel changing.
+     *
+     * @param context the context.
+     * @throws Exception when an error occurs.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext context) throws Exception {
+        if (context.channel().isWritable() && inFlightResponse != null) {
+            inFlightResponse.writePossible();
+        }
+        super.channelWritabilityChanged(context);
+    }
+
     /**
      * Read the channel.
      *
@@ -92,13 +198,43 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
      * @param object the object read.
      */
     @Override
-    protected void channelRead0(ChannelHandlerContext context, FullHttpRequest object) {
-        NettyHttpServerRequest nettyRequest = new NettyHttpServerRequest(context, object, secure);
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, true);
-        NettyHttpServerResponse nettyResponse = new NettyHttpServerResponse(response);
-        httpServerProcessor.process(nettyRequest, nettyResponse);
-        ChannelFuture future = context.channel().writeAndFlush(response);
-        future.addListener(ChannelFutureListener.CLOSE);
+    protected void channelRead0(ChannelHandlerContext context, HttpObject object) {
+        if (!pending.isEmpty() || inFlight && stream.isEnded()) {
+            pending.add(object);
+            context.channel().config().setAutoRead(false);
+            return;
+        }
+        try {
+            dispatch(context, object);
+        } finally {
+            ReferenceCountUtil.release(object);
+        }
+    }
+
+    /**
+     * Dispatch a message.
+     *
+     * @param context the context.
+     * @param object the message.
+     */
+    private void dispatch(ChannelHandlerContext context, HttpObject object) {
+        if (object instanceof HttpRequest request) {
+            if (request.decoderResult().isFailure()) {
+                stream = null;
+                sendError(context, BAD_REQUEST);
+                return;
+            }
+            startRequest(context, request);
+        }
+        if (object instanceof HttpContent content && stream != null) {
+            stream.offer(content.content().retain());
+            if (content instanceof LastHttpContent) {
+                stream.end();
+                if (!inFlight) {
+                    requestDone(context);
+                }
+            }
+        }
     }
 
     /**
@@ -112,4 +248,167 @@ public class NettyHttpServerHandler extends SimpleChannelInboundHandler<FullHttp
         LOGGER.log(Level.WARNING, "Exception caught in NettyHttpServerHandler", throwable);
         context.close();
     }
+
+    /**
+     * Process the request on the executor.
+     *
+     * @param request the request.
+     * @param response the response.
+     */
+    private void process(NettyHttpServerRequest request, NettyHttpServerResponse response) {
+        try {
+            HttpServerProcessorEndState state = httpServerProcessor.process(request, response);
+            switch (state) {
+                case ASYNCED -> {
+                    // the response is finished when the async request completes.
+                }
+                case UPGRADED -> {
+                    response.finishResponse();
+                    request.getChannel().close();
+                }
+                default -> response.finishResponse();
+            }
+        } catch (Throwable throwable) {
+            LOGGER.log(Level.WARNING, "Unable to process request", throwable);
+            request.getChannel().close();
+        }
+    }
+
+    /**
+     * Release the held back messages.
+     */
+    private void releasePending() {
+        HttpObject object;
+        while ((object = pending.poll()) != null) {
+            ReferenceCountUtil.release(object);
+        }
+    }
+
+    /**
+     * Handle a request being done.
+     *
+     * <p>
+     * This is called once the response is finished and the whole body of the
+     * request has arrived. Any held back messages are dispatched until the
+     * next request is in flight and reading resumes once they have all been
+     * dispatched.
+     * </p>
+     *
+     * @param context the context.
+     */
+    private void requestDone(ChannelHandlerContext context) {
+        stream = null;
+        while (!pending.isEmpty() && !(inFlight && stream.isEnded())) {
+            HttpObject object = pending.poll();
+            try {
+                dispatch(context, object);
+            } finally {
+                ReferenceCountUtil.release(object);
+            }
+        }
+        if (pending.isEmpty() && context.channel().isActive()) {
+            context.channel().config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * Handle a response being finished.
+     *
+     * <p>
+     * This is called on the event loop. Any unread content of the request body
+     * is released and if the body has not fully arrived the remainder is
+     * discarded while it arrives, before the next request is dispatched.
+     * </p>
+     *
+     * @param context the context.
+     * @param requestStream the body input stream of the request.
+     * @param response the response.
+     */
+    private void responseFinished(ChannelHandlerContext context,
+            NettyHttpServerInputStream requestStream, NettyHttpServerResponse response) {
+        requestStream.discard();
+        if (requestStream != stream) {
+            return;
+        }
+        inFlight = false;
+        inFlightResponse = null;
+        if (!response.isKeepAlive()) {
+            releasePending();
+            return;
+        }
+        if (!stream.isEnded()) {
+            context.channel().config().setAutoRead(true);
+            return;
+        }
+        requestDone(context);
+    }
+
+    /**
+     * Send an error response and close the connection.
+     *
+     * @param context the context.
+     * @param status the status.
+     */
+    private void sendError(ChannelHandlerContext context, HttpResponseStatus status) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+        response.headers().set(CONNECTION, CLOSE);
+        HttpUtil.setContentLength(response, 0);
+        context.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * Start processing a request.
+     *
+     * @param context the context.
+     * @param request the request.
+     */
+    private void startRequest(ChannelHandlerContext context, HttpRequest request) {
+        if (HttpUtil.is100ContinueExpected(request)) {
+            context.writeAndFlush(new DefaultFullHttpResponse(HTTP_1_1, CONTINUE, Unpooled.EMPTY_BUFFER));
+            request.headers().remove(EXPECT);
+        }
+        NettyHttpServerInputStream requestStream = new NettyHttpServerInputStream(context.channel());
+        NettyHttpServerRequest nettyRequest = new NettyHttpServerRequest(context, request, requestStream, secure);
+        NettyHttpServerResponse nettyResponse = new NettyHttpServerResponse(context.channel(), request,
+                response -> {
+                    requestStream.finish();
+                    context.channel().eventLoop().execute(
+                            () -> responseFinished(context, requestStream, response));
+                });
+        stream = requestStream;
+        inFlight = true;
+        inFlightResponse = nettyResponse;
+        try {
+            executor.execute(() -> process(nettyRequest, nettyResponse));
+        } catch (RejectedExecutionException ree) {
+            LOGGER.log(Level.WARNING, "Unable to hand off request", ree);
+            stream.abort();
+            stream = null;
+            inFlight = false;
+            inFlightResponse = null;
+            sendError(context, SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Handle a user event.
+     *
+     * <p>
+     * An idle connection is closed when it has no request in flight.
+     * </p>
+     *
+     * @param context the context.
+     * @param event the event.
+     * @throws Exception when an error occurs.
+     */
+    @Override
+    public void userEventTriggered(ChannelHandlerContext context, Object event) throws Exception {
+        if (event instanceof IdleStateEvent) {
+            if (!inFlight) {
+                context.close();
+            }
+            return;
+        }
+        super.userEventTriggered(context, event);
+    }
 }
@@ -31,6 +31,8 @@ import static java.lang.System.Logger.Level.ERROR;
 
 import java.security.NoSuchAlgorithmException;
 import java.lang.System.Logger;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -40,10 +42,9 @@ import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.handler.codec.http.HttpRequestDecoder;
-import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateHandler;
 
 /**
  * The Netty Initializer used by the Netty implementation of HTTP Server.
@@ -58,11 +59,21 @@ public class NettyHttpServerInitializer extends ChannelInitializer<SocketChannel
      */
     private static final Logger LOGGER = System.getLogger(NettyHttpServerInitializer.class.getName());
 
+    /**
+     * Stores the executor.
+     */
+    private final Executor executor;
+
     /**
      * Stores the HTTP server processor.
      */
     private final HttpServerProcessor httpServerProcessor;
 
+    /**
+     * Stores the keep-alive timeout (in milliseconds).
+     */
+    private final int keepAliveTimeout;
+
     /**
      * Stores the ssl flag
      */
@@ -75,7 +86,23 @@ public class NettyHttpServerInitializer extends ChannelInitializer<SocketChannel
      * @param ssl the ssl flag
      */
     public NettyHttpServerInitializer(HttpServerProcessor httpServerProcessor, boolean ssl) {
+        this(httpServerProcessor, ssl, Thread::startVirtualThread, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param httpServerProcessor the HTTP server processor.
+     * @param ssl the ssl flag
+     * @param executor the executor used to process requests.
+     * @param keepAliveTimeout the keep-alive timeout (in milliseconds), or 0
+     * to keep idle connections open.
+     */
+    public NettyHttpServerInitializer(HttpServerProcessor httpServerProcessor, boolean ssl,
+            Executor executor, int keepAliveTimeout) {
+        this.executor = executor;
         this.httpServerProcessor = httpServerProcessor;
+        this.keepAliveTimeout = keepAliveTimeout;
         this.ssl = ssl;
     }
 
@@ -97,9 +124,10 @@ public class NettyHttpServerInitializer extends ChannelInitializer<SocketChannel
                 LOGGER.log(ERROR, "Unable to match SSL algorithm", e);
             }
         }
-        pipeline.addLast(new HttpRequestDecoder());
-        pipeline.addLast(new HttpResponseEncoder());
-        pipeline.addLast(new HttpObjectAggregator(10*1024*1024));
-        pipeline.addLast(new NettyHttpServerHandler(httpServerProcessor, ssl));
+        pipeline.addLast(new HttpServerCodec());
+        if (keepAliveTimeout > 0) {
+            pipeline.addLast(new IdleStateHandler(0, 0, keepAliveTimeout, TimeUnit.MILLISECONDS));
+        }
+        pipeline.addLast(new NettyHttpServerHandler(httpServerProcessor, ssl, executor));
     }
 }
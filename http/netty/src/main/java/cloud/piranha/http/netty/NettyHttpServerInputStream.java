@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The request body input stream used by the Netty implementation of HTTP
+ * Server Request.
+ *
+ * <p>
+ * The event loop offers the content of every HttpContent chunk as it arrives
+ * and the processing thread reads it, blocking until more content arrives.
+ * When more than {@value #HIGH_WATER_MARK} bytes are waiting to be read the
+ * channel stops reading from the socket, and it resumes once the reader has
+ * caught up.
+ * </p>
+ *
+ * <p>
+ * The current buffer is only ever touched by the reading side, the event loop
+ * only releases the buffers that are still queued.
+ * </p>
+ *
+ * <p>
+ * The read ready listener (if any) is notified on the event loop whenever
+ * content is queued, once the whole body has arrived and when the body is
+ * aborted.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class NettyHttpServerInputStream extends InputStream {
+
+    /**
+     * Stores the number of pending bytes above which reading is suspended.
+     */
+    static final int HIGH_WATER_MARK = 65536;
+
+    /**
+     * Stores the logger.
+     */
+    private static final Logger LOGGER = System.getLogger(NettyHttpServerInputStream.class.getName());
+
+    /**
+     * Stores the marker for an aborted body.
+     */
+    private static final ByteBuf ABORTED = Unpooled.unreleasableBuffer(Unpooled.buffer(0));
+
+    /**
+     * Stores the marker for the end of the body.
+     */
+    private static final ByteBuf END = Unpooled.EMPTY_BUFFER;
+
+    /**
+     * Stores the aborted flag.
+     */
+    private volatile boolean aborted;
+
+    /**
+     * Stores the channel.
+     */
+    private final Channel channel;
+
+    /**
+     * Stores the current buffer (or null).
+     */
+    private ByteBuf current;
+
+    /**
+     * Stores the discarding flag.
+     */
+    private volatile boolean discarding;
+
+    /**
+     * Stores the ended flag (only accessed by the event loop).
+     */
+    private boolean ended;
+
+    /**
+     * Stores the EOF flag.
+     */
+    private boolean eof;
+
+    /**
+     * Stores the number of pending bytes.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Stores the queue of buffers.
+     */
+    private final LinkedBlockingQueue<ByteBuf> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Stores the read ready listener (or null).
+     */
+    private volatile Runnable readReadyListener;
+
+    /**
+     * Stores the suspended flag.
+     */
+    private volatile boolean suspended;
+
+    /**
+     * Constructor.
+     *
+     * @param channel the channel.
+     */
+    NettyHttpServerInputStream(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Abort the body as the connection is gone.
+     *
+     * <p>
+     * This is called on the event loop. If the whole body had not arrived yet
+     * a reader that is blocked waiting for content, and any subsequent read,
+     * fails with an IOException so a truncated body is never mistaken for a
+     * complete one.
+     * </p>
+     */
+    void abort() {
+        discarding = true;
+        if (!ended) {
+            ended = true;
+            aborted = true;
+            releaseQueued();
+            queue.offer(ABORTED);
+            notifyReadReady();
+        }
+    }
+
+    /**
+     * {@return the number of bytes that have arrived and are not read yet}
+     */
+    @Override
+    public int available() throws IOException {
+        if (eof || aborted) {
+            return 0;
+        }
+        return Math.max(pending.get(), 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the channel is owned by the HTTP server.
+    }
+
+    /**
+     * Discard the remainder of the body.
+     *
+     * <p>
+     * This is called on the event loop once the response is finished. Any
+     * queued and subsequent content is released right away.
+     * </p>
+     */
+    void discard() {
+        discarding = true;
+        releaseQueued();
+    }
+
+    /**
+     * End the body.
+     *
+     * <p>
+     * This is called on the event loop when the last content has arrived.
+     * </p>
+     */
+    void end() {
+        ended = true;
+        queue.offer(END);
+        notifyReadReady();
+    }
+
+    /**
+     * Finish reading.
+     *
+     * <p>
+     * This is called by the reading side once the response is finished. It
+     * releases the current buffer and any subsequent read sees the end of the
+     * body.
+     * </p>
+     */
+    void finish() {
+        eof = true;
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+        releaseQueued();
+    }
+
+    /**
+     * {@return true if the whole body has arrived, false otherwise}
+     */
+    boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * Notify the read ready listener (if any).
+     */
+    private void notifyReadReady() {
+        Runnable listener = readReadyListener;
+        if (listener != null) {
+            try {
+                listener.run();
+            } catch (RuntimeException re) {
+                LOGGER.log(Level.WARNING, "Unable to notify the read ready listener", re);
+            }
+        }
+    }
+
+    /**
+     * Offer content.
+     *
+     * <p>
+     * This is called on the event loop, the buffer is released by this stream.
+     * </p>
+     *
+     * @param buffer the buffer.
+     */
+    void offer(ByteBuf buffer) {
+        if (discarding || !buffer.isReadable()) {
+            buffer.release();
+            return;
+        }
+        queue.offer(buffer);
+        if (pending.addAndGet(buffer.readableBytes()) > HIGH_WATER_MARK && !suspended) {
+            suspended = true;
+            channel.config().setAutoRead(false);
+        }
+        notifyReadReady();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBuffer()) {
+            return -1;
+        }
+        int value = current.readByte() & 0xff;
+        consumed(1);
+        return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBuffer()) {
+            return -1;
+        }
+        int count = Math.min(length, current.readableBytes());
+        current.readBytes(bytes, offset, count);
+        consumed(count);
+        return count;
+    }
+
+    /**
+     * Make sure the current buffer has readable bytes.
+     *
+     * @return true if it has, false at the end of the body.
+     * @throws IOException when interrupted, or when the body was aborted.
+     */
+    private boolean nextBuffer() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (aborted) {
+            throwAborted();
+        }
+        while (current == null || !current.isReadable()) {
+            if (current != null) {
+                current.release();
+                current = null;
+            }
+            try {
+                ByteBuf buffer = queue.take();
+                if (buffer == END) {
+                    eof = true;
+                    return false;
+                }
+                if (buffer == ABORTED) {
+                    queue.offer(ABORTED);
+                    throwAborted();
+                }
+                current = buffer;
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Release the queued buffers.
+     */
+    private void releaseQueued() {
+        ByteBuf buffer;
+        while ((buffer = queue.poll()) != null) {
+            if (buffer == END || buffer == ABORTED) {
+                queue.offer(buffer);
+                break;
+            }
+            buffer.release();
+        }
+    }
+
+    /**
+     * Set the read ready listener.
+     *
+     * @param readReadyListener the read ready listener.
+     */
+    void setReadReadyListener(Runnable readReadyListener) {
+        this.readReadyListener = readReadyListener;
+    }
+
+    /**
+     * Release the current buffer and fail the read as the body was aborted.
+     *
+     * @throws IOException always.
+     */
+    private void throwAborted() throws IOException {
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+        throw new IOException("Connection closed before the request body was fully received");
+    }
+
+    /**
+     * Account for consumed bytes and resume reading when the reader has
+     * caught up.
+     *
+     * @param count the number of consumed bytes.
+     */
+    private void consumed(int count) {
+        if (pending.addAndGet(-count) <= HIGH_WATER_MARK / 2 && suspended) {
+            suspended = false;
+            channel.eventLoop().execute(() -> {
+                if (!ended) {
+                    channel.config().setAutoRead(true);
+                }
+            });
+        }
+    }
+}
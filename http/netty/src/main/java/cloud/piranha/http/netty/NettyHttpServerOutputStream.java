@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The response body output stream used by the Netty implementation of HTTP
+ * Server Response.
+ *
+ * <p>
+ * The body is buffered up to {@value #CHUNK_SIZE} bytes and then written to
+ * the channel as an HttpContent, which the HTTP codec frames as a chunk when
+ * the response uses chunked transfer encoding. When the channel is no longer
+ * writable the next write waits for the previous write to complete, so a slow
+ * client does not make the response pile up in memory while a write listener
+ * still gets to see the response is not writable.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class NettyHttpServerOutputStream extends OutputStream {
+
+    /**
+     * Stores the chunk size.
+     */
+    static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Stores the buffer (or null).
+     */
+    private ByteBuf buffer;
+
+    /**
+     * Stores the channel.
+     */
+    private final Channel channel;
+
+    /**
+     * Stores the discard flag.
+     */
+    private final boolean discard;
+
+    /**
+     * Stores the future of the last write (or null).
+     */
+    private ChannelFuture lastWrite;
+
+    /**
+     * Stores the response.
+     */
+    private final NettyHttpServerResponse response;
+
+    /**
+     * Constructor.
+     *
+     * @param response the response.
+     * @param channel the channel.
+     * @param discard true to discard the body (for a HEAD request).
+     */
+    NettyHttpServerOutputStream(NettyHttpServerResponse response, Channel channel, boolean discard) {
+        this.channel = channel;
+        this.discard = discard;
+        this.response = response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBuffer(true);
+    }
+
+    /**
+     * Make sure the buffer has room.
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private void ensureBuffer() throws IOException {
+        response.ensureHeadersWritten();
+        if (buffer != null && !buffer.isWritable()) {
+            writeBuffer(false);
+        }
+        if (buffer == null) {
+            buffer = channel.alloc().buffer(CHUNK_SIZE, CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Release the buffer without writing it.
+     */
+    void release() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void write(int integer) throws IOException {
+        if (discard) {
+            return;
+        }
+        ensureBuffer();
+        buffer.writeByte(integer);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (discard) {
+            return;
+        }
+        while (length > 0) {
+            ensureBuffer();
+            int count = Math.min(length, buffer.writableBytes());
+            buffer.writeBytes(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Write out the buffered bytes.
+     *
+     * @param flush true to flush the channel even if nothing is buffered.
+     * @throws IOException when the channel was closed.
+     */
+    private void writeBuffer(boolean flush) throws IOException {
+        if (!channel.isActive()) {
+            release();
+            throw new IOException("The connection was closed");
+        }
+        if (buffer == null || !buffer.isReadable()) {
+            if (flush) {
+                response.ensureHeadersWritten();
+                channel.flush();
+            }
+            return;
+        }
+        if (lastWrite != null && !channel.isWritable() && !channel.eventLoop().inEventLoop()) {
+            lastWrite.awaitUninterruptibly();
+        }
+        lastWrite = channel.writeAndFlush(new DefaultHttpContent(buffer));
+        buffer = null;
+    }
+}
@@ -29,8 +29,10 @@ package cloud.piranha.http.netty;
 
 import cloud.piranha.http.api.HttpServerRequest;
 import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.util.Iterator;
@@ -50,12 +52,12 @@ public class NettyHttpServerRequest implements HttpServerRequest {
     /**
      * Stores the input stream.
      */
-    private InputStream inputStream;
+    private final InputStream inputStream;
 
     /**
      * Stores the underlying HTTP request.
      */
-    private final FullHttpRequest request;
+    private final HttpRequest request;
     
     /**
      * Stores the secure flag.
@@ -70,12 +72,32 @@ public class NettyHttpServerRequest implements HttpServerRequest {
      * @param secure the secure flag.
      */
     public NettyHttpServerRequest(ChannelHandlerContext context, FullHttpRequest request, boolean secure) {
-        super();
+        this(context, request, new ByteBufInputStream(request.content()), secure);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param context the context.
+     * @param request the HTTP request.
+     * @param inputStream the input stream of the request body.
+     * @param secure the secure flag.
+     */
+    public NettyHttpServerRequest(ChannelHandlerContext context, HttpRequest request,
+            InputStream inputStream, boolean secure) {
         this.context = context;
+        this.inputStream = inputStream;
         this.request = request;
         this.secure = secure;
     }
 
+    /**
+     * {@return the channel}
+     */
+    Channel getChannel() {
+        return context.channel();
+    }
+
     @Override
     public String getHeader(String name) {
         return request.headers().get(name);
@@ -93,11 +115,6 @@ public class NettyHttpServerRequest implements HttpServerRequest {
     
     @Override
     public InputStream getInputStream() {
-        synchronized (request) {
-            if (inputStream == null) {
-                inputStream = new ByteBufInputStream(request.content());
-            }
-        }
         return inputStream;
     }
 
@@ -156,4 +173,13 @@ public class NettyHttpServerRequest implements HttpServerRequest {
     public boolean isSecure() {
         return secure;
     }
+
+    @Override
+    public boolean setReadReadyListener(Runnable listener) {
+        if (inputStream instanceof NettyHttpServerInputStream stream) {
+            stream.setReadReadyListener(listener);
+            return true;
+        }
+        return false;
+    }
 }
@@ -27,38 +27,123 @@
  */
 package cloud.piranha.http.netty;
 
-import java.io.IOException;
-import java.io.OutputStream;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.TRANSFER_ENCODING;
+import static io.netty.handler.codec.http.HttpHeaderValues.CLOSE;
+import static io.netty.handler.codec.http.HttpHeaderValues.KEEP_ALIVE;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import cloud.piranha.http.api.HttpServerResponse;
-import io.netty.buffer.ByteBufOutputStream;
-import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.function.Consumer;
 
 /**
  * The Netty implementation of HTTP Server Response.
  *
+ * <p>
+ * The status line and headers are written once the response is committed and
+ * the body is streamed after them. A response to a keep-alive request without
+ * a Content-Length header is sent using chunked transfer encoding, so the
+ * connection can be kept alive. Other responses that cannot be delimited
+ * close the connection when they are finished.
+ * </p>
+ *
+ * <p>
+ * The response is writable as long as the channel is, the write possible
+ * listener (if any) is notified by the handler once the channel becomes
+ * writable again.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class NettyHttpServerResponse implements HttpServerResponse {
 
+    /**
+     * Stores the logger.
+     */
+    private static final Logger LOGGER = System.getLogger(NettyHttpServerResponse.class.getName());
+
+    /**
+     * Stores the channel.
+     */
+    private final Channel channel;
+
+    /**
+     * Stores the chunking allowed flag.
+     */
+    private final boolean chunkingAllowed;
+
+    /**
+     * Stores the finished flag.
+     */
+    private boolean finished;
+
+    /**
+     * Stores the listener that is called once the response is finished.
+     */
+    private final Consumer<NettyHttpServerResponse> finishListener;
+
+    /**
+     * Stores the HEAD request flag.
+     */
+    private final boolean headRequest;
+
+    /**
+     * Stores the headers written flag.
+     */
+    private boolean headersWritten;
+
+    /**
+     * Stores the keep-alive flag.
+     */
+    private boolean keepAlive;
+
     /**
      * Stores the output stream.
      */
-    private OutputStream outputStream;
+    private NettyHttpServerOutputStream outputStream;
 
     /**
      * Stores the response.
      */
-    private final FullHttpResponse response;
+    private final HttpResponse response;
+
+    /**
+     * Stores the write possible listener (or null).
+     */
+    private volatile Runnable writePossibleListener;
 
     /**
      * Constructor.
      *
-     * @param response the HTTP response.
+     * @param channel the channel.
+     * @param request the HTTP request this is the response to.
+     * @param finishListener the listener that is called once the response is
+     * finished.
      */
-    public NettyHttpServerResponse(FullHttpResponse response) {
-        this.response = response;
+    public NettyHttpServerResponse(Channel channel, HttpRequest request,
+            Consumer<NettyHttpServerResponse> finishListener) {
+        this.channel = channel;
+        this.chunkingAllowed = HTTP_1_1.equals(request.protocolVersion());
+        this.finishListener = finishListener;
+        this.headRequest = HttpMethod.HEAD.equals(request.method());
+        this.keepAlive = HttpUtil.isKeepAlive(request);
+        this.response = new DefaultHttpResponse(HTTP_1_1, OK);
     }
 
     @Override
@@ -66,21 +151,92 @@ public class NettyHttpServerResponse implements HttpServerResponse {
         response.headers().add(name, value);
     }
 
+    @Override
+    public void closeResponse() throws IOException {
+        finishResponse();
+    }
+
+    /**
+     * Write the status line and headers if that has not happened yet.
+     */
+    synchronized void ensureHeadersWritten() {
+        if (!headersWritten) {
+            writeHeaders();
+        }
+    }
+
+    /**
+     * Finish the response.
+     *
+     * <p>
+     * This writes out the remainder of the body and the end of the response.
+     * If the connection cannot be kept alive it is closed once that has been
+     * written. Finishing an already finished response does nothing.
+     * </p>
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    public void finishResponse() throws IOException {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+        }
+        try {
+            ensureHeadersWritten();
+            if (outputStream != null) {
+                outputStream.flush();
+            }
+            ChannelFuture future = channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            if (!isKeepAlive()) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        } catch (IOException ioe) {
+            channel.close();
+            throw ioe;
+        } finally {
+            finishListener.accept(this);
+        }
+    }
+
     @Override
     public String getHeader(String name) {
         return response.headers().get(name);
     }
 
     @Override
-    public OutputStream getOutputStream() {
-        synchronized (response) {
-            if (outputStream == null) {
-                outputStream = new ByteBufOutputStream(response.content());
-            }
+    public synchronized OutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new NettyHttpServerOutputStream(this, channel, headRequest);
         }
         return outputStream;
     }
 
+    /**
+     * Check if the response cannot have a body.
+     *
+     * @return true if it cannot, false otherwise.
+     */
+    private boolean isBodyless() {
+        int status = response.status().code();
+        return headRequest || status < 200 || status == 204 || status == 304;
+    }
+
+    /**
+     * Check if the connection can be kept alive after this response.
+     *
+     * @return true if it can, false otherwise.
+     */
+    public boolean isKeepAlive() {
+        return keepAlive && channel.isActive();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return channel.isWritable();
+    }
+
     @Override
     public void setHeader(String name, String value) {
         response.headers().set(name, value);
@@ -92,12 +248,56 @@ public class NettyHttpServerResponse implements HttpServerResponse {
     }
 
     @Override
-    public void writeHeaders() throws IOException {
-        // writing the headers is taken care of when writing out the response.
+    public void setWritePossibleListener(Runnable listener) {
+        this.writePossibleListener = listener;
+    }
+
+    @Override
+    public synchronized void writeHeaders() {
+        if (headersWritten) {
+            return;
+        }
+        if (CLOSE.contentEqualsIgnoreCase(response.headers().get(CONNECTION, ""))) {
+            keepAlive = false;
+        }
+        if (keepAlive && !isBodyless()
+                && !response.headers().contains(CONTENT_LENGTH)
+                && !response.headers().contains(TRANSFER_ENCODING)) {
+            if (chunkingAllowed) {
+                HttpUtil.setTransferEncodingChunked(response, true);
+            } else {
+                keepAlive = false;
+            }
+        }
+        if (!keepAlive) {
+            response.headers().set(CONNECTION, CLOSE);
+        } else if (!chunkingAllowed) {
+            response.headers().set(CONNECTION, KEEP_ALIVE);
+        }
+        headersWritten = true;
+        channel.write(response);
+    }
+
+    /**
+     * Notify the write possible listener (if any).
+     *
+     * <p>
+     * This is called on the event loop once the channel is writable again.
+     * </p>
+     */
+    void writePossible() {
+        Runnable listener = writePossibleListener;
+        if (listener != null) {
+            try {
+                listener.run();
+            } catch (RuntimeException re) {
+                LOGGER.log(Level.WARNING, "Unable to notify the write possible listener", re);
+            }
+        }
     }
 
     @Override
-    public void writeStatusLine() throws IOException {
-        // writing the status line is taken care of when writing out the response.
+    public void writeStatusLine() {
+        // the status line is written together with the headers.
     }
 }
@@ -27,10 +27,32 @@
  */
 package cloud.piranha.http.netty;
 
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
+import cloud.piranha.http.api.HttpServerProcessorEndState;
+import cloud.piranha.http.api.HttpServerRequest;
+import cloud.piranha.http.api.HttpServerResponse;
 import cloud.piranha.http.tests.HttpServerTest;
 import cloud.piranha.http.tests.TestHttpServerProcessor;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
 
 /**
  * The JUnit tests for the NettyHttpServer class.
@@ -63,4 +85,324 @@ public class NettyHttpServerTest extends HttpServerTest {
     protected HttpServer createServer(int portNumber, HttpServerProcessor processor) {
         return new NettyHttpServer(portNumber, processor);
     }
+
+    /**
+     * Test that a request body that is cut short fails the read.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testAbortedBody() throws Exception {
+        int port = findPort();
+        CompletableFuture<Throwable> result = new CompletableFuture<>();
+        HttpServer server = createServer(port, (request, response) -> {
+            try {
+                request.getInputStream().readAllBytes();
+                result.complete(null);
+            } catch (IOException ioe) {
+                result.complete(ioe);
+            }
+            return COMPLETED;
+        });
+        server.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            OutputStream output = socket.getOutputStream();
+            output.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\nabc").getBytes(ISO_8859_1));
+            output.flush();
+            Thread.sleep(200);
+        } finally {
+            try {
+                assertInstanceOf(IOException.class, result.get(5, TimeUnit.SECONDS));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Test the idle timeout closes a kept-alive connection.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testIdleTimeout() throws Exception {
+        int port = findPort();
+        NettyHttpServer server = new NettyHttpServer(port, NettyHttpServerTest::echo);
+        server.setKeepAliveTimeout(500);
+        server.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(5000);
+            OutputStream output = socket.getOutputStream();
+            output.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 2\r\n\r\nok").getBytes(ISO_8859_1));
+            output.flush();
+            InputStream input = socket.getInputStream();
+            assertEquals("ok", readResponse(input));
+            long start = System.nanoTime();
+            assertEquals(-1, input.read());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test a body larger than the high water mark that is read slowly.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testLargeBodySlowReads() throws Exception {
+        int port = findPort();
+        HttpServer server = createServer(port, (request, response) -> {
+            try {
+                InputStream input = request.getInputStream();
+                byte[] buffer = new byte[4096];
+                long count = 0;
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    count += read;
+                    Thread.sleep(1);
+                }
+                return respond(response, Long.toString(count));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return COMPLETED;
+            } catch (IOException ioe) {
+                return COMPLETED;
+            }
+        });
+        server.start();
+        int length = NettyHttpServerInputStream.HIGH_WATER_MARK * 4;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(10000);
+            OutputStream output = socket.getOutputStream();
+            output.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + length + "\r\n\r\n").getBytes(ISO_8859_1));
+            byte[] body = new byte[length];
+            Arrays.fill(body, (byte) 'x');
+            output.write(body);
+            output.flush();
+            assertEquals(Integer.toString(length), readResponse(socket.getInputStream()));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test two pipelined requests are answered in order.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testPipelinedRequests() throws Exception {
+        int port = findPort();
+        HttpServer server = createServer(port, NettyHttpServerTest::echo);
+        server.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(5000);
+            OutputStream output = socket.getOutputStream();
+            output.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nfirst"
+                    + "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 6\r\n\r\nsecond").getBytes(ISO_8859_1));
+            output.flush();
+            InputStream input = socket.getInputStream();
+            assertEquals("first", readResponse(input));
+            assertEquals("second", readResponse(input));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test a request that expects 100-continue.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testExpectContinue() throws Exception {
+        int port = findPort();
+        HttpServer server = createServer(port, NettyHttpServerTest::echo);
+        server.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(5000);
+            OutputStream output = socket.getOutputStream();
+            output.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\nExpect: 100-continue\r\n\r\n").getBytes(ISO_8859_1));
+            output.flush();
+            InputStream input = socket.getInputStream();
+            assertTrue(readLine(input).startsWith("HTTP/1.1 100"));
+            while (!readLine(input).isEmpty()) {
+                // skip the headers of the interim response.
+            }
+            output.write("body".getBytes(ISO_8859_1));
+            output.flush();
+            assertEquals("body", readResponse(input));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test the read ready listener is notified when the body arrives.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testReadReadyListener() throws Exception {
+        int port = findPort();
+        HttpServer server = createServer(port, (request, response) -> {
+            try {
+                CountDownLatch latch = new CountDownLatch(1);
+                boolean supported = request.setReadReadyListener(latch::countDown);
+                boolean notified = latch.await(5, TimeUnit.SECONDS);
+                String body = new String(request.getInputStream().readAllBytes(), ISO_8859_1);
+                return respond(response, supported && notified ? body : "not notified");
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return COMPLETED;
+            } catch (IOException ioe) {
+                return COMPLETED;
+            }
+        });
+        server.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setSoTimeout(10000);
+            OutputStream output = socket.getOutputStream();
+            output.write("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\n".getBytes(ISO_8859_1));
+            output.flush();
+            Thread.sleep(200);
+            output.write("hello".getBytes(ISO_8859_1));
+            output.flush();
+            assertEquals("hello", readResponse(socket.getInputStream()));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test the write possible listener is notified once a slow client has
+     * caught up.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testWritePossibleListener() throws Exception {
+        int port = findPort();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        HttpServer server = createServer(port, (request, response) -> {
+            try {
+                CountDownLatch latch = new CountDownLatch(1);
+                response.setWritePossibleListener(latch::countDown);
+                response.setStatus(200);
+                response.writeStatusLine();
+                response.writeHeaders();
+                OutputStream output = response.getOutputStream();
+                byte[] chunk = new byte[NettyHttpServerOutputStream.CHUNK_SIZE];
+                Arrays.fill(chunk, (byte) 'x');
+                for (int i = 0; i < 10000 && response.isWritable(); i++) {
+                    output.write(chunk);
+                    output.flush();
+                }
+                result.complete(!response.isWritable() && latch.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                result.complete(false);
+            } catch (IOException ioe) {
+                result.completeExceptionally(ioe);
+            }
+            return COMPLETED;
+        });
+        server.start();
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            socket.setSoTimeout(10000);
+            OutputStream output = socket.getOutputStream();
+            output.write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(ISO_8859_1));
+            output.flush();
+            Thread.sleep(500);
+            socket.getInputStream().transferTo(OutputStream.nullOutputStream());
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Echo the request body.
+     *
+     * @param request the request.
+     * @param response the response.
+     * @return the end state.
+     */
+    private static HttpServerProcessorEndState echo(HttpServerRequest request, HttpServerResponse response) {
+        try {
+            return respond(response, new String(request.getInputStream().readAllBytes(), ISO_8859_1));
+        } catch (IOException ioe) {
+            return COMPLETED;
+        }
+    }
+
+    /**
+     * {@return a free port}
+     *
+     * @throws IOException when an I/O error occurs.
+     */
+    private static int findPort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    /**
+     * Read a line.
+     *
+     * @param input the input stream.
+     * @return the line (without the line terminator).
+     * @throws IOException when an I/O error occurs.
+     */
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int read;
+        while ((read = input.read()) != -1 && read != '\n') {
+            if (read != '\r') {
+                line.write(read);
+            }
+        }
+        return line.toString(ISO_8859_1);
+    }
+
+    /**
+     * Read a response with a Content-Length.
+     *
+     * @param input the input stream.
+     * @return the body.
+     * @throws IOException when an I/O error occurs.
+     */
+    private static String readResponse(InputStream input) throws IOException {
+        assertTrue(readLine(input).startsWith("HTTP/1.1 200"));
+        int contentLength = 0;
+        String line;
+        while (!(line = readLine(input)).isEmpty()) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return new String(input.readNBytes(contentLength), ISO_8859_1);
+    }
+
+    /**
+     * Respond with the given body.
+     *
+     * @param response the response.
+     * @param body the body.
+     * @return the end state.
+     * @throws IOException when an I/O error occurs.
+     */
+    private static HttpServerProcessorEndState respond(HttpServerResponse response, String body) throws IOException {
+        byte[] bytes = body.getBytes(ISO_8859_1);
+        response.setStatus(200);
+        response.setHeader("Content-Length", Integer.toString(bytes.length));
+        response.writeStatusLine();
+        response.writeHeaders();
+        response.getOutputStream().write(bytes);
+        return COMPLETED;
+    }
 }
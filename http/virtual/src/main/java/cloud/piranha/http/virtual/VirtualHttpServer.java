@@ -27,18 +27,35 @@
  */
 package cloud.piranha.http.virtual;
 
+import static cloud.piranha.http.api.HttpServerProcessorEndState.ASYNCED;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.UPGRADED;
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
-import cloud.piranha.http.impl.DefaultHttpServerRequest;
-import cloud.piranha.http.impl.DefaultHttpServerResponse;
+import cloud.piranha.http.api.HttpServerProcessorEndState;
+import cloud.piranha.http.api.HttpServerRequest;
+import cloud.piranha.http.api.HttpServerResponse;
+import cloud.piranha.http.impl.DefaultHttpServerConnectionHandler;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.security.NoSuchAlgorithmException;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -46,10 +63,27 @@ import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
 
-import static java.lang.System.Logger.Level.WARNING;
-
 /**
  * Implementation of HttpServer that uses virtual threads
+ *
+ * <p>
+ * Every connection is handled on its own virtual thread and kept alive for as
+ * long as the requests and responses allow it, until it has been idle for
+ * longer than the keep-alive timeout.
+ * </p>
+ *
+ * <p>
+ * When a maximum number of concurrent requests is set, requests that arrive
+ * while that many requests are being processed are shed with a 503 response
+ * instead of being queued. An asynced request counts until its response is
+ * closed.
+ * </p>
+ *
+ * <p>
+ * Stopping the server closes the server socket and the idle connections right
+ * away. Requests that are being processed (including asynced ones) get until
+ * the drain timeout to complete, after which their connections are closed.
+ * </p>
  */
 public class VirtualHttpServer implements HttpServer {
 
@@ -57,24 +91,98 @@ public class VirtualHttpServer implements HttpServer {
      * Stores the logger.
      */
     private static final System.Logger LOGGER = System.getLogger(VirtualHttpServer.class.getName());
+
+    /**
+     * Stores the number of accepted connections.
+     */
+    private final AtomicLong acceptedConnections = new AtomicLong();
+
+    /**
+     * Stores the number of active connections.
+     */
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    /**
+     * Stores the number of active requests.
+     */
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    /**
+     * Stores the acceptor thread.
+     */
+    private Thread acceptorThread;
+
+    /**
+     * Stores the number of completed requests.
+     */
+    private final AtomicLong completedRequests = new AtomicLong();
+
     /**
-     * Stores the executor service.
+     * Stores the open connections and whether they are processing a request
+     * (an asynced request keeps its connection until its response is closed).
      */
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final Map<Socket, Boolean> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the executor service for the connections.
+     */
+    private ExecutorService connectionExecutor;
+
+    /**
+     * Stores the lock of the drained condition.
+     */
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    /**
+     * Stores the condition signalled when the last active request ends.
+     */
+    private final Condition drained = drainLock.newCondition();
+
+    /**
+     * Stores the drain timeout (in milliseconds)
+     */
+    private int drainTimeout = 30000;
 
     /**
      * Stores the running flag
      */
-    private boolean isRunning;
+    private volatile boolean isRunning;
+
+    /**
+     * Stores the keep-alive timeout (in milliseconds)
+     */
+    private int keepAliveTimeout = 20000;
+
     /**
      * Stores the HTTP server processor
      */
     private HttpServerProcessor httpServerProcessor;
+
+    /**
+     * Stores the maximum number of concurrent requests (0 for unlimited)
+     */
+    private int maxConcurrentRequests;
+
+    /**
+     * Stores the request permits (or null when unlimited).
+     */
+    private Semaphore requestPermits;
+
+    /**
+     * Stores the number of rejected requests.
+     */
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
     /**
      * Stores the server port
      */
     private int serverPort;
 
+    /**
+     * Stores the server socket.
+     */
+    private ServerSocket serverSocket;
+
     /**
      * Stores the SSL flag
      */
@@ -109,27 +217,20 @@ public class VirtualHttpServer implements HttpServer {
         this.ssl = ssl;
     }
 
-
     @Override
     public void start() {
-        isRunning = true;
-        CountDownLatch barrier = new CountDownLatch(1);
-        executorService.execute(() -> {
-            try {
-                ServerSocket serverSocket = getServerSocket();
-                barrier.countDown();
-                serve(serverSocket);
-            } catch (Exception e) {
-                isRunning = false;
-                LOGGER.log(WARNING, e);
-                throw new RuntimeException(e);
-            }
-        });
         try {
-            barrier.await();
-        } catch (InterruptedException e) {
+            serverSocket = getServerSocket();
+        } catch (Exception e) {
+            LOGGER.log(WARNING, e);
             throw new RuntimeException(e);
         }
+        requestPermits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        connectionExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("VirtualHttpServer-Connection-", 0).factory());
+        isRunning = true;
+        acceptorThread = Thread.ofPlatform().name("VirtualHttpServer-AcceptorThread")
+                .start(() -> serve(serverSocket));
     }
 
     /**
@@ -166,41 +267,264 @@ public class VirtualHttpServer implements HttpServer {
 
     @Override
     public void stop() {
+        if (!isRunning) {
+            return;
+        }
         isRunning = false;
-        executorService.shutdown();
+        closeQuietly(serverSocket);
+        try {
+            acceptorThread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        connections.forEach((socket, processing) -> {
+            if (!processing) {
+                closeQuietly(socket);
+            }
+        });
+        connectionExecutor.shutdown();
+        long deadline = System.currentTimeMillis() + drainTimeout;
+        try {
+            boolean terminated = connectionExecutor.awaitTermination(drainTimeout, TimeUnit.MILLISECONDS);
+            if (!terminated || !awaitRequests(deadline)) {
+                LOGGER.log(WARNING, () -> "Closing " + connections.size()
+                        + " connection(s) that did not drain within " + drainTimeout + " ms");
+                connections.keySet().forEach(VirtualHttpServer::closeQuietly);
+                connections.clear();
+                connectionExecutor.shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            connections.keySet().forEach(VirtualHttpServer::closeQuietly);
+            connections.clear();
+            connectionExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        connectionExecutor = null;
+        acceptorThread = null;
+        serverSocket = null;
+    }
+
+    /**
+     * Wait for the active requests to end.
+     *
+     * @param deadline the deadline (in milliseconds).
+     * @return true if they ended, false if the deadline passed first.
+     * @throws InterruptedException when interrupted.
+     */
+    private boolean awaitRequests(long deadline) throws InterruptedException {
+        drainLock.lock();
+        try {
+            long remaining = deadline - System.currentTimeMillis();
+            while (activeRequests.get() > 0 && remaining > 0) {
+                drained.await(remaining, TimeUnit.MILLISECONDS);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return activeRequests.get() == 0;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Close a socket, ignoring any error.
+     *
+     * @param closeable the socket or server socket.
+     */
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // nothing to do here as the socket is going away anyway.
+        }
     }
 
     /**
-     * Handle requests
+     * Accept connections
      * @param serverSocket the server socket
-     * @throws IOException if an error occurs
-     * @throws InterruptedException if an error occurs
      */
-    private void serve(ServerSocket serverSocket) throws IOException, InterruptedException {
-        try (StructuredTaskScope<Void> scope = new StructuredTaskScope<>()) {
+    private void serve(ServerSocket serverSocket) {
+        while (isRunning()) {
+            Socket socket;
             try {
-                while (isRunning()) {
-                    Socket socket = serverSocket.accept();
-                    scope.fork(() -> handle(socket));
+                socket = serverSocket.accept();
+            } catch (IOException ioe) {
+                if (isRunning()) {
+                    LOGGER.log(WARNING, "An I/O error occurred while accepting a connection", ioe);
+                    continue;
                 }
-            } finally {
-                scope.join().shutdown();
+                break;
+            }
+            connections.put(socket, Boolean.FALSE);
+            acceptedConnections.incrementAndGet();
+            activeConnections.incrementAndGet();
+            try {
+                connectionExecutor.execute(() -> handle(socket));
+            } catch (RejectedExecutionException ree) {
+                connections.remove(socket);
+                activeConnections.decrementAndGet();
+                closeQuietly(socket);
             }
         }
     }
 
     /**
-     * Handle a request
+     * Handle the requests on a connection
+     *
+     * <p>
+     * The connection is kept alive (and pipelined requests are processed in
+     * order) for as long as the requests and responses allow it, and it is
+     * closed once it has been idle for longer than the keep-alive timeout.
+     * </p>
+     *
      * @param socket the socket
-     * @return null
-     * @throws IOException if an error occurs
      */
-    private Void handle(Socket socket) throws IOException {
-        DefaultHttpServerRequest defaultHttpServerRequest = new DefaultHttpServerRequest(socket);
-        DefaultHttpServerResponse defaultHttpServerResponse = new DefaultHttpServerResponse(socket);
-        getHttpServerProcessor().process(defaultHttpServerRequest, defaultHttpServerResponse);
-        defaultHttpServerResponse.closeResponse();
-        return null;
+    private void handle(Socket socket) {
+        DefaultHttpServerConnectionHandler handler = new DefaultHttpServerConnectionHandler(socket,
+                (request, response) -> process(socket, request, response));
+        try {
+            socket.setSoTimeout(keepAliveTimeout);
+            while (isRunning() && handler.process()) {
+                connections.replace(socket, Boolean.FALSE);
+            }
+        } catch (IOException ioe) {
+            // not interesting to do anything with this here as the client probably just hung up.
+        } finally {
+            if (!handler.isDetached() || socket.isClosed()) {
+                connections.remove(socket);
+            }
+            activeConnections.decrementAndGet();
+            if (!handler.isDetached()) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * Process a request, shedding it when the server is at its maximum
+     * number of concurrent requests.
+     *
+     * <p>
+     * The request counts as active (and holds its permit) until the processor
+     * returns, or when it was asynced until its response is closed. The
+     * connection of an asynced request stays tracked until then, so stopping
+     * the server can wait for it or close it. An upgraded connection is no
+     * longer tracked.
+     * </p>
+     *
+     * @param socket the socket
+     * @param request the request
+     * @param response the response
+     * @return the end state
+     */
+    private HttpServerProcessorEndState process(Socket socket, HttpServerRequest request, HttpServerResponse response) {
+        connections.replace(socket, Boolean.TRUE);
+        Semaphore permits = requestPermits;
+        if (permits != null && !permits.tryAcquire()) {
+            rejectedRequests.incrementAndGet();
+            LOGGER.log(DEBUG, "Shedding request as the maximum number of concurrent requests was reached");
+            return serviceUnavailable(response);
+        }
+        activeRequests.incrementAndGet();
+        AtomicBoolean ended = new AtomicBoolean();
+        Runnable end = () -> {
+            if (ended.compareAndSet(false, true)) {
+                if (socket.isClosed()) {
+                    connections.remove(socket);
+                }
+                completedRequests.incrementAndGet();
+                if (permits != null) {
+                    permits.release();
+                }
+                if (activeRequests.decrementAndGet() == 0 && !isRunning) {
+                    drainLock.lock();
+                    try {
+                        drained.signalAll();
+                    } finally {
+                        drainLock.unlock();
+                    }
+                }
+            }
+        };
+        HttpServerProcessorEndState state = null;
+        try {
+            state = getHttpServerProcessor().process(request, new TrackedResponse(response, end));
+            if (state == UPGRADED) {
+                connections.remove(socket);
+            }
+            return state;
+        } finally {
+            if (state != ASYNCED) {
+                end.run();
+            }
+        }
+    }
+
+    /**
+     * Send a 503 response that closes the connection.
+     *
+     * @param response the response
+     * @return the end state
+     */
+    private static HttpServerProcessorEndState serviceUnavailable(HttpServerResponse response) {
+        try {
+            response.setStatus(503);
+            response.setHeader("Connection", "close");
+            response.setHeader("Content-Length", "0");
+            response.setHeader("Retry-After", "1");
+            response.writeStatusLine();
+            response.writeHeaders();
+        } catch (IOException ioe) {
+            // the connection is closed right after anyway.
+        }
+        return COMPLETED;
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.get();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * {@return the number of requests being processed}
+     */
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    @Override
+    public long getCompletedRequests() {
+        return completedRequests.get();
+    }
+
+    /**
+     * {@return the drain timeout (in milliseconds)}
+     */
+    public int getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * {@return the keep-alive timeout (in milliseconds)}
+     */
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /**
+     * {@return the maximum number of concurrent requests (0 for unlimited)}
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    @Override
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
     }
 
     @Override
@@ -223,6 +547,43 @@ public class VirtualHttpServer implements HttpServer {
         this.httpServerProcessor = httpServerProcessor;
     }
 
+    /**
+     * Set the drain timeout
+     *
+     * <p>
+     * This is how long stopping the server waits for the requests that are
+     * being processed to complete.
+     * </p>
+     *
+     * @param drainTimeout the drain timeout (in milliseconds)
+     */
+    public void setDrainTimeout(int drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * Set the keep-alive timeout
+     *
+     * @param keepAliveTimeout the keep-alive timeout (in milliseconds)
+     */
+    public void setKeepAliveTimeout(int keepAliveTimeout) {
+        this.keepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Set the maximum number of concurrent requests
+     *
+     * <p>
+     * This takes effect when the server is started.
+     * </p>
+     *
+     * @param maxConcurrentRequests the maximum number of concurrent requests
+     * (0 for unlimited)
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
     @Override
     public void setServerPort(int serverPort) {
         this.serverPort = serverPort;
@@ -238,4 +599,74 @@ public class VirtualHttpServer implements HttpServer {
         return ssl;
     }
 
+    /**
+     * A response that ends the request it belongs to once it is closed.
+     */
+    private static class TrackedResponse implements HttpServerResponse {
+
+        /**
+         * Stores the callback that ends the request.
+         */
+        private final Runnable end;
+
+        /**
+         * Stores the wrapped response.
+         */
+        private final HttpServerResponse wrapped;
+
+        /**
+         * Constructor.
+         *
+         * @param wrapped the wrapped response.
+         * @param end the callback that ends the request.
+         */
+        TrackedResponse(HttpServerResponse wrapped, Runnable end) {
+            this.wrapped = wrapped;
+            this.end = end;
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            wrapped.addHeader(name, value);
+        }
+
+        @Override
+        public void closeResponse() throws IOException {
+            try {
+                wrapped.closeResponse();
+            } finally {
+                end.run();
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return wrapped.getHeader(name);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return wrapped.getOutputStream();
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            wrapped.setHeader(name, value);
+        }
+
+        @Override
+        public void setStatus(int status) {
+            wrapped.setStatus(status);
+        }
+
+        @Override
+        public void writeHeaders() throws IOException {
+            wrapped.writeHeaders();
+        }
+
+        @Override
+        public void writeStatusLine() throws IOException {
+            wrapped.writeStatusLine();
+        }
+    }
 }
@@ -27,10 +27,31 @@
  */
 package cloud.piranha.http.virtual;
 
+import static cloud.piranha.http.api.HttpServerProcessorEndState.ASYNCED;
+import static cloud.piranha.http.api.HttpServerProcessorEndState.COMPLETED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 import cloud.piranha.http.api.HttpServer;
 import cloud.piranha.http.api.HttpServerProcessor;
+import cloud.piranha.http.api.HttpServerResponse;
 import cloud.piranha.http.tests.HttpServerTest;
 import cloud.piranha.http.tests.TestHttpServerProcessor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import me.alexpanov.net.FreePortFinder;
+import org.junit.jupiter.api.Test;
 
 /**
  * The JUnit tests for the DefaultHttpServer class.
@@ -47,7 +68,7 @@ public class VirtualHttpServerTest extends HttpServerTest {
      */
     @Override
     protected HttpServer createServer(int portNumber) {
-        return new VirtualHttpServer(portNumber, new TestHttpServerProcessor(), false);
+        return createServer(portNumber, new TestHttpServerProcessor());
     }
 
     /**
@@ -59,6 +80,214 @@ public class VirtualHttpServerTest extends HttpServerTest {
      */
     @Override
     protected HttpServer createServer(int portNumber, HttpServerProcessor processor) {
-        return new VirtualHttpServer(portNumber, processor, false);
+        VirtualHttpServer server = new VirtualHttpServer(portNumber, processor, false);
+        server.setKeepAliveTimeout(1000);
+        return server;
+    }
+
+    /**
+     * Create a server whose processor blocks until released.
+     *
+     * @param port the port.
+     * @param entered the latch counted down when a request is processed.
+     * @param release the latch the processor waits for.
+     * @return the server.
+     */
+    private static VirtualHttpServer createBlockingServer(int port, CountDownLatch entered, CountDownLatch release) {
+        return new VirtualHttpServer(port, (request, response) -> {
+            entered.countDown();
+            try {
+                release.await();
+                response.setStatus(200);
+                response.setHeader("Content-Length", "0");
+                response.writeStatusLine();
+                response.writeHeaders();
+            } catch (IOException | InterruptedException e) {
+                // the test will fail on the status code.
+            }
+            return COMPLETED;
+        }, false);
+    }
+
+    /**
+     * Send a GET request.
+     *
+     * @param port the port.
+     * @return the status code.
+     */
+    private static int get(int port) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection)
+                    URI.create("http://localhost:" + port).toURL().openConnection();
+            int status = connection.getResponseCode();
+            connection.disconnect();
+            return status;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Test that requests over the maximum number of concurrent requests are
+     * shed with a 503.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testLoadShedding() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualHttpServer server = createBlockingServer(port, entered, release);
+        server.setMaxConcurrentRequests(1);
+        server.start();
+        try {
+            CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> get(port));
+            entered.await();
+            assertEquals(1, server.getActiveRequests());
+            assertEquals(503, get(port));
+            assertEquals(1, server.getRejectedRequests());
+            release.countDown();
+            assertEquals(200, first.get());
+        } finally {
+            release.countDown();
+            server.stop();
+        }
+    }
+
+    /**
+     * Test that an asynced request keeps counting against the maximum number
+     * of concurrent requests until its response is closed.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testLoadSheddingAsync() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        AtomicBoolean first = new AtomicBoolean(true);
+        CompletableFuture<HttpServerResponse> asynced = new CompletableFuture<>();
+        VirtualHttpServer server = new VirtualHttpServer(port, (request, response) -> {
+            if (first.getAndSet(false)) {
+                asynced.complete(response);
+                return ASYNCED;
+            }
+            try {
+                response.setStatus(200);
+                response.setHeader("Content-Length", "0");
+                response.writeStatusLine();
+                response.writeHeaders();
+            } catch (IOException ioe) {
+                // the test will fail on the status code.
+            }
+            return COMPLETED;
+        }, false);
+        server.setMaxConcurrentRequests(1);
+        server.start();
+        try {
+            CompletableFuture<Integer> inFlight = CompletableFuture.supplyAsync(() -> get(port));
+            HttpServerResponse response = asynced.get();
+            assertEquals(1, server.getActiveRequests());
+            assertEquals(503, get(port));
+            response.setStatus(200);
+            response.setHeader("Content-Length", "0");
+            response.writeStatusLine();
+            response.writeHeaders();
+            response.closeResponse();
+            assertEquals(200, inFlight.get());
+            assertEquals(0, server.getActiveRequests());
+            assertEquals(200, get(port));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Test that stopping the server closes the server socket and lets the
+     * request that is being processed complete.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testStopDrains() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualHttpServer server = createBlockingServer(port, entered, release);
+        server.start();
+        CompletableFuture<Integer> inFlight = CompletableFuture.supplyAsync(() -> get(port));
+        entered.await();
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(server::stop);
+        while (server.isRunning()) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertThrows(ConnectException.class, () -> new Socket("localhost", port).close());
+        assertFalse(stopped.isDone());
+        release.countDown();
+        assertEquals(200, inFlight.get());
+        stopped.get();
+        assertEquals(0, server.getActiveConnections());
+    }
+
+    /**
+     * Create a server whose processor asyncs every request.
+     *
+     * @param port the port.
+     * @param asynced the future completed with the response of the request.
+     * @return the server.
+     */
+    private static VirtualHttpServer createAsyncServer(int port, CompletableFuture<HttpServerResponse> asynced) {
+        return new VirtualHttpServer(port, (request, response) -> {
+            asynced.complete(response);
+            return ASYNCED;
+        }, false);
+    }
+
+    /**
+     * Test that stopping the server waits for an asynced request until its
+     * response is closed.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testStopDrainsAsync() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        CompletableFuture<HttpServerResponse> asynced = new CompletableFuture<>();
+        VirtualHttpServer server = createAsyncServer(port, asynced);
+        server.setDrainTimeout(10000);
+        server.start();
+        CompletableFuture<Integer> inFlight = CompletableFuture.supplyAsync(() -> get(port));
+        HttpServerResponse response = asynced.get();
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(server::stop);
+        Thread.sleep(200);
+        assertFalse(stopped.isDone());
+        response.setStatus(200);
+        response.setHeader("Content-Length", "0");
+        response.writeStatusLine();
+        response.writeHeaders();
+        response.closeResponse();
+        assertEquals(200, inFlight.get());
+        stopped.get(5, TimeUnit.SECONDS);
+        assertEquals(0, server.getActiveRequests());
+    }
+
+    /**
+     * Test that stopping the server closes the connection of an asynced
+     * request that does not complete within the drain timeout.
+     *
+     * @throws Exception when an error occurs.
+     */
+    @Test
+    void testStopClosesAsyncAfterDrainTimeout() throws Exception {
+        int port = FreePortFinder.findFreeLocalPort();
+        CompletableFuture<HttpServerResponse> asynced = new CompletableFuture<>();
+        VirtualHttpServer server = createAsyncServer(port, asynced);
+        server.setDrainTimeout(200);
+        server.start();
+        CompletableFuture<Integer> inFlight = CompletableFuture.supplyAsync(() -> get(port));
+        asynced.get();
+        server.stop();
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> inFlight.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UncheckedIOException.class, exception.getCause());
     }
 }
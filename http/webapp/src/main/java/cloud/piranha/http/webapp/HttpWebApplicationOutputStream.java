@@ -30,18 +30,22 @@ package cloud.piranha.http.webapp;
 import cloud.piranha.core.api.WebApplication;
 import cloud.piranha.core.api.WebApplicationResponse;
 import cloud.piranha.core.impl.DefaultWebApplicationOutputStream;
+import cloud.piranha.core.impl.HttpDateFormatter;
 import cloud.piranha.http.api.HttpServerResponse;
 import jakarta.servlet.ServletRequest;
 import static jakarta.servlet.http.HttpServletResponse.SC_SWITCHING_PROTOCOLS;
 import java.io.IOException;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Collection;
 
 /**
  * The HttpWebApplication variant of WebApplicationOutputStream.
  *
+ * <p>
+ * The stream is only ready while the HttpServerResponse is writable. Once
+ * isReady has returned false the write listener is notified again when the
+ * HttpServerResponse signals it is writable again.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputStream {
@@ -51,6 +55,11 @@ public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputS
      */
     private final HttpServerResponse httpServerResponse;
 
+    /**
+     * Stores the write blocked flag.
+     */
+    private volatile boolean writeBlocked;
+
     /**
      * Constructor.
      *
@@ -63,6 +72,7 @@ public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputS
         this.response = response;
         this.httpServerResponse = httpServerResponse;
         setOutputStream(httpServerResponse.getOutputStream());
+        httpServerResponse.setWritePossibleListener(this::writePossible);
     }
 
     @Override
@@ -79,15 +89,29 @@ public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputS
         }
     }
 
+    @Override
+    public boolean isReady() {
+        if (!super.isReady()) {
+            return false;
+        }
+        if (httpServerResponse.isWritable()) {
+            return true;
+        }
+        writeBlocked = true;
+        if (httpServerResponse.isWritable()) {
+            writePossible();
+        }
+        return false;
+    }
+
     /**
-     * Format the timestamp to a GMT string.
-     *
-     * @param timestamp the timestamp.
-     * @return the GMT string.
+     * Notify the write listener if writing was blocked.
      */
-    private String formatDateToGMT(long timestamp) {
-        return Instant.ofEpochMilli(timestamp).atZone(ZoneId.of("GMT"))
-                .format(DateTimeFormatter.RFC_1123_DATE_TIME);
+    private void writePossible() {
+        if (writeBlocked) {
+            writeBlocked = false;
+            signalWritePossible();
+        }
     }
 
     @Override
@@ -99,13 +123,18 @@ public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputS
     @Override
     public void writeHeaders() throws IOException {
 
+        /*
+         * Add Date.
+         */
+        if (!response.containsHeader("Date")) {
+            httpServerResponse.addHeader("Date", HttpDateFormatter.now());
+        }
+
         /*
          * Add Content-Type.
          */
         if (response.getContentType() != null) {
-            StringBuilder contentType = new StringBuilder();
-            contentType.append(response.getContentType());
-            httpServerResponse.addHeader("Content-Type", contentType.toString());
+            httpServerResponse.addHeader("Content-Type", response.getContentType());
         }
 
         /**
@@ -127,7 +156,7 @@ public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputS
             }
             if (cookie.getMaxAge() > -1) {
                 value.append("; Max-Age=").append(cookie.getMaxAge());
-                String expireDate = formatDateToGMT(Instant.now().plusSeconds(cookie.getMaxAge()).toEpochMilli());
+                String expireDate = HttpDateFormatter.format(Instant.now().plusSeconds(cookie.getMaxAge()).toEpochMilli());
                 value.append("; Expires=").append(expireDate);
             }
             if (cookie.getSecure()) {
@@ -146,13 +175,15 @@ public class HttpWebApplicationOutputStream extends DefaultWebApplicationOutputS
         });
 
         /**
-         * Add remaining headers.
+         * Add remaining headers. The connector owns the encoding of the
+         * headers (Netty, JDK, Undertow, etc. keep them in their own header
+         * structures), so they are handed over instead of being encoded here.
          */
-        response.getHeaderNames().forEach(
-                name -> {
-                    Collection<String> values = response.getHeaders(name);
-                    values.forEach(value -> httpServerResponse.addHeader(name, value));
-                });
+        for (String name : response.getHeaderNames()) {
+            for (String value : response.getHeaders(name)) {
+                httpServerResponse.addHeader(name, value);
+            }
+        }
 
         /**
          * Write the headers to the HttpServerResponse.
@@ -81,9 +81,13 @@ public class HttpWebApplicationRequest extends DefaultWebApplicationRequest {
         remotePort = serverRequest.getRemotePort();
         serverName = serverRequest.getLocalHostname();
         serverPort = serverRequest.getLocalPort();
-        webApplicationInputStream = new DefaultWebApplicationInputStream();
-        webApplicationInputStream.setWebApplicationRequest(this);
-        webApplicationInputStream.setInputStream(wrapped.getInputStream());
+        DefaultWebApplicationInputStream inputStream = new DefaultWebApplicationInputStream();
+        inputStream.setWebApplicationRequest(this);
+        inputStream.setInputStream(wrapped.getInputStream());
+        if (wrapped.setReadReadyListener(inputStream::signalReadReady)) {
+            inputStream.setPolling(false);
+        }
+        webApplicationInputStream = inputStream;
 
         Iterator<String> headerNames = serverRequest.getHeaderNames();
         while (headerNames.hasNext()) {
@@ -44,12 +44,33 @@ import java.io.IOException;
 import java.lang.System.Logger;
 import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.ERROR;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * The default WebApplicationServer.
  *
+ * <p>
+ * The web applications are initialized, started and stopped one after
+ * another, unless the parallelism is set to more than 1, in which case up to
+ * that many of them are handled concurrently. Either way each web application
+ * is handled with its own class loader as the context class loader.
+ * </p>
+ *
+ * <p>
+ * Adding a web application, starting and stopping are guarded by the same
+ * lock, so a web application added while the server starts is started exactly
+ * once.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class HttpWebApplicationServer implements HttpServerProcessor, WebApplicationServer {
@@ -59,10 +80,15 @@ public class HttpWebApplicationServer implements HttpServerProcessor, WebApplica
      */
     private static final Logger LOGGER = System.getLogger(HttpWebApplicationServer.class.getName());
 
+    /**
+     * Stores the parallelism.
+     */
+    protected int parallelism = 1;
+
     /**
      * Stores the running boolean.
      */
-    protected boolean running = false;
+    protected volatile boolean running = false;
 
     /**
      * Stores the request mapper.
@@ -74,6 +100,11 @@ public class HttpWebApplicationServer implements HttpServerProcessor, WebApplica
      */
     protected final Map<String, WebApplication> webApplications;
 
+    /**
+     * Stores the lifecycle lock.
+     */
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+
     /**
      * Constructor.
      */
@@ -97,11 +128,79 @@ public class HttpWebApplicationServer implements HttpServerProcessor, WebApplica
         }
     }
 
+    /**
+     * Add a web application.
+     *
+     * <p>
+     * If the server is already running and the web application has been
+     * initialized it is started, so it can service requests as soon as it is
+     * mapped.
+     * </p>
+     *
+     * @param webApplication the web application.
+     */
     @Override
     public void addWebApplication(WebApplication webApplication) {
         LOGGER.log(DEBUG, () -> "Adding web application with context path: " + webApplication.getContextPath());
-        webApplications.put(webApplication.getContextPath(), webApplication);
-        requestMapper.addMapping(webApplication, webApplication.getContextPath());
+        lifecycleLock.lock();
+        try {
+            if (running && webApplication.isInitialized() && !webApplication.isServicing()) {
+                withContextClassLoader(webApplication, WebApplication::start);
+            }
+            webApplications.put(webApplication.getContextPath(), webApplication);
+            requestMapper.addMapping(webApplication, webApplication.getContextPath());
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Perform the given action for every web application.
+     *
+     * @param action the action.
+     */
+    private void forEachWebApplication(Consumer<WebApplication> action) {
+        List<WebApplication> webApps = new ArrayList<>(webApplications.values());
+        if (parallelism <= 1 || webApps.size() <= 1) {
+            webApps.forEach(webApp -> withContextClassLoader(webApp, action));
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, webApps.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (WebApplication webApp : webApps) {
+                futures.add(executor.submit(() -> withContextClassLoader(webApp, action)));
+            }
+            RuntimeException exception = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ee) {
+                    RuntimeException cause = ee.getCause() instanceof RuntimeException re
+                            ? re : new RuntimeException(ee.getCause());
+                    if (exception == null) {
+                        exception = cause;
+                    } else {
+                        exception.addSuppressed(cause);
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ie);
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * {@return the parallelism}
+     */
+    public int getParallelism() {
+        return parallelism;
     }
 
     @Override
@@ -112,15 +211,7 @@ public class HttpWebApplicationServer implements HttpServerProcessor, WebApplica
     @Override
     public void initialize() {
         LOGGER.log(DEBUG, "Starting initialization of {0} web application(s)", webApplications.size());
-        for (WebApplication webApp : webApplications.values()) {
-            ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
-            try {
-                Thread.currentThread().setContextClassLoader(webApp.getClassLoader());
-                webApp.initialize();
-            } finally {
-                Thread.currentThread().setContextClassLoader(oldClassLoader);
-            }
-        }
+        forEachWebApplication(WebApplication::initialize);
         LOGGER.log(DEBUG, "Finished initialization of {0} web application(s)", webApplications.size());
     }
 
@@ -183,6 +274,20 @@ public class HttpWebApplicationServer implements HttpServerProcessor, WebApplica
         }
     }
 
+    /**
+     * Set the parallelism.
+     *
+     * <p>
+     * This is the maximum number of web applications that are initialized,
+     * started or stopped concurrently.
+     * </p>
+     *
+     * @param parallelism the parallelism.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Override
     public void setRequestMapper(WebApplicationServerRequestMapper requestMapper) {
         this.requestMapper = requestMapper;
@@ -190,37 +295,48 @@ public class HttpWebApplicationServer implements HttpServerProcessor, WebApplica
 
     @Override
     public void start() {
-        if (!running) {
-            LOGGER.log(DEBUG, "Starting HTTP web application server");
-            webApplications.values().forEach(webApp -> {
-                ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
-                try {
-                    Thread.currentThread().setContextClassLoader(webApp.getClassLoader());
-                    webApp.start();
-                } finally {
-                    Thread.currentThread().setContextClassLoader(oldClassLoader);
-                }
-            });
-            LOGGER.log(DEBUG, "Started HTTP web application server");
-            running = true;
+        lifecycleLock.lock();
+        try {
+            if (!running) {
+                LOGGER.log(DEBUG, "Starting HTTP web application server");
+                forEachWebApplication(WebApplication::start);
+                LOGGER.log(DEBUG, "Started HTTP web application server");
+                running = true;
+            }
+        } finally {
+            lifecycleLock.unlock();
         }
     }
 
     @Override
     public void stop() {
-        if (running) {
-            LOGGER.log(DEBUG, "Stopping HTTP web application server");
-            webApplications.values().forEach(webApp -> {
-                ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
-                try {
-                    Thread.currentThread().setContextClassLoader(webApp.getClassLoader());
-                    webApp.stop();
-                } finally {
-                    Thread.currentThread().setContextClassLoader(oldClassLoader);
-                }
-            });
-            LOGGER.log(DEBUG, "Stopped HTTP web application server");
-            running = false;
+        lifecycleLock.lock();
+        try {
+            if (running) {
+                LOGGER.log(DEBUG, "Stopping HTTP web application server");
+                forEachWebApplication(WebApplication::stop);
+                LOGGER.log(DEBUG, "Stopped HTTP web application server");
+                running = false;
+            }
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Perform the given action with the class loader of the web application
+     * as the context class loader.
+     *
+     * @param webApp the web application.
+     * @param action the action.
+     */
+    private static void withContextClassLoader(WebApplication webApp, Consumer<WebApplication> action) {
+        ClassLoader oldClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Thread.currentThread().setContextClassLoader(webApp.getClassLoader());
+            action.accept(webApp);
+        } finally {
+            Thread.currentThread().setContextClassLoader(oldClassLoader);
         }
     }
 }
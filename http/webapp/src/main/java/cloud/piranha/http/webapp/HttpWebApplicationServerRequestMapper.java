@@ -27,8 +27,9 @@
  */
 package cloud.piranha.http.webapp;
 
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -38,6 +39,20 @@ import cloud.piranha.core.api.WebApplicationServerRequestMapper;
 /**
  * The default WebApplicationServerRequestMapper.
  *
+ * <p>
+ * The mappings (context paths) are compiled into a trie with one level per
+ * path segment, so finding the web application for a path only depends on
+ * the number of segments in the path and not on the number of web
+ * applications. A context path only matches whole path segments, e.g.
+ * <code>/app</code> matches <code>/app</code> and <code>/app/index.html</code>
+ * but not <code>/application</code>.
+ * </p>
+ *
+ * <p>
+ * The trie is immutable and is replaced as a whole (copy-on-write) when a
+ * mapping is added or removed, so lookups never lock.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class HttpWebApplicationServerRequestMapper implements WebApplicationServerRequestMapper {
@@ -47,6 +62,11 @@ public class HttpWebApplicationServerRequestMapper implements WebApplicationServ
      */
     private final ConcurrentHashMap<String, WebApplication> mappings = new ConcurrentHashMap<>();
 
+    /**
+     * Stores the root of the compiled mappings.
+     */
+    private volatile MappingNode root = new MappingNode();
+
     /**
      * Add a mapping.
      *
@@ -55,7 +75,7 @@ public class HttpWebApplicationServerRequestMapper implements WebApplicationServ
      * @return the url patterns not added.
      */
     @Override
-    public Set<String> addMapping(WebApplication webApplication, String... urlPatterns) {
+    public synchronized Set<String> addMapping(WebApplication webApplication, String... urlPatterns) {
         Set<String> result = new HashSet<>();
 
         for (String urlPattern : urlPatterns) {
@@ -65,10 +85,40 @@ public class HttpWebApplicationServerRequestMapper implements WebApplicationServ
                 this.mappings.put(urlPattern, webApplication);
             }
         }
+        root = compile();
 
         return result;
     }
 
+    /**
+     * Compile the mappings into a trie.
+     *
+     * @return the root of the trie.
+     */
+    private MappingNode compile() {
+        MappingNode newRoot = new MappingNode();
+        mappings.keySet().stream()
+                .sorted((x, y) -> Integer.compare(y.length(), x.length()))
+                .forEach(mapping -> {
+                    MappingNode node = newRoot;
+                    String path = mapping.endsWith("/") ? mapping.substring(0, mapping.length() - 1) : mapping;
+                    int start = path.startsWith("/") ? 1 : 0;
+                    while (start < path.length()) {
+                        int slash = path.indexOf('/', start);
+                        if (slash == -1) {
+                            slash = path.length();
+                        }
+                        node = node.children.computeIfAbsent(path.substring(start, slash), key -> new MappingNode());
+                        start = slash + 1;
+                    }
+                    if (node.mapping == null) {
+                        node.mapping = mapping;
+                        node.webApplication = mappings.get(mapping);
+                    }
+                });
+        return newRoot;
+    }
+
     /**
      * Find a mapping for the given path.
      *
@@ -77,33 +127,44 @@ public class HttpWebApplicationServerRequestMapper implements WebApplicationServ
      */
     @Override
     public WebApplication findMapping(String path) {
-        WebApplication result = null;
-        String mapping = findPrefixMatch(path);
-        if (mapping != null) {
-            result = this.mappings.get(mapping);
-        }
-        return result;
+        MappingNode node = findNode(path, root);
+        return node != null ? node.webApplication : null;
     }
 
     /**
-     * Find a mapping with the longest prefix mapping.
+     * Find the node with the longest mapping matching the given path.
      *
      * @param path the path.
-     * @return the mapping, or null if not found.
+     * @param root the root of the trie.
+     * @return the node, or null if not found.
      */
-    private String findPrefixMatch(String path) {
-        String result = null;
-        String found;
-
-        for (;;) {
-            found = findPrefixMatch(path, result);
-            if (found != null) {
-                result = found;
-            } else {
+    private static MappingNode findNode(String path, MappingNode root) {
+        MappingNode result = root.mapping != null ? root : null;
+        MappingNode node = root;
+        int end = path.length();
+        int query = path.indexOf('?');
+        if (query != -1) {
+            end = query;
+        }
+        int start = path.startsWith("/") ? 1 : 0;
+        while (start < end) {
+            int slash = path.indexOf('/', start);
+            if (slash == -1 || slash > end) {
+                slash = end;
+            }
+            int segmentEnd = path.indexOf(';', start);
+            if (segmentEnd == -1 || segmentEnd > slash) {
+                segmentEnd = slash;
+            }
+            node = node.children.get(path.substring(start, segmentEnd));
+            if (node == null) {
                 break;
             }
+            if (node.mapping != null) {
+                result = node;
+            }
+            start = slash + 1;
         }
-
         return result;
     }
 
@@ -116,23 +177,47 @@ public class HttpWebApplicationServerRequestMapper implements WebApplicationServ
      * @return the mapping, or null if not found.
      */
     public String findPrefixMatch(String path, String currentPrefix) {
-        String result = null;
-        Enumeration<String> prefixes = mappings.keys();
-
-        while (prefixes.hasMoreElements()) {
-            String prefix = prefixes.nextElement();
-            if (path.startsWith(prefix)) {
-                if (result == null) {
-                    result = prefix;
-                }
-                break;
-            }
-        }
-
+        MappingNode node = findNode(path, root);
+        String result = node != null ? node.mapping : null;
         if (result != null && currentPrefix != null
                 && result.length() <= currentPrefix.length()) {
             result = null;
         }
         return result;
     }
+
+    /**
+     * Remove a mapping.
+     *
+     * @param urlPattern the url pattern (aka mapping).
+     * @return the web application that was mapped, or null if none.
+     */
+    public synchronized WebApplication removeMapping(String urlPattern) {
+        WebApplication result = mappings.remove(urlPattern);
+        if (result != null) {
+            root = compile();
+        }
+        return result;
+    }
+
+    /**
+     * A node in the mapping trie.
+     */
+    private static class MappingNode {
+
+        /**
+         * Stores the child nodes keyed by path segment.
+         */
+        private final Map<String, MappingNode> children = new HashMap<>(4);
+
+        /**
+         * Stores the mapping ending at this node (or null if none).
+         */
+        private String mapping;
+
+        /**
+         * Stores the web application of the mapping.
+         */
+        private WebApplication webApplication;
+    }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.http.webapp;
+
+import cloud.piranha.core.api.WebApplication;
+import cloud.piranha.core.impl.DefaultWebApplication;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The JUnit tests for the HttpWebApplicationServerRequestMapper class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class HttpWebApplicationServerRequestMapperTest {
+
+    /**
+     * Test findMapping method.
+     */
+    @Test
+    void testFindMapping() {
+        HttpWebApplicationServerRequestMapper mapper = new HttpWebApplicationServerRequestMapper();
+        WebApplication rootApplication = new DefaultWebApplication();
+        WebApplication application = new DefaultWebApplication();
+        WebApplication nestedApplication = new DefaultWebApplication();
+        assertTrue(mapper.addMapping(rootApplication, "").isEmpty());
+        assertTrue(mapper.addMapping(application, "/app").isEmpty());
+        assertTrue(mapper.addMapping(nestedApplication, "/app/nested").isEmpty());
+        assertSame(application, mapper.findMapping("/app"));
+        assertSame(application, mapper.findMapping("/app/index.html?nested=true"));
+        assertSame(application, mapper.findMapping("/app;jsessionid=1234"));
+        assertSame(nestedApplication, mapper.findMapping("/app/nested/index.html"));
+        assertSame(rootApplication, mapper.findMapping("/application"));
+        assertSame(rootApplication, mapper.findMapping("/"));
+    }
+
+    /**
+     * Test addMapping method with a mapping that already exists.
+     */
+    @Test
+    void testAddMappingExisting() {
+        HttpWebApplicationServerRequestMapper mapper = new HttpWebApplicationServerRequestMapper();
+        mapper.addMapping(new DefaultWebApplication(), "/app");
+        assertEquals(1, mapper.addMapping(new DefaultWebApplication(), "/app").size());
+    }
+
+    /**
+     * Test removeMapping method.
+     */
+    @Test
+    void testRemoveMapping() {
+        HttpWebApplicationServerRequestMapper mapper = new HttpWebApplicationServerRequestMapper();
+        WebApplication application = new DefaultWebApplication();
+        mapper.addMapping(application, "/app");
+        assertSame(application, mapper.removeMapping("/app"));
+        assertNull(mapper.findMapping("/app/index.html"));
+    }
+}
@@ -35,8 +35,11 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -88,6 +91,23 @@ class HttpWebApplicationServerTest {
         assertEquals(webApp, server.getRequestMapper().findMapping("/myurlpattern"));
     }
 
+    /**
+     * Test addWebApplication method on a running server.
+     */
+    @Test
+    void testAddWebApplicationWhenRunning() {
+        HttpWebApplicationServer server = new HttpWebApplicationServer();
+        server.start();
+        DefaultWebApplication webApp = new DefaultWebApplication();
+        webApp.setContextPath("/running");
+        webApp.initialize();
+        server.addWebApplication(webApp);
+        assertTrue(webApp.isServicing());
+        assertEquals(webApp, server.getRequestMapper().findMapping("/running/index.html"));
+        server.stop();
+        assertFalse(webApp.isServicing());
+    }
+
     /**
      * Test getRequestMapper method.
      */
@@ -127,6 +147,28 @@ class HttpWebApplicationServerTest {
         server.stop();
     }
 
+    /**
+     * Test initialize, start and stop with a parallelism greater than 1.
+     */
+    @Test
+    void testParallelism() {
+        HttpWebApplicationServer server = new HttpWebApplicationServer();
+        server.setParallelism(4);
+        assertEquals(4, server.getParallelism());
+        List<DefaultWebApplication> webApps = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            DefaultWebApplication webApp = new DefaultWebApplication();
+            webApp.setContextPath("/context" + i);
+            webApps.add(webApp);
+            server.addWebApplication(webApp);
+        }
+        server.initialize();
+        server.start();
+        webApps.forEach(webApp -> assertTrue(webApp.isServicing()));
+        server.stop();
+        webApps.forEach(webApp -> assertFalse(webApp.isServicing()));
+    }
+
     @Test
     void testSessionUrlRewriting() throws Exception {
         HttpWebApplicationServer server = new HttpWebApplicationServer();
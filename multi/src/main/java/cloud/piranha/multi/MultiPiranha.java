@@ -39,6 +39,7 @@ import cloud.piranha.feature.impl.DefaultFeatureManager;
 import cloud.piranha.feature.logging.LoggingFeature;
 import cloud.piranha.feature.webapps.WebAppsFeature;
 import cloud.piranha.http.api.HttpServer;
+import cloud.piranha.http.webapp.HttpWebApplicationServer;
 import java.io.File;
 import java.io.IOException;
 import java.lang.System.Logger;
@@ -61,6 +62,12 @@ import java.nio.file.Files;
  * <li>Hosting multiple web application</li>
  * </ol>
  *
+ * <p>
+ * The HTTP (and HTTPS) endpoint is started before the web applications are
+ * deployed. The web applications are deployed concurrently and each one is
+ * serviced as soon as it is deployed.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class MultiPiranha implements Piranha, Runnable {
@@ -125,6 +132,7 @@ public class MultiPiranha implements Piranha, Runnable {
      */
     public MultiPiranha() {
         configuration = new DefaultPiranhaConfiguration();
+        configuration.setInteger("deploymentParallelism", Runtime.getRuntime().availableProcessors());
         configuration.setBoolean("exitOnStop", false);
         configuration.setInteger("httpPort", 8080);
         configuration.setInteger("httpsPort", -1);
@@ -177,13 +185,20 @@ public class MultiPiranha implements Piranha, Runnable {
 
         LOGGER.log(INFO, () -> "Starting Piranha");
 
+        /*
+         * Start the (still empty) HTTP web application server so every web
+         * application can be mapped and serviced as soon as it is deployed.
+         */
+        HttpWebApplicationServer webApplicationServer = new HttpWebApplicationServer();
+        webApplicationServer.start();
+
         webAppsFeature = new WebAppsFeature();
         featureManager.addFeature(webAppsFeature);
         webAppsFeature.setExtensionClass((Class<? extends WebApplicationExtension>) configuration.getClass("extensionClass"));
+        webAppsFeature.setHttpWebApplicationServer(webApplicationServer);
         webAppsFeature.setJpmsEnabled(configuration.getBoolean("jpmsEnabled", false));
+        webAppsFeature.setParallelism(configuration.getInteger("deploymentParallelism"));
         webAppsFeature.setWebAppsDir(configuration.getFile("webAppsDir"));
-        webAppsFeature.init();
-        webAppsFeature.start();
         
         /*
          * Construct, initialize and start HTTP endpoint (if applicable).
@@ -215,6 +230,12 @@ public class MultiPiranha implements Piranha, Runnable {
             httpServer = httpsFeature.getHttpsServer();
         }
 
+        /*
+         * Deploy the web applications.
+         */
+        webAppsFeature.init();
+        webAppsFeature.start();
+
         if (configuration.getBoolean("exitOnStop", false)) {
             ExitOnStopFeature exitOnStopFeature = new ExitOnStopFeature();
             featureManager.addFeature(exitOnStopFeature);
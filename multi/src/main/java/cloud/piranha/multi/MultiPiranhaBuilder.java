@@ -78,6 +78,18 @@ public class MultiPiranhaBuilder implements PiranhaBuilder<MultiPiranha> {
         return piranha;
     }
 
+    /**
+     * Set the deployment parallelism.
+     *
+     * @param deploymentParallelism the maximum number of web applications
+     * deployed concurrently.
+     * @return the builder.
+     */
+    public MultiPiranhaBuilder deploymentParallelism(int deploymentParallelism) {
+        piranha.getConfiguration().setInteger("deploymentParallelism", deploymentParallelism);
+        return this;
+    }
+
     /**
      * Set the exit on stop flag.
      *
@@ -239,6 +251,7 @@ public class MultiPiranhaBuilder implements PiranhaBuilder<MultiPiranha> {
             =========
 
             Default extension class   : %s
+            Deployment parallelism    : %s
             Exit on stop              : %s
             HTTP port                 : %s
             HTTP server class         : %s
@@ -254,6 +267,7 @@ public class MultiPiranhaBuilder implements PiranhaBuilder<MultiPiranha> {
 
             """.formatted(
                         piranha.getConfiguration().getClass("extensionClass"),
+                        piranha.getConfiguration().getInteger("deploymentParallelism"),
                         piranha.getConfiguration().getBoolean("exitOnStop", false),
                         piranha.getConfiguration().getInteger("httpPort"),
                         piranha.getConfiguration().getString("httpServerClass"),
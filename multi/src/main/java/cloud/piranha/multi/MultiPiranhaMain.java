@@ -67,6 +67,9 @@ public class MultiPiranhaMain {
 
         if (arguments != null) {
             for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i].equals("--deployment-parallelism")) {
+                    builder = builder.deploymentParallelism(Integer.parseInt(arguments[i + 1]));
+                }
                 if (arguments[i].equals("--extension-class")) {
                     builder = builder.extensionClass(arguments[i + 1]);
                 }
@@ -121,6 +124,8 @@ public class MultiPiranhaMain {
         LOGGER.log(Level.INFO, "");
         LOGGER.log(Level.INFO,
                 """
+   --deployment-parallelism <integer>   - Set the maximum number of web
+                                          applications deployed concurrently
    --extension-class <className>        - Set the extension to use
    --help                               - Show this help
    --http-port <integer>                - Set the HTTP port (use -1 to disable)
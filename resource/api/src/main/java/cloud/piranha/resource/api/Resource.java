@@ -59,6 +59,50 @@ public interface Resource {
      */
     Stream<String> getAllLocations();
 
+    /**
+     * Close the resource.
+     *
+     * <p>
+     * This releases any file handles held by the resource. The default
+     * implementation does nothing.
+     * </p>
+     */
+    default void close() {
+    }
+
+    /**
+     * Get a checksum of the locations and their content.
+     *
+     * <p>
+     * The checksum changes whenever a location is added, removed or changed,
+     * so it can be used to key data derived from the content of the resource,
+     * e.g. an annotation index. The default implementation returns 0, which
+     * means the resource cannot compute a checksum and such data must not be
+     * reused.
+     * </p>
+     *
+     * @return the checksum, or 0 if unknown.
+     */
+    default long getChecksum() {
+        return 0;
+    }
+
+    /**
+     * Check if the locations of this resource never change.
+     *
+     * <p>
+     * A resource manager may index the locations of an immutable resource and
+     * only look in it for the locations it contains, so an immutable resource
+     * must find nothing outside of {@link #getAllLocations()}. The default
+     * implementation returns false.
+     * </p>
+     *
+     * @return true if it is immutable, false otherwise.
+     */
+    default boolean isImmutable() {
+        return false;
+    }
+
     /**
      * Get the name of this resource
      * @return the name
@@ -48,6 +48,16 @@ public interface ResourceManager {
      */
     void addResource(Resource resource);
 
+    /**
+     * Close all the resources.
+     *
+     * <p>
+     * The default implementation does nothing.
+     * </p>
+     */
+    default void close() {
+    }
+
     /**
      * Get the resource.
      *
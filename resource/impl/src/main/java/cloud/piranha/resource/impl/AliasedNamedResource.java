@@ -73,6 +73,11 @@ public class AliasedNamedResource implements Resource {
         return resource.getAllLocations();
     }
 
+    @Override
+    public long getChecksum() {
+        return resource.getChecksum();
+    }
+
     @Override
     public String getName() {
         return resourceName;
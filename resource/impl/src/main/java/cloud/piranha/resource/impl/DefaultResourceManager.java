@@ -33,6 +33,8 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import cloud.piranha.resource.api.Resource;
@@ -41,10 +43,40 @@ import cloud.piranha.resource.api.ResourceManager;
 /**
  * The default ResourceManager.
  *
+ * <p>
+ * Unless disabled the locations of all immutable resources (e.g. JAR files)
+ * are indexed, in parallel, on the first lookup, and new resources are added
+ * to the index as they are added. A lookup then only probes the immutable
+ * resources that contain the location and the resources that can change
+ * (e.g. directories), instead of every resource. Locations not found through
+ * the class fallback are remembered so a repeated miss does not probe the
+ * class path again.
+ * </p>
+ *
+ * <p>
+ * The index can be disabled by setting the piranha.resource.index system
+ * property to false.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultResourceManager implements ResourceManager {
 
+    /**
+     * Stores the maximum number of class fallback misses remembered.
+     */
+    private static final int MAX_CLASS_MISSES = 4096;
+
+    /**
+     * Stores the locations not found using the class fallback.
+     */
+    private final Set<String> classMisses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Stores the location index (or null if disabled).
+     */
+    private final ResourceLocationIndex index;
+
     /**
      * Stores the resources.
      */
@@ -59,6 +91,16 @@ public class DefaultResourceManager implements ResourceManager {
      * Default constructor.
      */
     public DefaultResourceManager() {
+        this(Boolean.parseBoolean(System.getProperty("piranha.resource.index", "true")));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param indexed true to index the locations of the immutable resources.
+     */
+    public DefaultResourceManager(boolean indexed) {
+        index = indexed ? new ResourceLocationIndex() : null;
     }
     
     /**
@@ -71,6 +113,23 @@ public class DefaultResourceManager implements ResourceManager {
         this.resources.add(resource);
     }
 
+    /**
+     * Remember a location was not found using the class fallback.
+     *
+     * @param location the location.
+     */
+    private void addClassMiss(String location) {
+        if (classMisses.size() >= MAX_CLASS_MISSES) {
+            classMisses.clear();
+        }
+        classMisses.add(location);
+    }
+
+    @Override
+    public void close() {
+        resources.forEach(Resource::close);
+    }
+
     /**
      * Get the resource URL.
      *
@@ -81,14 +140,16 @@ public class DefaultResourceManager implements ResourceManager {
     @Override
     public URL getResource(String location) throws MalformedURLException {
         URL result = null;
-        for (Resource resource : resources) {
-            result = resource.getResource(location);
-            if (result != null) {
-                break;
-            }
+        int[] candidates = getCandidates(location);
+        int count = candidates != null ? candidates.length : resources.size();
+        for (int i = 0; i < count && result == null; i++) {
+            result = resources.get(candidates != null ? candidates[i] : i).getResource(location);
         }
-        if (alsoTryLoadFromClass && result == null && location != null) {
+        if (alsoTryLoadFromClass && result == null && location != null && !classMisses.contains(location)) {
             result = getClass().getResource(location);
+            if (result == null) {
+                addClassMiss(location);
+            }
         }
         return result;
     }
@@ -103,17 +164,21 @@ public class DefaultResourceManager implements ResourceManager {
     @Override
     public Collection<URL> getResources(String location) throws MalformedURLException {
         ArrayList<URL> result = new ArrayList<>();
-        for (Resource resource : resources) {
-            URL url = resource.getResource(location);
+        int[] candidates = getCandidates(location);
+        int count = candidates != null ? candidates.length : resources.size();
+        for (int i = 0; i < count; i++) {
+            URL url = resources.get(candidates != null ? candidates[i] : i).getResource(location);
             if (url != null) {
                 result.add(url);
             }
         }
 
-        if (alsoTryLoadFromClass) {
+        if (alsoTryLoadFromClass && !classMisses.contains(location)) {
             URL url = getClass().getResource(location);
             if (url != null) {
                 result.add(url);
+            } else {
+                addClassMiss(location);
             }
         }
 
@@ -129,18 +194,36 @@ public class DefaultResourceManager implements ResourceManager {
     @Override
     public InputStream getResourceAsStream(String location) {
         InputStream result = null;
-        for (Resource resource : resources) {
-            result = resource.getResourceAsStream(location);
-            if (result != null) {
-                break;
-            }
+        int[] candidates = getCandidates(location);
+        int count = candidates != null ? candidates.length : resources.size();
+        for (int i = 0; i < count && result == null; i++) {
+            result = resources.get(candidates != null ? candidates[i] : i).getResourceAsStream(location);
         }
-        if (alsoTryLoadFromClass && result == null) {
+        if (alsoTryLoadFromClass && result == null && !classMisses.contains(location)) {
             result = getClass().getResourceAsStream(location);
+            if (result == null) {
+                addClassMiss(location);
+            }
         }
         return result;
     }
 
+    /**
+     * Get the positions of the resources to probe for a location.
+     *
+     * @param location the location.
+     * @return the positions, or null to probe all resources.
+     */
+    private int[] getCandidates(String location) {
+        if (index == null || location == null) {
+            return null;
+        }
+        if (index.getSize() < resources.size()) {
+            index.index(resources);
+        }
+        return index.getCandidates(location);
+    }
+
     @Override
     public Stream<String> getAllLocations() {
         return resources.stream().flatMap(Resource::getAllLocations);
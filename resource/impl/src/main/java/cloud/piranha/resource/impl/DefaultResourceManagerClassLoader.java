@@ -29,8 +29,6 @@ package cloud.piranha.resource.impl;
 
 import cloud.piranha.resource.api.ResourceManager;
 import cloud.piranha.resource.api.ResourceManagerClassLoader;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.System.Logger;
@@ -46,10 +44,26 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import static java.util.stream.Collectors.toUnmodifiableSet;
 
 /**
  * The default ResourceManagerClassLoader.
  *
+ * <p>
+ * This class loader is registered as parallel capable, so classes with
+ * different names are loaded and defined concurrently, each under its own
+ * class loading lock.
+ * </p>
+ *
+ * <p>
+ * The delegate class loader is only asked to load a class when it can
+ * actually see it, either because the package belongs to a module of the boot
+ * layer or because the delegate has the class file. This avoids throwing and
+ * catching a ClassNotFoundException on the delegate for every class of the
+ * web application.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class DefaultResourceManagerClassLoader extends ClassLoader implements ResourceManagerClassLoader {
@@ -58,7 +72,14 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
      * Stores the logger.
      */
     private static final Logger LOGGER = System.getLogger(DefaultResourceManagerClassLoader.class.getName());
-    
+
+    /**
+     * Stores the packages of the modules in the boot layer.
+     */
+    private static final Set<String> BOOT_LAYER_PACKAGES = ModuleLayer.boot().modules().stream()
+            .flatMap(module -> module.getPackages().stream())
+            .collect(toUnmodifiableSet());
+
     /**
      * Stores the 'Unable to load class: ' message prefix.
      */
@@ -84,6 +105,30 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
      */
     private final ConcurrentHashMap<String, Class<?>> classes = new ConcurrentHashMap<>();
 
+    /**
+     * Stores the number of classes defined by this class loader.
+     */
+    private final AtomicLong definedCount = new AtomicLong();
+
+    /**
+     * Stores the number of times the delegate class loader was skipped.
+     */
+    private final AtomicLong delegateSkipCount = new AtomicLong();
+
+    /**
+     * Stores the time (in nanoseconds) spent reading and defining classes.
+     */
+    private final AtomicLong loadTime = new AtomicLong();
+
+    /**
+     * Stores the number of classes that could not be found.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    static {
+        registerAsParallelCapable();
+    }
+
     /**
      * Constructor.
      */
@@ -130,35 +175,43 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
      */
     @Override
     public Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-        Class<?> result;
+        Class<?> result = classes.get(name);
+        if (result != null) {
+            return result;
+        }
 
-        try {
-            result = delegateClassLoader.loadClass(name);
-        } catch (ClassNotFoundException cnfe) {
-            result = null;
+        boolean delegated = delegateMayLoad(name);
+        if (delegated) {
+            result = loadClassFromDelegate(name);
+        } else {
+            delegateSkipCount.incrementAndGet();
         }
 
         if (result == null) {
             try {
-                if (classes.containsKey(name)) {
-                    return classes.get(name);
-                }
-
                 result = internalLoadClass(name, resolve);
             } catch (Throwable throwable) {
+                missCount.incrementAndGet();
                 throw new ClassNotFoundException(UNABLE_TO_LOAD_CLASS + name, throwable);
             }
         }
 
+        if (result == null && !delegated) {
+            // The delegate can define classes it has no class file for (e.g.
+            // generated proxies), so give it a chance before giving up.
+            result = loadClassFromDelegate(name);
+        }
+
         if (result == null) {
             if (notFoundClasses.contains(name)) {
+                missCount.incrementAndGet();
                 throw new ClassNotFoundException("Unable to load previosly failed to find class: " + name);
             }
 
             notFoundClasses.add(name);
 
             ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
-            if (contextClassLoader != this) {
+            if (contextClassLoader != null && contextClassLoader != this) {
                 try {
                     result = contextClassLoader.loadClass(name);
                 } catch (ClassNotFoundException e) {
@@ -171,12 +224,47 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
         }
 
         if (result == null) { // Checks if the result is null
+            missCount.incrementAndGet();
             throw new ClassNotFoundException(UNABLE_TO_LOAD_CLASS + name);
         }
 
         return result; // Returns the result
     }
 
+    /**
+     * Check if the delegate class loader may be able to load the class.
+     *
+     * @param name the name of the class.
+     * @return true if it may, false if it certainly cannot see the class file.
+     */
+    private boolean delegateMayLoad(String name) {
+        if (delegateClassLoader == null) {
+            return false;
+        }
+        int lastDotPosition = name.lastIndexOf('.');
+        if (lastDotPosition != -1 && BOOT_LAYER_PACKAGES.contains(name.substring(0, lastDotPosition))) {
+            return true;
+        }
+        return delegateClassLoader.getResource(normalizeName(name)) != null;
+    }
+
+    /**
+     * Load the class from the delegate class loader.
+     *
+     * @param name the name of the class.
+     * @return the class, or null if the delegate could not load it.
+     */
+    private Class<?> loadClassFromDelegate(String name) {
+        if (delegateClassLoader == null) {
+            return null;
+        }
+        try {
+            return delegateClassLoader.loadClass(name);
+        } catch (ClassNotFoundException cnfe) {
+            return null;
+        }
+    }
+
     @Override
     protected Class<?> findClass(String moduleName, String name) {
         try {
@@ -200,40 +288,44 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
      */
     protected Class<?> internalLoadClass(String name, boolean resolve) {
         Class<?> result = null;
-        try {
-            // Check with the super class. This can contain dynamic classes
-            // that have been "hacked" into our classloader by e.g. Weld or
-            // Javasist.
+        synchronized (getClassLoadingLock(name)) {
             try {
-                result = super.loadClass(name, resolve);
-            } catch (ClassNotFoundException cnfe) {
-                // Ignore
-            }
+                result = classes.get(name);
+                if (result != null) {
+                    return result;
+                }
 
-            if (result == null) {
+                // Check with the super class. This can contain dynamic classes
+                // that have been "hacked" into our classloader by e.g. Weld or
+                // Javasist.
+                try {
+                    result = super.loadClass(name, resolve);
+                } catch (ClassNotFoundException cnfe) {
+                    // Ignore
+                }
 
-                // Define class
+                if (result == null) {
 
-                byte[] bytes = null;
-                try (InputStream resourceStream = resourceManager.getResourceAsStream(normalizeName(name))) {
-                    if (resourceStream == null) {
-                        return null;
-                    }
+                    // Define class
 
-                    bytes = readClassBytes(resourceStream);
-                }
-
-                synchronized (this) {
-                    result = classes.get(name);
+                    long start = System.nanoTime();
+                    byte[] bytes;
+                    try (InputStream resourceStream = resourceManager.getResourceAsStream(normalizeName(name))) {
+                        if (resourceStream == null) {
+                            return null;
+                        }
 
-                    if (result == null) {
-                        result = internalDefineClass(name, bytes, resolve);
-                        classes.put(name, result);
+                        bytes = readClassBytes(resourceStream);
                     }
+
+                    result = internalDefineClass(name, bytes, resolve);
+                    classes.put(name, result);
+                    definedCount.incrementAndGet();
+                    loadTime.addAndGet(System.nanoTime() - start);
                 }
+            } catch (Throwable throwable) {
+                throw new IllegalStateException(UNABLE_TO_LOAD_CLASS + name, throwable);
             }
-        } catch (Throwable throwable) {
-            throw new IllegalStateException(UNABLE_TO_LOAD_CLASS + name, throwable);
         }
 
         return result;
@@ -326,6 +418,34 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
         return delegateClassLoader;
     }
 
+    /**
+     * {@return the number of classes defined by this class loader}
+     */
+    public long getDefinedCount() {
+        return definedCount.get();
+    }
+
+    /**
+     * {@return the number of times the delegate class loader was skipped}
+     */
+    public long getDelegateSkipCount() {
+        return delegateSkipCount.get();
+    }
+
+    /**
+     * {@return the time (in nanoseconds) spent reading and defining classes}
+     */
+    public long getLoadTime() {
+        return loadTime.get();
+    }
+
+    /**
+     * {@return the number of classes that could not be found}
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
     /**
      * Normalize the name to a .class name.
      *
@@ -344,15 +464,7 @@ public class DefaultResourceManagerClassLoader extends ClassLoader implements Re
      * @throws IOException when an I/O error occurs.
      */
     protected byte[] readClassBytes(InputStream resourceStream) throws IOException {
-        BufferedInputStream inputStream = new BufferedInputStream(resourceStream);
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        int read = inputStream.read();
-        while (read != -1) {
-            outputStream.write((byte) read);
-            read = inputStream.read();
-        }
-
-        return outputStream.toByteArray();
+        return resourceStream.readAllBytes();
     }
 
     /**
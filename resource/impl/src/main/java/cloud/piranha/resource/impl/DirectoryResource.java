@@ -33,12 +33,14 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import static java.lang.System.Logger.Level.DEBUG;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Iterator;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -98,6 +100,41 @@ public class DirectoryResource implements Resource {
         }
     }
 
+    /**
+     * Get the checksum.
+     *
+     * <p>
+     * The checksum is computed from the path, size and last modified time of
+     * every file below the root directory, so no file has to be read. It is
+     * computed again on every call as the directory may change.
+     * </p>
+     *
+     * @return the checksum, or 0 if the directory cannot be walked.
+     */
+    @Override
+    public long getChecksum() {
+        if (rootDirectory == null) {
+            return 0;
+        }
+        Path rootPath = rootDirectory.toPath();
+        try (Stream<Path> paths = Files.walk(rootPath)) {
+            long result = 1;
+            Iterator<Path> iterator = paths.sorted().iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                File file = path.toFile();
+                if (file.isFile()) {
+                    result = 31 * result + rootPath.relativize(path).toString().hashCode();
+                    result = 31 * result + file.length();
+                    result = 31 * result + file.lastModified();
+                }
+            }
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
     @Override
     public String getName() {
         return rootDirectory.getName();
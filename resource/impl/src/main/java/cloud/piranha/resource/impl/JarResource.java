@@ -28,23 +28,26 @@
 package cloud.piranha.resource.impl;
 
 import cloud.piranha.resource.api.Resource;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import static java.lang.System.Logger.Level.WARNING;
 import java.net.URL;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
 
 /**
  * The default JarResource.
  *
+ * <p>
+ * The JAR file is opened on first use and kept open, so its central directory
+ * is only read once, until the resource is closed. The list of entry names is
+ * computed once as well.
+ * </p>
+ *
  * @author Manfred Riem (mriem@manorrock.com)
  */
 public class JarResource implements Resource {
@@ -54,11 +57,26 @@ public class JarResource implements Resource {
      */
     private static final System.Logger LOGGER = System.getLogger(JarResource.class.getName());
 
+    /**
+     * Stores the checksum (or 0 if not computed yet).
+     */
+    private volatile long checksum;
+
+    /**
+     * Stores the opened JAR file (or null if not opened).
+     */
+    private volatile JarFile jar;
+
     /**
      * Stores the JAR file.
      */
     private File jarFile;
 
+    /**
+     * Stores the locations (or null if not computed yet).
+     */
+    private volatile List<String> locations;
+
     /**
      * Constructor.
      */
@@ -74,6 +92,79 @@ public class JarResource implements Resource {
         this.jarFile = jarFile;
     }
 
+    /**
+     * Close the JAR file.
+     *
+     * <p>
+     * The JAR file is opened again when it is used after being closed.
+     * </p>
+     */
+    @Override
+    public synchronized void close() {
+        if (jar != null) {
+            try {
+                jar.close();
+            } catch (IOException ioe) {
+                LOGGER.log(WARNING, "I/O error occurred while closing JAR file", ioe);
+            }
+            jar = null;
+        }
+        locations = null;
+        checksum = 0;
+    }
+
+    /**
+     * Get the checksum.
+     *
+     * <p>
+     * The checksum is computed from the name, CRC-32 and size of every entry
+     * as recorded in the central directory, so no entry has to be read.
+     * </p>
+     *
+     * @return the checksum, or 0 if the JAR file cannot be read.
+     */
+    @Override
+    public long getChecksum() {
+        long result = checksum;
+        if (result == 0) {
+            try {
+                result = 1;
+                Enumeration<JarEntry> entries = getJar().entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    result = 31 * result + entry.getName().hashCode();
+                    result = 31 * result + entry.getCrc();
+                    result = 31 * result + entry.getSize();
+                }
+            } catch (IOException ioe) {
+                LOGGER.log(WARNING, "I/O error occurred while computing JAR checksum", ioe);
+                return 0;
+            }
+            checksum = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the opened JAR file.
+     *
+     * @return the opened JAR file.
+     * @throws IOException when an I/O error occurs.
+     */
+    private JarFile getJar() throws IOException {
+        JarFile result = jar;
+        if (result == null) {
+            synchronized (this) {
+                result = jar;
+                if (result == null) {
+                    result = new JarFile(jarFile);
+                    jar = result;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * {@return the resource}
      */
@@ -82,10 +173,8 @@ public class JarResource implements Resource {
         URL result = null;
         if (location != null) {
             try {
-                try ( JarFile jar = new JarFile(jarFile)) {
-                    if (jar.getJarEntry(location) != null) {
-                        result = new URL("jar:" + jarFile.toURI() + "!/" + location);
-                    }
+                if (getJar().getJarEntry(location) != null) {
+                    result = new URL("jar:" + jarFile.toURI() + "!/" + location);
                 }
             } catch (IOException ioe) {
                 LOGGER.log(WARNING, "I/O error occurred while getting JAR resource", ioe);
@@ -99,8 +188,8 @@ public class JarResource implements Resource {
      * Get the resource as a stream.
      *
      * <p>
-     * Note that this method will read the content of a JAR entry into a
-     * byte-array to avoid locking the JAR file.
+     * Note the returned stream reads straight from the JAR file, so it should
+     * be consumed before the resource is closed.
      * </p>
      *
      * @param location the resource location.
@@ -110,17 +199,11 @@ public class JarResource implements Resource {
     @Override
     public InputStream getResourceAsStream(String location) {
         InputStream result = null;
-        try ( JarFile jar = new JarFile(jarFile)) {
-            JarEntry entry = jar.getJarEntry(location.startsWith("/") ? location.substring(1) : location);
+        try {
+            JarFile opened = getJar();
+            JarEntry entry = opened.getJarEntry(location.startsWith("/") ? location.substring(1) : location);
             if (entry != null) {
-                InputStream inputStream;
-                try ( InputStream jarInputStream = jar.getInputStream(entry)) {
-                    inputStream = new BufferedInputStream(jarInputStream);
-                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                    inputStream.transferTo(outputStream);
-                    result = new ByteArrayInputStream(outputStream.toByteArray());
-                }
-                inputStream.close();
+                result = opened.getInputStream(entry);
             }
         } catch (IOException ioe) {
             LOGGER.log(WARNING, "I/O error occurred while getting JAR resource", ioe);
@@ -130,17 +213,19 @@ public class JarResource implements Resource {
 
     @Override
     public Stream<String> getAllLocations() {
-        List<String> entryNames;
-        try ( JarFile jar = new JarFile(jarFile)) {
-            entryNames = jar
-                    .stream()
-                    .map(ZipEntry::getName)
-                    .map(x -> "/" + x)
-                    .toList();
-        } catch (IOException e) {
-            return Stream.of();
+        List<String> result = locations;
+        if (result == null) {
+            try {
+                result = getJar()
+                        .stream()
+                        .map(entry -> "/" + entry.getName())
+                        .toList();
+            } catch (IOException e) {
+                return Stream.of();
+            }
+            locations = result;
         }
-        return entryNames.stream();
+        return result.stream();
     }
 
     /**
@@ -150,12 +235,18 @@ public class JarResource implements Resource {
         return this.jarFile;
     }
 
+    @Override
+    public boolean isImmutable() {
+        return true;
+    }
+
     /**
      * Set the JAR file.
      *
      * @param jarFile the JAR file.
      */
     public void setJarFile(File jarFile) {
+        close();
         this.jarFile = jarFile;
     }
 
@@ -156,11 +156,26 @@ public final class MultiReleaseResource implements Resource {
         return null;
     }
 
+    @Override
+    public void close() {
+        resource.close();
+    }
+
     @Override
     public Stream<String> getAllLocations() {
         return resource.getAllLocations();
     }
 
+    @Override
+    public long getChecksum() {
+        return resource.getChecksum();
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return resource.isImmutable();
+    }
+
     @Override
     public String getName() {
         return resource.getName();
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.resource.impl;
+
+import cloud.piranha.resource.api.Resource;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The location index used by the default ResourceManager.
+ *
+ * <p>
+ * The index maps every location of an immutable resource to the positions of
+ * the immutable resources that contain it. A lookup only needs to probe those
+ * resources plus the resources that are not immutable (e.g. directories, whose
+ * content can change), in their original order.
+ * </p>
+ *
+ * <p>
+ * Locations are normalized by dropping any leading and trailing slash. The
+ * entries of a multi-release JAR are also indexed under their unversioned
+ * location.
+ * </p>
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class ResourceLocationIndex {
+
+    /**
+     * Stores the empty positions.
+     */
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Stores the META-INF/versions/ prefix.
+     */
+    private static final String META_INF_VERSIONS = "META-INF/versions/";
+
+    /**
+     * Stores the positions of the resources that are not immutable.
+     */
+    private volatile int[] mutablePositions = EMPTY;
+
+    /**
+     * Stores the positions of the immutable resources by location.
+     */
+    private final Map<String, int[]> positions = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the number of resources indexed.
+     */
+    private volatile int size;
+
+    /**
+     * Get the positions of the resources that may contain the location.
+     *
+     * @param location the location.
+     * @return the positions in ascending order, or null if all resources
+     * should be probed.
+     */
+    int[] getCandidates(String location) {
+        String key = normalize(location);
+        if (key.isEmpty()) {
+            return null;
+        }
+        int[] mutable = mutablePositions;
+        int[] immutable = positions.getOrDefault(key, EMPTY);
+        if (immutable.length == 0) {
+            return mutable;
+        }
+        if (mutable.length == 0) {
+            return immutable;
+        }
+        int[] result = new int[mutable.length + immutable.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < mutable.length && j < immutable.length) {
+            result[k++] = mutable[i] < immutable[j] ? mutable[i++] : immutable[j++];
+        }
+        while (i < mutable.length) {
+            result[k++] = mutable[i++];
+        }
+        while (j < immutable.length) {
+            result[k++] = immutable[j++];
+        }
+        return result;
+    }
+
+    /**
+     * {@return the number of resources indexed}
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Index the resources that have not been indexed yet.
+     *
+     * <p>
+     * The locations of the new resources are gathered in parallel.
+     * </p>
+     *
+     * @param resources all the resources.
+     */
+    synchronized void index(List<Resource> resources) {
+        int start = size;
+        int end = resources.size();
+        if (start >= end) {
+            return;
+        }
+        List<Resource> added = List.copyOf(resources.subList(start, end));
+        List<Set<String>> locations = added.parallelStream()
+                .map(resource -> resource.isImmutable() ? keys(resource) : null)
+                .toList();
+        int[] mutable = mutablePositions;
+        for (int i = 0; i < added.size(); i++) {
+            int position = start + i;
+            Set<String> keys = locations.get(i);
+            if (keys == null) {
+                mutable = Arrays.copyOf(mutable, mutable.length + 1);
+                mutable[mutable.length - 1] = position;
+            } else {
+                for (String key : keys) {
+                    positions.merge(key, new int[]{position}, ResourceLocationIndex::append);
+                }
+            }
+        }
+        mutablePositions = mutable;
+        size = end;
+    }
+
+    /**
+     * Append the positions.
+     *
+     * @param existing the existing positions.
+     * @param added the added positions.
+     * @return the combined positions.
+     */
+    private static int[] append(int[] existing, int[] added) {
+        int[] result = Arrays.copyOf(existing, existing.length + added.length);
+        System.arraycopy(added, 0, result, existing.length, added.length);
+        return result;
+    }
+
+    /**
+     * Get the index keys of a resource.
+     *
+     * @param resource the resource.
+     * @return the index keys.
+     */
+    private static Set<String> keys(Resource resource) {
+        Set<String> keys = new HashSet<>();
+        resource.getAllLocations().forEach(location -> {
+            String key = normalize(location);
+            keys.add(key);
+            if (key.startsWith(META_INF_VERSIONS)) {
+                int slash = key.indexOf('/', META_INF_VERSIONS.length());
+                if (slash != -1) {
+                    keys.add(key.substring(slash + 1));
+                }
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Normalize a location.
+     *
+     * @param location the location.
+     * @return the normalized location.
+     */
+    private static String normalize(String location) {
+        int start = 0;
+        int end = location.length();
+        while (start < end && location.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && location.charAt(end - 1) == '/') {
+            end--;
+        }
+        return location.substring(start, end);
+    }
+}
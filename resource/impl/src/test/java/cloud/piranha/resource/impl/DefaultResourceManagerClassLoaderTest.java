@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2002-2024 Manorrock.com. All Rights Reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *   1. Redistributions of source code must retain the above copyright notice,
+ *      this list of conditions and the following disclaimer.
+ *   2. Redistributions in binary form must reproduce the above copyright
+ *      notice, this list of conditions and the following disclaimer in the
+ *      documentation and/or other materials provided with the distribution.
+ *   3. Neither the name of the copyright holder nor the names of its
+ *      contributors may be used to endorse or promote products derived from
+ *      this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.piranha.resource.impl;
+
+import java.io.File;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The JUnit tests for the DefaultResourceManagerClassLoader class.
+ *
+ * @author Manfred Riem (mriem@manorrock.com)
+ */
+class DefaultResourceManagerClassLoaderTest {
+
+    /**
+     * Test isRegisteredAsParallelCapable method.
+     */
+    @Test
+    void testIsRegisteredAsParallelCapable() {
+        DefaultResourceManagerClassLoader classLoader = new DefaultResourceManagerClassLoader();
+        assertTrue(classLoader.isRegisteredAsParallelCapable());
+    }
+
+    /**
+     * Test loadClass method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testLoadClass() throws Exception {
+        DefaultResourceManager resourceManager = new DefaultResourceManager();
+        resourceManager.addResource(new DirectoryResource(new File("target/test-classes")));
+        DefaultResourceManagerClassLoader classLoader = new DefaultResourceManagerClassLoader(resourceManager);
+        Class<?> clazz = classLoader.loadClass(DirectoryResourceTest.class.getName());
+        assertEquals(classLoader, clazz.getClassLoader());
+        assertSame(clazz, classLoader.loadClass(DirectoryResourceTest.class.getName()));
+        assertEquals(1, classLoader.getDefinedCount());
+        assertTrue(classLoader.getLoadTime() > 0);
+    }
+
+    /**
+     * Test loadClass method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testLoadClass2() throws Exception {
+        DefaultResourceManagerClassLoader classLoader = new DefaultResourceManagerClassLoader(
+                ClassLoader.getPlatformClassLoader(), new DefaultResourceManager());
+        assertEquals(String.class, classLoader.loadClass("java.lang.String"));
+        assertEquals(0, classLoader.getDelegateSkipCount());
+        assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass("does.not.Exist"));
+        assertEquals(1, classLoader.getDelegateSkipCount());
+        assertEquals(1, classLoader.getMissCount());
+        assertEquals(0, classLoader.getDefinedCount());
+    }
+}
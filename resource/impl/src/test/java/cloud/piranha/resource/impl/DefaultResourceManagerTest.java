@@ -28,6 +28,12 @@
 package cloud.piranha.resource.impl;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import org.junit.jupiter.api.Test;
@@ -96,4 +102,58 @@ class DefaultResourceManagerTest {
         manager.addResource(new DirectoryResource(new File("")));
         assertNotNull(manager.getResourceAsStream("/src/main/java/cloud/piranha/resource/impl/DefaultResourceManager.java"));
     }
+
+    /**
+     * Test getResourceAsStream method using the location index.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testGetResourceAsStreamIndexed() throws Exception {
+        DefaultResourceManager manager = new DefaultResourceManager(true);
+        manager.addResource(new JarResource(createJar("first.txt", "first")));
+        manager.addResource(new DirectoryResource(new File(".")));
+        manager.addResource(new MultiReleaseResource(new JarResource(createJar("second.txt", "second"))));
+        assertEquals("first", readAll(manager.getResourceAsStream("/first.txt")));
+        assertEquals("second", readAll(manager.getResourceAsStream("second.txt")));
+        assertNotNull(manager.getResourceAsStream("/src/main/java/cloud/piranha/resource/impl/DefaultResourceManager.java"));
+        assertNull(manager.getResourceAsStream("/doesnotexist"));
+        assertNull(manager.getResourceAsStream("/doesnotexist"));
+        manager.addResource(new JarResource(createJar("third.txt", "third")));
+        assertEquals("third", readAll(manager.getResourceAsStream("/third.txt")));
+        assertEquals(1, manager.getResources("first.txt").size());
+        manager.close();
+    }
+
+    /**
+     * Create a JAR file with a single entry.
+     *
+     * @param name the entry name.
+     * @param content the entry content.
+     * @return the JAR file.
+     * @throws IOException when an I/O error occurs.
+     */
+    private File createJar(String name, String content) throws IOException {
+        File file = File.createTempFile("resource-manager", ".jar");
+        file.deleteOnExit();
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+            output.putNextEntry(new JarEntry(name));
+            output.write(content.getBytes());
+            output.closeEntry();
+        }
+        return file;
+    }
+
+    /**
+     * Read the input stream into a string.
+     *
+     * @param inputStream the input stream.
+     * @return the string.
+     * @throws IOException when an I/O error occurs.
+     */
+    private String readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return new String(inputStream.readAllBytes());
+        }
+    }
 }
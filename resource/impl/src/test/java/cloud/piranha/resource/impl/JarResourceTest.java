@@ -30,6 +30,15 @@ package cloud.piranha.resource.impl;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -67,4 +76,70 @@ class JarResourceTest {
         resource.setJarFile(new File("this_jar_file_does_not_exist.jar"));
         assertNull(resource.getResource("we_wont_find_this"));
     }
+
+    /**
+     * Test getResourceAsStream and getAllLocations methods, before and after
+     * closing the resource.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testGetResourceAsStreamAndClose() throws Exception {
+        File file = File.createTempFile("jar-resource", ".jar");
+        file.deleteOnExit();
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+            output.putNextEntry(new JarEntry("test.txt"));
+            output.write("test".getBytes());
+            output.closeEntry();
+        }
+        JarResource resource = new JarResource(file);
+        assertEquals("test", readAll(resource.getResourceAsStream("/test.txt")));
+        assertNotNull(resource.getResource("test.txt"));
+        assertNull(resource.getResourceAsStream("/missing.txt"));
+        assertEquals(List.of("/test.txt"), resource.getAllLocations().toList());
+        resource.close();
+        assertEquals("test", readAll(resource.getResourceAsStream("test.txt")));
+        resource.close();
+    }
+
+    /**
+     * Test getChecksum method.
+     *
+     * @throws Exception when a serious error occurs.
+     */
+    @Test
+    void testGetChecksum() throws Exception {
+        File file = File.createTempFile("jar-resource", ".jar");
+        file.deleteOnExit();
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+            output.putNextEntry(new JarEntry("test.txt"));
+            output.write("test".getBytes());
+            output.closeEntry();
+        }
+        JarResource resource = new JarResource(file);
+        long checksum = resource.getChecksum();
+        assertNotEquals(0, checksum);
+        assertEquals(checksum, new JarResource(file).getChecksum());
+        resource.close();
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+            output.putNextEntry(new JarEntry("test.txt"));
+            output.write("changed".getBytes());
+            output.closeEntry();
+        }
+        assertNotEquals(checksum, resource.getChecksum());
+        resource.close();
+    }
+
+    /**
+     * Read the input stream into a string.
+     *
+     * @param inputStream the input stream.
+     * @return the string.
+     * @throws IOException when an I/O error occurs.
+     */
+    private String readAll(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return new String(inputStream.readAllBytes());
+        }
+    }
 }
@@ -56,6 +56,10 @@ public class IsolatingResourceManagerClassLoader extends DefaultResourceManagerC
      */
     private final String classLoaderId;
 
+    static {
+        registerAsParallelCapable();
+    }
+
     /**
      * Constructor.
      */